@@ -106,7 +106,9 @@ import org.elasticsearch.action.index.IndexAction;
 import org.elasticsearch.action.index.TransportIndexAction;
 import org.elasticsearch.action.mlt.MoreLikeThisAction;
 import org.elasticsearch.action.mlt.TransportMoreLikeThisAction;
+import org.elasticsearch.action.percolate.BulkPercolateAction;
 import org.elasticsearch.action.percolate.PercolateAction;
+import org.elasticsearch.action.percolate.TransportBulkPercolateAction;
 import org.elasticsearch.action.percolate.TransportPercolateAction;
 import org.elasticsearch.action.search.*;
 import org.elasticsearch.action.search.type.*;
@@ -225,6 +227,7 @@ public class ActionModule extends AbstractModule {
         registerAction(MultiSearchAction.INSTANCE, TransportMultiSearchAction.class);
         registerAction(MoreLikeThisAction.INSTANCE, TransportMoreLikeThisAction.class);
         registerAction(PercolateAction.INSTANCE, TransportPercolateAction.class);
+        registerAction(BulkPercolateAction.INSTANCE, TransportBulkPercolateAction.class);
         registerAction(ExplainAction.INSTANCE, TransportExplainAction.class);
 
         // register Name -> GenericAction Map that can be injected to instances.
@@ -21,6 +21,7 @@ package org.elasticsearch.action.admin.cluster.node.stats;
 
 import org.elasticsearch.action.support.nodes.NodeOperationResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionStats;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -73,12 +74,15 @@ public class NodeStats extends NodeOperationResponse {
     @Nullable
     private HttpStats http;
 
+    @Nullable
+    private AdaptiveSelectionStats adaptiveSelection;
+
     NodeStats() {
     }
 
     public NodeStats(DiscoveryNode node, long timestamp, @Nullable String hostname, @Nullable NodeIndicesStats indices,
                      @Nullable OsStats os, @Nullable ProcessStats process, @Nullable JvmStats jvm, @Nullable ThreadPoolStats threadPool, @Nullable NetworkStats network,
-                     @Nullable FsStats fs, @Nullable TransportStats transport, @Nullable HttpStats http) {
+                     @Nullable FsStats fs, @Nullable TransportStats transport, @Nullable HttpStats http, @Nullable AdaptiveSelectionStats adaptiveSelection) {
         super(node);
         this.timestamp = timestamp;
         this.hostname = hostname;
@@ -91,6 +95,7 @@ public class NodeStats extends NodeOperationResponse {
         this.fs = fs;
         this.transport = transport;
         this.http = http;
+        this.adaptiveSelection = adaptiveSelection;
     }
 
     public long timestamp() {
@@ -243,6 +248,22 @@ public class NodeStats extends NodeOperationResponse {
         return http();
     }
 
+    /**
+     * The per node statistics used by adaptive replica selection to rank search shard copies.
+     */
+    @Nullable
+    public AdaptiveSelectionStats adaptiveSelection() {
+        return this.adaptiveSelection;
+    }
+
+    /**
+     * The per node statistics used by adaptive replica selection to rank search shard copies.
+     */
+    @Nullable
+    public AdaptiveSelectionStats getAdaptiveSelection() {
+        return adaptiveSelection();
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -283,6 +304,9 @@ public class NodeStats extends NodeOperationResponse {
         if (in.readBoolean()) {
             http = HttpStats.readHttpStats(in);
         }
+        if (in.readBoolean()) {
+            adaptiveSelection = AdaptiveSelectionStats.readAdaptiveSelectionStats(in);
+        }
     }
 
     @Override
@@ -349,5 +373,11 @@ public class NodeStats extends NodeOperationResponse {
             out.writeBoolean(true);
             http.writeTo(out);
         }
+        if (adaptiveSelection == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            adaptiveSelection.writeTo(out);
+        }
     }
 }
\ No newline at end of file
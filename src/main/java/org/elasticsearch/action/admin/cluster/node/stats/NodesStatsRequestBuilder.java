@@ -121,6 +121,14 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         return this;
     }
 
+    /**
+     * Should the node adaptive replica selection stats be returned.
+     */
+    public NodesStatsRequestBuilder setAdaptiveSelection(boolean adaptiveSelection) {
+        request.adaptiveSelection(adaptiveSelection);
+        return this;
+    }
+
     @Override
     protected void doExecute(ActionListener<NodesStatsResponse> listener) {
         ((ClusterAdminClient) client).nodesStats(request, listener);
@@ -111,6 +111,9 @@ public class NodesStatsResponse extends NodesOperationResponse<NodeStats> implem
             if (nodeStats.http() != null) {
                 nodeStats.http().toXContent(builder, params);
             }
+            if (nodeStats.adaptiveSelection() != null) {
+                nodeStats.adaptiveSelection().toXContent(builder, params);
+            }
 
             builder.endObject();
         }
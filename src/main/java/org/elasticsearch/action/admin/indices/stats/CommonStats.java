@@ -33,6 +33,7 @@ import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.shard.DocsStats;
 import org.elasticsearch.index.store.StoreStats;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.warmer.WarmerStats;
 
 import java.io.IOException;
@@ -68,6 +69,9 @@ public class CommonStats implements Streamable, ToXContent {
     @Nullable
     WarmerStats warmer;
 
+    @Nullable
+    TranslogStats translog;
+
     public void add(CommonStats stats) {
         if (docs == null) {
             if (stats.docs() != null) {
@@ -141,6 +145,14 @@ public class CommonStats implements Streamable, ToXContent {
         } else {
             warmer.add(stats.warmer());
         }
+        if (translog == null) {
+            if (stats.translog() != null) {
+                translog = new TranslogStats();
+                translog.add(stats.translog());
+            }
+        } else {
+            translog.add(stats.translog());
+        }
     }
 
     @Nullable
@@ -233,6 +245,16 @@ public class CommonStats implements Streamable, ToXContent {
         return this.warmer;
     }
 
+    @Nullable
+    public TranslogStats translog() {
+        return this.translog;
+    }
+
+    @Nullable
+    public TranslogStats getTranslog() {
+        return this.translog;
+    }
+
     public static CommonStats readCommonStats(StreamInput in) throws IOException {
         CommonStats stats = new CommonStats();
         stats.readFrom(in);
@@ -268,6 +290,9 @@ public class CommonStats implements Streamable, ToXContent {
         if (in.readBoolean()) {
             warmer = WarmerStats.readWarmerStats(in);
         }
+        if (in.readBoolean()) {
+            translog = TranslogStats.readTranslogStats(in);
+        }
     }
 
     @Override
@@ -326,6 +351,12 @@ public class CommonStats implements Streamable, ToXContent {
             out.writeBoolean(true);
             warmer.writeTo(out);
         }
+        if (translog == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            translog.writeTo(out);
+        }
     }
 
     // note, requires a wrapping object
@@ -358,6 +389,9 @@ public class CommonStats implements Streamable, ToXContent {
         if (warmer != null) {
             warmer.toXContent(builder, params);
         }
+        if (translog != null) {
+            translog.toXContent(builder, params);
+        }
         return builder;
     }
 }
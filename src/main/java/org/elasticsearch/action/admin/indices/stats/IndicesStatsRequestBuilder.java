@@ -114,6 +114,11 @@ public class IndicesStatsRequestBuilder extends BroadcastOperationRequestBuilder
         return this;
     }
 
+    public IndicesStatsRequestBuilder setTranslog(boolean translog) {
+        request.translog(translog);
+        return this;
+    }
+
     @Override
     protected void doExecute(ActionListener<IndicesStats> listener) {
         ((IndicesAdminClient) client).stats(request, listener);
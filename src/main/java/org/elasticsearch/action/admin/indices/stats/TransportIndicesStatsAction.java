@@ -172,6 +172,9 @@ public class TransportIndicesStatsAction extends TransportBroadcastOperationActi
         if (request.request.warmer()) {
             stats.stats.warmer = indexShard.warmerStats();
         }
+        if (request.request.translog()) {
+            stats.stats.translog = indexShard.translogStats();
+        }
 
         return stats;
     }
@@ -225,6 +225,8 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         builder.field(Fields.START_TIME_IN_MILLIS, peerRecoveryStatus.startTime());
                         builder.field(Fields.TIME, peerRecoveryStatus.time());
                         builder.field(Fields.TIME_IN_MILLIS, peerRecoveryStatus.time().millis());
+                        builder.field(Fields.THROTTLE_TIME, peerRecoveryStatus.throttleTime());
+                        builder.field(Fields.THROTTLE_TIME_IN_MILLIS, peerRecoveryStatus.throttleTime().millis());
 
                         builder.startObject(Fields.INDEX);
                         builder.field(Fields.PROGRESS, peerRecoveryStatus.indexRecoveryProgress());
@@ -330,6 +332,8 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
         static final XContentBuilderString START_TIME_IN_MILLIS = new XContentBuilderString("start_time_in_millis");
         static final XContentBuilderString TIME = new XContentBuilderString("time");
         static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+        static final XContentBuilderString THROTTLE_TIME = new XContentBuilderString("throttle_time");
+        static final XContentBuilderString THROTTLE_TIME_IN_MILLIS = new XContentBuilderString("throttle_time_in_millis");
         static final XContentBuilderString PROGRESS = new XContentBuilderString("progress");
         static final XContentBuilderString REUSED_SIZE = new XContentBuilderString("reused_size");
         static final XContentBuilderString REUSED_SIZE_IN_BYTES = new XContentBuilderString("reused_size_in_bytes");
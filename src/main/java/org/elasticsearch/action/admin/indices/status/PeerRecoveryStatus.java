@@ -75,8 +75,10 @@ public class PeerRecoveryStatus {
 
     final long recoveredTranslogOperations;
 
+    final long throttleTimeInNanos;
+
     public PeerRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
-                              long recoveredIndexSize, long recoveredTranslogOperations) {
+                              long recoveredIndexSize, long recoveredTranslogOperations, long throttleTimeInNanos) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
@@ -84,6 +86,7 @@ public class PeerRecoveryStatus {
         this.reusedIndexSize = reusedIndexSize;
         this.recoveredIndexSize = recoveredIndexSize;
         this.recoveredTranslogOperations = recoveredTranslogOperations;
+        this.throttleTimeInNanos = throttleTimeInNanos;
     }
 
     public Stage stage() {
@@ -165,4 +168,15 @@ public class PeerRecoveryStatus {
     public long getRecoveredTranslogOperations() {
         return recoveredTranslogOperations();
     }
+
+    /**
+     * The time the recovery was paused because of <tt>indices.recovery.max_bytes_per_sec</tt> throttling.
+     */
+    public TimeValue throttleTime() {
+        return TimeValue.timeValueNanos(throttleTimeInNanos);
+    }
+
+    public TimeValue getThrottleTime() {
+        return throttleTime();
+    }
 }
@@ -275,6 +275,7 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(peerRecoveryStatus.reusedIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredTranslogOperations);
+            out.writeVLong(peerRecoveryStatus.throttleTimeInNanos);
         }
 
         if (gatewayRecoveryStatus == null) {
@@ -339,7 +340,7 @@ public class ShardStatus extends BroadcastShardOperationResponse {
         }
         if (in.readBoolean()) {
             peerRecoveryStatus = new PeerRecoveryStatus(PeerRecoveryStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
         }
 
         if (in.readBoolean()) {
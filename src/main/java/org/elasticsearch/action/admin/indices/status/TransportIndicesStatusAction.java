@@ -206,7 +206,7 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
                 }
                 shardStatus.peerRecoveryStatus = new PeerRecoveryStatus(stage, peerRecoveryStatus.startTime(), peerRecoveryStatus.time(),
                         peerRecoveryStatus.phase1TotalSize(), peerRecoveryStatus.phase1ExistingTotalSize(),
-                        peerRecoveryStatus.currentFilesSize(), peerRecoveryStatus.currentTranslogOperations());
+                        peerRecoveryStatus.currentFilesSize(), peerRecoveryStatus.currentTranslogOperations(), peerRecoveryStatus.throttleTimeInNanos());
             }
 
             IndexShardGatewayService gatewayService = indexService.shardInjector(request.shardId()).getInstance(IndexShardGatewayService.class);
@@ -37,13 +37,21 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
 
     private BulkItemResponse[] responses;
     private long tookInMillis;
+    private long primaryTookInMillis;
+    private long replicationTookInMillis;
 
     BulkResponse() {
     }
 
     public BulkResponse(BulkItemResponse[] responses, long tookInMillis) {
+        this(responses, tookInMillis, 0, 0);
+    }
+
+    public BulkResponse(BulkItemResponse[] responses, long tookInMillis, long primaryTookInMillis, long replicationTookInMillis) {
         this.responses = responses;
         this.tookInMillis = tookInMillis;
+        this.primaryTookInMillis = primaryTookInMillis;
+        this.replicationTookInMillis = replicationTookInMillis;
     }
 
     /**
@@ -74,6 +82,20 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
         return tookInMillis();
     }
 
+    /**
+     * The longest time it took a shard to execute its items on the primary shard, in milliseconds.
+     */
+    public long primaryTookInMillis() {
+        return primaryTookInMillis;
+    }
+
+    /**
+     * The longest time a shard spent on top of the primary execution (mostly waiting for the replicas), in milliseconds.
+     */
+    public long replicationTookInMillis() {
+        return replicationTookInMillis;
+    }
+
     /**
      * Has anything failed with the execution.
      */
@@ -120,6 +142,8 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
             responses[i] = BulkItemResponse.readBulkItem(in);
         }
         tookInMillis = in.readVLong();
+        primaryTookInMillis = in.readVLong();
+        replicationTookInMillis = in.readVLong();
     }
 
     @Override
@@ -130,5 +154,7 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
             response.writeTo(out);
         }
         out.writeVLong(tookInMillis);
+        out.writeVLong(primaryTookInMillis);
+        out.writeVLong(replicationTookInMillis);
     }
 }
@@ -33,6 +33,7 @@ public class BulkShardResponse extends ActionResponse {
 
     private ShardId shardId;
     private BulkItemResponse[] responses;
+    private long primaryTookInMillis;
 
     BulkShardResponse() {
     }
@@ -50,6 +51,17 @@ public class BulkShardResponse extends ActionResponse {
         return responses;
     }
 
+    /**
+     * How long the execution of the items on the primary shard took in milliseconds.
+     */
+    public long primaryTookInMillis() {
+        return primaryTookInMillis;
+    }
+
+    void primaryTookInMillis(long primaryTookInMillis) {
+        this.primaryTookInMillis = primaryTookInMillis;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -58,6 +70,7 @@ public class BulkShardResponse extends ActionResponse {
         for (int i = 0; i < responses.length; i++) {
             responses[i] = BulkItemResponse.readBulkItem(in);
         }
+        primaryTookInMillis = in.readVLong();
     }
 
     @Override
@@ -68,5 +81,6 @@ public class BulkShardResponse extends ActionResponse {
         for (BulkItemResponse response : responses) {
             response.writeTo(out);
         }
+        out.writeVLong(primaryTookInMillis);
     }
 }
@@ -54,6 +54,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -210,15 +211,21 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
         }
 
         final AtomicInteger counter = new AtomicInteger(requestsByShard.size());
+        final AtomicLong maxPrimaryTook = new AtomicLong();
+        final AtomicLong maxReplicationTook = new AtomicLong();
         for (Map.Entry<ShardId, List<BulkItemRequest>> entry : requestsByShard.entrySet()) {
             final ShardId shardId = entry.getKey();
             final List<BulkItemRequest> requests = entry.getValue();
             BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId.index().name(), shardId.id(), bulkRequest.refresh(), requests.toArray(new BulkItemRequest[requests.size()]));
             bulkShardRequest.replicationType(bulkRequest.replicationType());
             bulkShardRequest.consistencyLevel(bulkRequest.consistencyLevel());
+            final long shardStartTime = System.currentTimeMillis();
             shardBulkAction.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
                 @Override
                 public void onResponse(BulkShardResponse bulkShardResponse) {
+                    long shardTook = System.currentTimeMillis() - shardStartTime;
+                    updateMax(maxPrimaryTook, bulkShardResponse.primaryTookInMillis());
+                    updateMax(maxReplicationTook, Math.max(0, shardTook - bulkShardResponse.primaryTookInMillis()));
                     synchronized (responses) {
                         for (BulkItemResponse bulkItemResponse : bulkShardResponse.responses()) {
                             responses[bulkItemResponse.itemId()] = bulkItemResponse;
@@ -252,12 +259,19 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
                 }
 
                 private void finishHim() {
-                    listener.onResponse(new BulkResponse(responses, System.currentTimeMillis() - startTime));
+                    listener.onResponse(new BulkResponse(responses, System.currentTimeMillis() - startTime, maxPrimaryTook.get(), maxReplicationTook.get()));
                 }
             });
         }
     }
 
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
     class TransportHandler extends BaseTransportRequestHandler<BulkRequest> {
 
         @Override
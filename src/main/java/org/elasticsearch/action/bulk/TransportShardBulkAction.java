@@ -19,10 +19,12 @@
 
 package org.elasticsearch.action.bulk;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchInterruptedException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.RoutingMissingException;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
@@ -37,16 +39,20 @@ import org.elasticsearch.cluster.block.ClusterBlockException;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.percolator.PercolatorExecutor;
 import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesService;
@@ -56,7 +62,12 @@ import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Performs the index operation.
@@ -65,12 +76,19 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
     private final MappingUpdatedAction mappingUpdatedAction;
 
+    private final int pipelineBatchSize;
+    private final int pipelineConcurrency;
+
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
                                     IndicesService indicesService, ThreadPool threadPool, ShardStateAction shardStateAction,
                                     MappingUpdatedAction mappingUpdatedAction) {
         super(settings, transportService, clusterService, indicesService, threadPool, shardStateAction);
         this.mappingUpdatedAction = mappingUpdatedAction;
+        // pipelining is disabled by default, bulk shard requests with more items than the batch size are split into
+        // groups executed concurrently, with each batch of items replicated as soon as it is executed on the primary
+        this.pipelineBatchSize = settings.getAsInt("action.bulk.pipeline.batch_size", 0);
+        this.pipelineConcurrency = settings.getAsInt("action.bulk.pipeline.concurrency", 2);
     }
 
     @Override
@@ -123,17 +141,209 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         return clusterState.routingTable().index(request.index()).shard(request.shardId()).shardsIt();
     }
 
+    @Override
+    protected void resolveRetry(BulkShardRequest request) {
+        for (BulkItemRequest item : request.items()) {
+            if (item != null && item.request() instanceof IndexRequest) {
+                ((IndexRequest) item.request()).canHaveDuplicates(true);
+            }
+        }
+    }
+
+    @Override
+    protected boolean pipelineReplicas(BulkShardRequest request) {
+        return pipelineBatchSize > 0 && request.items().length > pipelineBatchSize;
+    }
+
     @Override
     protected PrimaryResponse<BulkShardResponse, BulkShardRequest> shardOperationOnPrimary(ClusterState clusterState, PrimaryOperationRequest shardRequest) {
+        return shardOperationOnPrimary(clusterState, shardRequest, null);
+    }
+
+    @Override
+    protected PrimaryResponse<BulkShardResponse, BulkShardRequest> shardOperationOnPrimary(ClusterState clusterState, PrimaryOperationRequest shardRequest,
+                                                                                          @Nullable ReplicationPipeline<BulkShardRequest> pipeline) {
+        long startTime = System.currentTimeMillis();
         final BulkShardRequest request = shardRequest.request;
         IndexShard indexShard = indicesService.indexServiceSafe(shardRequest.request.index()).shardSafe(shardRequest.shardId);
 
-        Engine.IndexingOperation[] ops = null;
+        PrimaryExecution execution = new PrimaryExecution(clusterState, shardRequest, indexShard, pipeline);
+        if (pipeline == null) {
+            int[] items = new int[request.items().length];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = i;
+            }
+            execution.execute(0, items);
+        } else {
+            executeInParallel(execution, groupItems(request));
+        }
 
-        Set<Tuple<String, String>> mappingsToUpdate = null;
+        if (!execution.mappingsToUpdate.isEmpty()) {
+            for (Tuple<String, String> mappingToUpdate : execution.mappingsToUpdate) {
+                updateMappingOnMaster(mappingToUpdate.v1(), mappingToUpdate.v2());
+            }
+        }
 
-        BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
+        if (request.refresh()) {
+            try {
+                indexShard.refresh(new Engine.Refresh(false));
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+        BulkShardResponse response = new BulkShardResponse(new ShardId(request.index(), request.shardId()), execution.responses);
+        response.primaryTookInMillis(System.currentTimeMillis() - startTime);
+        // with pipelining, only the items that were not replicated while executing are left for the replicas, the
+        // pipeline sends them (and the refresh) once all the batches replicated while executing were acknowledged
+        BulkShardRequest replicaRequest = pipeline == null ? request : execution.remainingReplicaRequest();
+        return new PrimaryResponse<BulkShardResponse, BulkShardRequest>(replicaRequest, response, execution.ops);
+    }
+
+    /**
+     * Splits the items into groups by the hash of their id, so the operations on the same doc are executed in order
+     * within the same group.
+     */
+    private int[][] groupItems(BulkShardRequest request) {
+        int numberOfGroups = Math.max(1, Math.min(pipelineConcurrency, (request.items().length + pipelineBatchSize - 1) / pipelineBatchSize));
+        int[] groupOf = new int[request.items().length];
+        int[] groupSizes = new int[numberOfGroups];
         for (int i = 0; i < request.items().length; i++) {
+            String id = null;
+            ActionRequest itemRequest = request.items()[i].request();
+            if (itemRequest instanceof IndexRequest) {
+                id = ((IndexRequest) itemRequest).id();
+            } else if (itemRequest instanceof DeleteRequest) {
+                id = ((DeleteRequest) itemRequest).id();
+            }
+            int group = id == null ? 0 : (id.hashCode() & 0x7fffffff) % numberOfGroups;
+            groupOf[i] = group;
+            groupSizes[group]++;
+        }
+        int[][] groups = new int[numberOfGroups][];
+        for (int group = 0; group < numberOfGroups; group++) {
+            groups[group] = new int[groupSizes[group]];
+            groupSizes[group] = 0;
+        }
+        for (int i = 0; i < groupOf.length; i++) {
+            groups[groupOf[i]][groupSizes[groupOf[i]]++] = i;
+        }
+        return groups;
+    }
+
+    /**
+     * Executes the groups on the bulk thread pool, the current thread executes groups as well, so groups are never
+     * waited on unless another thread is already executing them.
+     */
+    private void executeInParallel(final PrimaryExecution execution, final int[][] groups) {
+        final AtomicInteger nextGroup = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(groups.length);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int group;
+                while ((group = nextGroup.getAndIncrement()) < groups.length) {
+                    try {
+                        execution.execute(group, groups[group]);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < groups.length; i++) {
+            try {
+                threadPool.executor(ThreadPool.Names.BULK).execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the current thread will execute the remaining groups
+                break;
+            }
+        }
+        worker.run();
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchInterruptedException("interrupted while executing bulk items", e);
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            if (t instanceof ElasticSearchException) {
+                throw (ElasticSearchException) t;
+            }
+            throw new ElasticSearchException("failed to execute bulk items", t);
+        }
+    }
+
+    /**
+     * The state of a bulk request executing on the primary shard. The items can be executed by several threads,
+     * each with its own set of items.
+     */
+    class PrimaryExecution {
+
+        final ClusterState clusterState;
+        final PrimaryOperationRequest shardRequest;
+        final BulkShardRequest request;
+        final IndexShard indexShard;
+        @Nullable
+        final ReplicationPipeline<BulkShardRequest> pipeline;
+
+        final BulkItemResponse[] responses;
+        // kept for the postPrimary operation, if we are going to percolate
+        final Engine.IndexingOperation[] ops;
+        final Set<Tuple<String, String>> mappingsToUpdate = ConcurrentCollections.newConcurrentSet();
+        final Queue<BulkItemRequest> remaining = ConcurrentCollections.newQueue();
+
+        PrimaryExecution(ClusterState clusterState, PrimaryOperationRequest shardRequest, IndexShard indexShard, @Nullable ReplicationPipeline<BulkShardRequest> pipeline) {
+            this.clusterState = clusterState;
+            this.shardRequest = shardRequest;
+            this.request = shardRequest.request;
+            this.indexShard = indexShard;
+            this.pipeline = pipeline;
+            this.responses = new BulkItemResponse[request.items().length];
+            Engine.IndexingOperation[] ops = null;
+            for (BulkItemRequest item : request.items()) {
+                if (item.request() instanceof IndexRequest && Strings.hasLength(((IndexRequest) item.request()).percolate())) {
+                    ops = new Engine.IndexingOperation[request.items().length];
+                    break;
+                }
+            }
+            this.ops = ops;
+        }
+
+        /**
+         * Executes the items in order, replicating them in batches on the given sequence, so the batches of a group
+         * are applied on the replicas one after the other.
+         */
+        void execute(int sequence, int[] items) {
+            List<BulkItemRequest> batch = pipeline == null ? null : Lists.<BulkItemRequest>newArrayListWithCapacity(pipelineBatchSize);
+            for (int i : items) {
+                execute(i);
+                if (batch == null || request.items()[i] == null) {
+                    continue;
+                }
+                batch.add(request.items()[i]);
+                if (batch.size() >= pipelineBatchSize) {
+                    // the replicas can start on the batch while we execute the next items
+                    pipeline.replicate(sequence, new BulkShardRequest(request.index(), request.shardId(), false, batch.toArray(new BulkItemRequest[batch.size()])));
+                    batch.clear();
+                }
+            }
+            if (batch != null) {
+                remaining.addAll(batch);
+            }
+        }
+
+        BulkShardRequest remainingReplicaRequest() {
+            if (remaining.isEmpty() && !request.refresh()) {
+                return null;
+            }
+            return new BulkShardRequest(request.index(), request.shardId(), request.refresh(), remaining.toArray(new BulkItemRequest[remaining.size()]));
+        }
+
+        private void execute(int i) {
             BulkItemRequest item = request.items()[i];
             if (item.request() instanceof IndexRequest) {
                 IndexRequest indexRequest = (IndexRequest) item.request();
@@ -158,7 +368,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                         version = index.version();
                         op = index;
                     } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY)
+                                .autoGeneratedId(indexRequest.autoGeneratedId()).canHaveDuplicates(indexRequest.canHaveDuplicates());
                         indexShard.create(create);
                         version = create.version();
                         op = create;
@@ -168,17 +379,11 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
                     // update mapping on master if needed, we won't update changes to the same type, since once its changed, it won't have mappers added
                     if (op.parsedDoc().mappingsModified()) {
-                        if (mappingsToUpdate == null) {
-                            mappingsToUpdate = Sets.newHashSet();
-                        }
                         mappingsToUpdate.add(Tuple.tuple(indexRequest.index(), indexRequest.type()));
                     }
 
                     // if we are going to percolate, then we need to keep this op for the postPrimary operation
-                    if (Strings.hasLength(indexRequest.percolate())) {
-                        if (ops == null) {
-                            ops = new Engine.IndexingOperation[request.items().length];
-                        }
+                    if (ops != null && Strings.hasLength(indexRequest.percolate())) {
                         ops[i] = op;
                     }
 
@@ -228,22 +433,6 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                 }
             }
         }
-
-        if (mappingsToUpdate != null) {
-            for (Tuple<String, String> mappingToUpdate : mappingsToUpdate) {
-                updateMappingOnMaster(mappingToUpdate.v1(), mappingToUpdate.v2());
-            }
-        }
-
-        if (request.refresh()) {
-            try {
-                indexShard.refresh(new Engine.Refresh(false));
-            } catch (Exception e) {
-                // ignore
-            }
-        }
-        BulkShardResponse response = new BulkShardResponse(new ShardId(request.index(), request.shardId()), responses);
-        return new PrimaryResponse<BulkShardResponse, BulkShardRequest>(shardRequest.request, response, ops);
     }
 
     @Override
@@ -298,7 +487,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                         Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
                         indexShard.index(index);
                     } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
+                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA)
+                                .autoGeneratedId(indexRequest.autoGeneratedId()).canHaveDuplicates(indexRequest.canHaveDuplicates() || indexShard.state() != IndexShardState.STARTED);
                         indexShard.create(create);
                     }
                 } catch (Exception e) {
@@ -61,6 +61,16 @@ public class ShardDeleteByQueryRequest extends ShardReplicationOperationRequest<
         filteringAliases = request.filteringAliases();
     }
 
+    /**
+     * A delete by query request on all the types of the given shard, used by node level services (like the
+     * ttl purger) that work on a specific shard.
+     */
+    public ShardDeleteByQueryRequest(String index, BytesReference querySource, int shardId) {
+        this.index = index;
+        this.querySource = querySource;
+        this.shardId = shardId;
+    }
+
     ShardDeleteByQueryRequest() {
     }
 
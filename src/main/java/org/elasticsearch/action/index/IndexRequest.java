@@ -134,6 +134,9 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
     private VersionType versionType = VersionType.INTERNAL;
     private String percolate;
 
+    private boolean autoGeneratedId = false;
+    private boolean canHaveDuplicates = false;
+
     private XContentType contentType = Requests.INDEX_CONTENT_TYPE;
 
     public IndexRequest() {
@@ -532,6 +535,27 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         return this.versionType;
     }
 
+    /**
+     * Has the id been generated (as part of {@link #process(org.elasticsearch.cluster.metadata.MetaData, String, org.elasticsearch.cluster.metadata.MappingMetaData, boolean)}),
+     * in which case the doc can be appended to the index without looking up an existing version.
+     */
+    public boolean autoGeneratedId() {
+        return this.autoGeneratedId;
+    }
+
+    /**
+     * Marks the request as one that might have already been executed (for example, when it is retried after
+     * the primary shard failed), so the doc must not be blindly appended even if its id was generated.
+     */
+    public IndexRequest canHaveDuplicates(boolean canHaveDuplicates) {
+        this.canHaveDuplicates = canHaveDuplicates;
+        return this;
+    }
+
+    public boolean canHaveDuplicates() {
+        return this.canHaveDuplicates;
+    }
+
     /**
      * Causes the index request document to be percolated. The parameter is the percolate query
      * to use to reduce the percolated queries that are going to run against this doc. Can be
@@ -592,6 +616,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         if (allowIdGeneration) {
             if (id == null) {
                 id(UUID.randomBase64UUID());
+                autoGeneratedId = true;
                 // since we generate the id, change it to CREATE
                 opType(IndexRequest.OpType.CREATE);
             }
@@ -620,6 +645,8 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         version = in.readLong();
         percolate = in.readOptionalString();
         versionType = VersionType.fromValue(in.readByte());
+        autoGeneratedId = in.readBoolean();
+        canHaveDuplicates = in.readBoolean();
     }
 
     @Override
@@ -637,6 +664,8 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         out.writeLong(version);
         out.writeOptionalString(percolate);
         out.writeByte(versionType.getValue());
+        out.writeBoolean(autoGeneratedId);
+        out.writeBoolean(canHaveDuplicates);
     }
 
     @Override
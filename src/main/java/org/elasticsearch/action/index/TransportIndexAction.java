@@ -45,6 +45,7 @@ import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.percolator.PercolatorExecutor;
 import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndicesService;
@@ -182,6 +183,11 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
                 .indexShards(clusterService.state(), request.index(), request.type(), request.id(), request.routing());
     }
 
+    @Override
+    protected void resolveRetry(IndexRequest request) {
+        request.canHaveDuplicates(true);
+    }
+
     @Override
     protected PrimaryResponse<IndexResponse, IndexRequest> shardOperationOnPrimary(ClusterState clusterState, PrimaryOperationRequest shardRequest) {
         final IndexRequest request = shardRequest.request;
@@ -211,7 +217,9 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
             Engine.Create create = indexShard.prepareCreate(sourceToParse)
                     .version(request.version())
                     .versionType(request.versionType())
-                    .origin(Engine.Operation.Origin.PRIMARY);
+                    .origin(Engine.Operation.Origin.PRIMARY)
+                    .autoGeneratedId(request.autoGeneratedId())
+                    .canHaveDuplicates(request.canHaveDuplicates());
             indexShard.create(create);
             version = create.version();
             op = create;
@@ -262,7 +270,9 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         } else {
             Engine.Create create = indexShard.prepareCreate(sourceToParse)
                     .version(request.version())
-                    .origin(Engine.Operation.Origin.REPLICA);
+                    .origin(Engine.Operation.Origin.REPLICA)
+                    .autoGeneratedId(request.autoGeneratedId())
+                    .canHaveDuplicates(request.canHaveDuplicates() || indexShard.state() != IndexShardState.STARTED);
             indexShard.create(create);
         }
         if (request.refresh()) {
@@ -0,0 +1,244 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.single.custom.SingleCustomOperationRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * A request to percolate several documents against the queries registered on an index in one go. Each
+ * document is provided in the same format as the source of a {@link PercolateRequest}.
+ */
+public class BulkPercolateRequest extends SingleCustomOperationRequest<BulkPercolateRequest> {
+
+    private String index;
+
+    private List<Item> items = new ArrayList<Item>();
+    private boolean sourceUnsafe;
+
+    public BulkPercolateRequest() {
+
+    }
+
+    /**
+     * Constructs a new bulk percolate request.
+     *
+     * @param index The index name
+     */
+    public BulkPercolateRequest(String index) {
+        this.index = index;
+    }
+
+    public BulkPercolateRequest index(String index) {
+        this.index = index;
+        return this;
+    }
+
+    public String index() {
+        return this.index;
+    }
+
+    public List<Item> items() {
+        return this.items;
+    }
+
+    public int numberOfItems() {
+        return items.size();
+    }
+
+    /**
+     * Adds a document of the provided type to percolate.
+     */
+    public BulkPercolateRequest add(String type, BytesReference source) {
+        items.add(new Item(type, source));
+        return this;
+    }
+
+    public BulkPercolateRequest add(String type, XContentBuilder sourceBuilder) {
+        return add(type, sourceBuilder.bytes());
+    }
+
+    public BulkPercolateRequest add(String type, String source) {
+        return add(type, new BytesArray(source));
+    }
+
+    /**
+     * Adds the documents serialized in the bulk format: each document is a header line, optionally
+     * holding the <tt>_type</tt> of the document, followed by the source of the percolate request.
+     */
+    public BulkPercolateRequest add(BytesReference data, boolean contentUnsafe, @Nullable String defaultType) throws Exception {
+        XContent xContent = XContentFactory.xContent(data);
+        int from = 0;
+        int length = data.length();
+        byte marker = xContent.streamSeparator();
+        while (true) {
+            int nextMarker = findNextMarker(marker, from, data, length);
+            if (nextMarker == -1) {
+                break;
+            }
+            // now parse the header
+            XContentParser parser = xContent.createParser(data.slice(from, nextMarker - from));
+            try {
+                // move pointers
+                from = nextMarker + 1;
+
+                // Move to START_OBJECT
+                XContentParser.Token token = parser.nextToken();
+                if (token == null) {
+                    continue;
+                }
+                assert token == XContentParser.Token.START_OBJECT;
+
+                String type = defaultType;
+                String currentFieldName = null;
+                while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                    if (token == XContentParser.Token.FIELD_NAME) {
+                        currentFieldName = parser.currentName();
+                    } else if (token == XContentParser.Token.START_OBJECT) {
+                        // allow for {"percolate" : {"_type" : "..."}}
+                        continue;
+                    } else if (token.isValue()) {
+                        if ("_type".equals(currentFieldName) || "type".equals(currentFieldName)) {
+                            type = parser.text();
+                        }
+                    } else if (token == null) {
+                        break;
+                    }
+                }
+
+                nextMarker = findNextMarker(marker, from, data, length);
+                if (nextMarker == -1) {
+                    break;
+                }
+                items.add(new Item(type, data.slice(from, nextMarker - from)));
+                if (contentUnsafe) {
+                    sourceUnsafe = true;
+                }
+                // move pointers
+                from = nextMarker + 1;
+            } finally {
+                parser.close();
+            }
+        }
+        return this;
+    }
+
+    private int findNextMarker(byte marker, int from, BytesReference data, int length) {
+        for (int i = from; i < length; i++) {
+            if (data.get(i) == marker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Before we fork on a local thread, make sure we copy over the bytes if they are unsafe
+     */
+    @Override
+    public void beforeLocalFork() {
+        if (sourceUnsafe) {
+            for (Item item : items) {
+                item.source = item.source.copyBytesArray();
+            }
+            sourceUnsafe = false;
+        }
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = super.validate();
+        if (index == null) {
+            validationException = addValidationError("index is missing", validationException);
+        }
+        if (items.isEmpty()) {
+            validationException = addValidationError("no documents added", validationException);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (item.type() == null) {
+                validationException = addValidationError("type is missing for document [" + i + "]", validationException);
+            }
+            if (item.source() == null) {
+                validationException = addValidationError("source is missing for document [" + i + "]", validationException);
+            }
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        index = in.readString();
+        int size = in.readVInt();
+        items = new ArrayList<Item>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(in.readString(), in.readBytesReference()));
+        }
+        sourceUnsafe = false;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(index);
+        out.writeVInt(items.size());
+        for (Item item : items) {
+            out.writeString(item.type());
+            out.writeBytesReference(item.source());
+        }
+    }
+
+    /**
+     * A document to percolate, along with its type.
+     */
+    public static class Item {
+        private final String type;
+        private BytesReference source;
+
+        public Item(String type, BytesReference source) {
+            this.type = type;
+            this.source = source;
+        }
+
+        public String type() {
+            return this.type;
+        }
+
+        public BytesReference source() {
+            return this.source;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.single.custom.SingleCustomOperationRequestBuilder;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.internal.InternalClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ *
+ */
+public class BulkPercolateRequestBuilder extends SingleCustomOperationRequestBuilder<BulkPercolateRequest, BulkPercolateResponse, BulkPercolateRequestBuilder> {
+
+    public BulkPercolateRequestBuilder(Client client) {
+        super((InternalClient) client, new BulkPercolateRequest());
+    }
+
+    public BulkPercolateRequestBuilder(Client client, String index) {
+        super((InternalClient) client, new BulkPercolateRequest(index));
+    }
+
+    /**
+     * Sets the index to percolate the documents against.
+     */
+    public BulkPercolateRequestBuilder setIndex(String index) {
+        request.index(index);
+        return this;
+    }
+
+    /**
+     * Adds a document of the provided type to percolate.
+     */
+    public BulkPercolateRequestBuilder add(String type, String source) {
+        request.add(type, source);
+        return this;
+    }
+
+    /**
+     * Adds a document of the provided type to percolate.
+     */
+    public BulkPercolateRequestBuilder add(String type, XContentBuilder sourceBuilder) {
+        request.add(type, sourceBuilder);
+        return this;
+    }
+
+    /**
+     * Adds a document of the provided type to percolate.
+     */
+    public BulkPercolateRequestBuilder add(String type, BytesReference source) {
+        request.add(type, source);
+        return this;
+    }
+
+    /**
+     * The number of documents to percolate.
+     */
+    public int numberOfItems() {
+        return request.numberOfItems();
+    }
+
+    @Override
+    protected void doExecute(ActionListener<BulkPercolateResponse> listener) {
+        ((Client) client).bulkPercolate(request, listener);
+    }
+}
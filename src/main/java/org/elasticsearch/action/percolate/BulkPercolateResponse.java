@@ -0,0 +1,158 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import com.google.common.collect.Iterators;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The response of a bulk percolate request, holding an item per percolated document, in the order the
+ * documents were provided in the request.
+ */
+public class BulkPercolateResponse extends ActionResponse implements Iterable<BulkPercolateResponse.Item> {
+
+    private Item[] items;
+
+    BulkPercolateResponse() {
+
+    }
+
+    public BulkPercolateResponse(Item[] items) {
+        this.items = items;
+    }
+
+    public Item[] items() {
+        return this.items;
+    }
+
+    /**
+     * Has anything failed with the execution.
+     */
+    public boolean hasFailures() {
+        for (Item item : items) {
+            if (item.failed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return Iterators.forArray(items);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        items = new Item[in.readVInt()];
+        for (int i = 0; i < items.length; i++) {
+            Item item = new Item();
+            item.readFrom(in);
+            items[i] = item;
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(items.length);
+        for (Item item : items) {
+            item.writeTo(out);
+        }
+    }
+
+    /**
+     * The result of percolating a single document, either the queries it matched, or a failure.
+     */
+    public static class Item implements Streamable {
+
+        private List<String> matches;
+        private String failureMessage;
+
+        Item() {
+
+        }
+
+        public Item(List<String> matches) {
+            this.matches = matches;
+        }
+
+        public Item(String failureMessage) {
+            this.failureMessage = failureMessage;
+        }
+
+        /**
+         * The names of the queries the document matched, <tt>null</tt> if it failed.
+         */
+        @Nullable
+        public List<String> matches() {
+            return this.matches;
+        }
+
+        public boolean failed() {
+            return failureMessage != null;
+        }
+
+        /**
+         * The failure message, <tt>null</tt> if it did not fail.
+         */
+        @Nullable
+        public String failureMessage() {
+            return this.failureMessage;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            if (in.readBoolean()) {
+                failureMessage = in.readString();
+            } else {
+                int size = in.readVInt();
+                matches = new ArrayList<String>(size);
+                for (int i = 0; i < size; i++) {
+                    matches.add(in.readString());
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            if (failureMessage != null) {
+                out.writeBoolean(true);
+                out.writeString(failureMessage);
+            } else {
+                out.writeBoolean(false);
+                out.writeVInt(matches.size());
+                for (String match : matches) {
+                    out.writeString(match);
+                }
+            }
+        }
+    }
+}
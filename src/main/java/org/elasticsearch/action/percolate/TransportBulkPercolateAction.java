@@ -0,0 +1,113 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.support.single.custom.TransportSingleCustomOperationAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.routing.ShardsIterator;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.percolator.PercolatorExecutor;
+import org.elasticsearch.index.percolator.PercolatorService;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ */
+public class TransportBulkPercolateAction extends TransportSingleCustomOperationAction<BulkPercolateRequest, BulkPercolateResponse> {
+
+    private final IndicesService indicesService;
+
+    @Inject
+    public TransportBulkPercolateAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
+                                        IndicesService indicesService) {
+        super(settings, threadPool, clusterService, transportService);
+        this.indicesService = indicesService;
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.PERCOLATE;
+    }
+
+    @Override
+    protected BulkPercolateRequest newRequest() {
+        return new BulkPercolateRequest();
+    }
+
+    @Override
+    protected BulkPercolateResponse newResponse() {
+        return new BulkPercolateResponse();
+    }
+
+    @Override
+    protected String transportAction() {
+        return BulkPercolateAction.NAME;
+    }
+
+    @Override
+    protected ClusterBlockException checkGlobalBlock(ClusterState state, BulkPercolateRequest request) {
+        return state.blocks().globalBlockedException(ClusterBlockLevel.READ);
+    }
+
+    @Override
+    protected ClusterBlockException checkRequestBlock(ClusterState state, BulkPercolateRequest request) {
+        request.index(state.metaData().concreteIndex(request.index()));
+        return state.blocks().indexBlockedException(ClusterBlockLevel.READ, request.index());
+    }
+
+    @Override
+    protected ShardsIterator shards(ClusterState clusterState, BulkPercolateRequest request) {
+        return clusterState.routingTable().index(request.index()).randomAllActiveShardsIt();
+    }
+
+    @Override
+    protected BulkPercolateResponse shardOperation(BulkPercolateRequest request, int shardId) throws ElasticSearchException {
+        IndexService indexService = indicesService.indexServiceSafe(request.index());
+        PercolatorService percolatorService = indexService.percolateService();
+
+        List<PercolatorExecutor.SourceRequest> sourceRequests = new ArrayList<PercolatorExecutor.SourceRequest>(request.numberOfItems());
+        for (BulkPercolateRequest.Item item : request.items()) {
+            sourceRequests.add(new PercolatorExecutor.SourceRequest(item.type(), item.source()));
+        }
+        PercolatorExecutor.BulkResponse percolate = percolatorService.percolate(sourceRequests);
+
+        BulkPercolateResponse.Item[] items = new BulkPercolateResponse.Item[percolate.size()];
+        for (int i = 0; i < items.length; i++) {
+            if (percolate.failure(i) != null) {
+                items[i] = new BulkPercolateResponse.Item(ExceptionsHelper.detailedMessage(percolate.failure(i)));
+            } else {
+                items[i] = new BulkPercolateResponse.Item(percolate.response(i).matches());
+            }
+        }
+        return new BulkPercolateResponse(items);
+    }
+}
@@ -131,6 +131,22 @@ public class SearchResponse extends ActionResponse implements ToXContent {
         return timedOut();
     }
 
+    /**
+     * Has the search operation stopped collecting docs on at least one shard because <tt>terminate_after</tt>
+     * docs were collected.
+     */
+    public boolean terminatedEarly() {
+        return internalResponse.terminatedEarly();
+    }
+
+    /**
+     * Has the search operation stopped collecting docs on at least one shard because <tt>terminate_after</tt>
+     * docs were collected.
+     */
+    public boolean isTerminatedEarly() {
+        return terminatedEarly();
+    }
+
     /**
      * How long the search took.
      */
@@ -244,6 +260,7 @@ public class SearchResponse extends ActionResponse implements ToXContent {
         static final XContentBuilderString REASON = new XContentBuilderString("reason");
         static final XContentBuilderString TOOK = new XContentBuilderString("took");
         static final XContentBuilderString TIMED_OUT = new XContentBuilderString("timed_out");
+        static final XContentBuilderString TERMINATED_EARLY = new XContentBuilderString("terminated_early");
     }
 
     @Override
@@ -253,6 +270,9 @@ public class SearchResponse extends ActionResponse implements ToXContent {
         }
         builder.field(Fields.TOOK, tookInMillis);
         builder.field(Fields.TIMED_OUT, timedOut());
+        if (terminatedEarly()) {
+            builder.field(Fields.TERMINATED_EARLY, true);
+        }
         builder.startObject(Fields._SHARDS);
         builder.field(Fields.TOTAL, totalShards());
         builder.field(Fields.SUCCESSFUL, successfulShards());
@@ -27,6 +27,7 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.trove.ExtTIntArrayList;
+import org.elasticsearch.common.util.concurrent.KeyedRunnable;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
@@ -220,7 +221,12 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
                         if (node.id().equals(nodes.localNodeId())) {
                             final FetchSearchRequest fetchSearchRequest = new FetchSearchRequest(request, queryResults.get(entry.getKey()).id(), entry.getValue());
                             if (localAsync) {
-                                threadPool.executor(ThreadPool.Names.SEARCH).execute(new Runnable() {
+                                threadPool.executor(ThreadPool.Names.SEARCH).execute(new KeyedRunnable() {
+                                    @Override
+                                    public String queueKey() {
+                                        return entry.getKey().index();
+                                    }
+
                                     @Override
                                     public void run() {
                                         executeFetch(entry.getKey(), counter, fetchSearchRequest, node);
@@ -34,6 +34,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.trove.ExtTIntArrayList;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.KeyedRunnable;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceListener;
@@ -172,7 +173,12 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                         if (shard != null) {
                             if (shard.currentNodeId().equals(nodes.localNodeId())) {
                                 if (localAsync) {
-                                    threadPool.executor(ThreadPool.Names.SEARCH).execute(new Runnable() {
+                                    threadPool.executor(ThreadPool.Names.SEARCH).execute(new KeyedRunnable() {
+                                        @Override
+                                        public String queueKey() {
+                                            return shardIt.shardId().index().name();
+                                        }
+
                                         @Override
                                         public void run() {
                                             performFirstPhase(shardIt);
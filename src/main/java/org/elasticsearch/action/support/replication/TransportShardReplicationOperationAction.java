@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.support.replication;
 
+import com.google.common.collect.Lists;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.*;
@@ -33,6 +34,7 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -50,6 +52,11 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -118,6 +125,23 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
 
     protected abstract PrimaryResponse<Response, ReplicaRequest> shardOperationOnPrimary(ClusterState clusterState, PrimaryOperationRequest shardRequest);
 
+    /**
+     * Performs the operation on the primary shard, replicating parts of it using the pipeline while executing. The
+     * replica request of the returned response, if not <tt>null</tt>, is replicated once the operation is done. Only
+     * called if {@link #pipelineReplicas(ShardReplicationOperationRequest)} is <tt>true</tt> for the request.
+     */
+    protected PrimaryResponse<Response, ReplicaRequest> shardOperationOnPrimary(ClusterState clusterState, PrimaryOperationRequest shardRequest, ReplicationPipeline<ReplicaRequest> pipeline) {
+        return shardOperationOnPrimary(clusterState, shardRequest);
+    }
+
+    /**
+     * Should replica requests be sent while the operation is still executing on the primary shard. Defaults to
+     * <tt>false</tt>.
+     */
+    protected boolean pipelineReplicas(Request request) {
+        return false;
+    }
+
     protected abstract void shardOperationOnReplica(ReplicaOperationRequest shardRequest);
 
     /**
@@ -167,6 +191,13 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                 cause instanceof IndexMissingException;
     }
 
+    /**
+     * Called before the request is retried after its execution on the primary shard failed, in which case the
+     * operation might have been (partially) applied already.
+     */
+    protected void resolveRetry(Request request) {
+    }
+
     /**
      * Should an exception be ignored when the operation is performed on the replica.
      */
@@ -457,6 +488,7 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                             if (exp.unwrapCause() instanceof ConnectTransportException || exp.unwrapCause() instanceof NodeClosedException ||
                                     retryPrimaryException(exp)) {
                                 primaryOperationStarted.set(false);
+                                resolveRetry(request);
                                 // we already marked it as started when we executed it (removed the listener) so pass false
                                 // to re-add to the cluster listener
                                 retry(false, null);
@@ -528,12 +560,19 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
 
         void performOnPrimary(int primaryShardId, boolean fromDiscoveryListener, final ShardRouting shard, ClusterState clusterState) {
             try {
-                PrimaryResponse<Response, ReplicaRequest> response = shardOperationOnPrimary(clusterState, new PrimaryOperationRequest(primaryShardId, request));
-                performReplicas(response);
+                PrimaryOperationRequest primaryRequest = new PrimaryOperationRequest(primaryShardId, request);
+                if (pipelineReplicas(request)) {
+                    PipelinedReplicas pipeline = new PipelinedReplicas();
+                    pipeline.primaryDone(shardOperationOnPrimary(clusterState, primaryRequest, pipeline));
+                } else {
+                    PrimaryResponse<Response, ReplicaRequest> response = shardOperationOnPrimary(clusterState, primaryRequest);
+                    performReplicas(response);
+                }
             } catch (Exception e) {
                 // shard has not been allocated yet, retry it here
                 if (retryPrimaryException(e)) {
                     primaryOperationStarted.set(false);
+                    resolveRetry(request);
                     retry(fromDiscoveryListener, null);
                     return;
                 }
@@ -557,16 +596,10 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                 return;
             }
 
-            // we double check on the state, if it got changed we need to make sure we take the latest one cause
-            // maybe a replica shard started its recovery process and we need to apply it there...
-            ClusterState newState = clusterService.state();
-            if (clusterState != newState) {
-                clusterState = newState;
-                shardIt = shards(newState, request);
-            }
+            List<Tuple<ShardRouting, String>> targets = replicaTargets();
 
             // initialize the counter
-            int replicaCounter = shardIt.assignedReplicasIncludingRelocating();
+            int replicaCounter = targets.size();
 
             if (replicaCounter == 0) {
                 postPrimaryOperation(request, response);
@@ -585,7 +618,41 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
             // we add one to the replica count to do the postPrimaryOperation
             replicaCounter++;
 
-            AtomicInteger counter = new AtomicInteger(replicaCounter);
+            final AtomicInteger counter = new AtomicInteger(replicaCounter);
+            Runnable onReplicaDone = new Runnable() {
+                @Override
+                public void run() {
+                    if (counter.decrementAndGet() == 0) {
+                        listener.onResponse(response.response());
+                    }
+                }
+            };
+            for (Tuple<ShardRouting, String> target : targets) {
+                performOnReplica(response.replicaRequest(), target.v1(), target.v2(), onReplicaDone);
+            }
+
+            // now do the postPrimary operation, and check if the listener needs to be invoked
+            postPrimaryOperation(request, response);
+            // we also invoke here in case replicas finish before postPrimaryAction does
+            if (counter.decrementAndGet() == 0) {
+                listener.onResponse(response.response());
+            }
+        }
+
+        /**
+         * The shard copies the replica operation should be performed on, along with the node ids to perform it on,
+         * based on the latest cluster state.
+         */
+        List<Tuple<ShardRouting, String>> replicaTargets() {
+            // we double check on the state, if it got changed we need to make sure we take the latest one cause
+            // maybe a replica shard started its recovery process and we need to apply it there...
+            ClusterState newState = clusterService.state();
+            if (clusterState != newState) {
+                clusterState = newState;
+                shardIt = shards(newState, request);
+            }
+
+            List<Tuple<ShardRouting, String>> targets = Lists.newArrayList();
             shardIt.reset(); // reset the iterator
             ShardRouting shard;
             while ((shard = shardIt.nextOrNull()) != null) {
@@ -608,38 +675,30 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                 // yet that it was started. We will get an exception IllegalShardState exception if its not started
                 // and that's fine, we will ignore it
                 if (!doOnlyOnRelocating) {
-                    performOnReplica(response, counter, shard, shard.currentNodeId());
+                    targets.add(Tuple.tuple(shard, shard.currentNodeId()));
                 }
                 if (shard.relocating()) {
-                    performOnReplica(response, counter, shard, shard.relocatingNodeId());
+                    targets.add(Tuple.tuple(shard, shard.relocatingNodeId()));
                 }
             }
-
-            // now do the postPrimary operation, and check if the listener needs to be invoked
-            postPrimaryOperation(request, response);
-            // we also invoke here in case replicas finish before postPrimaryAction does
-            if (counter.decrementAndGet() == 0) {
-                listener.onResponse(response.response());
-            }
+            return targets;
         }
 
-        void performOnReplica(final PrimaryResponse<Response, ReplicaRequest> response, final AtomicInteger counter, final ShardRouting shard, String nodeId) {
+        void performOnReplica(final ReplicaRequest replicaRequest, final ShardRouting shard, String nodeId, final Runnable onDone) {
             // if we don't have that node, it means that it might have failed and will be created again, in
             // this case, we don't have to do the operation, and just let it failover
             if (!clusterState.nodes().nodeExists(nodeId)) {
-                if (counter.decrementAndGet() == 0) {
-                    listener.onResponse(response.response());
-                }
+                onDone.run();
                 return;
             }
 
-            final ReplicaOperationRequest shardRequest = new ReplicaOperationRequest(shardIt.shardId().id(), response.replicaRequest());
+            final ReplicaOperationRequest shardRequest = new ReplicaOperationRequest(shardIt.shardId().id(), replicaRequest);
             if (!nodeId.equals(clusterState.nodes().localNodeId())) {
                 DiscoveryNode node = clusterState.nodes().get(nodeId);
                 transportService.sendRequest(node, transportReplicaAction, shardRequest, transportOptions, new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
                     @Override
                     public void handleResponse(TransportResponse.Empty vResponse) {
-                        finishIfPossible();
+                        onDone.run();
                     }
 
                     @Override
@@ -648,13 +707,7 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                             logger.warn("Failed to perform " + transportAction + " on replica " + shardIt.shardId(), exp);
                             shardStateAction.shardFailed(shard, "Failed to perform [" + transportAction + "] on replica, message [" + detailedMessage(exp) + "]");
                         }
-                        finishIfPossible();
-                    }
-
-                    private void finishIfPossible() {
-                        if (counter.decrementAndGet() == 0) {
-                            listener.onResponse(response.response());
-                        }
+                        onDone.run();
                     }
                 });
             } else {
@@ -671,9 +724,7 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                                     shardStateAction.shardFailed(shard, "Failed to perform [" + transportAction + "] on replica, message [" + detailedMessage(e) + "]");
                                 }
                             }
-                            if (counter.decrementAndGet() == 0) {
-                                listener.onResponse(response.response());
-                            }
+                            onDone.run();
                         }
                     });
                 } else {
@@ -685,14 +736,150 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                             shardStateAction.shardFailed(shard, "Failed to perform [" + transportAction + "] on replica, message [" + detailedMessage(e) + "]");
                         }
                     }
-                    if (counter.decrementAndGet() == 0) {
-                        listener.onResponse(response.response());
+                    onDone.run();
+                }
+            }
+        }
+
+        /**
+         * Sends the replica requests handed to it while the primary operation is still executing, and notifies
+         * the listener once the primary operation is done and all the replica requests sent were acknowledged.
+         * <p/>
+         * Requests replicated on the same sequence are sent one at a time, the next one only once all the replicas
+         * acknowledged the previous one, so they are applied on the replicas in the order they were applied on the
+         * primary. The replica request of the primary response (which carries the refresh, if any) is only sent
+         * once all the sequences are drained.
+         */
+        class PipelinedReplicas implements ReplicationPipeline<ReplicaRequest> {
+
+            private static final int LAST_SEQUENCE = -1;
+
+            // starts with one for the primary operation itself
+            private final AtomicInteger pending = new AtomicInteger(1);
+
+            private volatile PrimaryResponse<Response, ReplicaRequest> response;
+
+            // the requests of each sequence not yet acknowledged, the head one being in flight, guarded by this
+            private final Map<Integer, Queue<ReplicaRequest>> sequences = new HashMap<Integer, Queue<ReplicaRequest>>();
+
+            // the replica request of the primary response, waiting for the sequences to drain, guarded by this
+            private ReplicaRequest lastRequest;
+
+            @Override
+            public void replicate(int sequence, ReplicaRequest replicaRequest) {
+                if (ignoreReplicas()) {
+                    return;
+                }
+                if (replicationType != ReplicationType.ASYNC) {
+                    pending.incrementAndGet();
+                }
+                boolean send;
+                synchronized (this) {
+                    Queue<ReplicaRequest> queue = sequences.get(sequence);
+                    if (queue == null) {
+                        queue = new LinkedList<ReplicaRequest>();
+                        sequences.put(sequence, queue);
+                    }
+                    queue.add(replicaRequest);
+                    send = queue.size() == 1;
+                }
+                if (send) {
+                    send(sequence, replicaRequest);
+                }
+            }
+
+            void primaryDone(PrimaryResponse<Response, ReplicaRequest> response) {
+                this.response = response;
+                if (response.replicaRequest() != null && !ignoreReplicas()) {
+                    if (replicationType != ReplicationType.ASYNC) {
+                        pending.incrementAndGet();
+                    }
+                    boolean send;
+                    synchronized (this) {
+                        send = sequences.isEmpty();
+                        if (!send) {
+                            lastRequest = response.replicaRequest();
+                        }
+                    }
+                    if (send) {
+                        send(LAST_SEQUENCE, response.replicaRequest());
                     }
                 }
+                postPrimaryOperation(request, response);
+                finishIfPossible();
+            }
+
+            private void send(final int sequence, ReplicaRequest replicaRequest) {
+                List<Tuple<ShardRouting, String>> targets;
+                synchronized (AsyncShardOperationAction.this) {
+                    targets = replicaTargets();
+                }
+                // one extra count so that the request is acknowledged even when there are no targets
+                final AtomicInteger acks = new AtomicInteger(targets.size() + 1);
+                Runnable onReplicaDone = new Runnable() {
+                    @Override
+                    public void run() {
+                        if (acks.decrementAndGet() == 0) {
+                            acknowledged(sequence);
+                        }
+                    }
+                };
+                for (Tuple<ShardRouting, String> target : targets) {
+                    performOnReplica(replicaRequest, target.v1(), target.v2(), onReplicaDone);
+                }
+                onReplicaDone.run();
+            }
+
+            private void acknowledged(int sequence) {
+                ReplicaRequest next = null;
+                ReplicaRequest last = null;
+                if (sequence != LAST_SEQUENCE) {
+                    synchronized (this) {
+                        Queue<ReplicaRequest> queue = sequences.get(sequence);
+                        queue.poll();
+                        next = queue.peek();
+                        if (next == null) {
+                            sequences.remove(sequence);
+                            if (sequences.isEmpty() && lastRequest != null) {
+                                last = lastRequest;
+                                lastRequest = null;
+                            }
+                        }
+                    }
+                }
+                if (next != null) {
+                    send(sequence, next);
+                }
+                if (last != null) {
+                    send(LAST_SEQUENCE, last);
+                }
+                if (replicationType != ReplicationType.ASYNC) {
+                    // with async replication the listener was not waiting for this request
+                    finishIfPossible();
+                }
+            }
+
+            private void finishIfPossible() {
+                if (pending.decrementAndGet() == 0) {
+                    listener.onResponse(response.response());
+                }
             }
         }
     }
 
+    /**
+     * Allows the primary operation to replicate parts of the request while it is still executing, see
+     * {@link #pipelineReplicas(ShardReplicationOperationRequest)}.
+     */
+    public static interface ReplicationPipeline<ReplicaRequest> {
+
+        /**
+         * Performs the replica request on all the replicas of the shard, once they acknowledged the previous
+         * request replicated on the same sequence. Requests of different sequences are sent independently.
+         */
+        void replicate(int sequence, ReplicaRequest replicaRequest);
+    }
+
     public static class PrimaryResponse<Response, ReplicaRequest> {
         private final ReplicaRequest replicaRequest;
         private final Response response;
@@ -41,6 +41,9 @@ import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.mlt.MoreLikeThisRequest;
 import org.elasticsearch.action.mlt.MoreLikeThisRequestBuilder;
+import org.elasticsearch.action.percolate.BulkPercolateRequest;
+import org.elasticsearch.action.percolate.BulkPercolateRequestBuilder;
+import org.elasticsearch.action.percolate.BulkPercolateResponse;
 import org.elasticsearch.action.percolate.PercolateRequest;
 import org.elasticsearch.action.percolate.PercolateRequestBuilder;
 import org.elasticsearch.action.percolate.PercolateResponse;
@@ -435,6 +438,23 @@ public interface Client {
      */
     PercolateRequestBuilder preparePercolate(String index, String type);
 
+    /**
+     * Percolates several docs in one go, returning the matches of each doc.
+     */
+    ActionFuture<BulkPercolateResponse> bulkPercolate(BulkPercolateRequest request);
+
+    /**
+     * Percolates several docs in one go, returning the matches of each doc.
+     */
+    void bulkPercolate(BulkPercolateRequest request, ActionListener<BulkPercolateResponse> listener);
+
+    /**
+     * Percolates several docs in one go, returning the matches of each doc.
+     *
+     * @param index The index to percolate the docs
+     */
+    BulkPercolateRequestBuilder prepareBulkPercolate(String index);
+
     /**
      * Computes a score explanation for the specified request.
      *
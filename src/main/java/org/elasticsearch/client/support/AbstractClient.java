@@ -48,6 +48,10 @@ import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.mlt.MoreLikeThisAction;
 import org.elasticsearch.action.mlt.MoreLikeThisRequest;
 import org.elasticsearch.action.mlt.MoreLikeThisRequestBuilder;
+import org.elasticsearch.action.percolate.BulkPercolateAction;
+import org.elasticsearch.action.percolate.BulkPercolateRequest;
+import org.elasticsearch.action.percolate.BulkPercolateRequestBuilder;
+import org.elasticsearch.action.percolate.BulkPercolateResponse;
 import org.elasticsearch.action.percolate.PercolateAction;
 import org.elasticsearch.action.percolate.PercolateRequest;
 import org.elasticsearch.action.percolate.PercolateRequestBuilder;
@@ -290,6 +294,21 @@ public abstract class AbstractClient implements InternalClient {
         return new PercolateRequestBuilder(this, index, type);
     }
 
+    @Override
+    public ActionFuture<BulkPercolateResponse> bulkPercolate(final BulkPercolateRequest request) {
+        return execute(BulkPercolateAction.INSTANCE, request);
+    }
+
+    @Override
+    public void bulkPercolate(final BulkPercolateRequest request, final ActionListener<BulkPercolateResponse> listener) {
+        execute(BulkPercolateAction.INSTANCE, request, listener);
+    }
+
+    @Override
+    public BulkPercolateRequestBuilder prepareBulkPercolate(String index) {
+        return new BulkPercolateRequestBuilder(this, index);
+    }
+
     @Override
     public ExplainRequestBuilder prepareExplain(String index, String type, String id) {
         return new ExplainRequestBuilder(this, index, type, id);
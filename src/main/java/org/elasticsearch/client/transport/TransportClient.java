@@ -39,6 +39,8 @@ import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.mlt.MoreLikeThisRequest;
+import org.elasticsearch.action.percolate.BulkPercolateRequest;
+import org.elasticsearch.action.percolate.BulkPercolateResponse;
 import org.elasticsearch.action.percolate.PercolateRequest;
 import org.elasticsearch.action.percolate.PercolateResponse;
 import org.elasticsearch.action.search.*;
@@ -428,6 +430,16 @@ public class TransportClient extends AbstractClient {
         internalClient.percolate(request, listener);
     }
 
+    @Override
+    public ActionFuture<BulkPercolateResponse> bulkPercolate(BulkPercolateRequest request) {
+        return internalClient.bulkPercolate(request);
+    }
+
+    @Override
+    public void bulkPercolate(BulkPercolateRequest request, ActionListener<BulkPercolateResponse> listener) {
+        internalClient.bulkPercolate(request, listener);
+    }
+
     @Override
     public ActionFuture<ExplainResponse> explain(ExplainRequest request) {
         return internalClient.explain(request);
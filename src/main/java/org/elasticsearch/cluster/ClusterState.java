@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cluster;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
@@ -564,5 +565,53 @@ public class ClusterState implements ToXContent {
             }
             return builder.build();
         }
+
+        /**
+         * Writes the cluster state as a diff against the <tt>previous</tt> cluster state. Only changed index meta data
+         * and index routing tables are serialized, the rest (nodes, blocks, ...) is small and sent in full.
+         */
+        public static void writeDiffTo(ClusterState previous, ClusterState state, StreamOutput out) throws IOException {
+            out.writeLong(previous.version());
+            out.writeOptionalString(previous.nodes().masterNodeId());
+            out.writeLong(state.version());
+            MetaData.Builder.writeDiffTo(previous.metaData(), state.metaData(), out);
+            RoutingTable.Builder.writeDiffTo(previous.routingTable(), state.routingTable(), out);
+            DiscoveryNodes.Builder.writeTo(state.nodes(), out);
+            ClusterBlocks.Builder.writeClusterBlocks(state.blocks(), out);
+            state.allocationExplanation().writeTo(out);
+            out.writeVInt(state.customs().size());
+            for (Map.Entry<String, Custom> entry : state.customs().entrySet()) {
+                out.writeString(entry.getKey());
+                lookupFactorySafe(entry.getKey()).writeTo(entry.getValue(), out);
+            }
+        }
+
+        /**
+         * Reads a cluster state diff written with {@link #writeDiffTo(ClusterState, ClusterState, StreamOutput)} and
+         * applies it on the <tt>previous</tt> cluster state.
+         *
+         * @throws IncompatibleClusterStateVersionException if the diff was not computed against the <tt>previous</tt> cluster state
+         */
+        public static ClusterState readDiffFrom(StreamInput in, ClusterState previous, @Nullable DiscoveryNode localNode) throws IOException, IncompatibleClusterStateVersionException {
+            long previousVersion = in.readLong();
+            String previousMasterNodeId = in.readOptionalString();
+            if (previousVersion != previous.version() || !Objects.equal(previousMasterNodeId, previous.nodes().masterNodeId())) {
+                throw new IncompatibleClusterStateVersionException(previous.version(), previous.nodes().masterNodeId(), previousVersion, previousMasterNodeId);
+            }
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.metaData = MetaData.Builder.readDiffFrom(in, previous.metaData());
+            builder.routingTable = RoutingTable.Builder.readDiffFrom(in, previous.routingTable());
+            builder.nodes = DiscoveryNodes.Builder.readFrom(in, localNode);
+            builder.blocks = ClusterBlocks.Builder.readClusterBlocks(in);
+            builder.allocationExplanation = AllocationExplanation.readAllocationExplanation(in);
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
     }
 }
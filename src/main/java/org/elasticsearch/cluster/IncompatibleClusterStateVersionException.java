@@ -0,0 +1,45 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.Nullable;
+
+/**
+ * Thrown when a cluster state diff can't be applied because the receiving node does not hold the
+ * cluster state the diff was computed against.
+ */
+public class IncompatibleClusterStateVersionException extends ElasticSearchException {
+
+    public IncompatibleClusterStateVersionException(String msg) {
+        super(msg);
+    }
+
+    /**
+     * @param expectedVersion      the version of the cluster state held by the receiving node
+     * @param expectedMasterNodeId the master of the cluster state held by the receiving node
+     * @param receivedVersion      the version of the cluster state the diff was computed against
+     * @param receivedMasterNodeId the master of the cluster state the diff was computed against
+     */
+    public IncompatibleClusterStateVersionException(long expectedVersion, @Nullable String expectedMasterNodeId, long receivedVersion, @Nullable String receivedMasterNodeId) {
+        super("expected diff for cluster state version [" + expectedVersion + "] from master [" + expectedMasterNodeId +
+                "], got diff for version [" + receivedVersion + "] from master [" + receivedMasterNodeId + "]");
+    }
+}
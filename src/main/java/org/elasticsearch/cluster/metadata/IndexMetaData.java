@@ -182,6 +182,11 @@ public class IndexMetaData {
     public static final String SETTING_BLOCKS_WRITE = "index.blocks.write";
     public static final String SETTING_BLOCKS_METADATA = "index.blocks.metadata";
     public static final String SETTING_VERSION_CREATED = "index.version.created";
+    /**
+     * How replicas are kept in sync with the primary, either <tt>document</tt> (default), where replicas index each
+     * operation, or <tt>segment</tt>, where replicas only log operations to their translog and copy the primary segments.
+     */
+    public static final String SETTING_REPLICATION_MODE = "index.replication.mode";
 
     private final String index;
     private final long version;
@@ -26,6 +26,7 @@ import com.google.common.collect.UnmodifiableIterator;
 import gnu.trove.set.hash.THashSet;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.action.support.IgnoreIndices;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.common.Nullable;
@@ -1064,5 +1065,77 @@ public class MetaData implements Iterable<IndexMetaData> {
                 lookupFactorySafe(entry.getKey()).writeTo(entry.getValue(), out);
             }
         }
+
+        /**
+         * Writes the meta data as a diff against the <tt>previous</tt> meta data. Index meta data instances are
+         * immutable and carried over as is when unchanged, so only the ones that are not the same instance as
+         * in the previous meta data are serialized. Read using {@link #readDiffFrom(StreamInput, MetaData)}.
+         */
+        public static void writeDiffTo(MetaData previous, MetaData metaData, StreamOutput out) throws IOException {
+            out.writeLong(metaData.version);
+            writeSettingsToStream(metaData.transientSettings(), out);
+            writeSettingsToStream(metaData.persistentSettings(), out);
+            List<String> unchanged = newArrayList();
+            List<IndexMetaData> changed = newArrayList();
+            for (IndexMetaData indexMetaData : metaData) {
+                if (previous.indices.get(indexMetaData.index()) == indexMetaData) {
+                    unchanged.add(indexMetaData.index());
+                } else {
+                    changed.add(indexMetaData);
+                }
+            }
+            out.writeVInt(unchanged.size());
+            for (String index : unchanged) {
+                out.writeString(index);
+            }
+            out.writeVInt(changed.size());
+            for (IndexMetaData indexMetaData : changed) {
+                IndexMetaData.Builder.writeTo(indexMetaData, out);
+            }
+            out.writeVInt(metaData.templates.size());
+            for (IndexTemplateMetaData template : metaData.templates.values()) {
+                IndexTemplateMetaData.Builder.writeTo(template, out);
+            }
+            out.writeVInt(metaData.customs().size());
+            for (Map.Entry<String, Custom> entry : metaData.customs().entrySet()) {
+                out.writeString(entry.getKey());
+                lookupFactorySafe(entry.getKey()).writeTo(entry.getValue(), out);
+            }
+        }
+
+        /**
+         * Reads a meta data diff written with {@link #writeDiffTo(MetaData, MetaData, StreamOutput)}, reusing
+         * the unchanged index meta data from the <tt>previous</tt> meta data.
+         */
+        public static MetaData readDiffFrom(StreamInput in, MetaData previous) throws IOException {
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.transientSettings(readSettingsFromStream(in));
+            builder.persistentSettings(readSettingsFromStream(in));
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                String index = in.readString();
+                IndexMetaData indexMetaData = previous.indices.get(index);
+                if (indexMetaData == null) {
+                    throw new IncompatibleClusterStateVersionException("meta data diff references index [" + index + "] missing from the previous meta data");
+                }
+                builder.put(indexMetaData, false);
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexMetaData.Builder.readFrom(in), false);
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexTemplateMetaData.Builder.readFrom(in));
+            }
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
     }
 }
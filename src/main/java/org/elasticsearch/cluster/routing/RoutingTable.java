@@ -21,6 +21,7 @@ package org.elasticsearch.cluster.routing;
 
 import com.google.common.collect.*;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -413,6 +414,83 @@ public class RoutingTable implements Iterable<IndexRoutingTable> {
                 IndexRoutingTable.Builder.writeTo(index, out);
             }
         }
+
+        /**
+         * Writes the routing table as a diff against the <tt>previous</tt> routing table, only serializing
+         * the {@link IndexRoutingTable}s that changed. Read using {@link #readDiffFrom(StreamInput, RoutingTable)}.
+         */
+        public static void writeDiffTo(RoutingTable previous, RoutingTable table, StreamOutput out) throws IOException {
+            out.writeLong(table.version);
+            List<String> unchanged = newArrayList();
+            List<IndexRoutingTable> changed = newArrayList();
+            for (IndexRoutingTable index : table.indicesRouting.values()) {
+                IndexRoutingTable previousIndex = previous.indicesRouting.get(index.index());
+                if (previousIndex != null && sameRouting(previousIndex, index)) {
+                    unchanged.add(index.index());
+                } else {
+                    changed.add(index);
+                }
+            }
+            out.writeVInt(unchanged.size());
+            for (String index : unchanged) {
+                out.writeString(index);
+            }
+            out.writeVInt(changed.size());
+            for (IndexRoutingTable index : changed) {
+                IndexRoutingTable.Builder.writeTo(index, out);
+            }
+        }
+
+        /**
+         * Reads a routing table diff written with {@link #writeDiffTo(RoutingTable, RoutingTable, StreamOutput)},
+         * reusing the unchanged {@link IndexRoutingTable}s from the <tt>previous</tt> routing table.
+         */
+        public static RoutingTable readDiffFrom(StreamInput in, RoutingTable previous) throws IOException {
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                String index = in.readString();
+                IndexRoutingTable indexRoutingTable = previous.indicesRouting.get(index);
+                if (indexRoutingTable == null) {
+                    throw new IncompatibleClusterStateVersionException("routing table diff references index [" + index + "] missing from the previous routing table");
+                }
+                builder.add(indexRoutingTable);
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.add(IndexRoutingTable.Builder.readFrom(in));
+            }
+            return builder.build();
+        }
+
+        private static boolean sameRouting(IndexRoutingTable previous, IndexRoutingTable current) {
+            if (previous == current) {
+                return true;
+            }
+            if (previous.shards().size() != current.shards().size()) {
+                return false;
+            }
+            for (IndexShardRoutingTable shard : current) {
+                IndexShardRoutingTable previousShard = previous.shard(shard.shardId().id());
+                if (previousShard == null || previousShard.primaryAllocatedPostApi() != shard.primaryAllocatedPostApi()) {
+                    return false;
+                }
+                List<ShardRouting> shards = shard.shards();
+                List<ShardRouting> previousShards = previousShard.shards();
+                if (shards.size() != previousShards.size()) {
+                    return false;
+                }
+                for (int i = 0; i < shards.size(); i++) {
+                    ShardRouting shardRouting = shards.get(i);
+                    ShardRouting previousShardRouting = previousShards.get(i);
+                    if (!shardRouting.equals(previousShardRouting) || shardRouting.version() != previousShardRouting.version()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
     }
 
     public String prettyPrint() {
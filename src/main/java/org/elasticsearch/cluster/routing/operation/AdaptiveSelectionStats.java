@@ -0,0 +1,189 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.cluster.routing.operation;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per node statistics used by adaptive replica selection to rank the shard copies of search requests,
+ * as seen by the node the stats were taken on.
+ */
+public class AdaptiveSelectionStats implements Streamable, ToXContent {
+
+    private ImmutableMap<String, NodeStats> nodeStats;
+
+    AdaptiveSelectionStats() {
+
+    }
+
+    public AdaptiveSelectionStats(ImmutableMap<String, NodeStats> nodeStats) {
+        this.nodeStats = nodeStats;
+    }
+
+    /**
+     * The statistics, by node id.
+     */
+    public ImmutableMap<String, NodeStats> nodeStats() {
+        return this.nodeStats;
+    }
+
+    public ImmutableMap<String, NodeStats> getNodeStats() {
+        return nodeStats();
+    }
+
+    public static AdaptiveSelectionStats readAdaptiveSelectionStats(StreamInput in) throws IOException {
+        AdaptiveSelectionStats stats = new AdaptiveSelectionStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        MapBuilder<String, NodeStats> builder = MapBuilder.newMapBuilder();
+        for (int i = 0; i < size; i++) {
+            builder.put(in.readString(), NodeStats.readNodeStats(in));
+        }
+        nodeStats = builder.immutableMap();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(nodeStats.size());
+        for (Map.Entry<String, NodeStats> entry : nodeStats.entrySet()) {
+            out.writeString(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString ADAPTIVE_SELECTION = new XContentBuilderString("adaptive_selection");
+        static final XContentBuilderString OUTGOING_SEARCHES = new XContentBuilderString("outgoing_searches");
+        static final XContentBuilderString AVG_QUEUE_SIZE = new XContentBuilderString("avg_queue_size");
+        static final XContentBuilderString AVG_SERVICE_TIME = new XContentBuilderString("avg_service_time");
+        static final XContentBuilderString AVG_SERVICE_TIME_IN_NANOS = new XContentBuilderString("avg_service_time_in_nanos");
+        static final XContentBuilderString AVG_RESPONSE_TIME = new XContentBuilderString("avg_response_time");
+        static final XContentBuilderString AVG_RESPONSE_TIME_IN_NANOS = new XContentBuilderString("avg_response_time_in_nanos");
+        static final XContentBuilderString RANK = new XContentBuilderString("rank");
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ADAPTIVE_SELECTION);
+        for (Map.Entry<String, NodeStats> entry : nodeStats.entrySet()) {
+            NodeStats stats = entry.getValue();
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.OUTGOING_SEARCHES, stats.outgoingSearches);
+            builder.field(Fields.AVG_QUEUE_SIZE, stats.avgQueueSize);
+            builder.field(Fields.AVG_SERVICE_TIME, new TimeValue(stats.avgServiceTimeInNanos, TimeUnit.NANOSECONDS).toString());
+            builder.field(Fields.AVG_SERVICE_TIME_IN_NANOS, stats.avgServiceTimeInNanos);
+            builder.field(Fields.AVG_RESPONSE_TIME, new TimeValue(stats.avgResponseTimeInNanos, TimeUnit.NANOSECONDS).toString());
+            builder.field(Fields.AVG_RESPONSE_TIME_IN_NANOS, stats.avgResponseTimeInNanos);
+            builder.field(Fields.RANK, stats.rank);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    public static class NodeStats implements Streamable {
+
+        private long outgoingSearches;
+        private double avgQueueSize;
+        private long avgResponseTimeInNanos;
+        private long avgServiceTimeInNanos;
+        private double rank;
+
+        NodeStats() {
+
+        }
+
+        public NodeStats(long outgoingSearches, double avgQueueSize, long avgResponseTimeInNanos, long avgServiceTimeInNanos, double rank) {
+            this.outgoingSearches = outgoingSearches;
+            this.avgQueueSize = avgQueueSize;
+            this.avgResponseTimeInNanos = avgResponseTimeInNanos;
+            this.avgServiceTimeInNanos = avgServiceTimeInNanos;
+            this.rank = rank;
+        }
+
+        /**
+         * The number of search requests sent to the node that have not returned yet.
+         */
+        public long getOutgoingSearches() {
+            return outgoingSearches;
+        }
+
+        public double getAvgQueueSize() {
+            return avgQueueSize;
+        }
+
+        public long getAvgResponseTimeInNanos() {
+            return avgResponseTimeInNanos;
+        }
+
+        public long getAvgServiceTimeInNanos() {
+            return avgServiceTimeInNanos;
+        }
+
+        /**
+         * The rank of the node, the lower the better.
+         */
+        public double getRank() {
+            return rank;
+        }
+
+        public static NodeStats readNodeStats(StreamInput in) throws IOException {
+            NodeStats stats = new NodeStats();
+            stats.readFrom(in);
+            return stats;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            outgoingSearches = in.readVLong();
+            avgQueueSize = in.readDouble();
+            avgResponseTimeInNanos = in.readVLong();
+            avgServiceTimeInNanos = in.readVLong();
+            rank = in.readDouble();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(outgoingSearches);
+            out.writeDouble(avgQueueSize);
+            out.writeVLong(avgResponseTimeInNanos);
+            out.writeVLong(avgServiceTimeInNanos);
+            out.writeDouble(rank);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects, per node, an exponentially weighted moving average of the search service time, search queue size
+ * and response time (as seen from this node), together with the number of outstanding search requests sent
+ * to it. Used to rank shard copies when adaptive replica selection is enabled.
+ * <p/>
+ * The service time and queue size are measured on the node executing the search phase, and piggybacked on the
+ * search phase responses.
+ */
+public class ResponseCollectorService extends AbstractComponent implements ClusterStateListener {
+
+    private final double alpha;
+
+    private final ConcurrentMap<String, NodeStatistics> nodeStats = ConcurrentCollections.newConcurrentMap();
+
+    public ResponseCollectorService(Settings settings) {
+        super(settings);
+        this.alpha = settings.getAsDouble("cluster.routing.adaptive_replica_selection.ewma_alpha", 0.3d);
+    }
+
+    @Inject
+    public ResponseCollectorService(Settings settings, ClusterService clusterService) {
+        this(settings);
+        clusterService.add(this);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                nodeStats.remove(removedNode.id());
+            }
+        }
+    }
+
+    /**
+     * Marks a search request as sent to the node.
+     */
+    public void addOutstandingRequest(String nodeId) {
+        statistics(nodeId).addOutstandingRequest();
+    }
+
+    /**
+     * Marks a search request sent to the node as done, without recording anything for it (for example, when it failed).
+     */
+    public void removeOutstandingRequest(String nodeId) {
+        statistics(nodeId).removeOutstandingRequest();
+    }
+
+    /**
+     * Records the response of a search request sent to the node.
+     *
+     * @param queueSize           the search queue size on the node when the request was executed, <tt>-1</tt> if unknown
+     * @param responseTimeNanos   the time it took from sending the request to getting its response
+     * @param serviceTimeNanos    the time it took the node to execute the request, <tt>-1</tt> if unknown
+     */
+    public void addResponse(String nodeId, int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+        statistics(nodeId).addResponse(alpha, queueSize, responseTimeNanos, serviceTimeNanos);
+    }
+
+    /**
+     * The rank of the node, the lower the better. Nodes we have no statistics for yet rank the best, so they
+     * will get requests and statistics will be collected for them.
+     */
+    public double rank(String nodeId) {
+        NodeStatistics statistics = nodeStats.get(nodeId);
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.rank();
+    }
+
+    /**
+     * Adjusts the statistics of a node that was not selected for a shard in favour of the selected one, moving them
+     * half way towards the ones of the selected node. Without it, a node that once had a bad rank would never be
+     * selected again, and its statistics would never get a chance to recover.
+     */
+    public void adjustNotSelected(String nodeId, String selectedNodeId) {
+        NodeStatistics statistics = nodeStats.get(nodeId);
+        NodeStatistics selectedStatistics = nodeStats.get(selectedNodeId);
+        if (statistics == null || selectedStatistics == null) {
+            return;
+        }
+        statistics.adjustTowards(selectedStatistics);
+    }
+
+    public AdaptiveSelectionStats stats() {
+        MapBuilder<String, AdaptiveSelectionStats.NodeStats> builder = MapBuilder.newMapBuilder();
+        for (Map.Entry<String, NodeStatistics> entry : nodeStats.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().stats());
+        }
+        return new AdaptiveSelectionStats(builder.immutableMap());
+    }
+
+    private NodeStatistics statistics(String nodeId) {
+        NodeStatistics statistics = nodeStats.get(nodeId);
+        if (statistics == null) {
+            statistics = new NodeStatistics();
+            NodeStatistics existing = nodeStats.putIfAbsent(nodeId, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    static class NodeStatistics {
+
+        private long outstandingRequests;
+        private double queueSize;
+        private double responseTime;
+        private double serviceTime;
+        private boolean initialized;
+
+        synchronized void addOutstandingRequest() {
+            outstandingRequests++;
+        }
+
+        synchronized void removeOutstandingRequest() {
+            if (outstandingRequests > 0) {
+                outstandingRequests--;
+            }
+        }
+
+        synchronized void addResponse(double alpha, int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+            removeOutstandingRequest();
+            if (queueSize < 0) {
+                queueSize = 0;
+            }
+            if (serviceTimeNanos < 0) {
+                // the node did not report it, the response time is the best we know
+                serviceTimeNanos = responseTimeNanos;
+            }
+            if (!initialized) {
+                this.queueSize = queueSize;
+                this.responseTime = responseTimeNanos;
+                this.serviceTime = serviceTimeNanos;
+                initialized = true;
+            } else {
+                this.queueSize += alpha * (queueSize - this.queueSize);
+                this.responseTime += alpha * (responseTimeNanos - this.responseTime);
+                this.serviceTime += alpha * (serviceTimeNanos - this.serviceTime);
+            }
+        }
+
+        void adjustTowards(NodeStatistics selected) {
+            // never hold both locks at once, two nodes might be adjusting towards each other concurrently
+            double selectedQueueSize;
+            double selectedServiceTime;
+            synchronized (selected) {
+                selectedQueueSize = selected.queueSize;
+                selectedServiceTime = selected.serviceTime;
+            }
+            synchronized (this) {
+                queueSize = (queueSize + selectedQueueSize) / 2;
+                serviceTime = (serviceTime + selectedServiceTime) / 2;
+            }
+        }
+
+        /**
+         * The rank, computed as in C3: the response time not accounted for by the service time (mostly network),
+         * plus the service time weighted by the cube of the expected queue size, so nodes with long queues are
+         * penalized heavily.
+         */
+        synchronized double rank() {
+            if (!initialized) {
+                return 0;
+            }
+            double expectedQueueSize = 1 + outstandingRequests + queueSize;
+            return Math.max(0, responseTime - serviceTime) + Math.pow(expectedQueueSize, 3) * serviceTime;
+        }
+
+        synchronized AdaptiveSelectionStats.NodeStats stats() {
+            return new AdaptiveSelectionStats.NodeStats(outstandingRequests, queueSize, (long) responseTime, (long) serviceTime, rank());
+        }
+    }
+}
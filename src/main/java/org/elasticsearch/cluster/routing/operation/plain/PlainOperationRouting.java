@@ -22,13 +22,17 @@ package org.elasticsearch.cluster.routing.operation.plain;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.PlainShardIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.HashFunction;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
@@ -40,29 +44,46 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexShardMissingException;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndexMissingException;
+import org.elasticsearch.node.settings.NodeSettingsService;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  *
  */
 public class PlainOperationRouting extends AbstractComponent implements OperationRouting {
 
+    static {
+        MetaData.addDynamicSettings(
+                "cluster.routing.use_adaptive_replica_selection"
+        );
+    }
+
     private final HashFunction hashFunction;
 
     private final boolean useType;
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
 
-    @Inject
+    private final ResponseCollectorService responseCollectorService;
+
+    private volatile boolean useAdaptiveReplicaSelection;
+
     public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider) {
+        this(indexSettings, hashFunction, awarenessAllocationDecider, new ResponseCollectorService(indexSettings), new NodeSettingsService(indexSettings));
+    }
+
+    @Inject
+    public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider,
+                                 ResponseCollectorService responseCollectorService, NodeSettingsService nodeSettingsService) {
         super(indexSettings);
         this.hashFunction = hashFunction;
         this.useType = indexSettings.getAsBoolean("cluster.routing.operation.use_type", false);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.responseCollectorService = responseCollectorService;
+        this.useAdaptiveReplicaSelection = indexSettings.getAsBoolean("cluster.routing.use_adaptive_replica_selection", false);
+
+        nodeSettingsService.addListener(new ApplySettings());
     }
 
     @Override
@@ -164,7 +185,7 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
                             throw new IndexShardMissingException(new ShardId(index, shardId));
                         }
                         // we might get duplicates, but that's ok, they will override one another
-                        ShardIterator iterator = preferenceActiveShardIterator(indexShard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+                        ShardIterator iterator = searchShardIterator(indexShard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
                         if (iterator != null) {
                             set.add(iterator);
                         }
@@ -178,7 +199,7 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
             for (String index : concreteIndices) {
                 IndexRoutingTable indexRouting = indexRoutingTable(clusterState, index);
                 for (IndexShardRoutingTable indexShard : indexRouting) {
-                    ShardIterator iterator = preferenceActiveShardIterator(indexShard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+                    ShardIterator iterator = searchShardIterator(indexShard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
                     if (iterator != null) {
                         set.add(iterator);
                     }
@@ -188,6 +209,49 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         }
     }
 
+    private ShardIterator searchShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference) {
+        if (preference == null && useAdaptiveReplicaSelection && awarenessAllocationDecider.awarenessAttributes().length == 0) {
+            return rankedActiveShardIterator(indexShard);
+        }
+        return preferenceActiveShardIterator(indexShard, localNodeId, nodes, preference);
+    }
+
+    /**
+     * Orders the active shard copies by the rank of the nodes they are allocated on, see {@link ResponseCollectorService}.
+     * Copies on nodes with the same rank (for example, nodes we have no statistics for yet) keep the round robin order.
+     */
+    private ShardIterator rankedActiveShardIterator(IndexShardRoutingTable indexShard) {
+        ShardIterator roundRobin = indexShard.activeShardsRandomIt();
+        if (roundRobin.size() <= 1) {
+            return roundRobin;
+        }
+        final Map<String, Double> ranks = new HashMap<String, Double>();
+        List<ShardRouting> shards = new ArrayList<ShardRouting>(roundRobin.size());
+        for (ShardRouting shard = roundRobin.nextOrNull(); shard != null; shard = roundRobin.nextOrNull()) {
+            shards.add(shard);
+            if (!ranks.containsKey(shard.currentNodeId())) {
+                ranks.put(shard.currentNodeId(), responseCollectorService.rank(shard.currentNodeId()));
+            }
+        }
+        // stable sort, so equal ranks keep the round robin order
+        Collections.sort(shards, new Comparator<ShardRouting>() {
+            @Override
+            public int compare(ShardRouting o1, ShardRouting o2) {
+                return Double.compare(ranks.get(o1.currentNodeId()), ranks.get(o2.currentNodeId()));
+            }
+        });
+        // only the copies that ranked worse got skipped by this selection, ties were decided by the round robin order
+        String selectedNodeId = shards.get(0).currentNodeId();
+        double selectedRank = ranks.get(selectedNodeId);
+        for (int i = 1; i < shards.size(); i++) {
+            String nodeId = shards.get(i).currentNodeId();
+            if (ranks.get(nodeId) > selectedRank) {
+                responseCollectorService.adjustNotSelected(nodeId, selectedNodeId);
+            }
+        }
+        return new PlainShardIterator(indexShard.shardId(), shards);
+    }
+
     private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference) {
         if (preference == null) {
             String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
@@ -312,4 +376,15 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         }
         return hashFunction.hash(type, id);
     }
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean useAdaptiveReplicaSelection = settings.getAsBoolean("cluster.routing.use_adaptive_replica_selection", PlainOperationRouting.this.useAdaptiveReplicaSelection);
+            if (useAdaptiveReplicaSelection != PlainOperationRouting.this.useAdaptiveReplicaSelection) {
+                logger.info("updating [cluster.routing.use_adaptive_replica_selection] from [{}] to [{}]", PlainOperationRouting.this.useAdaptiveReplicaSelection, useAdaptiveReplicaSelection);
+                PlainOperationRouting.this.useAdaptiveReplicaSelection = useAdaptiveReplicaSelection;
+            }
+        }
+    }
 }
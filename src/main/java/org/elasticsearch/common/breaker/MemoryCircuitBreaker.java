@@ -0,0 +1,90 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.breaker;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A circuit breaker that keeps track of the (estimated) memory used, and breaks when adding an estimate would
+ * go over the limit.
+ */
+public class MemoryCircuitBreaker {
+
+    private volatile long maximumBytes;
+    private volatile double overheadConstant;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong trippedCount = new AtomicLong();
+
+    /**
+     * @param limit            the maximum bytes that can be used, <tt>0</tt> or less to never break
+     * @param overheadConstant the constant the estimated bytes are multiplied with before checking the limit
+     */
+    public MemoryCircuitBreaker(ByteSizeValue limit, double overheadConstant) {
+        this.maximumBytes = limit.bytes();
+        this.overheadConstant = overheadConstant;
+    }
+
+    public void setLimit(ByteSizeValue limit, double overheadConstant) {
+        this.maximumBytes = limit.bytes();
+        this.overheadConstant = overheadConstant;
+    }
+
+    /**
+     * Adds the estimated bytes to the used bytes, throws a {@link CircuitBreakingException} (without adding them)
+     * if the result, multiplied by the overhead constant, is over the limit.
+     */
+    public long addEstimateBytesAndMaybeBreak(long bytes, String fieldName) throws CircuitBreakingException {
+        while (true) {
+            long currentUsed = used.get();
+            long newUsed = currentUsed + bytes;
+            long newUsedWithOverhead = (long) (newUsed * overheadConstant);
+            if (maximumBytes > 0 && newUsedWithOverhead > maximumBytes) {
+                trippedCount.incrementAndGet();
+                throw new CircuitBreakingException("Data too large, data for field [" + fieldName + "] would be larger than limit of [" +
+                        maximumBytes + "/" + new ByteSizeValue(maximumBytes) + "], estimated [" + newUsedWithOverhead + "/" + new ByteSizeValue(newUsedWithOverhead) + "]");
+            }
+            if (used.compareAndSet(currentUsed, newUsed)) {
+                return newUsed;
+            }
+        }
+    }
+
+    /**
+     * Adds (or removes, when negative) bytes to the used bytes without checking the limit.
+     */
+    public long addWithoutBreaking(long bytes) {
+        return used.addAndGet(bytes);
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    public long getMaximum() {
+        return maximumBytes;
+    }
+
+    public long getTrippedCount() {
+        return trippedCount.get();
+    }
+}
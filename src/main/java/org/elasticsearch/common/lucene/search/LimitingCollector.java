@@ -0,0 +1,112 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.search;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+import java.io.IOException;
+
+/**
+ * A collector that stops the search once a deadline passed, or once a maximum number of docs were collected, by
+ * throwing a {@link LimitExceededException}. The wrapped collector keeps what it collected so far, so partial results
+ * can be built from it.
+ */
+public class LimitingCollector extends Collector {
+
+    // check the clock once every this many docs, nanoTime is not free
+    private static final int TIME_CHECK_MASK = 0x3F;
+
+    private final Collector collector;
+
+    private final long deadlineNanos;
+
+    private final int maxDocs;
+
+    private int collected;
+
+    /**
+     * @param deadlineNanos the {@link System#nanoTime()} at which to stop the search, <tt>-1</tt> for no deadline
+     * @param maxDocs       the maximum number of docs to collect, <tt>-1</tt> for no maximum
+     */
+    public LimitingCollector(Collector collector, long deadlineNanos, int maxDocs) {
+        this.collector = collector;
+        this.deadlineNanos = deadlineNanos;
+        this.maxDocs = maxDocs;
+    }
+
+    private void checkDeadline() {
+        if (deadlineNanos != -1 && System.nanoTime() > deadlineNanos) {
+            throw new TimeExceededException();
+        }
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        collector.setScorer(scorer);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        if (maxDocs != -1 && collected >= maxDocs) {
+            throw new TerminatedEarlyException();
+        }
+        if ((++collected & TIME_CHECK_MASK) == 0) {
+            checkDeadline();
+        }
+        collector.collect(doc);
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        checkDeadline();
+        collector.setNextReader(context);
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return collector.acceptsDocsOutOfOrder();
+    }
+
+    /**
+     * Thrown to stop the search once a limit is exceeded.
+     */
+    public static abstract class LimitExceededException extends RuntimeException {
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // used for flow control, no need for the (costly) stack trace
+            return this;
+        }
+    }
+
+    /**
+     * Thrown when the deadline passed.
+     */
+    public static class TimeExceededException extends LimitExceededException {
+    }
+
+    /**
+     * Thrown when more than the maximum number of docs matched.
+     */
+    public static class TerminatedEarlyException extends LimitExceededException {
+    }
+}
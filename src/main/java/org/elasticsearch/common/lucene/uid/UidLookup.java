@@ -0,0 +1,126 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.uid;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CloseableThreadLocal;
+import org.elasticsearch.common.Numbers;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Loads the version of a uid from a segment, reusing the <tt>_uid</tt> terms enum (and the positions enum) of the
+ * segment per thread, instead of creating new ones on each lookup like {@link UidField#loadVersion(AtomicReaderContext, Term)}
+ * does. The <tt>_uid</tt> field uses the bloom filter postings format by default, so the reused terms enum rejects
+ * most of the uids that are not in the segment without seeking the terms dictionary.
+ * <p/>
+ * The per segment state is dropped once the segment core is closed.
+ */
+public final class UidLookup {
+
+    private static final ConcurrentMap<Object, CloseableThreadLocal<SegmentLookup>> lookups = ConcurrentCollections.newConcurrentMap();
+
+    private static final SegmentReader.CoreClosedListener removeLookups = new SegmentReader.CoreClosedListener() {
+        @Override
+        public void onClose(SegmentReader owner) {
+            CloseableThreadLocal<SegmentLookup> lookup = lookups.remove(owner.getCoreCacheKey());
+            if (lookup != null) {
+                lookup.close();
+            }
+        }
+    };
+
+    private UidLookup() {
+    }
+
+    /**
+     * Load the version for the uid from the reader, returning -1 if no doc exists, or -2 if
+     * no version is available (for backward comp.)
+     */
+    public static long loadVersion(AtomicReaderContext context, Term term) {
+        AtomicReader reader = context.reader();
+        if (!(reader instanceof SegmentReader) || !UidFieldMapper.NAME.equals(term.field())) {
+            // we can only safely cache per segment core, and only the _uid terms are cached
+            return UidField.loadVersion(context, term);
+        }
+        try {
+            return lookup((SegmentReader) reader).loadVersion(reader, term);
+        } catch (Exception e) {
+            return -2;
+        }
+    }
+
+    private static SegmentLookup lookup(SegmentReader reader) throws IOException {
+        Object key = reader.getCoreCacheKey();
+        CloseableThreadLocal<SegmentLookup> threadLocal = lookups.get(key);
+        if (threadLocal == null) {
+            threadLocal = new CloseableThreadLocal<SegmentLookup>();
+            CloseableThreadLocal<SegmentLookup> existing = lookups.putIfAbsent(key, threadLocal);
+            if (existing != null) {
+                threadLocal = existing;
+            } else {
+                reader.addCoreClosedListener(removeLookups);
+            }
+        }
+        SegmentLookup lookup = threadLocal.get();
+        if (lookup == null) {
+            lookup = new SegmentLookup(reader.terms(UidFieldMapper.NAME));
+            threadLocal.set(lookup);
+        }
+        return lookup;
+    }
+
+    static final class SegmentLookup {
+
+        private final TermsEnum termsEnum;
+        private DocsAndPositionsEnum docsEnum;
+
+        SegmentLookup(Terms terms) throws IOException {
+            this.termsEnum = terms == null ? null : terms.iterator(null);
+        }
+
+        long loadVersion(AtomicReader reader, Term term) throws IOException {
+            if (termsEnum == null || !termsEnum.seekExact(term.bytes(), false)) {
+                return -1;
+            }
+            // live docs are per reader, and not per segment core, so they are passed on each lookup
+            docsEnum = termsEnum.docsAndPositions(reader.getLiveDocs(), docsEnum, DocsAndPositionsEnum.FLAG_PAYLOADS);
+            if (docsEnum == null || docsEnum.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
+                return -1;
+            }
+            // Note, only master docs uid have version payload, so we can use that info to not
+            // take them into account
+            do {
+                docsEnum.nextPosition();
+                BytesRef payload = docsEnum.getPayload();
+                if (payload == null || payload.length < 8) {
+                    continue;
+                }
+                return Numbers.bytesToLong(payload);
+            } while (docsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS);
+            return -2;
+        }
+    }
+}
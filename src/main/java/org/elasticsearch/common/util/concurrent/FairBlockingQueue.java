@@ -0,0 +1,454 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A blocking queue of tasks that keeps a sub queue per key (see {@link KeyedRunnable}), and hands out tasks from the
+ * sub queues in a weighted fair order (stride scheduling), so a key with many queued tasks does not starve the
+ * others. Each sub queue is bounded by the capacity, offering a task to a full sub queue fails, which makes the
+ * thread pool reject it. Sub queues that stay empty for the idle timeout are removed, so keys that are not used
+ * anymore (for example deleted indices) don't pile up.
+ */
+public class FairBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    /**
+     * The key of the queue used for tasks that have no key.
+     */
+    public static final String DEFAULT_KEY = "_default";
+
+    public static final TimeValue DEFAULT_IDLE_TIMEOUT = TimeValue.timeValueMinutes(5);
+
+    private static final long STRIDE = 1 << 20;
+
+    private final int capacity;
+
+    private final long idleTimeoutInNanos;
+
+    private volatile ImmutableMap<String, Integer> weights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // all guarded by the lock
+    private final Map<String, SubQueue> queues = new HashMap<String, SubQueue>();
+    private final List<SubQueue> nonEmptyQueues = new ArrayList<SubQueue>();
+    private long pass;
+    private int count;
+    private long lastIdleCheck = System.nanoTime();
+
+    /**
+     * @param capacity the capacity of each sub queue, <tt>-1</tt> for unbounded sub queues
+     * @param weights  the weights of the keys, keys without a weight have a weight of 1
+     */
+    public FairBlockingQueue(int capacity, Map<String, Integer> weights) {
+        this(capacity, weights, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param capacity    the capacity of each sub queue, <tt>-1</tt> for unbounded sub queues
+     * @param weights     the weights of the keys, keys without a weight have a weight of 1
+     * @param idleTimeout the time a sub queue can stay empty before it is removed
+     */
+    public FairBlockingQueue(int capacity, Map<String, Integer> weights, TimeValue idleTimeout) {
+        this.capacity = capacity;
+        this.weights = ImmutableMap.copyOf(weights);
+        this.idleTimeoutInNanos = idleTimeout.nanos();
+    }
+
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Updates the weights of the keys, applies to the next tasks handed out.
+     */
+    public void weights(Map<String, Integer> weights) {
+        lock.lock();
+        try {
+            this.weights = ImmutableMap.copyOf(weights);
+            long now = System.nanoTime();
+            for (Iterator<SubQueue> it = queues.values().iterator(); it.hasNext(); ) {
+                SubQueue queue = it.next();
+                if (isIdle(queue, now)) {
+                    it.remove();
+                } else {
+                    queue.stride = stride(queue.key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Integer> weights() {
+        return this.weights;
+    }
+
+    private long stride(String key) {
+        Integer weight = weights.get(key);
+        return STRIDE / (weight == null ? 1 : Math.max(1, weight));
+    }
+
+    private static String key(Runnable runnable) {
+        if (runnable instanceof KeyedRunnable) {
+            String key = ((KeyedRunnable) runnable).queueKey();
+            if (key != null) {
+                return key;
+            }
+        }
+        return DEFAULT_KEY;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+        String key = key(runnable);
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            removeIdleQueues(now);
+            SubQueue queue = queues.get(key);
+            if (queue == null) {
+                queue = new SubQueue(key, stride(key));
+                queue.pass = pass;
+                queues.put(key, queue);
+            }
+            if (capacity >= 0 && queue.tasks.size() >= capacity) {
+                queue.rejected++;
+                return false;
+            }
+            if (queue.tasks.isEmpty()) {
+                // don't let a queue that was idle catch up on the time it did not use
+                queue.pass = Math.max(queue.pass, pass);
+                nonEmptyQueues.add(queue);
+            }
+            queue.tasks.add(runnable);
+            queue.enqueueTimes.add(now);
+            count++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+        return offer(runnable);
+    }
+
+    @Override
+    public void put(Runnable runnable) throws InterruptedException {
+        if (!offer(runnable)) {
+            throw new EsRejectedExecutionException("queue for [" + key(runnable) + "] is full");
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Runnable dequeue() {
+        if (count == 0) {
+            return null;
+        }
+        SubQueue next = null;
+        int nextIndex = -1;
+        for (int i = 0; i < nonEmptyQueues.size(); i++) {
+            SubQueue queue = nonEmptyQueues.get(i);
+            if (next == null || queue.pass < next.pass) {
+                next = queue;
+                nextIndex = i;
+            }
+        }
+        Runnable runnable = next.tasks.poll();
+        next.waitTimeInNanos += System.nanoTime() - next.enqueueTimes.poll();
+        next.dequeued++;
+        pass = next.pass;
+        next.pass += next.stride;
+        if (next.tasks.isEmpty()) {
+            nonEmptyQueues.remove(nextIndex);
+            next.emptySince = System.nanoTime();
+        }
+        count--;
+        return runnable;
+    }
+
+    /**
+     * Removes the sub queues that have been empty for longer than the idle timeout, checked at most once per idle
+     * timeout. An idle queue has nothing to catch up on (its pass is moved up to the current one once it gets tasks
+     * again), so it can be recreated later without changing the order tasks are handed out.
+     */
+    private void removeIdleQueues(long now) {
+        if (now - lastIdleCheck < idleTimeoutInNanos) {
+            return;
+        }
+        lastIdleCheck = now;
+        for (Iterator<SubQueue> it = queues.values().iterator(); it.hasNext(); ) {
+            if (isIdle(it.next(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private boolean isIdle(SubQueue queue, long now) {
+        return queue.tasks.isEmpty() && now - queue.emptySince >= idleTimeoutInNanos;
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            SubQueue next = null;
+            for (SubQueue queue : nonEmptyQueues) {
+                if (next == null || queue.pass < next.pass) {
+                    next = queue;
+                }
+            }
+            return next == null ? null : next.tasks.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            for (Iterator<SubQueue> it = nonEmptyQueues.iterator(); it.hasNext(); ) {
+                SubQueue queue = it.next();
+                int index = 0;
+                for (Iterator<Runnable> tasks = queue.tasks.iterator(); tasks.hasNext(); index++) {
+                    if (tasks.next().equals(o)) {
+                        tasks.remove();
+                        removeEnqueueTime(queue, index);
+                        count--;
+                        if (queue.tasks.isEmpty()) {
+                            it.remove();
+                            queue.emptySince = System.nanoTime();
+                        }
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void removeEnqueueTime(SubQueue queue, int index) {
+        Iterator<Long> it = queue.enqueueTimes.iterator();
+        for (int i = 0; i <= index; i++) {
+            it.next();
+        }
+        it.remove();
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < maxElements && count > 0) {
+                c.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the queued tasks.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> tasks = new ArrayList<Runnable>(count);
+            for (SubQueue queue : nonEmptyQueues) {
+                tasks.addAll(queue.tasks);
+            }
+            return tasks.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the stats of each of the sub queues, idle sub queues are left out.
+     */
+    public List<Stats> stats() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            removeIdleQueues(now);
+            List<Stats> stats = new ArrayList<Stats>(queues.size());
+            for (SubQueue queue : queues.values()) {
+                if (isIdle(queue, now)) {
+                    continue;
+                }
+                stats.add(new Stats(queue.key, queue.tasks.size(), queue.rejected, queue.dequeued, TimeUnit.NANOSECONDS.toMillis(queue.waitTimeInNanos)));
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static class Stats {
+
+        private final String key;
+        private final int queue;
+        private final long rejected;
+        private final long dequeued;
+        private final long waitTimeInMillis;
+
+        Stats(String key, int queue, long rejected, long dequeued, long waitTimeInMillis) {
+            this.key = key;
+            this.queue = queue;
+            this.rejected = rejected;
+            this.dequeued = dequeued;
+            this.waitTimeInMillis = waitTimeInMillis;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /**
+         * The number of tasks currently queued.
+         */
+        public int queue() {
+            return queue;
+        }
+
+        /**
+         * The number of tasks rejected because the queue was full.
+         */
+        public long rejected() {
+            return rejected;
+        }
+
+        /**
+         * The number of tasks taken from the queue to be executed.
+         */
+        public long dequeued() {
+            return dequeued;
+        }
+
+        /**
+         * The total time the tasks taken from the queue waited in it.
+         */
+        public long waitTimeInMillis() {
+            return waitTimeInMillis;
+        }
+    }
+
+    static class SubQueue {
+        final String key;
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+        final ArrayDeque<Long> enqueueTimes = new ArrayDeque<Long>();
+        long stride;
+        long pass;
+        long emptySince = System.nanoTime();
+
+        long rejected;
+        long dequeued;
+        long waitTimeInNanos;
+
+        SubQueue(String key, long stride) {
+            this.key = key;
+            this.stride = stride;
+        }
+    }
+}
@@ -22,7 +22,9 @@ package org.elasticsearch.discovery.zen.publish;
 import com.google.common.collect.Maps;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.compress.Compressor;
@@ -40,7 +42,9 @@ import java.io.IOException;
 import java.util.Map;
 
 /**
- *
+ * Publishes cluster states from the master to the other nodes. By default (<tt>discovery.zen.publish.diff</tt>),
+ * nodes that received the previously published cluster state only get a diff against it, falling back to the full
+ * cluster state when the node can't apply the diff.
  */
 public class PublishClusterStateAction extends AbstractComponent {
 
@@ -54,6 +58,15 @@ public class PublishClusterStateAction extends AbstractComponent {
 
     private final NewClusterStateListener listener;
 
+    private final boolean publishDiff;
+
+    // the last cluster state published by this node while being master, used as the base for the next diff
+    private volatile ClusterState lastPublishedClusterState;
+
+    // the last cluster state received from the master, used to apply the next diff on
+    private final Object receiveMutex = new Object();
+    private ClusterState lastReceivedClusterState;
+
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewClusterStateListener listener) {
         super(settings);
@@ -61,6 +74,8 @@ public class PublishClusterStateAction extends AbstractComponent {
         this.nodesProvider = nodesProvider;
         this.listener = listener;
 
+        this.publishDiff = componentSettings.getAsBoolean("diff", true);
+
         transportService.registerHandler(PublishClusterStateRequestHandler.ACTION, new PublishClusterStateRequestHandler());
     }
 
@@ -71,44 +86,102 @@ public class PublishClusterStateAction extends AbstractComponent {
     public void publish(ClusterState clusterState) {
         DiscoveryNode localNode = nodesProvider.nodes().localNode();
 
+        ClusterState previousClusterState = lastPublishedClusterState;
+        lastPublishedClusterState = clusterState;
+        if (!publishDiff || previousClusterState == null || !localNode.id().equals(previousClusterState.nodes().masterNodeId())) {
+            previousClusterState = null;
+        }
+
         Map<Version, CachedStreamOutput.Entry> serializedStates = Maps.newHashMap();
+        Map<Version, CachedStreamOutput.Entry> serializedDiffs = Maps.newHashMap();
         try {
             for (final DiscoveryNode node : clusterState.nodes()) {
                 if (node.equals(localNode)) {
                     // no need to send to our self
                     continue;
                 }
+                // only send a diff to nodes that got the previous cluster state, the rest get the full state
+                boolean sendDiff = previousClusterState != null && node.version().onOrAfter(Version.V_0_21_0_Beta1) &&
+                        previousClusterState.nodes().nodeExists(node.id());
+                Map<Version, CachedStreamOutput.Entry> serialized = sendDiff ? serializedDiffs : serializedStates;
                 // try and serialize the cluster state once (or per version), so we don't serialize it
                 // per node when we send it over the wire, compress it while we are at it...
-                CachedStreamOutput.Entry entry = serializedStates.get(node.version());
+                CachedStreamOutput.Entry entry = serialized.get(node.version());
                 if (entry == null) {
                     try {
-                        entry = CachedStreamOutput.popEntry();
-                        StreamOutput stream = entry.handles(CompressorFactory.defaultCompressor());
-                        stream.setVersion(node.version());
-                        ClusterState.Builder.writeTo(clusterState, stream);
-                        stream.close();
-                        serializedStates.put(node.version(), entry);
+                        entry = serialize(sendDiff ? previousClusterState : null, clusterState, node.version());
+                        serialized.put(node.version(), entry);
                     } catch (Exception e) {
                         logger.warn("failed to serialize cluster_state before publishing it to nodes", e);
                         return;
                     }
                 }
-                transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
-                        new PublishClusterStateRequest(entry.bytes().bytes()),
-                        TransportRequestOptions.options().withHighType().withCompress(false), // no need to compress, we already compressed the bytes
-
-                        new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
-                            @Override
-                            public void handleException(TransportException exp) {
-                                logger.debug("failed to send cluster state to [{}], should be detected as failed soon...", exp, node);
-                            }
-                        });
+                sendClusterState(node, clusterState, entry.bytes().bytes(), sendDiff);
             }
         } finally {
             for (CachedStreamOutput.Entry entry : serializedStates.values()) {
                 CachedStreamOutput.pushEntry(entry);
             }
+            for (CachedStreamOutput.Entry entry : serializedDiffs.values()) {
+                CachedStreamOutput.pushEntry(entry);
+            }
+        }
+    }
+
+    private CachedStreamOutput.Entry serialize(@Nullable ClusterState previousClusterState, ClusterState clusterState, Version version) throws IOException {
+        CachedStreamOutput.Entry entry = CachedStreamOutput.popEntry();
+        try {
+            StreamOutput stream = entry.handles(CompressorFactory.defaultCompressor());
+            stream.setVersion(version);
+            if (version.onOrAfter(Version.V_0_21_0_Beta1)) {
+                stream.writeBoolean(previousClusterState != null);
+            }
+            if (previousClusterState != null) {
+                ClusterState.Builder.writeDiffTo(previousClusterState, clusterState, stream);
+            } else {
+                ClusterState.Builder.writeTo(clusterState, stream);
+            }
+            stream.close();
+            return entry;
+        } catch (IOException e) {
+            CachedStreamOutput.pushEntry(entry);
+            throw e;
+        }
+    }
+
+    private void sendClusterState(final DiscoveryNode node, final ClusterState clusterState, BytesReference bytes, final boolean diff) {
+        transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
+                new PublishClusterStateRequest(bytes),
+                TransportRequestOptions.options().withHighType().withCompress(false), // no need to compress, we already compressed the bytes
+
+                new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                    @Override
+                    public void handleException(TransportException exp) {
+                        if (diff && exp.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
+                            // if a newer cluster state was published in the meantime, it will reach the node (in full) anyhow
+                            if (clusterState == lastPublishedClusterState) {
+                                logger.debug("[{}] failed to apply cluster state diff [{}], sending full cluster state", node, exp.unwrapCause().getMessage());
+                                sendFullClusterState(node, clusterState);
+                            }
+                            return;
+                        }
+                        logger.debug("failed to send cluster state to [{}], should be detected as failed soon...", exp, node);
+                    }
+                });
+    }
+
+    private void sendFullClusterState(DiscoveryNode node, ClusterState clusterState) {
+        CachedStreamOutput.Entry entry;
+        try {
+            entry = serialize(null, clusterState, node.version());
+        } catch (Exception e) {
+            logger.warn("failed to serialize cluster_state before publishing it to [{}]", e, node);
+            return;
+        }
+        try {
+            sendClusterState(node, clusterState, entry.bytes().bytes(), false);
+        } finally {
+            CachedStreamOutput.pushEntry(entry);
         }
     }
 
@@ -157,7 +230,22 @@ public class PublishClusterStateAction extends AbstractComponent {
                 in = CachedStreamInput.cachedHandles(request.clusterStateInBytes.streamInput());
             }
             in.setVersion(request.version);
-            ClusterState clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+            boolean diff = false;
+            if (request.version.onOrAfter(Version.V_0_21_0_Beta1)) {
+                diff = in.readBoolean();
+            }
+            ClusterState clusterState;
+            synchronized (receiveMutex) {
+                if (diff) {
+                    if (lastReceivedClusterState == null) {
+                        throw new IncompatibleClusterStateVersionException("received a cluster state diff without having a previous cluster state");
+                    }
+                    clusterState = ClusterState.Builder.readDiffFrom(in, lastReceivedClusterState, nodesProvider.nodes().localNode());
+                } else {
+                    clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+                }
+                lastReceivedClusterState = clusterState;
+            }
             listener.onNewClusterState(clusterState);
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
@@ -19,11 +19,24 @@
 
 package org.elasticsearch.http;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.OutputStream;
 
 /**
  *
  */
 public interface HttpChannel extends RestChannel {
 
+    /**
+     * Returns a stream that writes the response content to the channel in chunks as it is generated, instead of
+     * building all of it in memory, or <tt>null</tt> if chunked responses are not supported for this request.
+     * <p/>
+     * The response is completed by sending an {@link org.elasticsearch.rest.XContentRestResponse} with a builder
+     * that uses the stream as its payload. Content small enough to fit in a single chunk is sent as a regular response.
+     */
+    @Nullable
+    OutputStream chunkedContentStream(RestStatus status, String contentType);
 }
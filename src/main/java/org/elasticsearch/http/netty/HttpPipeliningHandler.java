@@ -0,0 +1,106 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import org.elasticsearch.common.logging.ESLogger;
+import org.jboss.netty.channel.*;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Numbers the http requests received on a connection, and writes their responses back in the same order, holding
+ * on to the responses that are ready before the ones of earlier requests. A handler instance is created per connection.
+ */
+public class HttpPipeliningHandler extends SimpleChannelHandler {
+
+    private static final Comparator<OrderedDownstreamChannelEvent> EVENT_ORDER = new Comparator<OrderedDownstreamChannelEvent>() {
+        @Override
+        public int compare(OrderedDownstreamChannelEvent o1, OrderedDownstreamChannelEvent o2) {
+            if (o1.sequence() != o2.sequence()) {
+                return o1.sequence() < o2.sequence() ? -1 : 1;
+            }
+            return o1.subsequence() < o2.subsequence() ? -1 : (o1.subsequence() == o2.subsequence() ? 0 : 1);
+        }
+    };
+
+    private final ESLogger logger;
+
+    private final int maxEventsHeld;
+
+    // only used by the I/O thread reading from the connection
+    private int sequence;
+
+    // guarded by this
+    private int nextSequence;
+    private int nextSubsequence;
+    private final PriorityQueue<OrderedDownstreamChannelEvent> holdingQueue = new PriorityQueue<OrderedDownstreamChannelEvent>(16, EVENT_ORDER);
+
+    public HttpPipeliningHandler(ESLogger logger, int maxEventsHeld) {
+        this.logger = logger;
+        this.maxEventsHeld = maxEventsHeld;
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        ctx.sendUpstream(new OrderedUpstreamMessageEvent(sequence++, e.getChannel(), e.getMessage(), e.getRemoteAddress()));
+    }
+
+    /**
+     * Returns <tt>true</tt> if the writes of the response to the request with the given sequence are held back
+     * until the responses to earlier requests are written. Held writes don't count against the channel writability,
+     * so the writer should wait for them before writing more.
+     */
+    public synchronized boolean holds(int sequence) {
+        return sequence != nextSequence;
+    }
+
+    @Override
+    public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        if (!(e instanceof OrderedDownstreamChannelEvent)) {
+            super.writeRequested(ctx, e);
+            return;
+        }
+        synchronized (this) {
+            if (holdingQueue.size() >= maxEventsHeld) {
+                logger.debug("too many pipelined responses held for {}, closing connection", e.getChannel());
+                e.getFuture().setFailure(new IOException("too many pipelined responses held"));
+                e.getChannel().close();
+                return;
+            }
+            holdingQueue.add((OrderedDownstreamChannelEvent) e);
+            while (!holdingQueue.isEmpty()) {
+                OrderedDownstreamChannelEvent next = holdingQueue.peek();
+                if (next.sequence() != nextSequence || next.subsequence() != nextSubsequence) {
+                    break;
+                }
+                holdingQueue.poll();
+                ctx.sendDownstream(next);
+                if (next.isLast()) {
+                    nextSequence++;
+                    nextSubsequence = 0;
+                } else {
+                    nextSubsequence++;
+                }
+            }
+        }
+    }
+}
@@ -40,7 +40,13 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
         HttpRequest request = (HttpRequest) e.getMessage();
         // the netty HTTP handling always copy over the buffer to its own buffer, either in NioWorker internally
         // when reading, or using a cumalation buffer
-        serverTransport.dispatchRequest(new NettyHttpRequest(request), new NettyHttpChannel(serverTransport, e.getChannel(), request));
+        NettyHttpChannel channel;
+        if (e instanceof OrderedUpstreamMessageEvent) {
+            channel = new NettyHttpChannel(serverTransport, e.getChannel(), request, ((OrderedUpstreamMessageEvent) e).sequence());
+        } else {
+            channel = new NettyHttpChannel(serverTransport, e.getChannel(), request);
+        }
+        serverTransport.dispatchRequest(new NettyHttpRequest(request), channel);
         super.messageReceived(ctx, e);
     }
 
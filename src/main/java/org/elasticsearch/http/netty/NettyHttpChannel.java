@@ -19,6 +19,7 @@
 
 package org.elasticsearch.http.netty;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.http.HttpChannel;
@@ -33,62 +34,77 @@ import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.Channels;
 import org.jboss.netty.handler.codec.http.*;
+import org.jboss.netty.util.internal.DeadLockProofWorker;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
  */
 public class NettyHttpChannel implements HttpChannel {
+
+    // how long to wait for a previous chunk to be written when the channel is not writable (or the chunk is held
+    // behind the responses to earlier pipelined requests), before writing more
+    private static final long CHUNK_WRITE_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
     private final NettyHttpServerTransport transport;
     private final Channel channel;
     private final org.jboss.netty.handler.codec.http.HttpRequest request;
 
+    // the sequence of the request on a pipelined connection, -1 if pipelining is disabled
+    private final int sequence;
+    @Nullable
+    private final HttpPipeliningHandler pipelining;
+    private int subsequence;
+
+    private volatile ChunkedContentOutputStream chunkedStream;
+
     public NettyHttpChannel(NettyHttpServerTransport transport, Channel channel, org.jboss.netty.handler.codec.http.HttpRequest request) {
+        this(transport, channel, request, -1);
+    }
+
+    public NettyHttpChannel(NettyHttpServerTransport transport, Channel channel, org.jboss.netty.handler.codec.http.HttpRequest request, int sequence) {
         this.transport = transport;
         this.channel = channel;
         this.request = request;
+        this.sequence = sequence;
+        this.pipelining = sequence < 0 ? null : channel.getPipeline().get(HttpPipeliningHandler.class);
     }
 
     @Override
-    public void sendResponse(RestResponse response) {
-
-        // Decide whether to close the connection or not.
-        boolean http10 = request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
-        boolean close =
-                HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)) ||
-                        (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)));
+    public OutputStream chunkedContentStream(RestStatus status, String contentType) {
+        if (transport.responseChunkSize.bytes() <= 0 || request.getProtocolVersion().equals(HttpVersion.HTTP_1_0) || chunkedStream != null) {
+            return null;
+        }
+        chunkedStream = new ChunkedContentOutputStream(status, contentType, (int) transport.responseChunkSize.bytes());
+        return chunkedStream;
+    }
 
-        // Build the response object.
-        HttpResponseStatus status = getStatus(response.status());
-        org.jboss.netty.handler.codec.http.HttpResponse resp;
-        if (http10) {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
-            if (!close) {
-                resp.addHeader(HttpHeaders.Names.CONNECTION, "Keep-Alive");
+    @Override
+    public void sendResponse(RestResponse response) {
+        ChunkedContentOutputStream chunkedStream = this.chunkedStream;
+        if (chunkedStream != null) {
+            this.chunkedStream = null;
+            if (response instanceof XContentRestResponse && ((XContentRestResponse) response).builder().payload() == chunkedStream) {
+                // flush what is left in the builder, and complete the response
+                ((XContentRestResponse) response).builder().close();
+                chunkedStream.finish();
+                return;
             }
-        } else {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
-        }
-        if (RestUtils.isBrowser(request.getHeader(HttpHeaders.Names.USER_AGENT))) {
-            if (transport.settings().getAsBoolean("http.cors.enabled", true)) {
-                // Add support for cross-origin Ajax requests (CORS)
-                resp.addHeader("Access-Control-Allow-Origin", transport.settings().get("http.cors.allow-origin", "*"));
-                if (request.getMethod() == HttpMethod.OPTIONS) {
-                    // Allow Ajax requests based on the CORS "preflight" request
-                    resp.addHeader("Access-Control-Max-Age", transport.settings().getAsInt("http.cors.max-age", 1728000));
-                    resp.addHeader("Access-Control-Allow-Methods", transport.settings().get("http.cors.allow-methods", "OPTIONS, HEAD, GET, POST, PUT, DELETE"));
-                    resp.addHeader("Access-Control-Allow-Headers", transport.settings().get("http.cors.allow-headers", "X-Requested-With, Content-Type, Content-Length"));
-                }
+            if (chunkedStream.started()) {
+                // part of the chunked response was already sent, the only way to signal the failure is to drop the connection
+                chunkedStream.abort();
+                return;
             }
         }
 
-        String opaque = request.getHeader("X-Opaque-Id");
-        if (opaque != null) {
-            resp.addHeader("X-Opaque-Id", opaque);
-        }
+        boolean close = isCloseConnection();
+        org.jboss.netty.handler.codec.http.HttpResponse resp = newResponse(response.status(), close);
 
         // Convert the response content to a ChannelBuffer.
         ChannelFutureListener releaseContentListener = null;
@@ -132,6 +148,59 @@ public class NettyHttpChannel implements HttpChannel {
 
         resp.setHeader(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(buf.readableBytes()));
 
+        // Write the response.
+        ChannelFuture future = write(resp, true);
+        if (releaseContentListener != null) {
+            future.addListener(releaseContentListener);
+        }
+
+        // Close the connection after the write operation is done if necessary.
+        if (close) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * Decide whether to close the connection or not.
+     */
+    private boolean isCloseConnection() {
+        boolean http10 = request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
+        return HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)) ||
+                (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)));
+    }
+
+    /**
+     * Build the response object, with the headers that don't depend on its content.
+     */
+    private org.jboss.netty.handler.codec.http.HttpResponse newResponse(RestStatus restStatus, boolean close) {
+        HttpResponseStatus status = getStatus(restStatus);
+        org.jboss.netty.handler.codec.http.HttpResponse resp;
+        if (request.getProtocolVersion().equals(HttpVersion.HTTP_1_0)) {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
+            if (!close) {
+                resp.addHeader(HttpHeaders.Names.CONNECTION, "Keep-Alive");
+            }
+        } else {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        }
+        if (RestUtils.isBrowser(request.getHeader(HttpHeaders.Names.USER_AGENT))) {
+            if (transport.settings().getAsBoolean("http.cors.enabled", true)) {
+                // Add support for cross-origin Ajax requests (CORS)
+                resp.addHeader("Access-Control-Allow-Origin", transport.settings().get("http.cors.allow-origin", "*"));
+                if (request.getMethod() == HttpMethod.OPTIONS) {
+                    // Allow Ajax requests based on the CORS "preflight" request
+                    resp.addHeader("Access-Control-Max-Age", transport.settings().getAsInt("http.cors.max-age", 1728000));
+                    resp.addHeader("Access-Control-Allow-Methods", transport.settings().get("http.cors.allow-methods", "OPTIONS, HEAD, GET, POST, PUT, DELETE"));
+                    resp.addHeader("Access-Control-Allow-Headers", transport.settings().get("http.cors.allow-headers", "X-Requested-With, Content-Type, Content-Length"));
+                }
+            }
+        }
+
+        String opaque = request.getHeader("X-Opaque-Id");
+        if (opaque != null) {
+            resp.addHeader("X-Opaque-Id", opaque);
+        }
+
         if (transport.resetCookies) {
             String cookieString = request.getHeader(HttpHeaders.Names.COOKIE);
             if (cookieString != null) {
@@ -147,16 +216,130 @@ public class NettyHttpChannel implements HttpChannel {
                 }
             }
         }
+        return resp;
+    }
 
-        // Write the response.
-        ChannelFuture future = channel.write(resp);
-        if (releaseContentListener != null) {
-            future.addListener(releaseContentListener);
+    /**
+     * Writes (part of) the response, making sure responses to pipelined requests are written in order.
+     */
+    private synchronized ChannelFuture write(Object message, boolean last) {
+        if (sequence < 0) {
+            return channel.write(message);
         }
+        ChannelFuture future = Channels.future(channel);
+        channel.getPipeline().sendDownstream(new OrderedDownstreamChannelEvent(sequence, subsequence++, last, channel, future, message));
+        return future;
+    }
 
-        // Close the connection after the write operation is done if necessary.
-        if (close) {
-            future.addListener(ChannelFutureListener.CLOSE);
+    /**
+     * Buffers the response content, and once more than a chunk of it is generated, starts a chunked response and
+     * writes it chunk by chunk.
+     */
+    class ChunkedContentOutputStream extends OutputStream {
+
+        private final RestStatus status;
+        private final String contentType;
+
+        private byte[] buffer;
+        private int count;
+
+        private boolean started;
+        private ChannelFuture lastWrite;
+
+        ChunkedContentOutputStream(RestStatus status, String contentType, int chunkSize) {
+            this.status = status;
+            this.contentType = contentType;
+            this.buffer = new byte[chunkSize];
+        }
+
+        boolean started() {
+            return started;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                writeChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeChunk();
+                }
+                int length = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, length);
+                count += length;
+                off += length;
+                len -= length;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the response is completed when it is sent
+        }
+
+        private void writeChunk() throws IOException {
+            if (!channel.isOpen()) {
+                throw new IOException("channel closed while writing response");
+            }
+            if (!started) {
+                started = true;
+                org.jboss.netty.handler.codec.http.HttpResponse resp = newResponse(status, isCloseConnection());
+                resp.setChunked(true);
+                resp.setHeader(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+                resp.setHeader(HttpHeaders.Names.CONTENT_TYPE, contentType);
+                NettyHttpChannel.this.write(resp, false);
+            }
+            waitForWritable();
+            lastWrite = NettyHttpChannel.this.write(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(buffer, 0, count)), false);
+            // the written buffer is owned by the channel now
+            buffer = new byte[buffer.length];
+            count = 0;
+        }
+
+        /**
+         * Bounds the chunks waiting to be written to slow clients by waiting for the previous chunk. The chunks held
+         * back by the pipelining handler behind the responses to earlier requests are bounded the same way. Never
+         * waits on an I/O thread, since that could wait on itself.
+         */
+        private void waitForWritable() {
+            if (lastWrite == null || DeadLockProofWorker.PARENT.get() != null) {
+                return;
+            }
+            if (!channel.isWritable() || (pipelining != null && pipelining.holds(sequence))) {
+                lastWrite.awaitUninterruptibly(CHUNK_WRITE_WAIT_MILLIS);
+            }
+        }
+
+        void finish() {
+            boolean close = isCloseConnection();
+            ChannelFuture future;
+            if (!started) {
+                // all of the content fits in a single chunk, send it as a regular response
+                org.jboss.netty.handler.codec.http.HttpResponse resp = newResponse(status, close);
+                resp.setContent(ChannelBuffers.wrappedBuffer(buffer, 0, count));
+                resp.setHeader(HttpHeaders.Names.CONTENT_TYPE, contentType);
+                resp.setHeader(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(count));
+                future = NettyHttpChannel.this.write(resp, true);
+            } else {
+                if (count > 0) {
+                    waitForWritable();
+                    NettyHttpChannel.this.write(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(buffer, 0, count)), false);
+                }
+                future = NettyHttpChannel.this.write(HttpChunk.LAST_CHUNK, true);
+            }
+            if (close) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
+        void abort() {
+            NettyHttpChannel.this.write(ChannelBuffers.EMPTY_BUFFER, true).addListener(ChannelFutureListener.CLOSE);
         }
     }
 
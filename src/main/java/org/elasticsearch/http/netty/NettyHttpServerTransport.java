@@ -68,6 +68,10 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
     final ByteSizeValue maxInitialLineLength;
     final ByteSizeValue maxHeaderSize;
     final ByteSizeValue maxChunkSize;
+    final ByteSizeValue responseChunkSize;
+
+    final boolean pipelining;
+    final int pipeliningMaxEvents;
 
     private final int workerCount;
 
@@ -120,6 +124,9 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
         ByteSizeValue maxContentLength = componentSettings.getAsBytesSize("max_content_length", settings.getAsBytesSize("http.max_content_length", new ByteSizeValue(100, ByteSizeUnit.MB)));
         this.maxChunkSize = componentSettings.getAsBytesSize("max_chunk_size", settings.getAsBytesSize("http.max_chunk_size", new ByteSizeValue(8, ByteSizeUnit.KB)));
         this.maxHeaderSize = componentSettings.getAsBytesSize("max_header_size", settings.getAsBytesSize("http.max_header_size", new ByteSizeValue(8, ByteSizeUnit.KB)));
+        this.responseChunkSize = componentSettings.getAsBytesSize("response_chunk_size", settings.getAsBytesSize("http.response_chunk_size", new ByteSizeValue(64, ByteSizeUnit.KB)));
+        this.pipelining = componentSettings.getAsBoolean("pipelining", settings.getAsBoolean("http.pipelining", true));
+        this.pipeliningMaxEvents = componentSettings.getAsInt("pipelining.max_events", settings.getAsInt("http.pipelining.max_events", 10000));
         this.maxInitialLineLength = componentSettings.getAsBytesSize("max_initial_line_length", settings.getAsBytesSize("http.max_initial_line_length", new ByteSizeValue(4, ByteSizeUnit.KB)));
         // don't reset cookies by default, since I don't think we really need to
         // note, parsing cookies was fixed in netty 3.5.1 regarding stack allocation, but still, currently, we don't need cookies
@@ -163,8 +170,8 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
         }
         this.maxContentLength = maxContentLength;
 
-        logger.debug("using max_chunk_size[{}], max_header_size[{}], max_initial_line_length[{}], max_content_length[{}], receive_predictor[{}->{}]",
-                maxChunkSize, maxHeaderSize, maxInitialLineLength, this.maxContentLength, receivePredictorMin, receivePredictorMax);
+        logger.debug("using max_chunk_size[{}], max_header_size[{}], max_initial_line_length[{}], max_content_length[{}], receive_predictor[{}->{}], response_chunk_size[{}], pipelining[{}]",
+                maxChunkSize, maxHeaderSize, maxInitialLineLength, this.maxContentLength, receivePredictorMin, receivePredictorMax, responseChunkSize, pipelining);
     }
 
     public Settings settings() {
@@ -354,6 +361,9 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
             if (transport.compression) {
                 pipeline.addLast("encoder_compress", new HttpContentCompressor(transport.compressionLevel));
             }
+            if (transport.pipelining) {
+                pipeline.addLast("pipelining", new HttpPipeliningHandler(transport.logger, transport.pipeliningMaxEvents));
+            }
             pipeline.addLast("handler", requestHandler);
             return pipeline;
         }
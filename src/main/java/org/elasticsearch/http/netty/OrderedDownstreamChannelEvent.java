@@ -0,0 +1,54 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.DownstreamMessageEvent;
+
+/**
+ * A write of (part of) the response to a pipelined http request. The writes of a response are numbered by their
+ * subsequence, and the last one is marked, so the next response can be written after it.
+ */
+public class OrderedDownstreamChannelEvent extends DownstreamMessageEvent {
+
+    private final int sequence;
+    private final int subsequence;
+    private final boolean last;
+
+    public OrderedDownstreamChannelEvent(int sequence, int subsequence, boolean last, Channel channel, ChannelFuture future, Object msg) {
+        super(channel, future, msg, channel.getRemoteAddress());
+        this.sequence = sequence;
+        this.subsequence = subsequence;
+        this.last = last;
+    }
+
+    public int sequence() {
+        return sequence;
+    }
+
+    public int subsequence() {
+        return subsequence;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+}
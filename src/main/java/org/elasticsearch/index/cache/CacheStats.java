@@ -26,6 +26,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.indices.cache.request.IndicesRequestCache;
 
 import java.io.IOException;
 
@@ -38,15 +39,27 @@ public class CacheStats implements Streamable, ToXContent {
     long filterCount;
     long filterSize;
     long idCacheSize;
+    long idCacheSegments;
+
+    long requestCacheHits;
+    long requestCacheMisses;
+    long requestCacheEvictions;
+    long requestCacheCount;
+    long requestCacheSize;
 
     public CacheStats() {
     }
 
     public CacheStats(long filterEvictions, long filterSize, long filterCount, long idCacheSize) {
+        this(filterEvictions, filterSize, filterCount, idCacheSize, 0);
+    }
+
+    public CacheStats(long filterEvictions, long filterSize, long filterCount, long idCacheSize, long idCacheSegments) {
         this.filterEvictions = filterEvictions;
         this.filterSize = filterSize;
         this.filterCount = filterCount;
         this.idCacheSize = idCacheSize;
+        this.idCacheSegments = idCacheSegments;
     }
 
     public void add(CacheStats stats) {
@@ -54,6 +67,12 @@ public class CacheStats implements Streamable, ToXContent {
         this.filterSize += stats.filterSize;
         this.filterCount += stats.filterCount;
         this.idCacheSize += stats.idCacheSize;
+        this.idCacheSegments += stats.idCacheSegments;
+        this.requestCacheHits += stats.requestCacheHits;
+        this.requestCacheMisses += stats.requestCacheMisses;
+        this.requestCacheEvictions += stats.requestCacheEvictions;
+        this.requestCacheCount += stats.requestCacheCount;
+        this.requestCacheSize += stats.requestCacheSize;
     }
 
     public long filterEvictions() {
@@ -112,6 +131,77 @@ public class CacheStats implements Streamable, ToXContent {
         return idCacheSize();
     }
 
+    /**
+     * The number of segments loaded into the id cache, the id cache size divided by it is the average
+     * memory used per segment.
+     */
+    public long idCacheSegments() {
+        return this.idCacheSegments;
+    }
+
+    public long getIdCacheSegments() {
+        return idCacheSegments();
+    }
+
+    /**
+     * Sets the node level request cache stats, only set on node level stats.
+     */
+    public void requestCache(IndicesRequestCache requestCache) {
+        this.requestCacheHits = requestCache.hitCount();
+        this.requestCacheMisses = requestCache.missCount();
+        this.requestCacheEvictions = requestCache.evictions();
+        this.requestCacheCount = requestCache.count();
+        this.requestCacheSize = requestCache.sizeInBytes();
+    }
+
+    public long requestCacheHits() {
+        return this.requestCacheHits;
+    }
+
+    public long getRequestCacheHits() {
+        return requestCacheHits();
+    }
+
+    public long requestCacheMisses() {
+        return this.requestCacheMisses;
+    }
+
+    public long getRequestCacheMisses() {
+        return requestCacheMisses();
+    }
+
+    public long requestCacheEvictions() {
+        return this.requestCacheEvictions;
+    }
+
+    public long getRequestCacheEvictions() {
+        return requestCacheEvictions();
+    }
+
+    public long requestCacheCount() {
+        return this.requestCacheCount;
+    }
+
+    public long getRequestCacheCount() {
+        return requestCacheCount();
+    }
+
+    public long requestCacheSizeInBytes() {
+        return this.requestCacheSize;
+    }
+
+    public long getRequestCacheSizeInBytes() {
+        return requestCacheSizeInBytes();
+    }
+
+    public ByteSizeValue requestCacheSize() {
+        return new ByteSizeValue(requestCacheSize);
+    }
+
+    public ByteSizeValue getRequestCacheSize() {
+        return requestCacheSize();
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.CACHE);
@@ -121,6 +211,13 @@ public class CacheStats implements Streamable, ToXContent {
         builder.field(Fields.FILTER_SIZE_IN_BYTES, filterSize);
         builder.field(Fields.ID_CACHE_SIZE, idCacheSize().toString());
         builder.field(Fields.ID_CACHE_SIZE_IN_BYTES, idCacheSize);
+        builder.field(Fields.ID_CACHE_SEGMENTS, idCacheSegments);
+        builder.field(Fields.REQUEST_CACHE_HITS, requestCacheHits);
+        builder.field(Fields.REQUEST_CACHE_MISSES, requestCacheMisses);
+        builder.field(Fields.REQUEST_CACHE_EVICTIONS, requestCacheEvictions);
+        builder.field(Fields.REQUEST_CACHE_COUNT, requestCacheCount);
+        builder.field(Fields.REQUEST_CACHE_SIZE, requestCacheSize().toString());
+        builder.field(Fields.REQUEST_CACHE_SIZE_IN_BYTES, requestCacheSize);
         builder.endObject();
         return builder;
     }
@@ -133,6 +230,13 @@ public class CacheStats implements Streamable, ToXContent {
         static final XContentBuilderString FILTER_SIZE_IN_BYTES = new XContentBuilderString("filter_size_in_bytes");
         static final XContentBuilderString ID_CACHE_SIZE = new XContentBuilderString("id_cache_size");
         static final XContentBuilderString ID_CACHE_SIZE_IN_BYTES = new XContentBuilderString("id_cache_size_in_bytes");
+        static final XContentBuilderString ID_CACHE_SEGMENTS = new XContentBuilderString("id_cache_segments");
+        static final XContentBuilderString REQUEST_CACHE_HITS = new XContentBuilderString("request_cache_hits");
+        static final XContentBuilderString REQUEST_CACHE_MISSES = new XContentBuilderString("request_cache_misses");
+        static final XContentBuilderString REQUEST_CACHE_EVICTIONS = new XContentBuilderString("request_cache_evictions");
+        static final XContentBuilderString REQUEST_CACHE_COUNT = new XContentBuilderString("request_cache_count");
+        static final XContentBuilderString REQUEST_CACHE_SIZE = new XContentBuilderString("request_cache_size");
+        static final XContentBuilderString REQUEST_CACHE_SIZE_IN_BYTES = new XContentBuilderString("request_cache_size_in_bytes");
     }
 
     public static CacheStats readCacheStats(StreamInput in) throws IOException {
@@ -147,6 +251,12 @@ public class CacheStats implements Streamable, ToXContent {
         filterSize = in.readVLong();
         filterCount = in.readVLong();
         idCacheSize = in.readVLong();
+        idCacheSegments = in.readVLong();
+        requestCacheHits = in.readVLong();
+        requestCacheMisses = in.readVLong();
+        requestCacheEvictions = in.readVLong();
+        requestCacheCount = in.readVLong();
+        requestCacheSize = in.readVLong();
     }
 
     @Override
@@ -155,5 +265,11 @@ public class CacheStats implements Streamable, ToXContent {
         out.writeVLong(filterSize);
         out.writeVLong(filterCount);
         out.writeVLong(idCacheSize);
+        out.writeVLong(idCacheSegments);
+        out.writeVLong(requestCacheHits);
+        out.writeVLong(requestCacheMisses);
+        out.writeVLong(requestCacheEvictions);
+        out.writeVLong(requestCacheCount);
+        out.writeVLong(requestCacheSize);
     }
 }
\ No newline at end of file
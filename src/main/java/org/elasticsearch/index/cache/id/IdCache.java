@@ -22,6 +22,7 @@ package org.elasticsearch.index.cache.id;
 import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.CloseableComponent;
 import org.elasticsearch.index.IndexComponent;
 
@@ -40,6 +41,13 @@ public interface IdCache extends IndexComponent, CloseableComponent, Iterable<Id
 
     IdReaderCache reader(AtomicReader reader);
 
+    /**
+     * Returns the global ordinals of the parent ids of the provided parent type, for the top level reader the
+     * cache was refreshed with, or <tt>null</tt> if the cache does not support ordinals.
+     */
+    @Nullable
+    ParentOrdinals parentOrdinals(IndexReader reader, String parentType);
+
     long sizeInBytes();
 
 }
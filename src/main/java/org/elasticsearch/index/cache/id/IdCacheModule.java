@@ -25,7 +25,8 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.cache.id.simple.SimpleIdCache;
 
 /**
- *
+ * Binds the {@link IdCache} set with <tt>index.cache.id.type</tt>, <tt>simple</tt> (the default) or
+ * <tt>compact</tt>.
  */
 public class IdCacheModule extends AbstractModule {
 
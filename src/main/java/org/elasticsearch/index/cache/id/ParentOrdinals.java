@@ -0,0 +1,56 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id;
+
+import org.apache.lucene.index.AtomicReader;
+import org.elasticsearch.common.Nullable;
+
+/**
+ * Ordinals of the parent ids of a parent type, global to a top level reader. The same parent id has the same
+ * ordinal in all segments, both on the parent doc and on its child docs, which allows to join parents and
+ * children on ordinals instead of hashing ids. Ordinals go from <tt>1</tt> to {@link #numOrds()}, <tt>0</tt>
+ * meaning no parent.
+ */
+public interface ParentOrdinals {
+
+    /**
+     * The number of ordinals, excluding <tt>0</tt>.
+     */
+    int numOrds();
+
+    /**
+     * The ordinals of a segment of the top level reader, <tt>null</tt> if it has no docs related to the parent type.
+     */
+    @Nullable
+    Segment segment(AtomicReader reader);
+
+    interface Segment {
+
+        /**
+         * The ordinal of the id of the provided parent doc, <tt>0</tt> if it is not a doc of the parent type.
+         */
+        int ordByParentDoc(int docId);
+
+        /**
+         * The ordinal of the parent id of the provided child doc, <tt>0</tt> if it has no parent of the parent type.
+         */
+        int ordByChildDoc(int docId);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.compact;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.packed.GrowableWriter;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.id.IdReaderCache;
+import org.elasticsearch.index.cache.id.ParentOrdinals;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An id cache that keeps the ids and parent ids of each segment as sorted, deduplicated {@link IdBlock}s, with
+ * packed doc to ordinal arrays, instead of a hash map of id objects. Lookups by id are binary searches, which
+ * trades some cpu for a much smaller footprint and faster loading.
+ * <p/>
+ * Settings:
+ * <ul>
+ * <li><tt>index.cache.id.compact.off_heap</tt>: store the id bytes in direct buffers, off the heap. Defaults
+ * to <tt>false</tt>.</li>
+ * <li><tt>index.cache.id.compact.acceptable_overhead_ratio</tt>: the overhead allowed for the packed arrays in
+ * exchange for faster access. Defaults to {@link PackedInts#DEFAULT}.</li>
+ * </ul>
+ * <p/>
+ * Entries are kept per segment core, so on refresh only the new segments are loaded. The cache also provides
+ * {@link ParentOrdinals} per top level reader, built from the segment entries.
+ */
+public class CompactIdCache extends AbstractIndexComponent implements IdCache, SegmentReader.CoreClosedListener {
+
+    private final ConcurrentMap<Object, CompactIdReaderCache> idReaders;
+
+    // parent ordinals by top level reader and parent type
+    private final Cache<Object, ConcurrentMap<String, CompactParentOrdinals>> parentOrdinals = CacheBuilder.newBuilder().weakKeys().build();
+
+    private final boolean offHeap;
+
+    private final float acceptableOverheadRatio;
+
+    @Inject
+    public CompactIdCache(Index index, @IndexSettings Settings indexSettings) {
+        super(index, indexSettings);
+        this.idReaders = ConcurrentCollections.newConcurrentMap();
+        this.offHeap = componentSettings.getAsBoolean("off_heap", false);
+        this.acceptableOverheadRatio = componentSettings.getAsFloat("acceptable_overhead_ratio", PackedInts.DEFAULT);
+        logger.debug("using off_heap [{}], acceptable_overhead_ratio [{}]", offHeap, acceptableOverheadRatio);
+    }
+
+    @Override
+    public void close() throws ElasticSearchException {
+        clear();
+    }
+
+    @Override
+    public void clear() {
+        idReaders.clear();
+        parentOrdinals.invalidateAll();
+    }
+
+    @Override
+    public void onClose(SegmentReader owner) {
+        clear(owner);
+    }
+
+    @Override
+    public void clear(IndexReader reader) {
+        idReaders.remove(reader.getCoreCacheKey());
+    }
+
+    @Override
+    public IdReaderCache reader(AtomicReader reader) {
+        return idReaders.get(reader.getCoreCacheKey());
+    }
+
+    @Override
+    public ParentOrdinals parentOrdinals(IndexReader reader, String parentType) {
+        ConcurrentMap<String, CompactParentOrdinals> byType = parentOrdinals.getIfPresent(reader.getCoreCacheKey());
+        if (byType == null) {
+            synchronized (parentOrdinals) {
+                byType = parentOrdinals.getIfPresent(reader.getCoreCacheKey());
+                if (byType == null) {
+                    byType = ConcurrentCollections.newConcurrentMap();
+                    parentOrdinals.put(reader.getCoreCacheKey(), byType);
+                }
+            }
+        }
+        CompactParentOrdinals ordinals = byType.get(parentType);
+        if (ordinals == null) {
+            synchronized (byType) {
+                ordinals = byType.get(parentType);
+                if (ordinals == null) {
+                    try {
+                        // make sure all the segments are loaded
+                        refresh(reader.leaves());
+                    } catch (Exception e) {
+                        throw new ElasticSearchException("failed to load the id cache", e);
+                    }
+                    ordinals = CompactParentOrdinals.build(reader.leaves(), idReaders, parentType, acceptableOverheadRatio);
+                    byType.put(parentType, ordinals);
+                }
+            }
+        }
+        return ordinals;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public Iterator<IdReaderCache> iterator() {
+        return (Iterator) idReaders.values().iterator();
+    }
+
+    @Override
+    public void refresh(List<AtomicReaderContext> atomicReaderContexts) throws Exception {
+        // do a quick check for the common case, that all are there
+        if (refreshNeeded(atomicReaderContexts)) {
+            synchronized (idReaders) {
+                for (AtomicReaderContext context : atomicReaderContexts) {
+                    AtomicReader reader = context.reader();
+                    if (idReaders.containsKey(reader.getCoreCacheKey())) {
+                        // the segment did not change since it was loaded, reuse it
+                        continue;
+                    }
+                    if (reader instanceof SegmentReader) {
+                        ((SegmentReader) reader).addCoreClosedListener(this);
+                    }
+                    CompactIdReaderCache readerCache = load(reader);
+                    idReaders.put(readerCache.readerCacheKey(), readerCache);
+                }
+            }
+        }
+    }
+
+    private CompactIdReaderCache load(AtomicReader reader) throws Exception {
+        Map<String, TypeBuilder> builders = new HashMap<String, TypeBuilder>();
+
+        // first, load the id <-> doc mapping of all types
+        Terms terms = reader.terms(UidFieldMapper.NAME);
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator(null);
+            DocsEnum docsEnum = null;
+            TypeSplitter splitter = new TypeSplitter();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                if (!splitter.split(term)) {
+                    continue;
+                }
+                TypeBuilder typeBuilder = typeBuilder(builders, splitter.type, reader);
+                int ord = -1;
+                docsEnum = termsEnum.docs(reader.getLiveDocs(), docsEnum, 0);
+                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                    if (ord == -1) {
+                        // only add ids that still have live docs
+                        ord = typeBuilder.addId(splitter.id);
+                    }
+                    typeBuilder.idOrdToDoc[ord] = docId;
+                    typeBuilder.docToIdOrd.set(docId, ord + 1);
+                }
+            }
+        }
+
+        // now, load the doc -> parent id mapping, keyed by the parent type
+        terms = reader.terms(ParentFieldMapper.NAME);
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator(null);
+            DocsEnum docsEnum = null;
+            TypeSplitter splitter = new TypeSplitter();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                if (!splitter.split(term)) {
+                    continue;
+                }
+                TypeBuilder typeBuilder = typeBuilder(builders, splitter.type, reader);
+                int ord = -1;
+                docsEnum = termsEnum.docs(reader.getLiveDocs(), docsEnum, 0);
+                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                    if (ord == -1) {
+                        // optimize for when all the docs are deleted for this id
+                        ord = typeBuilder.parentIds.add(splitter.id);
+                    }
+                    typeBuilder.docToParentIdOrd.set(docId, ord + 1);
+                }
+            }
+        }
+
+        MapBuilder<String, CompactIdReaderTypeCache> types = MapBuilder.newMapBuilder();
+        for (Map.Entry<String, TypeBuilder> entry : builders.entrySet()) {
+            types.put(entry.getKey(), entry.getValue().build(entry.getKey(), reader.maxDoc()));
+        }
+        return new CompactIdReaderCache(reader.getCoreCacheKey(), types.immutableMap());
+    }
+
+    private TypeBuilder typeBuilder(Map<String, TypeBuilder> builders, String type, AtomicReader reader) {
+        TypeBuilder typeBuilder = builders.get(type);
+        if (typeBuilder == null) {
+            typeBuilder = new TypeBuilder(reader.maxDoc());
+            builders.put(type, typeBuilder);
+        }
+        return typeBuilder;
+    }
+
+    public long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (CompactIdReaderCache idReaderCache : idReaders.values()) {
+            sizeInBytes += idReaderCache.sizeInBytes();
+        }
+        for (ConcurrentMap<String, CompactParentOrdinals> byType : parentOrdinals.asMap().values()) {
+            for (CompactParentOrdinals ordinals : byType.values()) {
+                sizeInBytes += ordinals.sizeInBytes();
+            }
+        }
+        return sizeInBytes;
+    }
+
+    private boolean refreshNeeded(List<AtomicReaderContext> atomicReaderContexts) {
+        for (AtomicReaderContext atomicReaderContext : atomicReaderContexts) {
+            if (!idReaders.containsKey(atomicReaderContext.reader().getCoreCacheKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits <tt>type#id</tt> terms, reusing the type string as long as consecutive terms share it.
+     */
+    static class TypeSplitter {
+        final BytesRef typeBytes = new BytesRef();
+        final BytesRef id = new BytesRef();
+        String type;
+
+        boolean split(BytesRef term) {
+            int delimiter = -1;
+            for (int i = term.offset; i < term.offset + term.length; i++) {
+                if (term.bytes[i] == Uid.DELIMITER_BYTE) {
+                    delimiter = i;
+                    break;
+                }
+            }
+            if (delimiter == -1) {
+                return false;
+            }
+            int typeLength = delimiter - term.offset;
+            if (type == null || !sameType(term, typeLength)) {
+                typeBytes.copyBytes(new BytesRef(term.bytes, term.offset, typeLength));
+                type = typeBytes.utf8ToString();
+            }
+            id.bytes = term.bytes;
+            id.offset = delimiter + 1;
+            id.length = term.offset + term.length - id.offset;
+            return true;
+        }
+
+        private boolean sameType(BytesRef term, int typeLength) {
+            if (typeBytes.length != typeLength) {
+                return false;
+            }
+            for (int i = 0; i < typeLength; i++) {
+                if (typeBytes.bytes[typeBytes.offset + i] != term.bytes[term.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    class TypeBuilder {
+        final IdBlock.Builder ids = new IdBlock.Builder();
+        int[] idOrdToDoc = new int[8];
+        final GrowableWriter docToIdOrd;
+        final IdBlock.Builder parentIds = new IdBlock.Builder();
+        final GrowableWriter docToParentIdOrd;
+
+        TypeBuilder(int maxDoc) {
+            docToIdOrd = new GrowableWriter(1, maxDoc, acceptableOverheadRatio);
+            docToParentIdOrd = new GrowableWriter(1, maxDoc, acceptableOverheadRatio);
+        }
+
+        int addId(BytesRef id) {
+            int ord = ids.add(id);
+            idOrdToDoc = ArrayUtil.grow(idOrdToDoc, ord + 1);
+            return ord;
+        }
+
+        CompactIdReaderTypeCache build(String type, int maxDoc) {
+            PackedInts.Mutable packedIdOrdToDoc = PackedInts.getMutable(ids.size(), PackedInts.bitsRequired(maxDoc), acceptableOverheadRatio);
+            for (int ord = 0; ord < ids.size(); ord++) {
+                packedIdOrdToDoc.set(ord, idOrdToDoc[ord]);
+            }
+            return new CompactIdReaderTypeCache(type, ids.build(offHeap, acceptableOverheadRatio), packedIdOrdToDoc, docToIdOrd.getMutable(),
+                    parentIds.build(offHeap, acceptableOverheadRatio), docToParentIdOrd.getMutable());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.compact;
+
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+
+/**
+ * The ids and parent ids of a type within a segment. Both are kept as {@link IdBlock}s, with packed
+ * arrays mapping docs to id ordinals (shifted by one, <tt>0</tt> meaning no id) and id ordinals to docs.
+ */
+public class CompactIdReaderTypeCache implements IdReaderTypeCache {
+
+    private final String type;
+
+    private final IdBlock ids;
+
+    private final PackedInts.Reader idOrdToDoc;
+
+    private final PackedInts.Reader docToIdOrd;
+
+    private final IdBlock parentIds;
+
+    private final PackedInts.Reader docToParentIdOrd;
+
+    private long sizeInBytes = -1;
+
+    public CompactIdReaderTypeCache(String type, IdBlock ids, PackedInts.Reader idOrdToDoc, PackedInts.Reader docToIdOrd,
+                                    IdBlock parentIds, PackedInts.Reader docToParentIdOrd) {
+        this.type = type;
+        this.ids = ids;
+        this.idOrdToDoc = idOrdToDoc;
+        this.docToIdOrd = docToIdOrd;
+        this.parentIds = parentIds;
+        this.docToParentIdOrd = docToParentIdOrd;
+    }
+
+    public String type() {
+        return this.type;
+    }
+
+    public HashedBytesArray parentIdByDoc(int docId) {
+        int ord = (int) docToParentIdOrd.get(docId);
+        if (ord == 0) {
+            return null;
+        }
+        return parentIds.get(ord - 1);
+    }
+
+    public int docById(HashedBytesArray uid) {
+        int ord = ids.find(uid);
+        if (ord == -1) {
+            return -1;
+        }
+        return (int) idOrdToDoc.get(ord);
+    }
+
+    public HashedBytesArray idByDoc(int docId) {
+        int ord = (int) docToIdOrd.get(docId);
+        if (ord == 0) {
+            return null;
+        }
+        return ids.get(ord - 1);
+    }
+
+    /**
+     * The ordinal of the id of the provided doc within {@link #ids()}, shifted by one, <tt>0</tt> meaning no id.
+     */
+    public int idOrdByDoc(int docId) {
+        return (int) docToIdOrd.get(docId);
+    }
+
+    /**
+     * The ordinal of the parent id of the provided doc within {@link #parentIds()}, shifted by one, <tt>0</tt>
+     * meaning no parent id.
+     */
+    public int parentIdOrdByDoc(int docId) {
+        return (int) docToParentIdOrd.get(docId);
+    }
+
+    public IdBlock ids() {
+        return this.ids;
+    }
+
+    public IdBlock parentIds() {
+        return this.parentIds;
+    }
+
+    public long sizeInBytes() {
+        if (sizeInBytes == -1) {
+            sizeInBytes = heapSizeInBytes() + offHeapSizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
+    public long heapSizeInBytes() {
+        return RamUsage.NUM_BYTES_OBJECT_HEADER + ids.heapSizeInBytes() + idOrdToDoc.ramBytesUsed() + docToIdOrd.ramBytesUsed()
+                + parentIds.heapSizeInBytes() + docToParentIdOrd.ramBytesUsed();
+    }
+
+    public long offHeapSizeInBytes() {
+        return ids.offHeapSizeInBytes() + parentIds.offHeapSizeInBytes();
+    }
+}
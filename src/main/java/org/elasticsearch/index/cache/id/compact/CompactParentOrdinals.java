@@ -0,0 +1,176 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.compact;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.index.cache.id.ParentOrdinals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parent ordinals built by merging the sorted {@link IdBlock}s of a type over all the segments of a reader,
+ * both the ids of the parent docs and the parent ids of the child docs. Each segment ordinal maps to its
+ * global ordinal through a packed array.
+ */
+public class CompactParentOrdinals implements ParentOrdinals {
+
+    private final int numOrds;
+
+    private final Map<Object, SegmentOrdinals> segments;
+
+    private CompactParentOrdinals(int numOrds, Map<Object, SegmentOrdinals> segments) {
+        this.numOrds = numOrds;
+        this.segments = segments;
+    }
+
+    @Override
+    public int numOrds() {
+        return numOrds;
+    }
+
+    @Override
+    public Segment segment(AtomicReader reader) {
+        return segments.get(reader.getCoreCacheKey());
+    }
+
+    public long sizeInBytes() {
+        long sizeInBytes = RamUsage.NUM_BYTES_OBJECT_HEADER;
+        for (SegmentOrdinals segment : segments.values()) {
+            sizeInBytes += segment.sizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
+    /**
+     * Builds the parent ordinals of the provided type over the provided leaves, which must all be loaded
+     * into the id cache.
+     */
+    static CompactParentOrdinals build(List<AtomicReaderContext> leaves, Map<Object, CompactIdReaderCache> idReaders, String parentType,
+                                       float acceptableOverheadRatio) {
+        List<CompactIdReaderTypeCache> typeCaches = new ArrayList<CompactIdReaderTypeCache>(leaves.size());
+        List<AtomicReader> readers = new ArrayList<AtomicReader>(leaves.size());
+        long maxOrds = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            CompactIdReaderCache readerCache = idReaders.get(leaf.reader().getCoreCacheKey());
+            CompactIdReaderTypeCache typeCache = readerCache == null ? null : (CompactIdReaderTypeCache) readerCache.type(parentType);
+            if (typeCache == null) {
+                continue;
+            }
+            typeCaches.add(typeCache);
+            readers.add(leaf.reader());
+            maxOrds += typeCache.ids().size() + typeCache.parentIds().size();
+        }
+
+        int bitsPerOrd = PackedInts.bitsRequired(maxOrds);
+        BlockQueue queue = new BlockQueue(typeCaches.size() * 2);
+        Map<Object, SegmentOrdinals> segments = new HashMap<Object, SegmentOrdinals>();
+        for (int i = 0; i < typeCaches.size(); i++) {
+            CompactIdReaderTypeCache typeCache = typeCaches.get(i);
+            Block ids = new Block(typeCache.ids(), bitsPerOrd, acceptableOverheadRatio);
+            Block parentIds = new Block(typeCache.parentIds(), bitsPerOrd, acceptableOverheadRatio);
+            if (ids.ord < ids.ids.size()) {
+                queue.add(ids);
+            }
+            if (parentIds.ord < parentIds.ids.size()) {
+                queue.add(parentIds);
+            }
+            segments.put(readers.get(i).getCoreCacheKey(), new SegmentOrdinals(typeCache, ids.toGlobal, parentIds.toGlobal));
+        }
+
+        // the ids of each block are sorted, so merging them assigns the same global ordinal to the same id
+        int numOrds = 0;
+        IdBlock lastIds = null;
+        int lastOrd = -1;
+        while (queue.size() > 0) {
+            Block top = queue.top();
+            if (lastIds == null || top.ids.compare(top.ord, lastIds, lastOrd) != 0) {
+                numOrds++;
+            }
+            top.toGlobal.set(top.ord, numOrds);
+            lastIds = top.ids;
+            lastOrd = top.ord;
+            if (++top.ord < top.ids.size()) {
+                queue.updateTop();
+            } else {
+                queue.pop();
+            }
+        }
+        return new CompactParentOrdinals(numOrds, segments);
+    }
+
+    static class SegmentOrdinals implements Segment {
+
+        final CompactIdReaderTypeCache typeCache;
+        final PackedInts.Reader idOrdToGlobal;
+        final PackedInts.Reader parentIdOrdToGlobal;
+
+        SegmentOrdinals(CompactIdReaderTypeCache typeCache, PackedInts.Reader idOrdToGlobal, PackedInts.Reader parentIdOrdToGlobal) {
+            this.typeCache = typeCache;
+            this.idOrdToGlobal = idOrdToGlobal;
+            this.parentIdOrdToGlobal = parentIdOrdToGlobal;
+        }
+
+        @Override
+        public int ordByParentDoc(int docId) {
+            int ord = typeCache.idOrdByDoc(docId);
+            return ord == 0 ? 0 : (int) idOrdToGlobal.get(ord - 1);
+        }
+
+        @Override
+        public int ordByChildDoc(int docId) {
+            int ord = typeCache.parentIdOrdByDoc(docId);
+            return ord == 0 ? 0 : (int) parentIdOrdToGlobal.get(ord - 1);
+        }
+
+        long sizeInBytes() {
+            return RamUsage.NUM_BYTES_OBJECT_HEADER + idOrdToGlobal.ramBytesUsed() + parentIdOrdToGlobal.ramBytesUsed();
+        }
+    }
+
+    static class Block {
+        final IdBlock ids;
+        final PackedInts.Mutable toGlobal;
+        int ord;
+
+        Block(IdBlock ids, int bitsPerOrd, float acceptableOverheadRatio) {
+            this.ids = ids;
+            this.toGlobal = PackedInts.getMutable(ids.size(), bitsPerOrd, acceptableOverheadRatio);
+        }
+    }
+
+    static class BlockQueue extends PriorityQueue<Block> {
+
+        BlockQueue(int size) {
+            super(size);
+        }
+
+        @Override
+        protected boolean lessThan(Block a, Block b) {
+            return a.ids.compare(a.ord, b.ids, b.ord) < 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.compact;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A sorted, deduplicated block of ids, stored back to back in a single byte array (or a direct buffer when
+ * off heap), with their start offsets packed. An id is identified by its ordinal in the block, and looking up
+ * the ordinal of an id is a binary search.
+ */
+public final class IdBlock {
+
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private final PackedInts.Reader offsets;
+    private final int size;
+
+    private IdBlock(byte[] bytes, ByteBuffer buffer, PackedInts.Reader offsets, int size) {
+        this.bytes = bytes;
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    /**
+     * The number of ids in the block.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the id with the provided ordinal.
+     */
+    public HashedBytesArray get(int ord) {
+        int start = (int) offsets.get(ord);
+        int length = (int) offsets.get(ord + 1) - start;
+        byte[] id = new byte[length];
+        if (bytes != null) {
+            System.arraycopy(bytes, start, id, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                id[i] = buffer.get(start + i);
+            }
+        }
+        return new HashedBytesArray(id);
+    }
+
+    /**
+     * Returns the ordinal of the provided id, or <tt>-1</tt> if it is not in the block.
+     */
+    public int find(HashedBytesArray id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the id with the provided ordinal to the id with the other ordinal in the other block.
+     */
+    public int compare(int ord, IdBlock other, int otherOrd) {
+        int start = (int) offsets.get(ord);
+        int length = (int) offsets.get(ord + 1) - start;
+        int otherStart = (int) other.offsets.get(otherOrd);
+        int otherLength = (int) other.offsets.get(otherOrd + 1) - otherStart;
+        int limit = Math.min(length, otherLength);
+        for (int i = 0; i < limit; i++) {
+            int a = byteAt(start + i) & 0xff;
+            int b = other.byteAt(otherStart + i) & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - otherLength;
+    }
+
+    private byte byteAt(int index) {
+        return bytes != null ? bytes[index] : buffer.get(index);
+    }
+
+    private int compare(int ord, HashedBytesArray id) {
+        int start = (int) offsets.get(ord);
+        int length = (int) offsets.get(ord + 1) - start;
+        int limit = Math.min(length, id.length());
+        for (int i = 0; i < limit; i++) {
+            int a = byteAt(start + i) & 0xff;
+            int b = id.get(i) & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - id.length();
+    }
+
+    /**
+     * The memory used by the block on the heap.
+     */
+    public long heapSizeInBytes() {
+        long sizeInBytes = RamUsage.NUM_BYTES_OBJECT_HEADER + offsets.ramBytesUsed();
+        if (bytes != null) {
+            sizeInBytes += RamUsage.NUM_BYTES_ARRAY_HEADER + bytes.length;
+        }
+        return sizeInBytes;
+    }
+
+    /**
+     * The memory used by the block off the heap.
+     */
+    public long offHeapSizeInBytes() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    public static class Builder {
+
+        private byte[] bytes = new byte[32];
+        private int[] offsets = new int[8];
+        private int size;
+        private int length;
+
+        /**
+         * Adds an id, ids must be added in sorted order. Returns the ordinal of the id, adding the same id as the
+         * last one does not add a new one.
+         */
+        public int add(BytesRef id) {
+            if (size > 0 && equalsLast(id)) {
+                return size - 1;
+            }
+            bytes = ArrayUtil.grow(bytes, length + id.length);
+            System.arraycopy(id.bytes, id.offset, bytes, length, id.length);
+            offsets = ArrayUtil.grow(offsets, size + 2);
+            offsets[size] = length;
+            length += id.length;
+            return size++;
+        }
+
+        private boolean equalsLast(BytesRef id) {
+            int start = offsets[size - 1];
+            if (length - start != id.length) {
+                return false;
+            }
+            for (int i = 0; i < id.length; i++) {
+                if (bytes[start + i] != id.bytes[id.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public IdBlock build(boolean offHeap, float acceptableOverheadRatio) {
+            offsets[size] = length;
+            PackedInts.Mutable packedOffsets = PackedInts.getMutable(size + 1, PackedInts.bitsRequired(length), acceptableOverheadRatio);
+            for (int i = 0; i <= size; i++) {
+                packedOffsets.set(i, offsets[i]);
+            }
+            if (offHeap) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+                buffer.put(bytes, 0, length);
+                return new IdBlock(null, buffer, packedOffsets, size);
+            }
+            return new IdBlock(ArrayUtil.shrink(bytes, length), null, packedOffsets, size);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.id.IdCache;
 import org.elasticsearch.index.cache.id.IdReaderCache;
+import org.elasticsearch.index.cache.id.ParentOrdinals;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
@@ -79,10 +80,16 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
         return idReaders.get(reader.getCoreCacheKey());
     }
 
+    @Override
+    public ParentOrdinals parentOrdinals(IndexReader reader, String parentType) {
+        // ids are kept as hashed objects, with no ordinals
+        return null;
+    }
+
     @SuppressWarnings({"unchecked"})
     @Override
     public Iterator<IdReaderCache> iterator() {
-        return (Iterator<IdReaderCache>) idReaders.values();
+        return (Iterator) idReaders.values().iterator();
     }
 
     @SuppressWarnings({"StringEquality"})
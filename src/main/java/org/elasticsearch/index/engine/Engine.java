@@ -96,6 +96,12 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void maybeMerge() throws EngineException;
 
+    /**
+     * The memory used by the versions of the operations that are not visible to searches yet (and of the deletes kept
+     * for versioning), in bytes.
+     */
+    long versionMapMemorySizeInBytes();
+
     /**
      * Refreshes the engine for new search operations to reflect the latest
      * changes. Pass <tt>true</tt> if the refresh operation should include
@@ -120,6 +126,42 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void recover(RecoveryHandler recoveryHandler) throws EngineException;
 
+    /**
+     * Segment based replication (see {@link org.elasticsearch.cluster.metadata.IndexMetaData#SETTING_REPLICATION_MODE}),
+     * closes the index writer (on the first copy, it then stays closed while the shard is a replica) so segment files
+     * copied from the primary can be written to the store. Replica operations are still added to the translog in the
+     * meantime.
+     */
+    void suspendForSegmentCopy() throws EngineException;
+
+    /**
+     * Segment based replication, called by the thread that suspended the engine once the copy is done. When
+     * <tt>copied</tt>, searches move to the copied commit point, which includes all the operations added before
+     * {@link #suspendForSegmentCopy()} was called, and they are dropped from the translog.
+     */
+    void resumeAfterSegmentCopy(boolean copied) throws EngineException;
+
+    /**
+     * Segment based replication, reopens the index writer on the latest copied commit point, waiting for an ongoing
+     * copy to finish. Called when the replica gets promoted to primary. The operations pending a segment copy are
+     * replayed from the translog with the handler before any other write is allowed, the engine is failed if they
+     * can't be applied.
+     */
+    void stopSegmentReplication(SegmentCopyOperationsHandler handler) throws EngineException;
+
+    /**
+     * Returns <tt>true</tt> if there are operations that were only added to the translog (segment based replication) and
+     * still need to be copied from the primary, or replayed from the translog if this shard gets promoted to primary.
+     */
+    boolean hasPendingSegmentCopyOperations();
+
+    static interface SegmentCopyOperationsHandler {
+        /**
+         * Applies the operations of the translog snapshot to the engine, called while other writes are blocked.
+         */
+        void apply(Translog.Snapshot snapshot) throws ElasticSearchException;
+    }
+
     static interface FailedEngineListener {
         void onFailedEngine(ShardId shardId, Throwable t);
     }
@@ -382,6 +424,8 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         private long version;
         private VersionType versionType = VersionType.INTERNAL;
         private Origin origin = Origin.PRIMARY;
+        private boolean autoGeneratedId = false;
+        private boolean canHaveDuplicates = false;
 
         private long startTime;
         private long endTime;
@@ -457,6 +501,32 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
             return this;
         }
 
+        /**
+         * Is the id of the doc generated, in which case the doc can be appended without looking up the current
+         * version of the uid, unless the operation {@link #canHaveDuplicates()}.
+         */
+        public boolean autoGeneratedId() {
+            return this.autoGeneratedId;
+        }
+
+        public Create autoGeneratedId(boolean autoGeneratedId) {
+            this.autoGeneratedId = autoGeneratedId;
+            return this;
+        }
+
+        /**
+         * Might the operation have already been applied, for example when retried, or when a replica receives
+         * it while still recovering.
+         */
+        public boolean canHaveDuplicates() {
+            return this.canHaveDuplicates;
+        }
+
+        public Create canHaveDuplicates(boolean canHaveDuplicates) {
+            this.canHaveDuplicates = canHaveDuplicates;
+            return this;
+        }
+
         public String parent() {
             return this.doc.parent();
         }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.engine.robin;
+
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the versions of the operations that are not yet visible to searches, so versioning checks and realtime get
+ * do not have to go to the index for them.
+ * <p/>
+ * Index (and create) operations are held in a current map, which becomes the old map when a refresh starts (see
+ * {@link #beforeRefresh()}), and is dropped once the refresh is done (see {@link #afterRefresh(boolean)}), since the
+ * refreshed searcher sees them. This keeps the map bounded by the operations done since the last refresh, with no need
+ * to scan it. Deletes are kept until they are garbage collected (see <tt>index.gc_deletes</tt>), and operations that
+ * are pending a segment copy until the segments are copied, since neither can be found in the index.
+ * <p/>
+ * The map tracks an estimation of the memory it uses, so the engine can refresh when it grows too large.
+ */
+class LiveVersionMap {
+
+    /**
+     * An estimation of the memory used by an entry, excluding the uid chars: the map entry, the uid string and its chars
+     * array, the version value and its translog location.
+     */
+    static final long BASE_BYTES_PER_ENTRY = 4 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+            + 8 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 5 * RamUsageEstimator.NUM_BYTES_LONG + 4 * RamUsageEstimator.NUM_BYTES_INT;
+
+    private static class Maps {
+
+        // the operations done since the last refresh started
+        final ConcurrentMap<String, RobinEngine.VersionValue> current;
+        final AtomicLong currentBytes;
+
+        // the operations done before the ongoing refresh started, visible once it is done
+        final ConcurrentMap<String, RobinEngine.VersionValue> old;
+        final AtomicLong oldBytes;
+
+        Maps(ConcurrentMap<String, RobinEngine.VersionValue> current, AtomicLong currentBytes, ConcurrentMap<String, RobinEngine.VersionValue> old, AtomicLong oldBytes) {
+            this.current = current;
+            this.currentBytes = currentBytes;
+            this.old = old;
+            this.oldBytes = oldBytes;
+        }
+
+        Maps() {
+            this(ConcurrentCollections.<String, RobinEngine.VersionValue>newConcurrentMap(), new AtomicLong(), ConcurrentCollections.<String, RobinEngine.VersionValue>newConcurrentMap(), new AtomicLong());
+        }
+    }
+
+    // never mutated in place, a new instance is set on each refresh, so readers holding a previous one are not affected
+    private volatile Maps maps = new Maps();
+
+    // deletes and operations pending a segment copy, not removed by refreshes
+    private final ConcurrentMap<String, RobinEngine.VersionValue> retained = ConcurrentCollections.newConcurrentMap();
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    /**
+     * Returns the version value of the uid, <tt>null</tt> if there is none (in which case the version should be loaded
+     * from the index).
+     */
+    RobinEngine.VersionValue get(String uid) {
+        Maps maps = this.maps;
+        RobinEngine.VersionValue value = maps.current.get(uid);
+        if (value != null) {
+            return value;
+        }
+        value = maps.old.get(uid);
+        if (value != null) {
+            return value;
+        }
+        return retained.get(uid);
+    }
+
+    /**
+     * Adds the version value of the uid, should be called under the uid lock, after the operation was done against the
+     * index writer.
+     */
+    void put(String uid, RobinEngine.VersionValue value) {
+        long bytes = bytesPerEntry(uid);
+        Maps maps = this.maps;
+        if (value.delete() || value.pendingSegmentCopy()) {
+            if (maps.current.remove(uid) != null) {
+                maps.currentBytes.addAndGet(-bytes);
+            }
+            if (maps.old.remove(uid) != null) {
+                maps.oldBytes.addAndGet(-bytes);
+            }
+            if (retained.put(uid, value) == null) {
+                retainedBytes.addAndGet(bytes);
+            }
+        } else {
+            if (maps.current.put(uid, value) == null) {
+                maps.currentBytes.addAndGet(bytes);
+            }
+            if (retained.remove(uid) != null) {
+                retainedBytes.addAndGet(-bytes);
+            }
+        }
+    }
+
+    /**
+     * Called (under the refresh lock) before a refresh, the values added up to now will be visible once it is done.
+     */
+    void beforeRefresh() {
+        Maps maps = this.maps;
+        this.maps = new Maps(ConcurrentCollections.<String, RobinEngine.VersionValue>newConcurrentMap(), new AtomicLong(), maps.current, maps.currentBytes);
+    }
+
+    /**
+     * Called (under the refresh lock) after a refresh, dropping the values that are now visible. If the refresh did
+     * not happen, the values are moved back so they are kept until the next one.
+     */
+    void afterRefresh(boolean refreshed) {
+        Maps maps = this.maps;
+        if (!refreshed) {
+            for (Map.Entry<String, RobinEngine.VersionValue> entry : maps.old.entrySet()) {
+                if (maps.current.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                    maps.currentBytes.addAndGet(bytesPerEntry(entry.getKey()));
+                }
+            }
+        }
+        this.maps = new Maps(maps.current, maps.currentBytes, ConcurrentCollections.<String, RobinEngine.VersionValue>newConcurrentMap(), new AtomicLong());
+    }
+
+    /**
+     * The deletes and operations pending a segment copy, which are not removed by refreshes, see {@link #removeRetained(String, RobinEngine.VersionValue)}.
+     */
+    Iterable<Map.Entry<String, RobinEngine.VersionValue>> retainedEntries() {
+        return retained.entrySet();
+    }
+
+    /**
+     * Removes a delete or an operation pending a segment copy, if the uid still maps to the provided value.
+     */
+    void removeRetained(String uid, RobinEngine.VersionValue value) {
+        if (retained.remove(uid, value)) {
+            retainedBytes.addAndGet(-bytesPerEntry(uid));
+        }
+    }
+
+    /**
+     * The memory used by the values a refresh would remove.
+     */
+    long ramBytesUsedForRefresh() {
+        Maps maps = this.maps;
+        return maps.currentBytes.get() + maps.oldBytes.get();
+    }
+
+    /**
+     * The memory used by all the values.
+     */
+    long ramBytesUsed() {
+        return ramBytesUsedForRefresh() + retainedBytes.get();
+    }
+
+    void clear() {
+        maps = new Maps();
+        retained.clear();
+        retainedBytes.set(0);
+    }
+
+    private static long bytesPerEntry(String uid) {
+        return BASE_BYTES_PER_ENTRY + uid.length() * RamUsageEstimator.NUM_BYTES_CHAR;
+    }
+}
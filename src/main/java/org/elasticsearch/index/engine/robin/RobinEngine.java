@@ -37,11 +37,11 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.common.lucene.uid.UidField;
+import org.elasticsearch.common.lucene.uid.UidLookup;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.codec.CodecService;
@@ -66,7 +66,6 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -132,7 +131,12 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private volatile int onGoingRecoveries = 0;
 
 
-    private final ConcurrentMap<String, VersionValue> versionMap;
+    private final LiveVersionMap versionMap = new LiveVersionMap();
+
+    // the part of the shard indexing buffer that the version map may use before a refresh is triggered to clear it,
+    // the rest is used by the index writer
+    private final double versionMapSizeRatio;
+    private final AtomicBoolean versionMapRefreshPending = new AtomicBoolean();
 
     private final Object[] dirtyLocks;
 
@@ -148,6 +152,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private SegmentInfos lastCommittedSegmentInfos;
 
+    // segment based replication, replica operations are only added to the translog and the segments are copied from the primary
+    private final boolean segmentReplication;
+    private final AtomicLong pendingSegmentCopyOperations = new AtomicLong();
+    private volatile boolean suspendedForSegmentCopy;
+    private long pendingSegmentCopyOperationsOnSuspend;
+    private long suspendedForSegmentCopyTime;
+    // the writer is closed on the first segment copy and stays closed while a replica, searches go to the copied commit point
+    private volatile boolean writerClosedForSegmentCopy;
+    private boolean searchingCopiedCommit;
+    // held from suspend to resume (by the same thread), so promotion waits for an ongoing copy
+    private final Lock segmentCopyLock = new ReentrantLock();
+
     @Inject
     public RobinEngine(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool,
                        IndexSettingsService indexSettingsService, ShardIndexingService indexingService, @Nullable IndicesWarmer warmer,
@@ -164,6 +180,16 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         this.termIndexInterval = indexSettings.getAsInt("index.term_index_interval", IndexWriterConfig.DEFAULT_TERM_INDEX_INTERVAL);
         this.termIndexDivisor = indexSettings.getAsInt("index.term_index_divisor", 1); // IndexReader#DEFAULT_TERMS_INDEX_DIVISOR
         this.codecName = indexSettings.get("index.codec", "default");
+        this.segmentReplication = "segment".equals(indexSettings.get(IndexMetaData.SETTING_REPLICATION_MODE, "document"));
+        String versionMapSize = indexSettings.get("index.version_map_size", "25%");
+        if (versionMapSize.endsWith("%")) {
+            this.versionMapSizeRatio = Double.parseDouble(versionMapSize.substring(0, versionMapSize.length() - 1)) / 100;
+        } else {
+            this.versionMapSizeRatio = Double.parseDouble(versionMapSize);
+        }
+        if (versionMapSizeRatio <= 0 || versionMapSizeRatio >= 1) {
+            throw new EngineCreationFailureException(shardId, "index.version_map_size must be between 0% and 100% (exclusive), got [" + versionMapSize + "]", null);
+        }
 
         this.threadPool = threadPool;
         this.indexSettingsService = indexSettingsService;
@@ -179,7 +205,6 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         this.codecService = codecService;
 
         this.indexConcurrency = indexSettings.getAsInt("index.index_concurrency", IndexWriterConfig.DEFAULT_MAX_THREAD_STATES);
-        this.versionMap = ConcurrentCollections.newConcurrentMap();
         this.dirtyLocks = new Object[indexConcurrency * 50]; // we multiply it to have enough...
         for (int i = 0; i < dirtyLocks.length; i++) {
             dirtyLocks[i] = new Object();
@@ -196,7 +221,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             this.indexingBufferSize = indexingBufferSize;
             IndexWriter indexWriter = this.indexWriter;
             if (indexWriter != null) {
-                indexWriter.getConfig().setRAMBufferSizeMB(this.indexingBufferSize.mbFrac());
+                indexWriter.getConfig().setRAMBufferSizeMB(indexWriterBufferSize().mbFrac());
             }
         } finally {
             rwl.readLock().unlock();
@@ -352,9 +377,11 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
             innerCreate(create, writer);
-            dirty = true;
-            possibleMergeNeeded = true;
-            flushNeeded = true;
+            if (!translogOnly(create)) {
+                dirty = true;
+                possibleMergeNeeded = true;
+                flushNeeded = true;
+            }
         } catch (IOException e) {
             throw new CreateFailedEngineException(shardId, create, e);
         } catch (OutOfMemoryError e) {
@@ -368,13 +395,22 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         } finally {
             rwl.readLock().unlock();
         }
+        checkVersionMapRefresh();
     }
 
     private void innerCreate(Create create, IndexWriter writer) throws IOException {
+        if (canAppendOnly(create)) {
+            innerCreateAppendOnly(create, writer);
+            return;
+        }
         synchronized (dirtyLock(create.uid())) {
             UidField uidField = create.uidField();
             final long currentVersion;
             VersionValue versionValue = versionMap.get(create.uid().text());
+            if (versionValue != null && versionValue.pendingSegmentCopy() && create.origin() == Operation.Origin.RECOVERY) {
+                // only logged to the translog while being a segment replication replica, replay it against the index
+                versionValue = null;
+            }
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(create.uid());
             } else {
@@ -453,17 +489,65 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             uidField.version(updatedVersion);
             create.version(updatedVersion);
 
+            final boolean translogOnly = translogOnly(create);
+            if (!translogOnly) {
+                if (create.docs().size() > 1) {
+                    writer.addDocuments(create.docs(), create.analyzer());
+                } else {
+                    writer.addDocument(create.docs().get(0), create.analyzer());
+                }
+            }
+            Translog.Location translogLocation = translog.add(new Translog.Create(create));
+
+            versionMap.put(create.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation, translogOnly));
+            if (translogOnly) {
+                pendingSegmentCopyOperations.incrementAndGet();
+            }
+
+            indexingService.postCreateUnderLock(create);
+        }
+    }
+
+    /**
+     * A doc with a generated id can't exist yet, unless the operation is retried, or replayed on a recovering
+     * shard. Explicit versions still go through the version checks.
+     */
+    private boolean canAppendOnly(Create create) {
+        if (!create.autoGeneratedId() || create.canHaveDuplicates()) {
+            return false;
+        }
+        if (create.origin() == Operation.Origin.PRIMARY) {
+            return create.versionType() == VersionType.INTERNAL && create.version() == 0;
+        }
+        return create.origin() == Operation.Origin.REPLICA;
+    }
+
+    /**
+     * Appends the doc without taking the uid lock or loading its current version, the version map is still
+     * updated so realtime get works for the doc.
+     */
+    private void innerCreateAppendOnly(Create create, IndexWriter writer) throws IOException {
+        // replicas already hold the version the primary assigned
+        long updatedVersion = create.origin() == Operation.Origin.PRIMARY ? 1 : create.version();
+        create.uidField().version(updatedVersion);
+        create.version(updatedVersion);
+
+        final boolean translogOnly = translogOnly(create);
+        if (!translogOnly) {
             if (create.docs().size() > 1) {
                 writer.addDocuments(create.docs(), create.analyzer());
             } else {
                 writer.addDocument(create.docs().get(0), create.analyzer());
             }
-            Translog.Location translogLocation = translog.add(new Translog.Create(create));
-
-            versionMap.put(create.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+        }
+        Translog.Location translogLocation = translog.add(new Translog.Create(create));
 
-            indexingService.postCreateUnderLock(create);
+        versionMap.put(create.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation, translogOnly));
+        if (translogOnly) {
+            pendingSegmentCopyOperations.incrementAndGet();
         }
+
+        indexingService.postCreateUnderLock(create);
     }
 
     @Override
@@ -476,9 +560,11 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             }
 
             innerIndex(index, writer);
-            dirty = true;
-            possibleMergeNeeded = true;
-            flushNeeded = true;
+            if (!translogOnly(index)) {
+                dirty = true;
+                possibleMergeNeeded = true;
+                flushNeeded = true;
+            }
         } catch (IOException e) {
             throw new IndexFailedEngineException(shardId, index, e);
         } catch (OutOfMemoryError e) {
@@ -492,6 +578,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         } finally {
             rwl.readLock().unlock();
         }
+        checkVersionMapRefresh();
     }
 
     private void innerIndex(Index index, IndexWriter writer) throws IOException {
@@ -499,6 +586,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             UidField uidField = index.uidField();
             final long currentVersion;
             VersionValue versionValue = versionMap.get(index.uid().text());
+            if (versionValue != null && versionValue.pendingSegmentCopy() && index.origin() == Operation.Origin.RECOVERY) {
+                // only logged to the translog while being a segment replication replica, replay it against the index
+                versionValue = null;
+            }
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(index.uid());
             } else {
@@ -558,7 +649,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             uidField.version(updatedVersion);
             index.version(updatedVersion);
 
-            if (currentVersion == -1) {
+            final boolean translogOnly = translogOnly(index);
+            if (translogOnly) {
+                // segment replication, the document will be part of the segments copied from the primary
+            } else if (currentVersion == -1) {
                 // document does not exists, we can optimize for create
                 if (index.docs().size() > 1) {
                     writer.addDocuments(index.docs(), index.analyzer());
@@ -574,7 +668,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             }
             Translog.Location translogLocation = translog.add(new Translog.Index(index));
 
-            versionMap.put(index.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+            versionMap.put(index.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation, translogOnly));
+            if (translogOnly) {
+                pendingSegmentCopyOperations.incrementAndGet();
+            }
 
             indexingService.postIndexUnderLock(index);
         }
@@ -589,9 +686,11 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
             innerDelete(delete, writer);
-            dirty = true;
-            possibleMergeNeeded = true;
-            flushNeeded = true;
+            if (!translogOnly(delete)) {
+                dirty = true;
+                possibleMergeNeeded = true;
+                flushNeeded = true;
+            }
         } catch (IOException e) {
             throw new DeleteFailedEngineException(shardId, delete, e);
         } catch (OutOfMemoryError e) {
@@ -605,12 +704,17 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         } finally {
             rwl.readLock().unlock();
         }
+        checkVersionMapRefresh();
     }
 
     private void innerDelete(Delete delete, IndexWriter writer) throws IOException {
         synchronized (dirtyLock(delete.uid())) {
             final long currentVersion;
             VersionValue versionValue = versionMap.get(delete.uid().text());
+            if (versionValue != null && versionValue.pendingSegmentCopy() && delete.origin() == Operation.Origin.RECOVERY) {
+                // only logged to the translog while being a segment replication replica, replay it against the index
+                versionValue = null;
+            }
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(delete.uid());
             } else {
@@ -663,21 +767,27 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 updatedVersion = delete.version();
             }
 
+            final boolean translogOnly = translogOnly(delete);
             if (currentVersion == -1) {
                 // doc does not exists and no prior deletes
                 delete.version(updatedVersion).notFound(true);
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation, translogOnly));
             } else if (versionValue != null && versionValue.delete()) {
                 // a "delete on delete", in this case, we still increment the version, log it, and return that version
                 delete.version(updatedVersion).notFound(true);
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation, translogOnly));
             } else {
                 delete.version(updatedVersion);
-                writer.deleteDocuments(delete.uid());
+                if (!translogOnly) {
+                    writer.deleteDocuments(delete.uid());
+                }
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation, translogOnly));
+            }
+            if (translogOnly) {
+                pendingSegmentCopyOperations.incrementAndGet();
             }
 
             indexingService.postDeleteUnderLock(delete);
@@ -704,6 +814,13 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 query = delete.query();
             }
 
+            if (suspendedForSegmentCopy || writerClosedForSegmentCopy) {
+                // only replicas copy segments, and their writer stays closed between copies, the delete will be part
+                // of the segments copied from the primary
+                translog.add(new Translog.DeleteByQuery(delete));
+                pendingSegmentCopyOperations.incrementAndGet();
+                return;
+            }
             writer.deleteDocuments(query);
             translog.add(new Translog.DeleteByQuery(delete));
             dirty = true;
@@ -715,7 +832,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             rwl.readLock().unlock();
         }
         //TODO: This is heavy, since we refresh, but we really have to...
-        refreshVersioningTable(System.currentTimeMillis());
+        refreshVersioningTable(System.currentTimeMillis(), false);
     }
 
     @Override
@@ -755,7 +872,13 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 synchronized (refreshMutex) {
                     if (dirty || refresh.force()) {
                         dirty = false;
-                        searcherManager.maybeRefresh();
+                        versionMap.beforeRefresh();
+                        boolean refreshed = false;
+                        try {
+                            refreshed = searcherManager.maybeRefresh();
+                        } finally {
+                            versionMap.afterRefresh(refreshed);
+                        }
                     }
                 }
             } catch (AlreadyClosedException e) {
@@ -792,6 +915,16 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             if (onGoingRecoveries > 0) {
                 throw new FlushNotAllowedEngineException(shardId, "recovery is in progress, flush [" + flush.type() + "] is not allowed");
             }
+            // the translog holds operations that are not in the index yet, it is trimmed once the segments are copied
+            if (pendingSegmentCopyOperations.get() > 0) {
+                throw new FlushNotAllowedEngineException(shardId, "operations pending segment copy, flush [" + flush.type() + "] is not allowed");
+            }
+        }
+        if (suspendedForSegmentCopy) {
+            throw new FlushNotAllowedEngineException(shardId, "segment copy is in progress, flush [" + flush.type() + "] is not allowed");
+        }
+        if (writerClosedForSegmentCopy) {
+            throw new FlushNotAllowedEngineException(shardId, "segment replication replica, flush [" + flush.type() + "] is not allowed");
         }
         int currentFlushing = flushing.incrementAndGet();
         if (currentFlushing > 1 && !flush.waitIfOngoing()) {
@@ -833,7 +966,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                         this.searcherManager = buildSearchManager(indexWriter);
                         current.close();
 
-                        refreshVersioningTable(threadPool.estimatedTimeInMillis());
+                        refreshVersioningTable(threadPool.estimatedTimeInMillis(), false);
                     } catch (OutOfMemoryError e) {
                         failEngine(e);
                         throw new FlushFailedEngineException(shardId, e);
@@ -866,7 +999,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                             translog.newTransientTranslog(translogId);
                             indexWriter.setCommitData(MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)).map());
                             indexWriter.commit();
-                            refreshVersioningTable(threadPool.estimatedTimeInMillis());
+                            refreshVersioningTable(threadPool.estimatedTimeInMillis(), false);
                             // we need to move transient to current only after we refresh
                             // so items added to current will still be around for realtime get
                             // when tans overrides it
@@ -939,33 +1072,81 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private void refreshVersioningTable(long time) {
+    /**
+     * Refreshes, which removes the version values of index operations, and removes the deletes that are older than
+     * <tt>time</tt> and can be garbage collected. Values of operations pending a segment copy are only removed if
+     * <tt>segmentsCopied</tt>, since they are not in the index before that.
+     */
+    private void refreshVersioningTable(long time, boolean segmentsCopied) {
         // we need to refresh in order to clear older version values
         refresh(new Refresh(true).force(true));
-        for (Map.Entry<String, VersionValue> entry : versionMap.entrySet()) {
-            String id = entry.getKey();
-            synchronized (dirtyLock(id)) { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
-                VersionValue versionValue = versionMap.get(id);
-                if (versionValue == null) {
-                    continue;
-                }
-                if (time - versionValue.time() <= 0) {
-                    continue; // its a newer value, from after/during we refreshed, don't clear it
+        for (Map.Entry<String, VersionValue> entry : versionMap.retainedEntries()) {
+            VersionValue versionValue = entry.getValue();
+            if (time - versionValue.time() <= 0) {
+                continue; // its a newer value, from after/during we refreshed, don't clear it
+            }
+            if (versionValue.pendingSegmentCopy() && !segmentsCopied) {
+                continue; // not in the index yet
+            }
+            // only removed if not replaced in the meantime, so no need to get the uid lock
+            if (versionValue.delete()) {
+                if (enableGcDeletes && (time - versionValue.time()) > gcDeletesInMillis) {
+                    versionMap.removeRetained(entry.getKey(), versionValue);
                 }
-                if (versionValue.delete()) {
-                    if (enableGcDeletes && (time - versionValue.time()) > gcDeletesInMillis) {
-                        versionMap.remove(id);
+            } else {
+                versionMap.removeRetained(entry.getKey(), versionValue);
+            }
+        }
+    }
+
+    /**
+     * The index writer gets the shard indexing buffer, minus the part the version map may use.
+     */
+    private ByteSizeValue indexWriterBufferSize() {
+        return new ByteSizeValue((long) (indexingBufferSize.bytes() * (1 - versionMapSizeRatio)));
+    }
+
+    /**
+     * Refreshes in the background if the version map uses more than its part of the shard indexing buffer, since a
+     * refresh is what clears it.
+     */
+    private void checkVersionMapRefresh() {
+        if (versionMap.ramBytesUsedForRefresh() <= indexingBufferSize.bytes() * versionMapSizeRatio) {
+            return;
+        }
+        if (!versionMapRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            threadPool.executor(ThreadPool.Names.REFRESH).execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh(new Refresh(false).force(true));
+                    } catch (EngineClosedException e) {
+                        // ignore
+                    } catch (Exception e) {
+                        logger.warn("failed to refresh to clear the version map", e);
+                    } finally {
+                        versionMapRefreshPending.set(false);
                     }
-                } else {
-                    versionMap.remove(id);
                 }
-            }
+            });
+        } catch (RuntimeException e) {
+            // the operation itself went through, we will try again on the next one
+            versionMapRefreshPending.set(false);
+            logger.debug("failed to schedule a refresh to clear the version map", e);
         }
     }
 
+    @Override
+    public long versionMapMemorySizeInBytes() {
+        return versionMap.ramBytesUsed();
+    }
+
     @Override
     public void maybeMerge() throws EngineException {
-        if (!possibleMergeNeeded) {
+        if (!possibleMergeNeeded || suspendedForSegmentCopy || writerClosedForSegmentCopy) {
             return;
         }
         possibleMergeNeeded = false;
@@ -992,6 +1173,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     @Override
     public void optimize(Optimize optimize) throws EngineException {
+        if (writerClosedForSegmentCopy) {
+            // segment replication replica, the segments are copied from the primary
+            return;
+        }
         if (optimize.flush()) {
             flush(new Flush().force(true));
         }
@@ -1147,6 +1332,147 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    @Override
+    public void suspendForSegmentCopy() throws EngineException {
+        segmentCopyLock.lock();
+        boolean suspended = false;
+        rwl.writeLock().lock();
+        try {
+            if (indexWriter == null) {
+                throw new EngineClosedException(shardId, failedEngine);
+            }
+            if (suspendedForSegmentCopy) {
+                throw new ElasticSearchIllegalStateException("engine is already suspended for segment copy");
+            }
+            // operations from now on are logged to the new translog as well, it becomes the current one once the copy is done
+            translog.newTransientTranslog(translogIdGenerator.incrementAndGet());
+            pendingSegmentCopyOperationsOnSuspend = pendingSegmentCopyOperations.get();
+            suspendedForSegmentCopyTime = threadPool.estimatedTimeInMillis();
+            suspendedForSegmentCopy = true;
+            suspended = true;
+            if (!writerClosedForSegmentCopy) {
+                try {
+                    // close the writer, so it won't go and delete the files we copy over, nothing to commit on a replica
+                    indexWriter.close(false);
+                    writerClosedForSegmentCopy = true;
+                } catch (Exception e) {
+                    suspendedForSegmentCopy = false;
+                    suspended = false;
+                    translog.revertTransient();
+                    failEngine(e);
+                    throw new EngineException(shardId, "failed to close writer for segment copy", e);
+                }
+            }
+        } finally {
+            rwl.writeLock().unlock();
+            if (!suspended) {
+                segmentCopyLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void resumeAfterSegmentCopy(boolean copied) throws EngineException {
+        rwl.writeLock().lock();
+        try {
+            if (!suspendedForSegmentCopy) {
+                throw new ElasticSearchIllegalStateException("engine is not suspended for segment copy");
+            }
+            if (closed) {
+                throw new EngineClosedException(shardId, failedEngine);
+            }
+            try {
+                if (copied) {
+                    if (!searchingCopiedCommit) {
+                        // the writer stays closed while we are a replica, search the copied commit points directly
+                        SearcherManager current = this.searcherManager;
+                        this.searcherManager = new SearcherManager(store.directory(), searcherFactory);
+                        current.close();
+                        searchingCopiedCommit = true;
+                    }
+                    // the copied commit point includes all the operations added before we suspended, since the primary
+                    // commits before sending it, so they can be dropped from the translog
+                    refreshVersioningTable(suspendedForSegmentCopyTime, true);
+                    translog.makeTransientCurrent();
+                    pendingSegmentCopyOperations.addAndGet(-pendingSegmentCopyOperationsOnSuspend);
+
+                    SegmentInfos infos = new SegmentInfos();
+                    infos.read(store.directory());
+                    lastCommittedSegmentInfos = infos;
+                } else {
+                    translog.revertTransient();
+                }
+            } catch (Exception e) {
+                failEngine(e);
+                throw new EngineException(shardId, "failed to resume engine after segment copy", e);
+            }
+        } finally {
+            suspendedForSegmentCopy = false;
+            rwl.writeLock().unlock();
+            segmentCopyLock.unlock();
+        }
+    }
+
+    @Override
+    public void stopSegmentReplication(SegmentCopyOperationsHandler handler) throws EngineException {
+        if (!writerClosedForSegmentCopy && pendingSegmentCopyOperations.get() == 0) {
+            return;
+        }
+        segmentCopyLock.lock();
+        try {
+            rwl.writeLock().lock();
+            try {
+                if (closed) {
+                    throw new EngineClosedException(shardId, failedEngine);
+                }
+                try {
+                    if (writerClosedForSegmentCopy) {
+                        indexWriter = createWriter();
+                        // the copied commit point refers to the primary translog, commit it with our own translog id
+                        indexWriter.setCommitData(MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translog.currentId())).map());
+                        indexWriter.commit();
+
+                        SearcherManager current = this.searcherManager;
+                        this.searcherManager = buildSearchManager(indexWriter);
+                        current.close();
+                        searchingCopiedCommit = false;
+                        writerClosedForSegmentCopy = false;
+
+                        SegmentInfos infos = new SegmentInfos();
+                        infos.read(store.directory());
+                        lastCommittedSegmentInfos = infos;
+                    }
+                    if (pendingSegmentCopyOperations.get() > 0) {
+                        // still under the write lock, so a replayed operation can't override a newer write
+                        Translog.Snapshot snapshot = translog.snapshot();
+                        try {
+                            handler.apply(snapshot);
+                        } finally {
+                            snapshot.release();
+                        }
+                        pendingSegmentCopyOperations.set(0);
+                    }
+                } catch (Exception e) {
+                    failEngine(e);
+                    throw new EngineException(shardId, "failed to stop segment replication", e);
+                }
+            } finally {
+                rwl.writeLock().unlock();
+            }
+        } finally {
+            segmentCopyLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean hasPendingSegmentCopyOperations() {
+        return pendingSegmentCopyOperations.get() > 0;
+    }
+
+    private boolean translogOnly(Operation operation) {
+        return segmentReplication && operation.origin() == Operation.Origin.REPLICA;
+    }
+
     @Override
     public List<Segment> segments() {
         rwl.readLock().lock();
@@ -1286,7 +1612,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             List<AtomicReaderContext> readers = searcher.reader().leaves();
             for (int i = 0; i < readers.size(); i++) {
                 AtomicReaderContext readerContext = readers.get(i);
-                long version = UidField.loadVersion(readerContext, uid);
+                long version = UidLookup.loadVersion(readerContext, uid);
                 // either -2 (its there, but no version associated), or an actual version
                 if (version != -1) {
                     return version;
@@ -1313,7 +1639,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             config.setMergeScheduler(mergeScheduler.newMergeScheduler());
             config.setMergePolicy(mergePolicyProvider.newMergePolicy());
             config.setSimilarity(similarityService.similarity());
-            config.setRAMBufferSizeMB(indexingBufferSize.mbFrac());
+            config.setRAMBufferSizeMB(indexWriterBufferSize().mbFrac());
             config.setTermIndexInterval(termIndexInterval);
             config.setReaderTermsIndexDivisor(termIndexDivisor);
             config.setMaxThreadStates(indexConcurrency);
@@ -1429,12 +1755,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         private final boolean delete;
         private final long time;
         private final Translog.Location translogLocation;
+        private final boolean pendingSegmentCopy;
 
         VersionValue(long version, boolean delete, long time, Translog.Location translogLocation) {
+            this(version, delete, time, translogLocation, false);
+        }
+
+        VersionValue(long version, boolean delete, long time, Translog.Location translogLocation, boolean pendingSegmentCopy) {
             this.version = version;
             this.delete = delete;
             this.time = time;
             this.translogLocation = translogLocation;
+            this.pendingSegmentCopy = pendingSegmentCopy;
         }
 
         public long time() {
@@ -1452,6 +1784,13 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         public Translog.Location translogLocation() {
             return this.translogLocation;
         }
+
+        /**
+         * Returns <tt>true</tt> if the operation was only added to the translog, and is not part of the index yet.
+         */
+        public boolean pendingSegmentCopy() {
+            return this.pendingSegmentCopy;
+        }
     }
 
     class RobinSearchFactory extends SearcherFactory {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.fielddata;
 
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -34,17 +35,36 @@ import java.io.IOException;
 public class FieldDataStats implements Streamable, ToXContent {
 
     long memorySize;
+    long loadedDocs;
+
+    long breakerEstimatedSize;
+    long breakerLimit;
+    long breakerTripped;
 
     public FieldDataStats() {
 
     }
 
-    public FieldDataStats(long memorySize) {
+    public FieldDataStats(long memorySize, long loadedDocs) {
         this.memorySize = memorySize;
+        this.loadedDocs = loadedDocs;
     }
 
     public void add(FieldDataStats stats) {
         this.memorySize += stats.memorySize;
+        this.loadedDocs += stats.loadedDocs;
+        this.breakerEstimatedSize += stats.breakerEstimatedSize;
+        this.breakerLimit += stats.breakerLimit;
+        this.breakerTripped += stats.breakerTripped;
+    }
+
+    /**
+     * Sets the node level circuit breaker stats, only set on node level stats.
+     */
+    public void breaker(MemoryCircuitBreaker breaker) {
+        this.breakerEstimatedSize = breaker.getUsed();
+        this.breakerLimit = breaker.getMaximum();
+        this.breakerTripped = breaker.getTrippedCount();
     }
 
     public long getMemorySizeInBytes() {
@@ -55,6 +75,49 @@ public class FieldDataStats implements Streamable, ToXContent {
         return new ByteSizeValue(memorySize);
     }
 
+    /**
+     * The number of docs (summed across the loaded fields and segments) the field data is loaded for.
+     */
+    public long getLoadedDocs() {
+        return this.loadedDocs;
+    }
+
+    /**
+     * The average field data memory used per loaded doc, <tt>0</tt> if nothing is loaded.
+     */
+    public double getMemorySizePerDocInBytes() {
+        if (loadedDocs == 0) {
+            return 0;
+        }
+        return (double) memorySize / loadedDocs;
+    }
+
+    /**
+     * The field data memory estimated by the circuit breaker.
+     */
+    public long getBreakerEstimatedSizeInBytes() {
+        return this.breakerEstimatedSize;
+    }
+
+    public ByteSizeValue getBreakerEstimatedSize() {
+        return new ByteSizeValue(breakerEstimatedSize);
+    }
+
+    public long getBreakerLimitInBytes() {
+        return this.breakerLimit;
+    }
+
+    public ByteSizeValue getBreakerLimit() {
+        return new ByteSizeValue(breakerLimit);
+    }
+
+    /**
+     * The number of times field data loading was aborted by the circuit breaker.
+     */
+    public long getBreakerTripped() {
+        return this.breakerTripped;
+    }
+
     public static FieldDataStats readFieldDataStats(StreamInput in) throws IOException {
         FieldDataStats stats = new FieldDataStats();
         stats.readFrom(in);
@@ -64,11 +127,19 @@ public class FieldDataStats implements Streamable, ToXContent {
     @Override
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
+        loadedDocs = in.readVLong();
+        breakerEstimatedSize = in.readVLong();
+        breakerLimit = in.readVLong();
+        breakerTripped = in.readVLong();
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
+        out.writeVLong(loadedDocs);
+        out.writeVLong(breakerEstimatedSize);
+        out.writeVLong(breakerLimit);
+        out.writeVLong(breakerTripped);
     }
 
     @Override
@@ -76,6 +147,17 @@ public class FieldDataStats implements Streamable, ToXContent {
         builder.startObject(Fields.FIELD_DATA);
         builder.field(Fields.MEMORY_SIZE, memorySize);
         builder.field(Fields.MEMORY_SIZE_IN_BYTES, getMemorySize().toString());
+        builder.field(Fields.LOADED_DOCS, loadedDocs);
+        builder.field(Fields.MEMORY_SIZE_PER_DOC_IN_BYTES, getMemorySizePerDocInBytes());
+        if (breakerLimit > 0) {
+            builder.startObject(Fields.BREAKER);
+            builder.field(Fields.ESTIMATED_SIZE, getBreakerEstimatedSize().toString());
+            builder.field(Fields.ESTIMATED_SIZE_IN_BYTES, breakerEstimatedSize);
+            builder.field(Fields.LIMIT_SIZE, getBreakerLimit().toString());
+            builder.field(Fields.LIMIT_SIZE_IN_BYTES, breakerLimit);
+            builder.field(Fields.TRIPPED, breakerTripped);
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -84,5 +166,13 @@ public class FieldDataStats implements Streamable, ToXContent {
         static final XContentBuilderString FIELD_DATA = new XContentBuilderString("field_data");
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
+        static final XContentBuilderString LOADED_DOCS = new XContentBuilderString("loaded_docs");
+        static final XContentBuilderString MEMORY_SIZE_PER_DOC_IN_BYTES = new XContentBuilderString("memory_size_per_doc_in_bytes");
+        static final XContentBuilderString BREAKER = new XContentBuilderString("breaker");
+        static final XContentBuilderString ESTIMATED_SIZE = new XContentBuilderString("estimated_size");
+        static final XContentBuilderString ESTIMATED_SIZE_IN_BYTES = new XContentBuilderString("estimated_size_in_bytes");
+        static final XContentBuilderString LIMIT_SIZE = new XContentBuilderString("limit_size");
+        static final XContentBuilderString LIMIT_SIZE_IN_BYTES = new XContentBuilderString("limit_size_in_bytes");
+        static final XContentBuilderString TRIPPED = new XContentBuilderString("tripped");
     }
 }
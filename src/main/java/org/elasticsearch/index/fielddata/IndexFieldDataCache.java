@@ -23,14 +23,21 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
+import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A simple field data cache abstraction.
@@ -39,6 +46,12 @@ public interface IndexFieldDataCache {
 
     <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(AtomicReaderContext context, IFD indexFieldData) throws Exception;
 
+    /**
+     * Loads the global ordinals of the field over all the segments of the (top level) reader, built lazily and
+     * cached for as long as the reader is around.
+     */
+    GlobalOrdinals loadGlobal(IndexReader reader, IndexFieldData.WithOrdinals indexFieldData) throws Exception;
+
     void clear(Index index);
 
     void clear(Index index, String fieldName);
@@ -50,29 +63,52 @@ public interface IndexFieldDataCache {
         void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData);
 
         void onUnload(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, @Nullable AtomicFieldData fieldData);
+
+        void onLoadGlobal(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, GlobalOrdinals globalOrdinals);
+
+        void onUnloadGlobal(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, GlobalOrdinals globalOrdinals);
     }
 
     /**
      * The resident field data cache is a *per field* cache that keeps all the values in memory.
      */
-    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, RemovalListener<Object, AtomicFieldData> {
+    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, IndexReader.ReaderClosedListener, RemovalListener<Object, AtomicFieldData> {
         private final Index index;
         private final FieldMapper.Names fieldNames;
         private final FieldDataType fieldDataType;
         private final Listener listener;
+        private final MemoryCircuitBreaker breaker;
         private final Cache<Object, AtomicFieldData> cache;
+        // keyed by the top level reader, weak so the entry goes away with the reader (it is also removed when the reader is closed)
+        private final Cache<Object, GlobalOrdinals> globalOrdinalsCache;
+        // the size accounted in the breaker per entry, since soft values might get collected before they are removed
+        private final ConcurrentMap<Object, Long> sizesInBytes = ConcurrentCollections.newConcurrentMap();
 
-        protected FieldBased(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, CacheBuilder cache) {
+        protected FieldBased(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, MemoryCircuitBreaker breaker, CacheBuilder cache) {
             this.index = index;
             this.fieldNames = fieldNames;
             this.fieldDataType = fieldDataType;
             this.listener = listener;
+            this.breaker = breaker;
             cache.removalListener(this);
             this.cache = cache.build();
+            this.globalOrdinalsCache = CacheBuilder.newBuilder().weakKeys().removalListener(new RemovalListener<Object, GlobalOrdinals>() {
+                @Override
+                public void onRemoval(RemovalNotification<Object, GlobalOrdinals> notification) {
+                    // values are strong, so they are still around even if the reader was collected
+                    GlobalOrdinals globalOrdinals = notification.getValue();
+                    breaker.addWithoutBreaking(-globalOrdinals.getMemorySizeInBytes());
+                    listener.onUnloadGlobal(index, fieldNames, fieldDataType, globalOrdinals);
+                }
+            }).build();
         }
 
         @Override
         public void onRemoval(RemovalNotification<Object, AtomicFieldData> notification) {
+            Long sizeInBytes = sizesInBytes.remove(notification.getKey());
+            if (sizeInBytes != null) {
+                breaker.addWithoutBreaking(-sizeInBytes);
+            }
             listener.onUnload(index, fieldNames, fieldDataType, notification.getValue());
         }
 
@@ -81,49 +117,109 @@ public interface IndexFieldDataCache {
             cache.invalidate(owner.getCoreCacheKey());
         }
 
+        @Override
+        public void onClose(IndexReader reader) {
+            globalOrdinalsCache.invalidate(reader.getCoreCacheKey());
+        }
+
         @Override
         public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final AtomicReaderContext context, final IFD indexFieldData) throws Exception {
-            //noinspection unchecked
-            return (FD) cache.get(context.reader().getCoreCacheKey(), new Callable<AtomicFieldData>() {
-                @Override
-                public AtomicFieldData call() throws Exception {
-                    if (context.reader() instanceof SegmentReader) {
-                        ((SegmentReader) context.reader()).addCoreClosedListener(FieldBased.this);
+            try {
+                //noinspection unchecked
+                return (FD) cache.get(context.reader().getCoreCacheKey(), new Callable<AtomicFieldData>() {
+                    @Override
+                    public AtomicFieldData call() throws Exception {
+                        if (context.reader() instanceof SegmentReader) {
+                            ((SegmentReader) context.reader()).addCoreClosedListener(FieldBased.this);
+                        }
+                        // account for the estimated size before loading, so we break before running out of memory
+                        long estimatedSizeInBytes = CircuitBreakerService.estimateSizeInBytes(context.reader(), fieldNames.indexName(), fieldDataType);
+                        breaker.addEstimateBytesAndMaybeBreak(estimatedSizeInBytes, fieldNames.fullName());
+                        AtomicFieldData fieldData;
+                        try {
+                            fieldData = indexFieldData.loadDirect(context);
+                        } catch (Exception e) {
+                            breaker.addWithoutBreaking(-estimatedSizeInBytes);
+                            throw e;
+                        }
+                        // now replace the estimate with the actual size
+                        long sizeInBytes = fieldData.getMemorySizeInBytes();
+                        breaker.addWithoutBreaking(sizeInBytes - estimatedSizeInBytes);
+                        sizesInBytes.put(context.reader().getCoreCacheKey(), sizeInBytes);
+                        listener.onLoad(index, fieldNames, fieldDataType, fieldData);
+                        return fieldData;
+                    }
+                });
+            } catch (UncheckedExecutionException e) {
+                if (e.getCause() instanceof ElasticSearchException) {
+                    // for example, the breaker tripped, no need to wrap it
+                    throw (ElasticSearchException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public GlobalOrdinals loadGlobal(final IndexReader reader, final IndexFieldData.WithOrdinals indexFieldData) throws Exception {
+            try {
+                return globalOrdinalsCache.get(reader.getCoreCacheKey(), new Callable<GlobalOrdinals>() {
+                    @Override
+                    public GlobalOrdinals call() throws Exception {
+                        reader.addReaderClosedListener(FieldBased.this);
+                        // same as segment field data, account for the estimate first and replace it with the actual size
+                        long estimatedSizeInBytes = GlobalOrdinals.estimateSizeInBytes(reader, indexFieldData);
+                        breaker.addEstimateBytesAndMaybeBreak(estimatedSizeInBytes, fieldNames.fullName());
+                        GlobalOrdinals globalOrdinals;
+                        try {
+                            globalOrdinals = GlobalOrdinals.build(reader, indexFieldData);
+                        } catch (Exception e) {
+                            breaker.addWithoutBreaking(-estimatedSizeInBytes);
+                            throw e;
+                        }
+                        breaker.addWithoutBreaking(globalOrdinals.getMemorySizeInBytes() - estimatedSizeInBytes);
+                        listener.onLoadGlobal(index, fieldNames, fieldDataType, globalOrdinals);
+                        return globalOrdinals;
                     }
-                    AtomicFieldData fieldData = indexFieldData.loadDirect(context);
-                    listener.onLoad(index, fieldNames, fieldDataType, fieldData);
-                    return fieldData;
+                });
+            } catch (UncheckedExecutionException e) {
+                if (e.getCause() instanceof ElasticSearchException) {
+                    throw (ElasticSearchException) e.getCause();
                 }
-            });
+                throw e;
+            }
         }
 
         @Override
         public void clear(Index index) {
             cache.invalidateAll();
+            globalOrdinalsCache.invalidateAll();
         }
 
         @Override
         public void clear(Index index, String fieldName) {
             cache.invalidateAll();
+            globalOrdinalsCache.invalidateAll();
         }
 
         @Override
         public void clear(Index index, IndexReader reader) {
             cache.invalidate(reader.getCoreCacheKey());
+            // global ordinals refer to the segment field data, drop them (they are rebuilt lazily)
+            globalOrdinalsCache.invalidateAll();
         }
     }
 
     static class Resident extends FieldBased {
 
-        public Resident(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener) {
-            super(index, fieldNames, fieldDataType, listener, CacheBuilder.newBuilder());
+        public Resident(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, MemoryCircuitBreaker breaker) {
+            super(index, fieldNames, fieldDataType, listener, breaker, CacheBuilder.newBuilder());
         }
     }
 
     static class Soft extends FieldBased {
 
-        public Soft(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener) {
-            super(index, fieldNames, fieldDataType, listener, CacheBuilder.newBuilder().softValues());
+        public Soft(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, MemoryCircuitBreaker breaker) {
+            super(index, fieldNames, fieldDataType, listener, breaker, CacheBuilder.newBuilder().softValues());
         }
     }
 }
@@ -32,9 +32,11 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.fielddata.plain.*;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 
 import java.util.concurrent.ConcurrentMap;
 
@@ -66,6 +68,7 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
                 .put(Tuple.tuple("short", "array"), new ShortArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("int", "array"), new IntArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("long", "array"), new LongArrayIndexFieldData.Builder())
+                .put(Tuple.tuple("long", "mmap"), new MMapLongIndexFieldData.Builder())
                 .put(Tuple.tuple("geo_point", "array"), new GeoPointDoubleArrayIndexFieldData.Builder())
                 .immutableMap();
     }
@@ -73,14 +76,18 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
     private final ConcurrentMap<String, IndexFieldData> loadedFieldData = ConcurrentCollections.newConcurrentMap();
 
     private final CounterMetric memoryUsedInBytes = new CounterMetric();
+    private final CounterMetric loadedDocs = new CounterMetric();
+
+    private final CircuitBreakerService circuitBreakerService;
 
     public IndexFieldDataService(Index index) {
-        this(index, ImmutableSettings.Builder.EMPTY_SETTINGS);
+        this(index, ImmutableSettings.Builder.EMPTY_SETTINGS, new CircuitBreakerService());
     }
 
     @Inject
-    public IndexFieldDataService(Index index, @IndexSettings Settings indexSettings) {
+    public IndexFieldDataService(Index index, @IndexSettings Settings indexSettings, CircuitBreakerService circuitBreakerService) {
         super(index, indexSettings);
+        this.circuitBreakerService = circuitBreakerService;
     }
 
     public void clear() {
@@ -111,6 +118,7 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
     public void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData) {
         assert index.equals(this.index);
         memoryUsedInBytes.inc(fieldData.getMemorySizeInBytes());
+        loadedDocs.inc(fieldData.getNumDocs());
     }
 
     @Override
@@ -118,11 +126,24 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
         assert index.equals(this.index);
         if (fieldData != null) {
             memoryUsedInBytes.dec(fieldData.getMemorySizeInBytes());
+            loadedDocs.dec(fieldData.getNumDocs());
         }
     }
 
+    @Override
+    public void onLoadGlobal(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, GlobalOrdinals globalOrdinals) {
+        assert index.equals(this.index);
+        memoryUsedInBytes.inc(globalOrdinals.getMemorySizeInBytes());
+    }
+
+    @Override
+    public void onUnloadGlobal(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, GlobalOrdinals globalOrdinals) {
+        assert index.equals(this.index);
+        memoryUsedInBytes.dec(globalOrdinals.getMemorySizeInBytes());
+    }
+
     public FieldDataStats stats() {
-        return new FieldDataStats(memoryUsedInBytes.count());
+        return new FieldDataStats(memoryUsedInBytes.count(), loadedDocs.count());
     }
 
     public <IFD extends IndexFieldData> IFD getForField(FieldMapper mapper) {
@@ -153,9 +174,9 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
                     IndexFieldDataCache cache;
                     String cacheType = type.getSettings().get("cache", indexSettings.get("index.fielddata.cache", "resident"));
                     if ("resident".equals(cacheType)) {
-                        cache = new IndexFieldDataCache.Resident(index, fieldNames, type, this);
+                        cache = new IndexFieldDataCache.Resident(index, fieldNames, type, this, circuitBreakerService.getBreaker());
                     } else if ("soft".equals(cacheType)) {
-                        cache = new IndexFieldDataCache.Soft(index, fieldNames, type, this);
+                        cache = new IndexFieldDataCache.Soft(index, fieldNames, type, this, circuitBreakerService.getBreaker());
                     } else {
                         throw new ElasticSearchIllegalArgumentException("cache type not supported [" + cacheType + "] for field [" + fieldNames.fullName() + "]");
                     }
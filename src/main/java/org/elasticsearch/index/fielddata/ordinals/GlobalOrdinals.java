@@ -0,0 +1,211 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+
+import java.util.List;
+
+/**
+ * Shard level ordinals over all the segments of a reader. Each segment ordinal maps to a global ordinal,
+ * so values can be counted across segments into a single array, and only the ordinals that end up being
+ * used need to be resolved to their values. Like segment ordinals, global ordinals are sorted by value,
+ * and <tt>0</tt> is reserved for "no value".
+ */
+public class GlobalOrdinals {
+
+    /**
+     * Estimates the memory the global ordinals of the field will use, before building them. The segment field
+     * data is loaded (and accounted for) on its own, only the mapping to global ordinals is estimated.
+     */
+    public static long estimateSizeInBytes(IndexReader reader, IndexFieldData.WithOrdinals indexFieldData) {
+        List<AtomicReaderContext> leaves = reader.leaves();
+        long segmentOrds = 0;
+        long maxOrds = 1;
+        int maxSegmentOrds = 1;
+        for (AtomicReaderContext leaf : leaves) {
+            int numOrds = indexFieldData.load(leaf).getBytesValues().ordinals().getNumOrds();
+            segmentOrds += numOrds;
+            maxOrds += numOrds - 1;
+            maxSegmentOrds = Math.max(maxSegmentOrds, numOrds);
+        }
+        int globalOrdBits = PackedInts.bitsRequired(maxOrds);
+        int firstOccurrenceBits = PackedInts.bitsRequired(Math.max(1, leaves.size() - 1)) + PackedInts.bitsRequired(maxSegmentOrds);
+        return RamUsage.NUM_BYTES_OBJECT_HEADER + leaves.size() * RamUsage.NUM_BYTES_OBJECT_REF
+                + (segmentOrds * globalOrdBits + maxOrds * firstOccurrenceBits) / 8;
+    }
+
+    /**
+     * Builds the global ordinals of the field over all the segments of the reader, by merging the (sorted)
+     * values of each segment.
+     */
+    public static GlobalOrdinals build(IndexReader reader, IndexFieldData.WithOrdinals indexFieldData) {
+        List<AtomicReaderContext> leaves = reader.leaves();
+        AtomicFieldData.WithOrdinals[] fieldData = new AtomicFieldData.WithOrdinals[leaves.size()];
+        long maxOrds = 1;
+        int maxSegmentOrds = 1;
+        for (int i = 0; i < leaves.size(); i++) {
+            fieldData[i] = indexFieldData.load(leaves.get(i));
+            int numOrds = fieldData[i].getBytesValues().ordinals().getNumOrds();
+            maxOrds += numOrds - 1;
+            maxSegmentOrds = Math.max(maxSegmentOrds, numOrds);
+        }
+        if (maxOrds > Integer.MAX_VALUE) {
+            throw new ElasticSearchIllegalStateException("too many ordinals [" + maxOrds + "] across segments of field [" + indexFieldData.getFieldNames().fullName() + "]");
+        }
+
+        int globalOrdBits = PackedInts.bitsRequired(maxOrds);
+        PackedInts.Mutable[] segmentToGlobal = new PackedInts.Mutable[leaves.size()];
+        SegmentQueue queue = new SegmentQueue(leaves.size());
+        for (int i = 0; i < leaves.size(); i++) {
+            BytesValues.WithOrdinals values = fieldData[i].getBytesValues();
+            segmentToGlobal[i] = PackedInts.getMutable(values.ordinals().getNumOrds(), globalOrdBits, PackedInts.COMPACT);
+            Segment segment = new Segment(i, values);
+            if (segment.next()) {
+                queue.add(segment);
+            }
+        }
+
+        // for each global ordinal, the segment and segment ordinal of its first occurrence, to resolve its value
+        PackedInts.Mutable firstSegments = PackedInts.getMutable((int) maxOrds, PackedInts.bitsRequired(Math.max(1, leaves.size() - 1)), PackedInts.COMPACT);
+        PackedInts.Mutable firstSegmentOrds = PackedInts.getMutable((int) maxOrds, PackedInts.bitsRequired(maxSegmentOrds), PackedInts.COMPACT);
+
+        BytesRef spare = new BytesRef();
+        int globalOrd = 0;
+        while (queue.size() > 0) {
+            Segment segment = queue.top();
+            globalOrd++;
+            spare.copyBytes(segment.current);
+            firstSegments.set(globalOrd, segment.index);
+            firstSegmentOrds.set(globalOrd, segment.ord);
+            do {
+                segmentToGlobal[segment.index].set(segment.ord, globalOrd);
+                if (segment.next()) {
+                    segment = queue.updateTop();
+                } else {
+                    queue.pop();
+                    segment = queue.top();
+                }
+            } while (segment != null && spare.bytesEquals(segment.current));
+        }
+        return new GlobalOrdinals(fieldData, segmentToGlobal, firstSegments, firstSegmentOrds, globalOrd + 1);
+    }
+
+    private final AtomicFieldData.WithOrdinals[] fieldData;
+
+    private final PackedInts.Reader[] segmentToGlobal;
+
+    private final PackedInts.Reader firstSegments;
+
+    private final PackedInts.Reader firstSegmentOrds;
+
+    private final int numOrds;
+
+    private long size = -1;
+
+    GlobalOrdinals(AtomicFieldData.WithOrdinals[] fieldData, PackedInts.Reader[] segmentToGlobal, PackedInts.Reader firstSegments, PackedInts.Reader firstSegmentOrds, int numOrds) {
+        this.fieldData = fieldData;
+        this.segmentToGlobal = segmentToGlobal;
+        this.firstSegments = firstSegments;
+        this.firstSegmentOrds = firstSegmentOrds;
+        this.numOrds = numOrds;
+    }
+
+    /**
+     * The number of global ordinals, including the <tt>0</tt> "no value" ordinal.
+     */
+    public int getNumOrds() {
+        return numOrds;
+    }
+
+    /**
+     * The memory used by the mapping to global ordinals, excluding the segment field data it refers to.
+     */
+    public long getMemorySizeInBytes() {
+        if (size == -1) {
+            long size = RamUsage.NUM_BYTES_OBJECT_HEADER + firstSegments.ramBytesUsed() + firstSegmentOrds.ramBytesUsed();
+            for (PackedInts.Reader reader : segmentToGlobal) {
+                size += RamUsage.NUM_BYTES_OBJECT_REF + reader.ramBytesUsed();
+            }
+            this.size = size;
+        }
+        return size;
+    }
+
+    /**
+     * The mapping from the ordinals of the segment (by its ord in the reader leaves) to global ordinals.
+     */
+    public PackedInts.Reader segmentToGlobal(int segment) {
+        return segmentToGlobal[segment];
+    }
+
+    /**
+     * Returns a (safe) copy of the value of the global ordinal.
+     */
+    public BytesRef getValueByOrd(int globalOrd) {
+        int segment = (int) firstSegments.get(globalOrd);
+        return fieldData[segment].getBytesValues().getSafeValueByOrd((int) firstSegmentOrds.get(globalOrd));
+    }
+
+    static class Segment {
+
+        final int index;
+        final BytesValues.WithOrdinals values;
+        final int numOrds;
+
+        int ord;
+        BytesRef current;
+
+        Segment(int index, BytesValues.WithOrdinals values) {
+            this.index = index;
+            this.values = values;
+            this.numOrds = values.ordinals().getNumOrds();
+        }
+
+        boolean next() {
+            if (++ord >= numOrds) {
+                return false;
+            }
+            current = values.getValueByOrd(ord);
+            return true;
+        }
+    }
+
+    static class SegmentQueue extends PriorityQueue<Segment> {
+
+        SegmentQueue(int size) {
+            super(size);
+        }
+
+        @Override
+        protected boolean lessThan(Segment a, Segment b) {
+            return a.current.compareTo(b.current) < 0;
+        }
+    }
+}
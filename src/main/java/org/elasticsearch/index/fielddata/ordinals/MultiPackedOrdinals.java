@@ -0,0 +1,290 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.index.fielddata.util.IntArrayRef;
+
+/**
+ * Multi valued ordinals that stores all the ordinals of all docs in a single packed ints array, with the offset
+ * of the ordinals of each doc stored using a monotonic block encoding: per block of docs, the offsets are stored
+ * as (zig-zag encoded) packed deltas from a linear approximation of the offsets within the block.
+ * <p/>
+ * Unlike {@link MultiFlatArrayOrdinals} and {@link SparseMultiArrayOrdinals}, the memory used is proportional
+ * to the total number of ordinals, and not to the maximum number of ordinals a doc has.
+ */
+public class MultiPackedOrdinals implements Ordinals {
+
+    static final int BLOCK_SHIFT = 10;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    // the offset of the ordinals of a doc, the ordinals of doc n are in [offset(n), offset(n + 1))
+    private final long[] minOffsets;
+    private final float[] averages;
+    private final PackedInts.Reader[] deltas;
+
+    // ordinals with value 0 indicates no value
+    private final PackedInts.Reader ords;
+
+    private final int numDocs;
+    private final int numOrds;
+    private final int maxOrdsPerDoc;
+
+    private long size = -1;
+
+    /**
+     * Returns the number of ordinals in the provided flat ordinals (see {@link MultiFlatArrayOrdinals}).
+     */
+    public static long totalOrds(int[][] ordinals) {
+        long totalOrds = 0;
+        for (int[] level : ordinals) {
+            for (int ord : level) {
+                if (ord != 0) {
+                    totalOrds++;
+                }
+            }
+        }
+        return totalOrds;
+    }
+
+    /**
+     * @param ordinals  the flat ordinals, see {@link MultiFlatArrayOrdinals}
+     * @param numOrds   the total number of unique ords
+     * @param totalOrds the number of ordinals across all docs, see {@link #totalOrds(int[][])}
+     */
+    public MultiPackedOrdinals(int[][] ordinals, int numOrds, int totalOrds, float acceptableOverheadRatio) {
+        this.numDocs = ordinals[0].length;
+        this.numOrds = numOrds;
+        this.maxOrdsPerDoc = ordinals.length;
+
+        PackedInts.Mutable ords = PackedInts.getMutable(totalOrds, PackedInts.bitsRequired(numOrds), acceptableOverheadRatio);
+        int numBlocks = (numDocs + 1 + BLOCK_MASK) >>> BLOCK_SHIFT;
+        this.minOffsets = new long[numBlocks];
+        this.averages = new float[numBlocks];
+        this.deltas = new PackedInts.Reader[numBlocks];
+
+        long[] blockOffsets = new long[BLOCK_SIZE];
+        int offset = 0;
+        // one more entry than docs, the end offset of the last doc
+        for (int block = 0; block < numBlocks; block++) {
+            int blockStart = block << BLOCK_SHIFT;
+            int blockLength = Math.min(BLOCK_SIZE, numDocs + 1 - blockStart);
+            for (int i = 0; i < blockLength; i++) {
+                int doc = blockStart + i;
+                blockOffsets[i] = offset;
+                if (doc < numDocs) {
+                    for (int[] level : ordinals) {
+                        int ord = level[doc];
+                        if (ord == 0) {
+                            break;
+                        }
+                        ords.set(offset++, ord);
+                    }
+                }
+            }
+            long minOffset = blockOffsets[0];
+            float average = blockLength == 1 ? 0f : (float) (blockOffsets[blockLength - 1] - minOffset) / (blockLength - 1);
+            long maxDelta = 0;
+            for (int i = 0; i < blockLength; i++) {
+                long delta = zigZagEncode(blockOffsets[i] - expected(minOffset, average, i));
+                blockOffsets[i] = delta;
+                maxDelta = Math.max(maxDelta, delta);
+            }
+            PackedInts.Mutable blockDeltas = PackedInts.getMutable(blockLength, PackedInts.bitsRequired(maxDelta), acceptableOverheadRatio);
+            for (int i = 0; i < blockLength; i++) {
+                blockDeltas.set(i, blockOffsets[i]);
+            }
+            minOffsets[block] = minOffset;
+            averages[block] = average;
+            deltas[block] = blockDeltas;
+        }
+        this.ords = ords;
+    }
+
+    private static long expected(long minOffset, float average, int index) {
+        return minOffset + (long) (average * (long) index);
+    }
+
+    private static long zigZagEncode(long n) {
+        return (n >> 63) ^ (n << 1);
+    }
+
+    private static long zigZagDecode(long n) {
+        return ((n >>> 1) ^ -(n & 1));
+    }
+
+    final int offset(int index) {
+        int block = index >>> BLOCK_SHIFT;
+        int element = index & BLOCK_MASK;
+        return (int) (expected(minOffsets[block], averages[block], element) + zigZagDecode(deltas[block].get(element)));
+    }
+
+    @Override
+    public boolean hasSingleArrayBackingStorage() {
+        return false;
+    }
+
+    @Override
+    public Object getBackingStorage() {
+        return ords;
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        if (size == -1) {
+            long size = ords.ramBytesUsed();
+            size += RamUsage.NUM_BYTES_ARRAY_HEADER + (RamUsage.NUM_BYTES_LONG * minOffsets.length);
+            size += RamUsage.NUM_BYTES_ARRAY_HEADER + (RamUsage.NUM_BYTES_FLOAT * averages.length);
+            size += RamUsage.NUM_BYTES_ARRAY_HEADER + (RamUsage.NUM_BYTES_OBJECT_REF * deltas.length);
+            for (PackedInts.Reader blockDeltas : deltas) {
+                size += blockDeltas.ramBytesUsed();
+            }
+            this.size = size;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return true;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public int getNumOrds() {
+        return numOrds;
+    }
+
+    @Override
+    public Docs ordinals() {
+        return new Docs(this, ords);
+    }
+
+    static class Docs implements Ordinals.Docs {
+
+        private final MultiPackedOrdinals parent;
+        private final PackedInts.Reader ords;
+
+        private final IterImpl iter;
+        private final IntArrayRef intsScratch;
+
+        public Docs(MultiPackedOrdinals parent, PackedInts.Reader ords) {
+            this.parent = parent;
+            this.ords = ords;
+            this.iter = new IterImpl(ords);
+            this.intsScratch = new IntArrayRef(new int[parent.maxOrdsPerDoc]);
+        }
+
+        @Override
+        public Ordinals ordinals() {
+            return this.parent;
+        }
+
+        @Override
+        public int getNumDocs() {
+            return parent.getNumDocs();
+        }
+
+        @Override
+        public int getNumOrds() {
+            return parent.getNumOrds();
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return true;
+        }
+
+        @Override
+        public int getOrd(int docId) {
+            int start = parent.offset(docId);
+            if (start == parent.offset(docId + 1)) {
+                return 0;
+            }
+            return (int) ords.get(start);
+        }
+
+        @Override
+        public IntArrayRef getOrds(int docId) {
+            int start = parent.offset(docId);
+            int end = parent.offset(docId + 1);
+            if (start == end) {
+                return IntArrayRef.EMPTY;
+            }
+            int i = 0;
+            for (int offset = start; offset < end; offset++) {
+                intsScratch.values[i++] = (int) ords.get(offset);
+            }
+            intsScratch.end = i;
+            return intsScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            return iter.reset(parent.offset(docId), parent.offset(docId + 1));
+        }
+
+        @Override
+        public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
+            int start = parent.offset(docId);
+            int end = parent.offset(docId + 1);
+            if (start == end) {
+                proc.onOrdinal(docId, 0);
+                return;
+            }
+            for (int offset = start; offset < end; offset++) {
+                proc.onOrdinal(docId, (int) ords.get(offset));
+            }
+        }
+
+        static class IterImpl implements Docs.Iter {
+
+            private final PackedInts.Reader ords;
+
+            private int offset;
+            private int end;
+
+            IterImpl(PackedInts.Reader ords) {
+                this.ords = ords;
+            }
+
+            public IterImpl reset(int start, int end) {
+                this.offset = start;
+                this.end = end;
+                return this;
+            }
+
+            @Override
+            public int next() {
+                if (offset >= end) {
+                    return 0;
+                }
+                return (int) ords.get(offset++);
+            }
+        }
+    }
+}
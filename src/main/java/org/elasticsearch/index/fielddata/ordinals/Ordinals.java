@@ -19,7 +19,9 @@
 
 package org.elasticsearch.index.fielddata.ordinals;
 
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.fielddata.util.IntArrayRef;
 
@@ -31,16 +33,68 @@ public interface Ordinals {
     static class Factories {
 
         public static Ordinals createFromFlatOrdinals(int[][] ordinals, int numOrds, Settings settings) {
-            String multiOrdinals = settings.get("multi_ordinals", "sparse");
+            String multiOrdinals = settings.get("multi_ordinals", "auto");
+            int multiOrdinalsMaxDocs = settings.getAsInt("multi_ordinals_max_docs", 16777216 /*Equal to 64MB per storage array*/);
+            if ("auto".equals(multiOrdinals)) {
+                multiOrdinals = selectMultiOrdinals(ordinals);
+            }
             if ("flat".equals(multiOrdinals)) {
                 return new MultiFlatArrayOrdinals(ordinals, numOrds);
             } else if ("sparse".equals(multiOrdinals)) {
-                int multiOrdinalsMaxDocs = settings.getAsInt("multi_ordinals_max_docs", 16777216 /*Equal to 64MB per storage array*/);
                 return new SparseMultiArrayOrdinals(ordinals, numOrds, multiOrdinalsMaxDocs);
+            } else if ("packed".equals(multiOrdinals)) {
+                long totalOrds = MultiPackedOrdinals.totalOrds(ordinals);
+                if (totalOrds > Integer.MAX_VALUE) {
+                    return new SparseMultiArrayOrdinals(ordinals, numOrds, multiOrdinalsMaxDocs);
+                }
+                float acceptableOverheadRatio = settings.getAsFloat("acceptable_overhead_ratio", PackedInts.COMPACT);
+                return new MultiPackedOrdinals(ordinals, numOrds, (int) totalOrds, acceptableOverheadRatio);
             } else {
                 throw new ElasticSearchIllegalArgumentException("no applicable fielddata multi_ordinals value, got [" + multiOrdinals + "]");
             }
         }
+
+        /**
+         * Selects the multi ordinals implementation that is estimated to take the least memory for the
+         * distribution of the ordinals across the docs.
+         */
+        static String selectMultiOrdinals(int[][] ordinals) {
+            int numDocs = ordinals[0].length;
+            int maxOrdsPerDoc = ordinals.length;
+            long totalOrds = 0;
+            long multiValuedOrds = 0;
+            int maxOrd = 0;
+            for (int doc = 0; doc < numDocs; doc++) {
+                int docOrds = 0;
+                for (int[] level : ordinals) {
+                    int ord = level[doc];
+                    if (ord == 0) {
+                        break;
+                    }
+                    maxOrd = Math.max(maxOrd, ord);
+                    docOrds++;
+                }
+                totalOrds += docOrds;
+                if (docOrds > 1) {
+                    multiValuedOrds += docOrds;
+                }
+            }
+            if (totalOrds > Integer.MAX_VALUE) {
+                return "sparse";
+            }
+            // flat: an int per doc for each level
+            long flat = (long) maxOrdsPerDoc * numDocs * RamUsage.NUM_BYTES_INT;
+            // sparse: an int per doc, and an int per ordinal of the multi valued docs
+            long sparse = ((long) numDocs + multiValuedOrds) * RamUsage.NUM_BYTES_INT;
+            // packed: the packed ordinals, and the deviation of the doc offsets from the per block average
+            long packed = (totalOrds * PackedInts.bitsRequired(maxOrd) + (long) numDocs * PackedInts.bitsRequired(2 * maxOrdsPerDoc)) / 8;
+            if (packed < sparse && packed < flat) {
+                return "packed";
+            } else if (flat < sparse) {
+                return "flat";
+            }
+            return "sparse";
+        }
     }
 
     /**
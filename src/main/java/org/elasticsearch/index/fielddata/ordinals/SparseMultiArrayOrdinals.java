@@ -47,7 +47,7 @@ public class SparseMultiArrayOrdinals implements Ordinals {
     final int numOrds;
     final int numDocs;
 
-    private long size;
+    private long size = -1;
 
     /**
      * @param loadedOrds The ordinals
@@ -0,0 +1,314 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.util.DoubleArrayRef;
+import org.elasticsearch.index.fielddata.util.LongArrayRef;
+import org.elasticsearch.index.fielddata.util.StringArrayRef;
+
+import java.nio.LongBuffer;
+
+/**
+ * Single valued long field data, with the values (and the docs that have a value) read from a memory mapped
+ * file, and not from the heap. The values are positioned by docId.
+ */
+public class MMapLongAtomicFieldData implements AtomicNumericFieldData {
+
+    private final LongBuffer values;
+    @Nullable
+    private final LongBuffer set;
+    private final int numDocs;
+
+    /**
+     * @param values the values, by docId
+     * @param set    the bits of the docs that have a value, <tt>null</tt> if all docs have one
+     */
+    public MMapLongAtomicFieldData(LongBuffer values, @Nullable LongBuffer set, int numDocs) {
+        this.values = values;
+        this.set = set;
+        this.numDocs = numDocs;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return false;
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        // memory mapped, nothing is held on the heap
+        return 0;
+    }
+
+    @Override
+    public ScriptDocValues getScriptValues() {
+        return new ScriptDocValues.NumericLong(getLongValues());
+    }
+
+    @Override
+    public BytesValues getBytesValues() {
+        return new BytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public HashedBytesValues getHashedBytesValues() {
+        return new HashedBytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public StringValues getStringValues() {
+        return new StringValues(values, set);
+    }
+
+    @Override
+    public ByteValues getByteValues() {
+        return new ByteValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public ShortValues getShortValues() {
+        return new ShortValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public IntValues getIntValues() {
+        return new IntValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public LongValues getLongValues() {
+        return new LongValues(values, set);
+    }
+
+    @Override
+    public FloatValues getFloatValues() {
+        return new FloatValues.DoubleBased(getDoubleValues());
+    }
+
+    @Override
+    public DoubleValues getDoubleValues() {
+        return new DoubleValues(values, set);
+    }
+
+    static boolean hasValue(@Nullable LongBuffer set, int docId) {
+        return set == null || (set.get(docId >> 6) & (1L << docId)) != 0;
+    }
+
+    static class StringValues implements org.elasticsearch.index.fielddata.StringValues {
+
+        private final LongBuffer values;
+        private final LongBuffer set;
+
+        private final StringArrayRef arrayScratch = new StringArrayRef(new String[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        StringValues(LongBuffer values, LongBuffer set) {
+            this.values = values;
+            this.set = set;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return MMapLongAtomicFieldData.hasValue(set, docId);
+        }
+
+        @Override
+        public String getValue(int docId) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                return Long.toString(values.get(docId));
+            } else {
+                return null;
+            }
+        }
+
+        @Override
+        public StringArrayRef getValues(int docId) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                arrayScratch.values[0] = Long.toString(values.get(docId));
+                return arrayScratch;
+            } else {
+                return StringArrayRef.EMPTY;
+            }
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                return iter.reset(Long.toString(values.get(docId)));
+            } else {
+                return Iter.Empty.INSTANCE;
+            }
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                proc.onValue(docId, Long.toString(values.get(docId)));
+            } else {
+                proc.onMissing(docId);
+            }
+        }
+    }
+
+    static class LongValues implements org.elasticsearch.index.fielddata.LongValues {
+
+        private final LongBuffer values;
+        private final LongBuffer set;
+
+        private final LongArrayRef arrayScratch = new LongArrayRef(new long[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        LongValues(LongBuffer values, LongBuffer set) {
+            this.values = values;
+            this.set = set;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return MMapLongAtomicFieldData.hasValue(set, docId);
+        }
+
+        @Override
+        public long getValue(int docId) {
+            return values.get(docId);
+        }
+
+        @Override
+        public long getValueMissing(int docId, long missingValue) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                return values.get(docId);
+            } else {
+                return missingValue;
+            }
+        }
+
+        @Override
+        public LongArrayRef getValues(int docId) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                arrayScratch.values[0] = values.get(docId);
+                return arrayScratch;
+            } else {
+                return LongArrayRef.EMPTY;
+            }
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                return iter.reset(values.get(docId));
+            } else {
+                return Iter.Empty.INSTANCE;
+            }
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                proc.onValue(docId, values.get(docId));
+            }
+        }
+    }
+
+    static class DoubleValues implements org.elasticsearch.index.fielddata.DoubleValues {
+
+        private final LongBuffer values;
+        private final LongBuffer set;
+
+        private final DoubleArrayRef arrayScratch = new DoubleArrayRef(new double[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        DoubleValues(LongBuffer values, LongBuffer set) {
+            this.values = values;
+            this.set = set;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return MMapLongAtomicFieldData.hasValue(set, docId);
+        }
+
+        @Override
+        public double getValue(int docId) {
+            return (double) values.get(docId);
+        }
+
+        @Override
+        public double getValueMissing(int docId, double missingValue) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                return (double) values.get(docId);
+            } else {
+                return missingValue;
+            }
+        }
+
+        @Override
+        public DoubleArrayRef getValues(int docId) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                arrayScratch.values[0] = (double) values.get(docId);
+                return arrayScratch;
+            } else {
+                return DoubleArrayRef.EMPTY;
+            }
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                return iter.reset((double) values.get(docId));
+            } else {
+                return Iter.Empty.INSTANCE;
+            }
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            if (MMapLongAtomicFieldData.hasValue(set, docId)) {
+                proc.onValue(docId, (double) values.get(docId));
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.store.Store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Long field data that is built into a per segment file next to the shard index files, and memory mapped from it,
+ * so the values are not held on the heap. The file is written once, when the segment is first loaded, and reused
+ * on later loads (including after a restart) as long as the segment exists.
+ * <p/>
+ * Only single valued segments are mapped, segments with multi valued docs (and stores that are not file system
+ * based) are loaded on the heap as with the <tt>array</tt> format. Multi valued segments are marked with a header
+ * only file, so later loads go to the heap directly instead of trying to build the file again.
+ */
+public class MMapLongIndexFieldData extends AbstractIndexFieldData<AtomicNumericFieldData> implements IndexNumericFieldData<AtomicNumericFieldData> {
+
+    public static class Builder implements IndexFieldData.Builder {
+
+        @Override
+        public IndexFieldData build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache) {
+            return new MMapLongIndexFieldData(index, indexSettings, fieldNames, type, cache);
+        }
+    }
+
+    static final String FIELD_DATA_DIRECTORY = "fielddata";
+    static final String FILE_SUFFIX = ".fdl";
+
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int FLAG_COMPLETE = 1;
+    private static final int FLAG_ALL_SET = 2;
+    private static final int FLAG_MULTI_VALUED = 4;
+
+    private final LongArrayIndexFieldData heapFieldData;
+
+    public MMapLongIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache);
+        this.heapFieldData = new LongArrayIndexFieldData(index, indexSettings, fieldNames, fieldDataType, cache);
+    }
+
+    @Override
+    public NumericType getNumericType() {
+        return NumericType.LONG;
+    }
+
+    @Override
+    public boolean valuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public AtomicNumericFieldData load(AtomicReaderContext context) {
+        try {
+            return cache.load(context, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticSearchException) {
+                throw (ElasticSearchException) e;
+            } else {
+                throw new ElasticSearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public AtomicNumericFieldData loadDirect(AtomicReaderContext context) throws Exception {
+        AtomicReader reader = context.reader();
+        if (!(reader instanceof SegmentReader)) {
+            return heapFieldData.loadDirect(context);
+        }
+        SegmentReader segmentReader = (SegmentReader) reader;
+        File indexLocation = Store.fsLocation(segmentReader.directory());
+        if (indexLocation == null || fileLength(reader.maxDoc()) > Integer.MAX_VALUE) {
+            return heapFieldData.loadDirect(context);
+        }
+        Terms terms = reader.terms(getFieldNames().indexName());
+        if (terms == null) {
+            return LongArrayAtomicFieldData.EMPTY;
+        }
+
+        File location = new File(indexLocation.getParentFile(), FIELD_DATA_DIRECTORY);
+        String segmentName = segmentReader.getSegmentName();
+        File file = new File(location, segmentName + "." + getFieldNames().indexName() + FILE_SUFFIX);
+        SegmentInfoPerCommit segmentInfo = segmentReader.getSegmentInfo();
+        long segmentSize = segmentInfo.sizeInBytes();
+        long segmentTimestamp = segmentTimestamp(segmentInfo);
+        int maxDoc = reader.maxDoc();
+
+        int flags = readFlags(file, maxDoc, segmentSize, segmentTimestamp);
+        if (flags != -1) {
+            if ((flags & FLAG_MULTI_VALUED) != 0) {
+                return heapFieldData.loadDirect(context);
+            }
+            return open(file, maxDoc, flags);
+        }
+
+        FileSystemUtils.mkdirs(location);
+        deleteUnusedFiles(location, segmentReader.directory());
+        MMapLongAtomicFieldData fieldData = build(terms, file, maxDoc, segmentSize, segmentTimestamp);
+        if (fieldData != null) {
+            return fieldData;
+        }
+        // multi valued, remember it for the next loads and load it on the heap
+        writeMultiValuedMarker(file, maxDoc, segmentSize, segmentTimestamp);
+        return heapFieldData.loadDirect(context);
+    }
+
+    /**
+     * Reads the flags of an existing (and complete) field data file for the segment, returns <tt>-1</tt> if there
+     * is none, or if it was built for another version of the segment.
+     */
+    private int readFlags(File file, int maxDoc, long segmentSize, long segmentTimestamp) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return -1;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.readInt() != VERSION || raf.readInt() != maxDoc || raf.readLong() != segmentSize || raf.readLong() != segmentTimestamp) {
+                return -1;
+            }
+            int flags = raf.readInt();
+            if ((flags & FLAG_COMPLETE) == 0) {
+                return -1;
+            }
+            long expectedLength = (flags & FLAG_MULTI_VALUED) != 0 ? HEADER_SIZE : fileLength(maxDoc);
+            if (file.length() != expectedLength) {
+                return -1;
+            }
+            return flags;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Maps a field data file for the segment, its header already checked by {@link #readFlags(File, int, long, long)}.
+     */
+    private MMapLongAtomicFieldData open(File file, int maxDoc, int flags) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            return fieldData(buffer, maxDoc, flags);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes a header only field data file for the segment, marking it as multi valued.
+     */
+    private void writeMultiValuedMarker(File file, int maxDoc, long segmentSize, long segmentTimestamp) throws IOException {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+        boolean success = false;
+        try {
+            raf.setLength(HEADER_SIZE);
+            raf.writeInt(VERSION);
+            raf.writeInt(maxDoc);
+            raf.writeLong(segmentSize);
+            raf.writeLong(segmentTimestamp);
+            raf.writeInt(FLAG_COMPLETE | FLAG_MULTI_VALUED);
+            raf.getFD().sync();
+            success = true;
+        } finally {
+            raf.close();
+            if (!success || !tmpFile.renameTo(file)) {
+                // it will be detected as multi valued again on the next load
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Builds the field data file for the segment, returns <tt>null</tt> if the segment has multi valued docs.
+     */
+    @Nullable
+    private MMapLongAtomicFieldData build(Terms terms, File file, int maxDoc, long segmentSize, long segmentTimestamp) throws IOException {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        long length = fileLength(maxDoc);
+        RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+        boolean success = false;
+        try {
+            raf.setLength(length);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(0, VERSION);
+            buffer.putInt(4, maxDoc);
+            buffer.putLong(8, segmentSize);
+            buffer.putLong(16, segmentTimestamp);
+            buffer.putInt(24, 0);
+
+            LongBuffer values = slice(buffer, HEADER_SIZE, maxDoc);
+            LongBuffer set = slice(buffer, HEADER_SIZE + maxDoc * 8, FixedBitSet.bits2words(maxDoc));
+            int docsWithValue = 0;
+
+            TermsEnum termsEnum = terms.iterator(null);
+            try {
+                DocsEnum docsEnum = null;
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    long value = FieldCache.NUMERIC_UTILS_LONG_PARSER.parseLong(term);
+                    // deleted docs are never looked up, no need to filter them out
+                    docsEnum = termsEnum.docs(null, docsEnum, 0);
+                    for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                        long bits = set.get(docId >> 6);
+                        long mask = 1L << docId;
+                        if ((bits & mask) != 0) {
+                            return null;
+                        }
+                        set.put(docId >> 6, bits | mask);
+                        values.put(docId, value);
+                        docsWithValue++;
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (e.getClass().getName().endsWith("StopFillCacheException")) {
+                    // all is well, in case numeric parsers are used.
+                } else {
+                    throw e;
+                }
+            }
+
+            int flags = FLAG_COMPLETE;
+            if (docsWithValue == maxDoc) {
+                flags |= FLAG_ALL_SET;
+            }
+            buffer.force();
+            // only mark it as complete once all the values made it to the file
+            buffer.putInt(24, flags);
+            buffer.force();
+            success = true;
+            return fieldData(buffer, maxDoc, flags);
+        } finally {
+            raf.close();
+            if (success) {
+                if (!tmpFile.renameTo(file)) {
+                    // we still use the mapped values, but it will be built again on the next load
+                    tmpFile.delete();
+                }
+            } else {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private static MMapLongAtomicFieldData fieldData(ByteBuffer buffer, int maxDoc, int flags) {
+        LongBuffer values = slice(buffer, HEADER_SIZE, maxDoc);
+        LongBuffer set = null;
+        if ((flags & FLAG_ALL_SET) == 0) {
+            set = slice(buffer, HEADER_SIZE + maxDoc * 8, FixedBitSet.bits2words(maxDoc));
+        }
+        return new MMapLongAtomicFieldData(values, set, maxDoc);
+    }
+
+    private static LongBuffer slice(ByteBuffer buffer, int offset, int longs) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + longs * 8);
+        return duplicate.slice().asLongBuffer();
+    }
+
+    private static long fileLength(int maxDoc) {
+        return HEADER_SIZE + ((long) maxDoc * 8) + ((long) FixedBitSet.bits2words(maxDoc) * 8);
+    }
+
+    private static long segmentTimestamp(SegmentInfoPerCommit segmentInfo) {
+        String timestamp = segmentInfo.info.getDiagnostics() == null ? null : segmentInfo.info.getDiagnostics().get("timestamp");
+        if (timestamp == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Deletes the field data files of segments that no longer exist in the index.
+     */
+    private void deleteUnusedFiles(File location, Directory directory) throws IOException {
+        File[] files = location.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            int index = name.indexOf('.');
+            if (index == -1) {
+                continue;
+            }
+            String segmentName = name.substring(0, index);
+            // each segment has its own segment info (.si) file
+            if (!directory.fileExists(segmentName + ".si")) {
+                if (!file.delete()) {
+                    logger.trace("failed to delete unused field data file [{}]", file);
+                }
+            }
+        }
+    }
+
+    @Override
+    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue) {
+        return new LongValuesComparatorSource(this, missingValue);
+    }
+}
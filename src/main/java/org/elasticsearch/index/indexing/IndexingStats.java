@@ -23,6 +23,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -172,6 +173,13 @@ public class IndexingStats implements Streamable, ToXContent {
 
     private Stats totalStats;
 
+    private long versionMapMemorySizeInBytes;
+
+    private long ttlPurgeCount;
+    private long ttlPurgeTimeInMillis;
+    private long ttlPurgeFullyExpiredSegments;
+    private long ttlPurgeLagInMillis;
+
     @Nullable
     private Map<String, Stats> typeStats;
 
@@ -193,6 +201,11 @@ public class IndexingStats implements Streamable, ToXContent {
             return;
         }
         totalStats.add(indexingStats.totalStats);
+        versionMapMemorySizeInBytes += indexingStats.versionMapMemorySizeInBytes;
+        ttlPurgeCount += indexingStats.ttlPurgeCount;
+        ttlPurgeTimeInMillis += indexingStats.ttlPurgeTimeInMillis;
+        ttlPurgeFullyExpiredSegments += indexingStats.ttlPurgeFullyExpiredSegments;
+        ttlPurgeLagInMillis = Math.max(ttlPurgeLagInMillis, indexingStats.ttlPurgeLagInMillis);
         if (includeTypes && indexingStats.typeStats != null && !indexingStats.typeStats.isEmpty()) {
             if (typeStats == null) {
                 typeStats = new HashMap<String, Stats>(indexingStats.typeStats.size());
@@ -217,10 +230,116 @@ public class IndexingStats implements Streamable, ToXContent {
         return this.typeStats;
     }
 
+    /**
+     * The memory used by the version maps of the shards, holding the versions of the operations that are not
+     * visible to searches yet.
+     */
+    public ByteSizeValue versionMapMemorySize() {
+        return new ByteSizeValue(versionMapMemorySizeInBytes);
+    }
+
+    public ByteSizeValue getVersionMapMemorySize() {
+        return versionMapMemorySize();
+    }
+
+    public long getVersionMapMemorySizeInBytes() {
+        return versionMapMemorySizeInBytes;
+    }
+
+    public IndexingStats versionMapMemorySizeInBytes(long versionMapMemorySizeInBytes) {
+        this.versionMapMemorySizeInBytes = versionMapMemorySizeInBytes;
+        return this;
+    }
+
+    /**
+     * The number of expired docs deleted by the ttl purger.
+     */
+    public long ttlPurgeCount() {
+        return ttlPurgeCount;
+    }
+
+    public long getTtlPurgeCount() {
+        return ttlPurgeCount;
+    }
+
+    /**
+     * The time spent by the ttl purger deleting expired docs, including the time it was throttled.
+     */
+    public TimeValue ttlPurgeTime() {
+        return new TimeValue(ttlPurgeTimeInMillis);
+    }
+
+    public TimeValue getTtlPurgeTime() {
+        return ttlPurgeTime();
+    }
+
+    public long getTtlPurgeTimeInMillis() {
+        return ttlPurgeTimeInMillis;
+    }
+
+    /**
+     * The number of expired docs the ttl purger deleted per second while purging.
+     */
+    public double ttlPurgeDocsPerSec() {
+        if (ttlPurgeTimeInMillis == 0) {
+            return 0;
+        }
+        return ttlPurgeCount * 1000d / ttlPurgeTimeInMillis;
+    }
+
+    public double getTtlPurgeDocsPerSec() {
+        return ttlPurgeDocsPerSec();
+    }
+
+    /**
+     * The number of segments the ttl purger found with all their docs expired, and that got dropped as a whole.
+     */
+    public long ttlPurgeFullyExpiredSegments() {
+        return ttlPurgeFullyExpiredSegments;
+    }
+
+    public long getTtlPurgeFullyExpiredSegments() {
+        return ttlPurgeFullyExpiredSegments;
+    }
+
+    /**
+     * How long the oldest expired doc had been expired when the last purge started, the maximum across shards.
+     */
+    public TimeValue ttlPurgeLag() {
+        return new TimeValue(ttlPurgeLagInMillis);
+    }
+
+    public TimeValue getTtlPurgeLag() {
+        return ttlPurgeLag();
+    }
+
+    public long getTtlPurgeLagInMillis() {
+        return ttlPurgeLagInMillis;
+    }
+
+    public IndexingStats ttlPurgeStats(long ttlPurgeCount, long ttlPurgeTimeInMillis, long ttlPurgeFullyExpiredSegments, long ttlPurgeLagInMillis) {
+        this.ttlPurgeCount = ttlPurgeCount;
+        this.ttlPurgeTimeInMillis = ttlPurgeTimeInMillis;
+        this.ttlPurgeFullyExpiredSegments = ttlPurgeFullyExpiredSegments;
+        this.ttlPurgeLagInMillis = ttlPurgeLagInMillis;
+        return this;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
         builder.startObject(Fields.INDEXING);
         totalStats.toXContent(builder, params);
+        builder.field(Fields.VERSION_MAP_MEMORY, versionMapMemorySize().toString());
+        builder.field(Fields.VERSION_MAP_MEMORY_IN_BYTES, versionMapMemorySizeInBytes);
+        builder.startObject(Fields.TTL_PURGE);
+        builder.field(Fields.TOTAL, ttlPurgeCount);
+        builder.field(Fields.TIME, ttlPurgeTime().toString());
+        builder.field(Fields.TIME_IN_MILLIS, ttlPurgeTimeInMillis);
+        builder.field(Fields.DOCS_PER_SEC, ttlPurgeDocsPerSec());
+        builder.field(Fields.FULLY_EXPIRED_SEGMENTS, ttlPurgeFullyExpiredSegments);
+        builder.field(Fields.LAG, ttlPurgeLag().toString());
+        builder.field(Fields.LAG_IN_MILLIS, ttlPurgeLagInMillis);
+        builder.endObject();
         if (typeStats != null && !typeStats.isEmpty()) {
             builder.startObject(Fields.TYPES);
             for (Map.Entry<String, Stats> entry : typeStats.entrySet()) {
@@ -245,6 +364,16 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString DELETE_TIME = new XContentBuilderString("delete_time");
         static final XContentBuilderString DELETE_TIME_IN_MILLIS = new XContentBuilderString("delete_time_in_millis");
         static final XContentBuilderString DELETE_CURRENT = new XContentBuilderString("delete_current");
+        static final XContentBuilderString VERSION_MAP_MEMORY = new XContentBuilderString("version_map_memory");
+        static final XContentBuilderString VERSION_MAP_MEMORY_IN_BYTES = new XContentBuilderString("version_map_memory_in_bytes");
+        static final XContentBuilderString TTL_PURGE = new XContentBuilderString("ttl_purge");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+        static final XContentBuilderString DOCS_PER_SEC = new XContentBuilderString("docs_per_sec");
+        static final XContentBuilderString FULLY_EXPIRED_SEGMENTS = new XContentBuilderString("fully_expired_segments");
+        static final XContentBuilderString LAG = new XContentBuilderString("lag");
+        static final XContentBuilderString LAG_IN_MILLIS = new XContentBuilderString("lag_in_millis");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -256,6 +385,11 @@ public class IndexingStats implements Streamable, ToXContent {
     @Override
     public void readFrom(StreamInput in) throws IOException {
         totalStats = Stats.readStats(in);
+        versionMapMemorySizeInBytes = in.readVLong();
+        ttlPurgeCount = in.readVLong();
+        ttlPurgeTimeInMillis = in.readVLong();
+        ttlPurgeFullyExpiredSegments = in.readVLong();
+        ttlPurgeLagInMillis = in.readVLong();
         if (in.readBoolean()) {
             int size = in.readVInt();
             typeStats = new HashMap<String, Stats>(size);
@@ -268,6 +402,11 @@ public class IndexingStats implements Streamable, ToXContent {
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         totalStats.writeTo(out);
+        out.writeVLong(versionMapMemorySizeInBytes);
+        out.writeVLong(ttlPurgeCount);
+        out.writeVLong(ttlPurgeTimeInMillis);
+        out.writeVLong(ttlPurgeFullyExpiredSegments);
+        out.writeVLong(ttlPurgeLagInMillis);
         if (typeStats == null || typeStats.isEmpty()) {
             out.writeBoolean(false);
         } else {
@@ -46,6 +46,11 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
 
     private volatile Map<String, StatsHolder> typesStats = ImmutableMap.of();
 
+    private final CounterMetric ttlPurgeCount = new CounterMetric();
+    private final CounterMetric ttlPurgeTimeInNanos = new CounterMetric();
+    private final CounterMetric ttlPurgeFullyExpiredSegments = new CounterMetric();
+    private volatile long ttlPurgeLagInMillis;
+
     private CopyOnWriteArrayList<IndexingOperationListener> listeners = null;
 
     @Inject
@@ -78,7 +83,20 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
                 }
             }
         }
-        return new IndexingStats(total, typesSt);
+        return new IndexingStats(total, typesSt).ttlPurgeStats(ttlPurgeCount.count(), TimeUnit.NANOSECONDS.toMillis(ttlPurgeTimeInNanos.count()),
+                ttlPurgeFullyExpiredSegments.count(), ttlPurgeLagInMillis);
+    }
+
+    /**
+     * Records a ttl purge run on this shard, with the number of expired docs deleted, the time it took (including
+     * throttling), the number of segments that had all their docs expired, and how long the oldest expired doc had
+     * been expired when the run started.
+     */
+    public void ttlPurge(long count, long timeInNanos, int fullyExpiredSegments, long lagInMillis) {
+        ttlPurgeCount.inc(count);
+        ttlPurgeTimeInNanos.inc(timeInNanos);
+        ttlPurgeFullyExpiredSegments.inc(fullyExpiredSegments);
+        ttlPurgeLagInMillis = lagInMillis;
     }
 
     public synchronized void addListener(IndexingOperationListener listener) {
@@ -35,8 +35,13 @@ public class MergePolicyModule extends AbstractModule {
 
     @Override
     protected void configure() {
+        // sorted indices only merge adjacent segments, to keep segments sorted
+        Class<? extends MergePolicyProvider> defaultMergePolicyProvider = TieredMergePolicyProvider.class;
+        if (settings.get("index.sort.field") != null) {
+            defaultMergePolicyProvider = SortedMergePolicyProvider.class;
+        }
         bind(MergePolicyProvider.class)
-                .to(settings.getAsClass("index.merge.policy.type", TieredMergePolicyProvider.class, "org.elasticsearch.index.merge.policy.", "MergePolicyProvider"))
+                .to(settings.getAsClass("index.merge.policy.type", defaultMergePolicyProvider, "org.elasticsearch.index.merge.policy.", "MergePolicyProvider"))
                 .asEagerSingleton();
     }
 }
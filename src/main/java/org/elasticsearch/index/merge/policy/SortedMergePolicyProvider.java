@@ -0,0 +1,39 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.store.Store;
+
+/**
+ * A merge policy for indices sorted by a field (<tt>index.sort.field</tt>), typically a timestamp of docs
+ * indexed in (roughly) time order. Only adjacent segments are merged, so merged segments keep the order docs
+ * were indexed in and segments cover distinct ranges of the sort field. This allows the query phase to stop
+ * collecting a segment once enough hits were found, and to skip segments that can't compete.
+ */
+public class SortedMergePolicyProvider extends LogByteSizeMergePolicyProvider {
+
+    @Inject
+    public SortedMergePolicyProvider(Store store, IndexSettingsService indexSettingsService) {
+        super(store, indexSettingsService);
+        logger.debug("using [sorted] merge policy, index sorted by [{}]", indexSettings.get("index.sort.field"));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+/**
+ * Percolation stats of an index, with the number of candidate queries that were executed versus the
+ * number of queries that matched.
+ */
+public class PercolateStats {
+
+    private final long count;
+
+    private final long candidates;
+
+    private final long matches;
+
+    private final int queries;
+
+    private final int alwaysCandidates;
+
+    public PercolateStats(long count, long candidates, long matches, int queries, int alwaysCandidates) {
+        this.count = count;
+        this.candidates = candidates;
+        this.matches = matches;
+        this.queries = queries;
+        this.alwaysCandidates = alwaysCandidates;
+    }
+
+    /**
+     * The number of docs percolated.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * The number of queries executed, because one of their terms was in the percolated doc.
+     */
+    public long candidates() {
+        return candidates;
+    }
+
+    /**
+     * The number of queries that matched.
+     */
+    public long matches() {
+        return matches;
+    }
+
+    /**
+     * The number of registered queries.
+     */
+    public int queries() {
+        return queries;
+    }
+
+    /**
+     * The number of registered queries that terms could not be extracted from, executed for every doc.
+     */
+    public int alwaysCandidates() {
+        return alwaysCandidates;
+    }
+
+    @Override
+    public String toString() {
+        return "count [" + count + "], candidates [" + candidates + "], matches [" + matches + "], queries [" + queries + "], always_candidates [" + alwaysCandidates + "]";
+    }
+}
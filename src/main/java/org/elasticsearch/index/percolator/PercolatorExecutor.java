@@ -20,23 +20,26 @@
 package org.elasticsearch.index.percolator;
 
 import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.index.AtomicReaderContext;
-import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.*;
 import org.apache.lucene.index.memory.MemoryIndex;
 import org.apache.lucene.index.memory.ReusableMemoryIndex;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.ElasticSearchInterruptedException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
@@ -44,6 +47,7 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -66,16 +70,20 @@ import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.settings.IndexSettingsService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 
@@ -161,6 +169,36 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         }
     }
 
+    public static final class BulkResponse {
+        private final Response[] responses;
+        private final Exception[] failures;
+
+        BulkResponse(int size) {
+            this.responses = new Response[size];
+            this.failures = new Exception[size];
+        }
+
+        public int size() {
+            return responses.length;
+        }
+
+        /**
+         * The response for the doc in the given slot, <tt>null</tt> if it failed.
+         */
+        @Nullable
+        public Response response(int slot) {
+            return responses[slot];
+        }
+
+        /**
+         * The failure to percolate the doc in the given slot, <tt>null</tt> if it succeeded.
+         */
+        @Nullable
+        public Exception failure(int slot) {
+            return failures[slot];
+        }
+    }
+
     private final MapperService mapperService;
 
     private final IndexQueryParserService queryParserService;
@@ -169,6 +207,12 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     private final IndexFieldDataService fieldDataService;
 
     private final Map<String, Query> queries = ConcurrentCollections.newConcurrentMap();
+
+    private final QueryTermsIndex queryTermsIndex = new QueryTermsIndex();
+
+    private final CounterMetric percolateCount = new CounterMetric();
+    private final CounterMetric candidatesCount = new CounterMetric();
+    private final CounterMetric matchesCount = new CounterMetric();
     
     /**
      * Realtime index setting to control the number of MemoryIndex instances used to handle
@@ -190,6 +234,17 @@ public class PercolatorExecutor extends AbstractIndexComponent {
      * for an pooled memory index until an extra memory index is created. The default is <tt>100 ms</tt>
      */
     public static final String PERCOLATE_TIMEOUT = "index.percolate.pool.timeout";
+
+    /**
+     * The number of slices the candidate queries of a bulk percolation are split into, executed concurrently.
+     * Defaults to the number of processors.
+     */
+    public static final String PERCOLATE_BULK_CONCURRENCY = "index.percolate.bulk.concurrency";
+
+    /**
+     * The minimum number of candidate queries in a slice of a bulk percolation. Defaults to <tt>100</tt>.
+     */
+    public static final String PERCOLATE_BULK_MIN_SLICE_SIZE = "index.percolate.bulk.min_slice_size";
     
     /**
      * Simple {@link MemoryIndex} Pool that reuses MemoryIndex instance across threads and allows each of the 
@@ -291,15 +346,23 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     private IndicesService indicesService;
     private final MemoryIndexPool memIndexPool;
 
+    private final ThreadPool threadPool;
+    private final int bulkConcurrency;
+    private final int bulkMinSliceSize;
+
     @Inject
     public PercolatorExecutor(Index index, @IndexSettings Settings indexSettings,
                               MapperService mapperService, IndexQueryParserService queryParserService,
-                              IndexCache indexCache, IndexFieldDataService fieldDataService, IndexSettingsService indexSettingsService) {
+                              IndexCache indexCache, IndexFieldDataService fieldDataService, IndexSettingsService indexSettingsService,
+                              ThreadPool threadPool) {
         super(index, indexSettings);
         this.mapperService = mapperService;
         this.queryParserService = queryParserService;
         this.indexCache = indexCache;
         this.fieldDataService = fieldDataService;
+        this.threadPool = threadPool;
+        this.bulkConcurrency = Math.max(1, indexSettings.getAsInt(PERCOLATE_BULK_CONCURRENCY, Runtime.getRuntime().availableProcessors()));
+        this.bulkMinSliceSize = Math.max(1, indexSettings.getAsInt(PERCOLATE_BULK_MIN_SLICE_SIZE, 100));
         memIndexPool = new MemoryIndexPool(indexSettings);
         ApplySettings applySettings = new ApplySettings();
         indexSettingsService.addListener(applySettings);
@@ -317,7 +380,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     }
 
     public void close() {
-        this.queries.clear();
+        clearQueries();
     }
 
     public void addQuery(String name, QueryBuilder queryBuilder) throws ElasticSearchException {
@@ -371,17 +434,222 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     private void addQuery(String name, Query query) {
         Preconditions.checkArgument(query != null, "query must be provided for percolate request");
         this.queries.put(name, query);
+        this.queryTermsIndex.add(name, query);
     }
 
     public void removeQuery(String name) {
         this.queries.remove(name);
+        this.queryTermsIndex.remove(name);
     }
 
     public void addQueries(Map<String, Query> queries) {
         this.queries.putAll(queries);
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            this.queryTermsIndex.add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * The number of percolations, and the number of queries that were executed (candidates) and matched.
+     */
+    public PercolateStats stats() {
+        return new PercolateStats(percolateCount.count(), candidatesCount.count(), matchesCount.count(), queries.size(), queryTermsIndex.alwaysCandidatesCount());
     }
 
     public Response percolate(final SourceRequest request) throws ElasticSearchException {
+        return percolate(parse(request));
+    }
+
+    /**
+     * Percolates a batch of docs. The docs are indexed together into an in memory index, and each candidate query
+     * is executed once against all of them, with the candidate queries split into slices executed concurrently on
+     * the percolate thread pool.
+     */
+    public BulkResponse percolate(List<SourceRequest> requests) throws ElasticSearchException {
+        BulkResponse response = new BulkResponse(requests.size());
+        List<Integer> batchSlots = new ArrayList<Integer>(requests.size());
+        List<ParsedDocument> batchDocs = new ArrayList<ParsedDocument>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                DocAndQueryRequest request = parse(requests.get(i));
+                if (request.query() == null) {
+                    batchSlots.add(i);
+                    batchDocs.add(request.doc());
+                } else {
+                    // percolating against the queries matching a query is done per doc
+                    response.responses[i] = percolate(request);
+                }
+            } catch (Exception e) {
+                response.failures[i] = e;
+            }
+        }
+        if (batchDocs.size() == 1) {
+            // a single doc is faster to percolate with a memory index
+            int slot = batchSlots.get(0);
+            try {
+                response.responses[slot] = percolate(new DocAndQueryRequest(batchDocs.get(0), null));
+            } catch (Exception e) {
+                response.failures[slot] = e;
+            }
+        } else if (batchDocs.size() > 1) {
+            List<String>[] matches;
+            try {
+                matches = percolateBatch(batchDocs);
+            } catch (Exception e) {
+                for (int slot : batchSlots) {
+                    response.failures[slot] = e;
+                }
+                return response;
+            }
+            for (int i = 0; i < batchDocs.size(); i++) {
+                List<String> docMatches = matches[i] == null ? new ArrayList<String>(0) : matches[i];
+                response.responses[batchSlots.get(i)] = new Response(docMatches, batchDocs.get(i).mappingsModified());
+            }
+        }
+        return response;
+    }
+
+    private List<String>[] percolateBatch(List<ParsedDocument> docs) throws ElasticSearchException {
+        RAMDirectory directory = new RAMDirectory();
+        DirectoryReader reader = null;
+        try {
+            IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Lucene.VERSION, Lucene.KEYWORD_ANALYZER)
+                    .setMergePolicy(NoMergePolicy.NO_COMPOUND_FILES)
+                    .setRAMBufferSizeMB(64));
+            try {
+                for (ParsedDocument doc : docs) {
+                    // the doc ids follow the order the docs are added in
+                    Document document = new Document();
+                    for (IndexableField field : doc.rootDoc().getFields()) {
+                        // TODO: This means percolation does not support nested docs...
+                        if (!field.fieldType().indexed() || field.name().equals(UidFieldMapper.NAME)) {
+                            continue;
+                        }
+                        document.add(field);
+                    }
+                    writer.addDocument(document, doc.analyzer());
+                }
+            } finally {
+                writer.close();
+            }
+            reader = DirectoryReader.open(directory);
+            IndexSearcher searcher = new IndexSearcher(reader);
+            List<String> candidates = new ArrayList<String>(queryTermsIndex.candidates(reader));
+            List<String>[] matches = percolateSlices(searcher, candidates, docs.size());
+
+            long matchesCount = 0;
+            for (List<String> docMatches : matches) {
+                if (docMatches != null) {
+                    matchesCount += docMatches.size();
+                }
+            }
+            this.percolateCount.inc(docs.size());
+            this.candidatesCount.inc(candidates.size());
+            this.matchesCount.inc(matchesCount);
+            return matches;
+        } catch (IOException e) {
+            throw new PercolatorException(index, "failed to percolate batch", e);
+        } finally {
+            if (reader != null) {
+                // explicitly clear the reader, same as for the memory index of a single doc
+                indexCache.clear(reader);
+                fieldDataService.clear(reader);
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            directory.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String>[] percolateSlices(final IndexSearcher searcher, final List<String> candidates, final int numDocs) {
+        if (candidates.isEmpty()) {
+            return new List[numDocs];
+        }
+        final int sliceSize = Math.max(bulkMinSliceSize, (candidates.size() + bulkConcurrency - 1) / bulkConcurrency);
+        final int numSlices = (candidates.size() + sliceSize - 1) / sliceSize;
+        final List<String>[][] sliceMatches = new List[numSlices][];
+        final AtomicInteger nextSlice = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(numSlices);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int slice;
+                while ((slice = nextSlice.getAndIncrement()) < numSlices) {
+                    try {
+                        List<String> names = candidates.subList(slice * sliceSize, Math.min(candidates.size(), (slice + 1) * sliceSize));
+                        sliceMatches[slice] = percolateSlice(searcher, names, numDocs);
+                    } catch (Throwable t) {
+                        // keep the first failure, it fails the whole batch once all slices are done
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < numSlices; i++) {
+            try {
+                threadPool.executor(ThreadPool.Names.PERCOLATE).execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the current thread will execute the remaining slices
+                break;
+            }
+        }
+        // the current thread works on slices as well, so we make progress even if the pool is busy
+        worker.run();
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchInterruptedException("interrupted while percolating batch", e);
+        }
+        if (failure.get() != null) {
+            throw new PercolatorException(index, "failed to percolate batch", failure.get());
+        }
+
+        List<String>[] matches = sliceMatches[0];
+        for (int slice = 1; slice < numSlices; slice++) {
+            for (int doc = 0; doc < numDocs; doc++) {
+                List<String> docMatches = sliceMatches[slice][doc];
+                if (docMatches == null) {
+                    continue;
+                }
+                if (matches[doc] == null) {
+                    matches[doc] = docMatches;
+                } else {
+                    matches[doc].addAll(docMatches);
+                }
+            }
+        }
+        return matches;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String>[] percolateSlice(IndexSearcher searcher, List<String> names, int numDocs) {
+        List<String>[] matches = new List[numDocs];
+        MatchesCollector collector = new MatchesCollector(matches);
+        for (String name : names) {
+            Query query = queries.get(name);
+            if (query == null) {
+                // removed concurrently
+                continue;
+            }
+            collector.reset(name);
+            try {
+                searcher.search(query, collector);
+            } catch (IOException e) {
+                logger.warn("[" + name + "] failed to execute query", e);
+            }
+        }
+        return matches;
+    }
+
+    private DocAndQueryRequest parse(SourceRequest request) throws ElasticSearchException {
         Query query = null;
         ParsedDocument doc = null;
         XContentParser parser = null;
@@ -419,7 +687,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
             throw new PercolatorException(index, "No doc to percolate in the request");
         }
 
-        return percolate(new DocAndQueryRequest(doc, query));
+        return new DocAndQueryRequest(doc, query);
     }
 
     public Response percolate(DocAndSourceQueryRequest request) throws ElasticSearchException {
@@ -459,20 +727,33 @@ public class PercolatorExecutor extends AbstractIndexComponent {
             List<String> matches = new ArrayList<String>();
     
             try {
+                // only run the queries that have one of their terms in the doc
+                Set<String> candidates;
+                try {
+                    candidates = queryTermsIndex.candidates(searcher.getIndexReader());
+                } catch (IOException e) {
+                    throw new PercolatorException(index, "failed to select candidate queries", e);
+                }
                 if (request.query() == null) {
                     Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-                    for (Map.Entry<String, Query> entry : queries.entrySet()) {
+                    for (String name : candidates) {
+                        Query query = queries.get(name);
+                        if (query == null) {
+                            // removed concurrently
+                            continue;
+                        }
                         collector.reset();
                         try {
-                            searcher.search(entry.getValue(), collector);
+                            searcher.search(query, collector);
                         } catch (IOException e) {
-                            logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+                            logger.warn("[" + name + "] failed to execute query", e);
                         }
     
                         if (collector.exists()) {
-                            matches.add(entry.getKey());
+                            matches.add(name);
                         }
                     }
+                    candidatesCount.inc(candidates.size());
                 } else {
                     IndexService percolatorIndex = percolatorIndexServiceSafe();
                     if (percolatorIndex.numberOfShards() == 0) {
@@ -480,14 +761,18 @@ public class PercolatorExecutor extends AbstractIndexComponent {
                     }
                     IndexShard percolatorShard = percolatorIndex.shard(0);
                     Engine.Searcher percolatorSearcher = percolatorShard.searcher();
+                    QueryCollector queryCollector = new QueryCollector(logger, queries, candidates, searcher, percolatorIndex, matches);
                     try {
-                        percolatorSearcher.searcher().search(request.query(), new QueryCollector(logger, queries, searcher, percolatorIndex, matches));
+                        percolatorSearcher.searcher().search(request.query(), queryCollector);
                     } catch (IOException e) {
                         logger.warn("failed to execute", e);
                     } finally {
                         percolatorSearcher.release();
                     }
+                    candidatesCount.inc(queryCollector.executed());
                 }
+                percolateCount.inc();
+                matchesCount.inc(matches.size());
             } finally {
                 // explicitly clear the reader, since we can only register on callback on SegmentReader
                 indexCache.clear(searcher.getIndexReader());
@@ -514,15 +799,19 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         private final IndexService percolatorIndex;
         private final List<String> matches;
         private final Map<String, Query> queries;
+        private final Set<String> candidates;
         private final ESLogger logger;
 
         private final Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
 
         private BytesValues values;
 
-        QueryCollector(ESLogger logger, Map<String, Query> queries, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
+        private int executed;
+
+        QueryCollector(ESLogger logger, Map<String, Query> queries, Set<String> candidates, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
             this.logger = logger;
             this.queries = queries;
+            this.candidates = candidates;
             this.searcher = searcher;
             this.percolatorIndex = percolatorIndex;
             this.matches = matches;
@@ -541,12 +830,17 @@ public class PercolatorExecutor extends AbstractIndexComponent {
                 return;
             }
             String id = Uid.idFromUid(uid).toUtf8();
+            if (!candidates.contains(id)) {
+                // none of the query terms are in the doc
+                return;
+            }
             Query query = queries.get(id);
             if (query == null) {
                 // log???
                 return;
             }
             // run the query
+            executed++;
             try {
                 collector.reset();
                 searcher.search(query, collector);
@@ -568,9 +862,53 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         public boolean acceptsDocsOutOfOrder() {
             return true;
         }
+
+        int executed() {
+            return executed;
+        }
+    }
+
+    static class MatchesCollector extends Collector {
+        private final List<String>[] matches;
+
+        private String name;
+        private int docBase;
+
+        MatchesCollector(List<String>[] matches) {
+            this.matches = matches;
+        }
+
+        void reset(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            List<String> docMatches = matches[docBase + doc];
+            if (docMatches == null) {
+                docMatches = new ArrayList<String>();
+                matches[docBase + doc] = docMatches;
+            }
+            docMatches.add(name);
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            docBase = context.docBase;
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return true;
+        }
     }
 
     public void clearQueries() {
         this.queries.clear();
+        this.queryTermsIndex.clear();
     }
 }
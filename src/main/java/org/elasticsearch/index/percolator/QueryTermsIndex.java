@@ -0,0 +1,232 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An index from terms to the registered percolator queries that require them. A query is only a candidate for
+ * a doc if one of its terms appears in the doc. Queries we can't extract terms from are always candidates.
+ */
+public class QueryTermsIndex {
+
+    // field -> term -> names of the queries requiring it
+    private final ConcurrentMap<String, ConcurrentMap<BytesRef, Set<String>>> fieldTermQueries = ConcurrentCollections.newConcurrentMap();
+
+    private final Set<String> alwaysCandidates = ConcurrentCollections.newConcurrentSet();
+
+    // the terms each query is registered under, only accessed under lock
+    private final Map<String, Set<Term>> queryTerms = Maps.newHashMap();
+
+    public synchronized void add(String name, Query query) {
+        remove(name);
+        Set<Term> terms = extractTerms(query);
+        if (terms == null) {
+            alwaysCandidates.add(name);
+            return;
+        }
+        queryTerms.put(name, terms);
+        for (Term term : terms) {
+            ConcurrentMap<BytesRef, Set<String>> termQueries = fieldTermQueries.get(term.field());
+            if (termQueries == null) {
+                termQueries = ConcurrentCollections.newConcurrentMap();
+                fieldTermQueries.put(term.field(), termQueries);
+            }
+            Set<String> names = termQueries.get(term.bytes());
+            if (names == null) {
+                names = ConcurrentCollections.newConcurrentSet();
+                termQueries.put(BytesRef.deepCopyOf(term.bytes()), names);
+            }
+            names.add(name);
+        }
+    }
+
+    public synchronized void remove(String name) {
+        alwaysCandidates.remove(name);
+        Set<Term> terms = queryTerms.remove(name);
+        if (terms == null) {
+            return;
+        }
+        for (Term term : terms) {
+            ConcurrentMap<BytesRef, Set<String>> termQueries = fieldTermQueries.get(term.field());
+            if (termQueries == null) {
+                continue;
+            }
+            Set<String> names = termQueries.get(term.bytes());
+            if (names != null) {
+                names.remove(name);
+                if (names.isEmpty()) {
+                    termQueries.remove(term.bytes());
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        fieldTermQueries.clear();
+        alwaysCandidates.clear();
+        queryTerms.clear();
+    }
+
+    /**
+     * The number of queries that are candidates for any doc.
+     */
+    public int alwaysCandidatesCount() {
+        return alwaysCandidates.size();
+    }
+
+    /**
+     * Returns the names of the queries that might match the doc(s) of the reader.
+     */
+    public Set<String> candidates(IndexReader reader) throws IOException {
+        Set<String> candidates = new HashSet<String>(alwaysCandidates);
+        for (AtomicReaderContext context : reader.leaves()) {
+            Fields fields = context.reader().fields();
+            if (fields == null) {
+                continue;
+            }
+            for (String field : fields) {
+                ConcurrentMap<BytesRef, Set<String>> termQueries = fieldTermQueries.get(field);
+                if (termQueries == null || termQueries.isEmpty()) {
+                    continue;
+                }
+                Terms terms = fields.terms(field);
+                if (terms == null) {
+                    continue;
+                }
+                TermsEnum termsEnum = terms.iterator(null);
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    Set<String> names = termQueries.get(term);
+                    if (names != null) {
+                        candidates.addAll(names);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Extracts terms such that a doc can only match the query if it has at least one of them, or <tt>null</tt>
+     * if there are no such terms (or we don't know how to extract them from the query).
+     */
+    @Nullable
+    public static Set<Term> extractTerms(Query query) {
+        if (query instanceof TermQuery) {
+            return ImmutableSet.of(((TermQuery) query).getTerm());
+        } else if (query instanceof BooleanQuery) {
+            return extractTerms((BooleanQuery) query);
+        } else if (query instanceof PhraseQuery) {
+            // all terms are required, pick the longest one as it is likely to be the rarest
+            Term longest = null;
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                if (longest == null || term.bytes().length > longest.bytes().length) {
+                    longest = term;
+                }
+            }
+            return longest == null ? null : ImmutableSet.of(longest);
+        } else if (query instanceof ConstantScoreQuery) {
+            ConstantScoreQuery constantScoreQuery = (ConstantScoreQuery) query;
+            if (constantScoreQuery.getQuery() != null) {
+                return extractTerms(constantScoreQuery.getQuery());
+            }
+            return extractTerms(constantScoreQuery.getFilter());
+        } else if (query instanceof XFilteredQuery) {
+            XFilteredQuery filteredQuery = (XFilteredQuery) query;
+            return smallest(extractTerms(filteredQuery.getQuery()), extractTerms(filteredQuery.getFilter()));
+        } else if (query instanceof FilteredQuery) {
+            FilteredQuery filteredQuery = (FilteredQuery) query;
+            return smallest(extractTerms(filteredQuery.getQuery()), extractTerms(filteredQuery.getFilter()));
+        } else if (query instanceof DisjunctionMaxQuery) {
+            Set<Term> terms = new HashSet<Term>();
+            for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+                Set<Term> disjunctTerms = extractTerms(disjunct);
+                if (disjunctTerms == null) {
+                    return null;
+                }
+                terms.addAll(disjunctTerms);
+            }
+            return terms.isEmpty() ? null : terms;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Set<Term> extractTerms(BooleanQuery query) {
+        boolean hasRequired = false;
+        Set<Term> required = null;
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.isRequired()) {
+                hasRequired = true;
+                // any required clause will do, pick the one with the fewest terms
+                required = smallest(required, extractTerms(clause.getQuery()));
+            }
+        }
+        if (hasRequired) {
+            return required;
+        }
+        // only optional (and prohibited) clauses, one of the optional ones has to match
+        Set<Term> terms = new HashSet<Term>();
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.isProhibited()) {
+                continue;
+            }
+            Set<Term> clauseTerms = extractTerms(clause.getQuery());
+            if (clauseTerms == null) {
+                return null;
+            }
+            terms.addAll(clauseTerms);
+        }
+        return terms.isEmpty() ? null : terms;
+    }
+
+    @Nullable
+    private static Set<Term> extractTerms(@Nullable Filter filter) {
+        if (filter instanceof TermFilter) {
+            return ImmutableSet.of(((TermFilter) filter).getTerm());
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Set<Term> smallest(@Nullable Set<Term> terms1, @Nullable Set<Term> terms2) {
+        if (terms1 == null) {
+            return terms2;
+        }
+        if (terms2 == null) {
+            return terms1;
+        }
+        return terms2.size() < terms1.size() ? terms2 : terms1;
+    }
+}
@@ -61,7 +61,8 @@ public class HasChildFilterBuilder extends BaseFilterBuilder {
     }
 
     /**
-     * Expert: Sets the low level child to parent filtering implementation. Can be: 'bitset' or 'uid'
+     * Expert: Sets the low level child to parent filtering implementation. Can be: 'bitset', 'uid' or
+     * 'ordinals', which joins on the parent ordinals of the compact id cache.
      * <p/>
      * This option is experimental and will be removed.
      */
@@ -72,8 +72,9 @@ public class HasChildQueryBuilder extends BaseQueryBuilder implements BoostableQ
     }
 
     /**
-     * Expert: Sets the low level child to parent filtering implementation. Can be: 'bitset' or 'uid'
-     * Only applicable when score_type is set to none.
+     * Expert: Sets the low level child to parent filtering implementation. Can be: 'bitset', 'uid' or
+     * 'ordinals', 'bitset' is only applicable when score_type is set to none. 'ordinals' joins on the parent
+     * ordinals of the compact id cache.
      * <p/>
      * This option is experimental and will be removed.
      */
@@ -97,6 +98,9 @@ public class HasChildQueryBuilder extends BaseQueryBuilder implements BoostableQ
         if (scoreType != null) {
             builder.field("score_type", scoreType);
         }
+        if (executionType != null) {
+            builder.field("execution_type", executionType);
+        }
         builder.endObject();
     }
 }
@@ -86,7 +86,7 @@ public class HasChildQueryParser implements QueryParser {
                 } else if ("_scope".equals(currentFieldName)) {
                     scope = parser.text();
                 } else if ("execution_type".equals(currentFieldName) || "executionType".equals(currentFieldName)) {
-                    scoreType = ScoreType.fromString(parser.text());
+                    executionType = parser.text();
                 } else if ("score_type".equals(currentFieldName) || "scoreType".equals(currentFieldName)) {
                     String scoreTypeValue = parser.text();
                     if (!"none".equals(scoreTypeValue)) {
@@ -124,8 +124,11 @@ public class HasChildQueryParser implements QueryParser {
         SearchContext searchContext = SearchContext.current();
         Query query;
         if (scoreType != null) {
+            if (!"uid".equals(executionType) && !"ordinals".equals(executionType)) {
+                throw new QueryParsingException(parseContext.index(), "[has_child] execution type [" + executionType + "] is not supported with a score type");
+            }
             Filter parentFilter = parseContext.cacheFilter(parentDocMapper.typeFilter(), null);
-            ChildrenQuery childrenQuery = new ChildrenQuery(searchContext, parentType, childType, parentFilter, scope, innerQuery, scoreType);
+            ChildrenQuery childrenQuery = new ChildrenQuery(searchContext, parentType, childType, parentFilter, scope, innerQuery, scoreType, executionType);
             searchContext.addScopePhase(childrenQuery);
             query = childrenQuery;
         } else {
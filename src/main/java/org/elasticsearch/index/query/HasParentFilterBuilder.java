@@ -66,7 +66,8 @@ public class HasParentFilterBuilder extends BaseFilterBuilder {
     }
 
     /**
-     * Expert: Sets the low level parent to child filtering implementation. Can be: 'bitset' or 'uid'
+     * Expert: Sets the low level parent to child filtering implementation. Can be: 'bitset', 'uid' or
+     * 'ordinals', which joins on the parent ordinals of the compact id cache.
      * <p/>
      * This option is experimental and will be removed.
      */
@@ -63,7 +63,8 @@ public class HasParentQueryBuilder extends BaseQueryBuilder implements Boostable
     }
 
     /**
-     * Expert: Sets the low level child to parent filtering implementation. Can be: 'bitset' or 'uid'
+     * Expert: Sets the low level child to parent filtering implementation. Can be: 'bitset', 'uid' or
+     * 'ordinals', which joins on the parent ordinals of the compact id cache.
      * <p/>
      * Only applicable when score_type is set to none.
      * This option is experimental and will be removed.
@@ -31,9 +31,11 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.ToStringUtils;
 import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.CacheRecycler;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.common.lucene.search.NoopCollector;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.ParentOrdinals;
 import org.elasticsearch.search.internal.ScopePhase;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -44,6 +46,9 @@ import java.util.Set;
  * A query implementation that executes the wrapped child query and
  * connects the matching child docs to the related parent documents
  * using the {@link IdReaderTypeCache}.
+ * <p/>
+ * With the <tt>ordinals</tt> execution type, child scores are collected into arrays indexed by the
+ * {@link ParentOrdinals} of the id cache instead of maps keyed by parent uid.
  */
 public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
 
@@ -54,11 +59,20 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
     private final ScoreType scoreType;
     private final String scope;
     private final Query childQuery;
+    private final String executionType;
 
     private TObjectFloatHashMap<HashedBytesArray> uidToScore;
     private TObjectIntHashMap<HashedBytesArray> uidToCount;
 
+    private ParentOrdinals parentOrdinals;
+    private float[] ordToScore;
+    private int[] ordToCount;
+
     public ChildrenQuery(SearchContext searchContext, String parentType, String childType, Filter parentFilter, String scope, Query childQuery, ScoreType scoreType) {
+        this(searchContext, parentType, childType, parentFilter, scope, childQuery, scoreType, "uid");
+    }
+
+    public ChildrenQuery(SearchContext searchContext, String parentType, String childType, Filter parentFilter, String scope, Query childQuery, ScoreType scoreType, String executionType) {
         this.searchContext = searchContext;
         this.parentType = parentType;
         this.childType = childType;
@@ -66,6 +80,10 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
         this.scope = scope;
         this.childQuery = childQuery;
         this.scoreType = scoreType;
+        if (!"uid".equals(executionType) && !"ordinals".equals(executionType)) {
+            throw new ElasticSearchIllegalStateException("Illegal has_child execution type: " + executionType);
+        }
+        this.executionType = executionType;
     }
 
     private ChildrenQuery(ChildrenQuery unProcessedQuery, Query rewrittenChildQuery) {
@@ -76,9 +94,13 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
         this.scope = unProcessedQuery.scope;
         this.scoreType = unProcessedQuery.scoreType;
         this.childQuery = rewrittenChildQuery;
+        this.executionType = unProcessedQuery.executionType;
 
         this.uidToScore = unProcessedQuery.uidToScore;
         this.uidToCount = unProcessedQuery.uidToCount;
+        this.parentOrdinals = unProcessedQuery.parentOrdinals;
+        this.ordToScore = unProcessedQuery.ordToScore;
+        this.ordToCount = unProcessedQuery.ordToCount;
     }
 
     @Override
@@ -109,11 +131,26 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
 
     @Override
     public boolean requiresProcessing() {
-        return uidToScore == null;
+        return uidToScore == null && ordToScore == null;
     }
 
     @Override
     public Collector collector() {
+        if ("ordinals".equals(executionType)) {
+            parentOrdinals = searchContext.idCache().parentOrdinals(searchContext.searcher().getIndexReader(), parentType);
+            if (parentOrdinals == null) {
+                throw new ElasticSearchIllegalStateException("has_child execution type [ordinals] is not supported by the id cache, use the compact id cache");
+            }
+            // ordinal 0 is for children with no parent
+            ordToScore = new float[parentOrdinals.numOrds() + 1];
+            switch (scoreType) {
+                case AVG:
+                    ordToCount = CacheRecycler.popIntArray(parentOrdinals.numOrds() + 1);
+                    return new AvgChildOrdinalCollector(scoreType, parentOrdinals, ordToScore, ordToCount);
+                default:
+                    return new ChildOrdinalCollector(scoreType, parentOrdinals, ordToScore);
+            }
+        }
         uidToScore = CacheRecycler.popObjectFloatMap();
         switch (scoreType) {
             case AVG:
@@ -144,6 +181,12 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
             CacheRecycler.pushObjectIntMap(uidToCount);
         }
         uidToCount = null;
+        if (ordToCount != null) {
+            CacheRecycler.pushIntArray(ordToCount);
+        }
+        ordToCount = null;
+        ordToScore = null;
+        parentOrdinals = null;
     }
 
     @Override
@@ -153,7 +196,7 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
 
     @Override
     public Weight createWeight(IndexSearcher searcher) throws IOException {
-        if (uidToScore == null) {
+        if (uidToScore == null && ordToScore == null) {
             throw new ElasticSearchIllegalStateException("has_child query hasn't executed properly");
         }
 
@@ -196,6 +239,14 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
                 return null;
             }
 
+            if (ordToScore != null) {
+                ParentOrdinals.Segment segmentOrdinals = parentOrdinals.segment(context.reader());
+                if (segmentOrdinals == null) {
+                    return null;
+                }
+                return new OrdinalParentScorer(this, segmentOrdinals, ordToScore, ordToCount, parentsSet.iterator());
+            }
+
             IdReaderTypeCache idTypeCache = searchContext.idCache().reader(context.reader()).type(parentType);
             DocIdSetIterator parentsIterator = parentsSet.iterator();
             switch (scoreType) {
@@ -302,6 +353,155 @@ public class ChildrenQuery extends Query implements ScopePhase.CollectorPhase {
         }
     }
 
+    static class OrdinalParentScorer extends Scorer {
+
+        final ParentOrdinals.Segment segmentOrdinals;
+        final float[] ordToScore;
+        @Nullable
+        final int[] ordToCount;
+        final DocIdSetIterator parentsIterator;
+
+        int currentDocId = -1;
+        float currentScore;
+
+        OrdinalParentScorer(Weight weight, ParentOrdinals.Segment segmentOrdinals, float[] ordToScore, @Nullable int[] ordToCount, DocIdSetIterator parentsIterator) {
+            super(weight);
+            this.segmentOrdinals = segmentOrdinals;
+            this.ordToScore = ordToScore;
+            this.ordToCount = ordToCount;
+            this.parentsIterator = parentsIterator;
+        }
+
+        @Override
+        public float score() throws IOException {
+            return currentScore;
+        }
+
+        @Override
+        public int freq() throws IOException {
+            return 1;
+        }
+
+        @Override
+        public int docID() {
+            return currentDocId;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            while (true) {
+                currentDocId = parentsIterator.nextDoc();
+                if (currentDocId == DocIdSetIterator.NO_MORE_DOCS) {
+                    return currentDocId;
+                }
+                if (matches()) {
+                    return currentDocId;
+                }
+            }
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            currentDocId = parentsIterator.advance(target);
+            if (currentDocId == DocIdSetIterator.NO_MORE_DOCS) {
+                return currentDocId;
+            }
+            if (matches()) {
+                return currentDocId;
+            }
+            return nextDoc();
+        }
+
+        private boolean matches() {
+            int ord = segmentOrdinals.ordByParentDoc(currentDocId);
+            if (ord == 0) {
+                return false;
+            }
+            currentScore = ordToScore[ord];
+            if (Float.compare(currentScore, 0) > 0) {
+                if (ordToCount != null) {
+                    currentScore /= ordToCount[ord];
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static class ChildOrdinalCollector extends NoopCollector {
+
+        final ScoreType scoreType;
+        final ParentOrdinals parentOrdinals;
+        final float[] ordToScore;
+
+        Scorer scorer;
+        ParentOrdinals.Segment segmentOrdinals;
+
+        ChildOrdinalCollector(ScoreType scoreType, ParentOrdinals parentOrdinals, float[] ordToScore) {
+            this.scoreType = scoreType;
+            this.parentOrdinals = parentOrdinals;
+            this.ordToScore = ordToScore;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (segmentOrdinals == null) {
+                return;
+            }
+
+            int ord = segmentOrdinals.ordByChildDoc(doc);
+            if (ord == 0) {
+                return;
+            }
+            float currentScore = scorer.score();
+            switch (scoreType) {
+                case SUM:
+                    ordToScore[ord] += currentScore;
+                    break;
+                case MAX:
+                    if (Float.compare(ordToScore[ord], currentScore) < 0) {
+                        ordToScore[ord] = currentScore;
+                    }
+                    break;
+            }
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+            this.scorer = scorer;
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            segmentOrdinals = parentOrdinals.segment(context.reader());
+        }
+    }
+
+    static class AvgChildOrdinalCollector extends ChildOrdinalCollector {
+
+        final int[] ordToCount;
+
+        AvgChildOrdinalCollector(ScoreType scoreType, ParentOrdinals parentOrdinals, float[] ordToScore, int[] ordToCount) {
+            super(scoreType, parentOrdinals, ordToScore);
+            this.ordToCount = ordToCount;
+            assert scoreType == ScoreType.AVG;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (segmentOrdinals == null) {
+                return;
+            }
+
+            int ord = segmentOrdinals.ordByChildDoc(doc);
+            if (ord == 0) {
+                return;
+            }
+            ordToScore[ord] += scorer.score();
+            ordToCount[ord]++;
+        }
+    }
+
     static class ChildUidCollector extends NoopCollector {
 
         final TObjectFloatHashMap<HashedBytesArray> uidToScore;
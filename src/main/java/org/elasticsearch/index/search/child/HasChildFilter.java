@@ -35,6 +35,7 @@ import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.common.lucene.docset.MatchDocIdSet;
 import org.elasticsearch.common.lucene.search.NoopCollector;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.ParentOrdinals;
 import org.elasticsearch.search.internal.ScopePhase;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -79,6 +80,8 @@ public abstract class HasChildFilter extends Filter implements ScopePhase.Collec
         // This mechanism is experimental and will most likely be removed.
         if ("bitset".equals(executionType)) {
             return new Bitset(childQuery, scope, parentType, childType, searchContext);
+        } else if ("ordinals".equals(executionType)) {
+            return new Ordinals(childQuery, scope, parentType, childType, searchContext);
         } else if ("uid".endsWith(executionType)) {
             return new Uid(childQuery, scope, parentType, childType, searchContext);
         }
@@ -122,6 +125,98 @@ public abstract class HasChildFilter extends Filter implements ScopePhase.Collec
 
     }
 
+    /**
+     * Collects the parent ordinals of the matching children into a bitset, and matches the parents by their
+     * ordinal, which avoids hashing parent uids. Requires an id cache that supports {@link ParentOrdinals}.
+     */
+    static class Ordinals extends HasChildFilter {
+
+        ParentOrdinals parentOrdinals;
+        FixedBitSet collectedOrds;
+
+        Ordinals(Query childQuery, String scope, String parentType, String childType, SearchContext searchContext) {
+            super(childQuery, scope, parentType, childType, searchContext);
+        }
+
+        public boolean requiresProcessing() {
+            return collectedOrds == null;
+        }
+
+        public Collector collector() {
+            parentOrdinals = searchContext.idCache().parentOrdinals(searchContext.searcher().getIndexReader(), parentType);
+            if (parentOrdinals == null) {
+                throw new ElasticSearchIllegalStateException("has_child execution type [ordinals] is not supported by the id cache, use the compact id cache");
+            }
+            collectedOrds = new FixedBitSet(parentOrdinals.numOrds() + 1);
+            return new OrdinalCollector(parentOrdinals, collectedOrds);
+        }
+
+        public void processCollector(Collector collector) {
+        }
+
+        public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            if (collectedOrds == null) {
+                throw new ElasticSearchIllegalStateException("has_child filter hasn't executed properly");
+            }
+
+            ParentOrdinals.Segment segmentOrdinals = parentOrdinals.segment(context.reader());
+            if (segmentOrdinals != null) {
+                return new ParentDocSet(context.reader(), acceptDocs, collectedOrds, segmentOrdinals);
+            } else {
+                return null;
+            }
+        }
+
+        public void clear() {
+            parentOrdinals = null;
+            collectedOrds = null;
+        }
+
+        static class ParentDocSet extends MatchDocIdSet {
+
+            final FixedBitSet parents;
+            final ParentOrdinals.Segment segmentOrdinals;
+
+            ParentDocSet(IndexReader reader, @Nullable Bits acceptDocs, FixedBitSet parents, ParentOrdinals.Segment segmentOrdinals) {
+                super(reader.maxDoc(), acceptDocs);
+                this.parents = parents;
+                this.segmentOrdinals = segmentOrdinals;
+            }
+
+            @Override
+            protected boolean matchDoc(int doc) {
+                int ord = segmentOrdinals.ordByParentDoc(doc);
+                return ord != 0 && parents.get(ord);
+            }
+        }
+
+        static class OrdinalCollector extends NoopCollector {
+
+            final ParentOrdinals parentOrdinals;
+            final FixedBitSet collectedOrds;
+
+            private ParentOrdinals.Segment segmentOrdinals;
+
+            OrdinalCollector(ParentOrdinals parentOrdinals, FixedBitSet collectedOrds) {
+                this.parentOrdinals = parentOrdinals;
+                this.collectedOrds = collectedOrds;
+            }
+
+            @Override
+            public void collect(int doc) throws IOException {
+                // the segment might not have docs related to the parent type
+                if (segmentOrdinals != null) {
+                    collectedOrds.set(segmentOrdinals.ordByChildDoc(doc));
+                }
+            }
+
+            @Override
+            public void setNextReader(AtomicReaderContext readerContext) throws IOException {
+                segmentOrdinals = parentOrdinals.segment(readerContext.reader());
+            }
+        }
+    }
+
     static class Uid extends HasChildFilter {
 
         THashSet<HashedBytesArray> collectedUids;
@@ -37,6 +37,7 @@ import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.lucene.docset.MatchDocIdSet;
 import org.elasticsearch.common.lucene.search.NoopCollector;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.ParentOrdinals;
 import org.elasticsearch.search.internal.ScopePhase;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -81,6 +82,8 @@ public abstract class HasParentFilter extends Filter implements ScopePhase.Colle
         // This mechanism is experimental and will most likely be removed.
         if ("bitset".equals(executionType)) {
             return new Bitset(query, scope, parentType, context);
+        } else if ("ordinals".equals(executionType)) {
+            return new Ordinals(query, scope, parentType, context);
         } else if ("uid".equals(executionType)) {
             return new Uid(query, scope, parentType, context);
         }
@@ -177,6 +180,97 @@ public abstract class HasParentFilter extends Filter implements ScopePhase.Colle
 
     }
 
+    /**
+     * Collects the ordinals of the matching parents into a bitset, and matches the children by the ordinal of their
+     * parent id, which avoids hashing parent uids. Requires an id cache that supports {@link ParentOrdinals}.
+     */
+    static class Ordinals extends HasParentFilter {
+
+        ParentOrdinals parentOrdinals;
+        FixedBitSet collectedOrds;
+
+        Ordinals(Query query, String scope, String parentType, SearchContext context) {
+            super(query, scope, parentType, context);
+        }
+
+        public boolean requiresProcessing() {
+            return collectedOrds == null;
+        }
+
+        public Collector collector() {
+            parentOrdinals = context.idCache().parentOrdinals(context.searcher().getIndexReader(), parentType);
+            if (parentOrdinals == null) {
+                throw new ElasticSearchIllegalStateException("has_parent execution type [ordinals] is not supported by the id cache, use the compact id cache");
+            }
+            collectedOrds = new FixedBitSet(parentOrdinals.numOrds() + 1);
+            return new ParentOrdinalsCollector(parentOrdinals, collectedOrds);
+        }
+
+        public void processCollector(Collector collector) {
+        }
+
+        public DocIdSet getDocIdSet(AtomicReaderContext readerContext, Bits acceptDocs) throws IOException {
+            if (collectedOrds == null) {
+                throw new ElasticSearchIllegalStateException("has_parent filter hasn't executed properly");
+            }
+
+            ParentOrdinals.Segment segmentOrdinals = parentOrdinals.segment(readerContext.reader());
+            if (segmentOrdinals != null) {
+                return new ChildrenDocSet(readerContext.reader(), acceptDocs, collectedOrds, segmentOrdinals);
+            } else {
+                return null;
+            }
+        }
+
+        public void clear() {
+            parentOrdinals = null;
+            collectedOrds = null;
+        }
+
+        static class ChildrenDocSet extends MatchDocIdSet {
+
+            final FixedBitSet parents;
+            final ParentOrdinals.Segment segmentOrdinals;
+
+            ChildrenDocSet(IndexReader reader, @Nullable Bits acceptDocs, FixedBitSet parents, ParentOrdinals.Segment segmentOrdinals) {
+                super(reader.maxDoc(), acceptDocs);
+                this.parents = parents;
+                this.segmentOrdinals = segmentOrdinals;
+            }
+
+            @Override
+            protected boolean matchDoc(int doc) {
+                int ord = segmentOrdinals.ordByChildDoc(doc);
+                return ord != 0 && parents.get(ord);
+            }
+        }
+
+        static class ParentOrdinalsCollector extends NoopCollector {
+
+            final ParentOrdinals parentOrdinals;
+            final FixedBitSet collectedOrds;
+
+            private ParentOrdinals.Segment segmentOrdinals;
+
+            ParentOrdinalsCollector(ParentOrdinals parentOrdinals, FixedBitSet collectedOrds) {
+                this.parentOrdinals = parentOrdinals;
+                this.collectedOrds = collectedOrds;
+            }
+
+            public void collect(int doc) throws IOException {
+                // the segment might not have docs related to the parent type
+                if (segmentOrdinals != null) {
+                    collectedOrds.set(segmentOrdinals.ordByParentDoc(doc));
+                }
+            }
+
+            @Override
+            public void setNextReader(AtomicReaderContext readerContext) throws IOException {
+                segmentOrdinals = parentOrdinals.segment(readerContext.reader());
+            }
+        }
+    }
+
     static class Bitset extends HasParentFilter {
 
         Map<Object, FixedBitSet> parentDocs;
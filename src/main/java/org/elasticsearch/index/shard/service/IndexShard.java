@@ -41,6 +41,7 @@ import org.elasticsearch.index.shard.IndexShardComponent;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.index.warmer.ShardIndexWarmerService;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.warmer.WarmerStats;
 
 /**
@@ -76,6 +77,8 @@ public interface IndexShard extends IndexShardComponent {
 
     WarmerStats warmerStats();
 
+    TranslogStats translogStats();
+
     IndexShardState state();
 
     Engine.Create prepareCreate(SourceToParse source) throws ElasticSearchException;
@@ -63,6 +63,7 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.warmer.ShardIndexWarmerService;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.InternalIndicesLifecycle;
@@ -221,6 +222,16 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
                 return this;
             }
         }
+        if (currentRouting != null && !currentRouting.primary() && shardRouting.primary()) {
+            // operations replicated to us might only be in the translog, they are applied to the index before
+            // we act as primary, so they can't override newer writes
+            try {
+                engine.stopSegmentReplication(new SegmentCopyOperationsApplier());
+            } catch (EngineException e) {
+                // the engine is failed, which fails the shard
+                logger.warn("failed to stop segment replication on promotion to primary", e);
+            }
+        }
         this.shardRouting = shardRouting;
         indicesLifecycle.shardRoutingChanged(this, currentRouting, shardRouting);
         return this;
@@ -431,7 +442,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
     @Override
     public IndexingStats indexingStats(String... types) {
-        return indexingService.stats(types);
+        return indexingService.stats(types).versionMapMemorySizeInBytes(engine.versionMapMemorySizeInBytes());
     }
 
     @Override
@@ -463,6 +474,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return shardWarmerService.stats();
     }
 
+    @Override
+    public TranslogStats translogStats() {
+        return translog.stats();
+    }
+
     @Override
     public void flush(Engine.Flush flush) throws ElasticSearchException {
         // we allows flush while recovering, since we allow for operations to happen
@@ -579,6 +595,10 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         if (state != IndexShardState.RECOVERING) {
             throw new IndexShardNotRecoveringException(shardId, state);
         }
+        applyTranslogOperation(operation);
+    }
+
+    private void applyTranslogOperation(Translog.Operation operation) throws ElasticSearchException {
         try {
             switch (operation.opType()) {
                 case CREATE:
@@ -713,6 +733,18 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         }
     }
 
+    class SegmentCopyOperationsApplier implements Engine.SegmentCopyOperationsHandler {
+        @Override
+        public void apply(Translog.Snapshot snapshot) throws ElasticSearchException {
+            int applied = 0;
+            while (snapshot.hasNext()) {
+                applyTranslogOperation(snapshot.next());
+                applied++;
+            }
+            logger.debug("applied [{}] operations pending segment copy after promotion to primary", applied);
+        }
+    }
+
     class EngineRefresher implements Runnable {
         @Override
         public void run() {
@@ -24,6 +24,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import jsr166y.ThreadLocalRandom;
 import org.apache.lucene.store.*;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.compress.Compressor;
@@ -292,6 +293,25 @@ public class Store extends AbstractIndexShardComponent {
         }
     }
 
+    /**
+     * Returns the file system location of the (first) directory backing the provided store directory (or of the
+     * provided directory itself), or <tt>null</tt> if it is not file system based.
+     */
+    @Nullable
+    public static File fsLocation(Directory directory) {
+        Directory delegate = directory;
+        if (delegate instanceof StoreDirectory) {
+            delegate = ((StoreDirectory) delegate).delegates()[0];
+        }
+        if (delegate instanceof RateLimitedFSDirectory) {
+            delegate = ((RateLimitedFSDirectory) delegate).wrappedDirectory();
+        }
+        if (delegate instanceof FSDirectory) {
+            return ((FSDirectory) delegate).getDirectory();
+        }
+        return null;
+    }
+
     /**
      * The idea of the store directory is to cache file level meta data, as well as md5 of it
      */
@@ -120,6 +120,11 @@ public interface Translog extends IndexShardComponent {
 
     boolean syncNeeded();
 
+    /**
+     * Returns the translog stats, including the group commit stats.
+     */
+    TranslogStats stats();
+
     void syncOnEachOperation(boolean syncOnEachOperation);
 
     /**
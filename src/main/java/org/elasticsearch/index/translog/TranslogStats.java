@@ -0,0 +1,216 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Translog stats, including the group commit stats (when group commit is enabled) with histograms of
+ * the number of operations synced by each group commit and of the sync latency.
+ */
+public class TranslogStats implements Streamable, ToXContent {
+
+    /**
+     * The (inclusive) upper bounds of the batch size histogram buckets, the last bucket holds all larger batches.
+     */
+    public static final long[] BATCH_SIZE_BUCKETS = new long[]{1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    /**
+     * The (exclusive) upper bounds, in milliseconds, of the sync latency histogram buckets, the last bucket
+     * holds all slower syncs.
+     */
+    public static final long[] SYNC_LATENCY_BUCKETS = new long[]{1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+
+    private long operations;
+    private long sizeInBytes;
+
+    private long groupCommits;
+    private long groupCommitOperations;
+    private long groupCommitTimeInMillis;
+    private long[] batchSizeHistogram = new long[BATCH_SIZE_BUCKETS.length + 1];
+    private long[] syncLatencyHistogram = new long[SYNC_LATENCY_BUCKETS.length + 1];
+
+    public TranslogStats() {
+
+    }
+
+    public TranslogStats(long operations, long sizeInBytes, long groupCommits, long groupCommitOperations, long groupCommitTimeInMillis,
+                         long[] batchSizeHistogram, long[] syncLatencyHistogram) {
+        this.operations = operations;
+        this.sizeInBytes = sizeInBytes;
+        this.groupCommits = groupCommits;
+        this.groupCommitOperations = groupCommitOperations;
+        this.groupCommitTimeInMillis = groupCommitTimeInMillis;
+        this.batchSizeHistogram = batchSizeHistogram;
+        this.syncLatencyHistogram = syncLatencyHistogram;
+    }
+
+    public void add(TranslogStats translogStats) {
+        if (translogStats == null) {
+            return;
+        }
+        this.operations += translogStats.operations;
+        this.sizeInBytes += translogStats.sizeInBytes;
+        this.groupCommits += translogStats.groupCommits;
+        this.groupCommitOperations += translogStats.groupCommitOperations;
+        this.groupCommitTimeInMillis += translogStats.groupCommitTimeInMillis;
+        for (int i = 0; i < batchSizeHistogram.length; i++) {
+            batchSizeHistogram[i] += translogStats.batchSizeHistogram[i];
+        }
+        for (int i = 0; i < syncLatencyHistogram.length; i++) {
+            syncLatencyHistogram[i] += translogStats.syncLatencyHistogram[i];
+        }
+    }
+
+    /**
+     * The number of operations in the current translog.
+     */
+    public long operations() {
+        return this.operations;
+    }
+
+    public ByteSizeValue size() {
+        return new ByteSizeValue(sizeInBytes);
+    }
+
+    /**
+     * The number of syncs executed by group commit.
+     */
+    public long groupCommits() {
+        return this.groupCommits;
+    }
+
+    /**
+     * The number of operations synced by group commit.
+     */
+    public long groupCommitOperations() {
+        return this.groupCommitOperations;
+    }
+
+    /**
+     * The total time group commit syncs took.
+     */
+    public TimeValue groupCommitTime() {
+        return new TimeValue(groupCommitTimeInMillis);
+    }
+
+    /**
+     * The number of group commits per batch size bucket, see {@link #BATCH_SIZE_BUCKETS}.
+     */
+    public long[] batchSizeHistogram() {
+        return this.batchSizeHistogram;
+    }
+
+    /**
+     * The number of group commits per sync latency bucket, see {@link #SYNC_LATENCY_BUCKETS}.
+     */
+    public long[] syncLatencyHistogram() {
+        return this.syncLatencyHistogram;
+    }
+
+    public static TranslogStats readTranslogStats(StreamInput in) throws IOException {
+        TranslogStats translogStats = new TranslogStats();
+        translogStats.readFrom(in);
+        return translogStats;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.TRANSLOG);
+        builder.field(Fields.OPERATIONS, operations);
+        builder.field(Fields.SIZE, size().toString());
+        builder.field(Fields.SIZE_IN_BYTES, sizeInBytes);
+        if (groupCommits > 0) {
+            builder.startObject(Fields.GROUP_COMMIT);
+            builder.field(Fields.TOTAL, groupCommits);
+            builder.field(Fields.OPERATIONS, groupCommitOperations);
+            builder.field(Fields.TOTAL_TIME, groupCommitTime().toString());
+            builder.field(Fields.TOTAL_TIME_IN_MILLIS, groupCommitTimeInMillis);
+            builder.startObject(Fields.BATCH_SIZE);
+            for (int i = 0; i < batchSizeHistogram.length; i++) {
+                String bucket = i < BATCH_SIZE_BUCKETS.length ? "<=" + BATCH_SIZE_BUCKETS[i] : ">" + BATCH_SIZE_BUCKETS[BATCH_SIZE_BUCKETS.length - 1];
+                builder.field(bucket, batchSizeHistogram[i]);
+            }
+            builder.endObject();
+            builder.startObject(Fields.SYNC_LATENCY);
+            for (int i = 0; i < syncLatencyHistogram.length; i++) {
+                String bucket = i < SYNC_LATENCY_BUCKETS.length ? "<" + SYNC_LATENCY_BUCKETS[i] + "ms" : ">=" + SYNC_LATENCY_BUCKETS[SYNC_LATENCY_BUCKETS.length - 1] + "ms";
+                builder.field(bucket, syncLatencyHistogram[i]);
+            }
+            builder.endObject();
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString TRANSLOG = new XContentBuilderString("translog");
+        static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString GROUP_COMMIT = new XContentBuilderString("group_commit");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString TOTAL_TIME = new XContentBuilderString("total_time");
+        static final XContentBuilderString TOTAL_TIME_IN_MILLIS = new XContentBuilderString("total_time_in_millis");
+        static final XContentBuilderString BATCH_SIZE = new XContentBuilderString("batch_size");
+        static final XContentBuilderString SYNC_LATENCY = new XContentBuilderString("sync_latency");
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        operations = in.readVLong();
+        sizeInBytes = in.readVLong();
+        groupCommits = in.readVLong();
+        groupCommitOperations = in.readVLong();
+        groupCommitTimeInMillis = in.readVLong();
+        for (int i = 0; i < batchSizeHistogram.length; i++) {
+            batchSizeHistogram[i] = in.readVLong();
+        }
+        for (int i = 0; i < syncLatencyHistogram.length; i++) {
+            syncLatencyHistogram[i] = in.readVLong();
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(operations);
+        out.writeVLong(sizeInBytes);
+        out.writeVLong(groupCommits);
+        out.writeVLong(groupCommitOperations);
+        out.writeVLong(groupCommitTimeInMillis);
+        for (long count : batchSizeHistogram) {
+            out.writeVLong(count);
+        }
+        for (long count : syncLatencyHistogram) {
+            out.writeVLong(count);
+        }
+    }
+}
@@ -132,7 +132,6 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
             if (last == lastSyncPosition) {
                 return;
             }
-            lastSyncPosition = last;
             rwl.writeLock().lock();
             try {
                 flushBuffer();
@@ -140,6 +139,8 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
                 rwl.writeLock().unlock();
             }
             raf.channel().force(false);
+            // only mark as synced once forced, so concurrent syncs don't return before the data is durable
+            lastSyncPosition = last;
         } catch (Exception e) {
             // ignore
         }
@@ -27,6 +27,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.settings.IndexSettingsService;
@@ -34,6 +35,7 @@ import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.translog.TranslogStreams;
 
 import java.io.File;
@@ -51,7 +53,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         IndexMetaData.addDynamicSettings(
                 "index.translog.fs.type",
                 "index.translog.fs.buffer_size",
-                "index.translog.fs.transient_buffer_size"
+                "index.translog.fs.transient_buffer_size",
+                "index.translog.fs.group_commit",
+                "index.translog.fs.group_commit_max_operations",
+                "index.translog.fs.group_commit_max_latency"
         );
     }
 
@@ -75,6 +80,26 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 logger.info("updating type from [{}] to [{}]", FsTranslog.this.type, type);
                 FsTranslog.this.type = type;
             }
+
+            boolean groupCommit = settings.getAsBoolean("index.translog.fs.group_commit", FsTranslog.this.groupCommit);
+            if (groupCommit != FsTranslog.this.groupCommit) {
+                logger.info("updating group_commit from [{}] to [{}]", FsTranslog.this.groupCommit, groupCommit);
+                FsTranslog.this.groupCommit = groupCommit;
+            }
+
+            int groupCommitMaxOperations = settings.getAsInt("index.translog.fs.group_commit_max_operations", FsTranslog.this.groupCommitMaxOperations);
+            if (groupCommitMaxOperations != FsTranslog.this.groupCommitMaxOperations) {
+                logger.info("updating group_commit_max_operations from [{}] to [{}]", FsTranslog.this.groupCommitMaxOperations, groupCommitMaxOperations);
+                FsTranslog.this.groupCommitMaxOperations = groupCommitMaxOperations;
+                FsTranslog.this.groupCommitter.maxOperations(groupCommitMaxOperations);
+            }
+
+            TimeValue groupCommitMaxLatency = settings.getAsTime("index.translog.fs.group_commit_max_latency", FsTranslog.this.groupCommitMaxLatency);
+            if (!groupCommitMaxLatency.equals(FsTranslog.this.groupCommitMaxLatency)) {
+                logger.info("updating group_commit_max_latency from [{}] to [{}]", FsTranslog.this.groupCommitMaxLatency, groupCommitMaxLatency);
+                FsTranslog.this.groupCommitMaxLatency = groupCommitMaxLatency;
+                FsTranslog.this.groupCommitter.maxLatency(groupCommitMaxLatency);
+            }
         }
     }
 
@@ -93,6 +118,12 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     private int bufferSize;
     private int transientBufferSize;
 
+    private volatile boolean groupCommit;
+    private int groupCommitMaxOperations;
+    private TimeValue groupCommitMaxLatency;
+    private final FsTranslogGroupCommit groupCommitter;
+    private final FsTranslogGroupCommit.Syncer groupCommitSyncer = new GroupCommitSyncer();
+
     private final ApplySettings applySettings = new ApplySettings();
 
     @Inject
@@ -109,6 +140,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
         this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", ByteSizeValue.parseBytesSizeValue("64k")).bytes();
         this.transientBufferSize = (int) componentSettings.getAsBytesSize("transient_buffer_size", ByteSizeValue.parseBytesSizeValue("8k")).bytes();
+        this.groupCommit = componentSettings.getAsBoolean("group_commit", false);
+        this.groupCommitMaxOperations = componentSettings.getAsInt("group_commit_max_operations", 1024);
+        this.groupCommitMaxLatency = componentSettings.getAsTime("group_commit_max_latency", TimeValue.timeValueMillis(1));
+        this.groupCommitter = new FsTranslogGroupCommit(groupCommitMaxOperations, groupCommitMaxLatency);
 
         indexSettingsService.addListener(applySettings);
     }
@@ -120,6 +155,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         FileSystemUtils.mkdirs(location);
 
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
+        this.groupCommit = componentSettings.getAsBoolean("group_commit", false);
+        this.groupCommitMaxOperations = componentSettings.getAsInt("group_commit_max_operations", 1024);
+        this.groupCommitMaxLatency = componentSettings.getAsTime("group_commit_max_latency", TimeValue.timeValueMillis(1));
+        this.groupCommitter = new FsTranslogGroupCommit(groupCommitMaxOperations, groupCommitMaxLatency);
     }
 
     @Override
@@ -320,6 +359,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     @Override
     public Location add(Operation operation) throws TranslogException {
+        Location location;
+        long seqNo = -1;
         CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
         rwl.readLock().lock();
         try {
@@ -332,8 +373,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
             out.seek(0);
             out.writeInt(size - 4);
 
-            Location location = current.add(out.bytes().array(), out.bytes().arrayOffset(), size);
-            if (syncOnEachOperation) {
+            location = current.add(out.bytes().array(), out.bytes().arrayOffset(), size);
+            if (groupCommit) {
+                seqNo = groupCommitter.written();
+            } else if (syncOnEachOperation) {
                 current.sync();
             }
             FsTranslogFile trans = this.trans;
@@ -344,13 +387,36 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                     // ignore
                 }
             }
-            return location;
         } catch (Exception e) {
             throw new TranslogException(shardId, "Failed to write operation [" + operation + "]", e);
         } finally {
             rwl.readLock().unlock();
             CachedStreamOutput.pushEntry(cachedEntry);
         }
+        if (seqNo != -1) {
+            // wait outside of the lock, a translog that gets closed in the meantime is synced on close
+            try {
+                groupCommitter.waitForSync(seqNo, groupCommitSyncer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TranslogException(shardId, "Interrupted while waiting for sync of operation [" + operation + "]", e);
+            }
+        }
+        return location;
+    }
+
+    class GroupCommitSyncer implements FsTranslogGroupCommit.Syncer {
+        @Override
+        public void sync() {
+            FsTranslogFile current1 = FsTranslog.this.current;
+            if (current1 != null) {
+                current1.sync();
+            }
+            current1 = FsTranslog.this.trans;
+            if (current1 != null) {
+                current1.sync();
+            }
+        }
     }
 
     @Override
@@ -382,6 +448,11 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         current1.sync();
     }
 
+    @Override
+    public TranslogStats stats() {
+        return groupCommitter.stats(estimatedNumberOfOperations(), translogSizeInBytes());
+    }
+
     @Override
     public boolean syncNeeded() {
         FsTranslogFile current1 = this.current;
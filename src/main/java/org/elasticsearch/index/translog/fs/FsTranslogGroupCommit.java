@@ -0,0 +1,181 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.translog.TranslogStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit of translog operations. Each added operation gets a sequence number, and the callers wait for
+ * a sync that covers their operation. The first waiting caller becomes the leader, waits for more operations
+ * to be written (up to the max operations or max latency), and executes a single sync on behalf of all the
+ * operations written so far, while the other callers wait for it to complete.
+ */
+public class FsTranslogGroupCommit {
+
+    /**
+     * Executes the actual sync of the translog.
+     */
+    public static interface Syncer {
+        void sync();
+    }
+
+    private final Object mutex = new Object();
+
+    private final AtomicLong written = new AtomicLong();
+    // guarded by mutex
+    private long synced;
+    // guarded by mutex
+    private boolean syncing;
+
+    private volatile int maxOperations;
+    private volatile TimeValue maxLatency;
+
+    private final MeanMetric syncMetric = new MeanMetric();
+    private final CounterMetric syncedOperations = new CounterMetric();
+    private final CounterMetric[] batchSizeHistogram = counters(TranslogStats.BATCH_SIZE_BUCKETS.length + 1);
+    private final CounterMetric[] syncLatencyHistogram = counters(TranslogStats.SYNC_LATENCY_BUCKETS.length + 1);
+
+    public FsTranslogGroupCommit(int maxOperations, TimeValue maxLatency) {
+        this.maxOperations = maxOperations;
+        this.maxLatency = maxLatency;
+    }
+
+    public void maxOperations(int maxOperations) {
+        this.maxOperations = maxOperations;
+    }
+
+    public void maxLatency(TimeValue maxLatency) {
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * Marks an operation as written to the translog, returns its sequence number to wait on with
+     * {@link #waitForSync(long, Syncer)}.
+     */
+    public long written() {
+        long seqNo = written.incrementAndGet();
+        int maxOperations = this.maxOperations;
+        if (maxOperations > 0 && seqNo % maxOperations == 0) {
+            // wake up a leader waiting for the batch to fill up
+            synchronized (mutex) {
+                mutex.notifyAll();
+            }
+        }
+        return seqNo;
+    }
+
+    /**
+     * Waits until the operation with the provided sequence number has been synced, executing the sync using
+     * the provided syncer if there is no other sync in progress.
+     */
+    public void waitForSync(long seqNo, Syncer syncer) throws InterruptedException {
+        long syncedBefore;
+        synchronized (mutex) {
+            while (true) {
+                if (synced >= seqNo) {
+                    return;
+                }
+                if (!syncing) {
+                    syncing = true;
+                    break;
+                }
+                mutex.wait();
+            }
+            syncedBefore = synced;
+            // wait for more operations to batch in the sync
+            long maxLatencyNanos = maxLatency.nanos();
+            long deadline = System.nanoTime() + maxLatencyNanos;
+            long remaining = maxLatencyNanos;
+            try {
+                while (remaining > 0 && written.get() - syncedBefore < maxOperations) {
+                    TimeUnit.NANOSECONDS.timedWait(mutex, remaining);
+                    remaining = deadline - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                syncing = false;
+                mutex.notifyAll();
+                throw e;
+            }
+        }
+        long target = written.get();
+        boolean success = false;
+        long start = System.nanoTime();
+        try {
+            syncer.sync();
+            success = true;
+        } finally {
+            long took = System.nanoTime() - start;
+            synchronized (mutex) {
+                if (success) {
+                    synced = target;
+                }
+                syncing = false;
+                mutex.notifyAll();
+            }
+            if (success) {
+                onSync(target - syncedBefore, took);
+            }
+        }
+    }
+
+    private void onSync(long operations, long tookInNanos) {
+        syncMetric.inc(tookInNanos);
+        syncedOperations.inc(operations);
+        batchSizeHistogram[bucket(TranslogStats.BATCH_SIZE_BUCKETS, operations, true)].inc();
+        syncLatencyHistogram[bucket(TranslogStats.SYNC_LATENCY_BUCKETS, TimeUnit.NANOSECONDS.toMillis(tookInNanos), false)].inc();
+    }
+
+    private static int bucket(long[] bounds, long value, boolean inclusive) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (inclusive ? value <= bounds[i] : value < bounds[i]) {
+                return i;
+            }
+        }
+        return bounds.length;
+    }
+
+    public TranslogStats stats(long operations, long sizeInBytes) {
+        return new TranslogStats(operations, sizeInBytes, syncMetric.count(), syncedOperations.count(), TimeUnit.NANOSECONDS.toMillis(syncMetric.sum()),
+                counts(batchSizeHistogram), counts(syncLatencyHistogram));
+    }
+
+    private static CounterMetric[] counters(int size) {
+        CounterMetric[] counters = new CounterMetric[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new CounterMetric();
+        }
+        return counters;
+    }
+
+    private static long[] counts(CounterMetric[] counters) {
+        long[] counts = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            counts[i] = counters[i].count();
+        }
+        return counts;
+    }
+}
@@ -105,8 +105,9 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
             if (last == lastSyncPosition) {
                 return;
             }
-            lastSyncPosition = last;
             raf.channel().force(false);
+            // only mark as synced once forced, so concurrent syncs don't return before the data is durable
+            lastSyncPosition = last;
         } catch (Exception e) {
             // ignore
         }
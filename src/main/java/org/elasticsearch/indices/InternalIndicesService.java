@@ -70,6 +70,8 @@ import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.IndexStoreModule;
 import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
+import org.elasticsearch.indices.cache.request.IndicesRequestCache;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.indices.store.IndicesStore;
 import org.elasticsearch.plugins.IndexPluginsModule;
@@ -106,6 +108,10 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
 
     private final IndicesStore indicesStore;
 
+    private final CircuitBreakerService circuitBreakerService;
+
+    private final IndicesRequestCache indicesRequestCache;
+
     private final Injector injector;
 
     private final PluginsService pluginsService;
@@ -117,13 +123,16 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
     private final OldShardsStats oldShardsStats = new OldShardsStats();
 
     @Inject
-    public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore, Injector injector) {
+    public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore,
+                                  CircuitBreakerService circuitBreakerService, IndicesRequestCache indicesRequestCache, Injector injector) {
         super(settings);
         this.nodeEnv = nodeEnv;
         this.threadPool = threadPool;
         this.indicesLifecycle = (InternalIndicesLifecycle) indicesLifecycle;
         this.indicesAnalysisService = indicesAnalysisService;
         this.indicesStore = indicesStore;
+        this.circuitBreakerService = circuitBreakerService;
+        this.indicesRequestCache = indicesRequestCache;
         this.injector = injector;
 
         this.pluginsService = injector.getInstance(PluginsService.class);
@@ -215,6 +224,8 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
             cacheStats.add(indexService.cache().stats());
             fieldDataStats.add(indexService.fieldData().stats());
         }
+        fieldDataStats.breaker(circuitBreakerService.getBreaker());
+        cacheStats.requestCache(indicesRequestCache);
         return new NodeIndicesStats(storeStats, docsStats, indexingStats, getStats, searchStats, cacheStats, fieldDataStats, mergeStats, refreshStats, flushStats);
     }
 
@@ -0,0 +1,313 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.indices.cache.request;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.*;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QuerySearchResult;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of the (serialized) shard level query phase results of <tt>count</tt> search requests,
+ * keyed by the request and the shard reader it was executed on. Since the reader is part of the key, a refresh
+ * that opens a new reader invalidates the cached results, the entries of the closed reader are removed when it
+ * gets closed.
+ * <p/>
+ * The cache is bounded by memory (<tt>indices.cache.request.size</tt>, defaults to <tt>1%</tt> of the heap), and
+ * is enabled per index using the <tt>index.cache.request.enable</tt> setting.
+ */
+public class IndicesRequestCache extends AbstractComponent implements RemovalListener<IndicesRequestCache.Key, BytesReference> {
+
+    public static final String INDEX_CACHE_REQUEST_ENABLED = "index.cache.request.enable";
+
+    static {
+        MetaData.addDynamicSettings(
+                "indices.cache.request.size",
+                "indices.cache.request.expire"
+        );
+        IndexMetaData.addDynamicSettings(
+                INDEX_CACHE_REQUEST_ENABLED
+        );
+    }
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean replace = false;
+            String size = settings.get("indices.cache.request.size", IndicesRequestCache.this.size);
+            if (!size.equals(IndicesRequestCache.this.size)) {
+                logger.info("updating [indices.cache.request.size] from [{}] to [{}]", IndicesRequestCache.this.size, size);
+                IndicesRequestCache.this.size = size;
+                replace = true;
+            }
+            TimeValue expire = settings.getAsTime("indices.cache.request.expire", IndicesRequestCache.this.expire);
+            if (!Objects.equal(expire, IndicesRequestCache.this.expire)) {
+                logger.info("updating [indices.cache.request.expire] from [{}] to [{}]", IndicesRequestCache.this.expire, expire);
+                IndicesRequestCache.this.expire = expire;
+                replace = true;
+            }
+            if (replace) {
+                Cache<Key, BytesReference> oldCache = IndicesRequestCache.this.cache;
+                computeSizeInBytes();
+                buildCache();
+                oldCache.invalidateAll();
+            }
+        }
+    }
+
+    private volatile Cache<Key, BytesReference> cache;
+
+    private volatile String size;
+    private volatile long sizeInBytes;
+    private volatile TimeValue expire;
+
+    private final Set<Object> registeredReaders = ConcurrentCollections.newConcurrentSet();
+
+    private final CounterMetric hitCount = new CounterMetric();
+    private final CounterMetric missCount = new CounterMetric();
+    private final CounterMetric evictionsCount = new CounterMetric();
+    private final CounterMetric memorySize = new CounterMetric();
+
+    @Inject
+    public IndicesRequestCache(Settings settings, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.size = componentSettings.get("size", "1%");
+        this.expire = componentSettings.getAsTime("expire", null);
+        computeSizeInBytes();
+        buildCache();
+        logger.debug("using [node] request cache with size [{}], actual_size [{}], expire [{}]", size, new ByteSizeValue(sizeInBytes), expire);
+
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    private void buildCache() {
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.newBuilder()
+                .removalListener(this)
+                .maximumWeight(sizeInBytes).weigher(new RequestCacheWeigher());
+
+        // defaults to 4, but this is a busy map for all indices, increase it a bit
+        cacheBuilder.concurrencyLevel(16);
+
+        if (expire != null) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        cache = cacheBuilder.build();
+    }
+
+    private void computeSizeInBytes() {
+        if (size.endsWith("%")) {
+            double percent = Double.parseDouble(size.substring(0, size.length() - 1));
+            sizeInBytes = (long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes());
+        } else {
+            sizeInBytes = ByteSizeValue.parseBytesSizeValue(size).bytes();
+        }
+    }
+
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns <tt>true</tt> if the results of the request can be cached. Requests that may depend on the time
+     * they are executed (using <tt>now</tt> date math) are never cached, since the cached results would be reused
+     * as long as the reader does not change.
+     */
+    public boolean canCache(ShardSearchRequest request, Settings indexSettings) {
+        if (!indexSettings.getAsBoolean(INDEX_CACHE_REQUEST_ENABLED, false)) {
+            return false;
+        }
+        // the request cache only caches count requests, their results don't depend on from / size
+        if (request.searchType() != SearchType.COUNT || request.scroll() != null) {
+            return false;
+        }
+        // conservative, also rejects requests that only happen to have "now" in a term
+        return !containsNow(request.source()) && !containsNow(request.extraSource());
+    }
+
+    private static boolean containsNow(@Nullable BytesReference source) {
+        if (source == null) {
+            return false;
+        }
+        for (int i = 0; i + 2 < source.length(); i++) {
+            if (source.get(i) == 'n' && source.get(i + 1) == 'o' && source.get(i + 2) == 'w') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the cache key of the request executed on the provided reader.
+     */
+    public Key key(ShardSearchRequest request, IndexReader reader) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytesReference(request.source());
+        out.writeBytesReference(request.extraSource());
+        out.writeStringArrayNullable(request.types());
+        out.writeStringArrayNullable(request.filteringAliases());
+        return new Key(request.index(), request.shardId(), reader, out.bytes().copyBytesArray());
+    }
+
+    /**
+     * Returns the cached query result, <tt>null</tt> if there is none.
+     */
+    @Nullable
+    public QuerySearchResult get(Key key) throws IOException {
+        BytesReference value = cache.getIfPresent(key);
+        if (value == null) {
+            missCount.inc();
+            return null;
+        }
+        hitCount.inc();
+        return QuerySearchResult.readQuerySearchResult(value.streamInput());
+    }
+
+    public void put(Key key, QuerySearchResult result) throws IOException {
+        if (result.searchTimedOut()) {
+            // partial results, don't cache them
+            return;
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        result.writeTo(out);
+        if (registeredReaders.add(key.readerKey)) {
+            key.reader.addReaderClosedListener(new CleanOnCloseListener());
+        }
+        BytesReference value = out.bytes().copyBytesArray();
+        memorySize.inc(weight(key, value));
+        cache.put(key, value);
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        if (notification.getKey() == null || notification.getValue() == null) {
+            return;
+        }
+        memorySize.dec(weight(notification.getKey(), notification.getValue()));
+        if (notification.wasEvicted()) {
+            evictionsCount.inc();
+        }
+    }
+
+    public long hitCount() {
+        return hitCount.count();
+    }
+
+    public long missCount() {
+        return missCount.count();
+    }
+
+    public long evictions() {
+        return evictionsCount.count();
+    }
+
+    public long count() {
+        return cache.size();
+    }
+
+    public long sizeInBytes() {
+        return memorySize.count();
+    }
+
+    private static int weight(Key key, BytesReference value) {
+        return key.value.length() + value.length();
+    }
+
+    /**
+     * Removes the entries of a reader once it gets closed, they can't be hit anymore.
+     */
+    class CleanOnCloseListener implements IndexReader.ReaderClosedListener {
+        @Override
+        public void onClose(IndexReader reader) {
+            Object readerKey = reader.getCoreCacheKey();
+            registeredReaders.remove(readerKey);
+            for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                if (it.next().readerKey == readerKey) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    static class RequestCacheWeigher implements Weigher<Key, BytesReference> {
+        @Override
+        public int weigh(Key key, BytesReference value) {
+            return weight(key, value);
+        }
+    }
+
+    public static class Key {
+        final String index;
+        final int shardId;
+        final IndexReader reader;
+        final Object readerKey;
+        final BytesReference value;
+
+        Key(String index, int shardId, IndexReader reader, BytesReference value) {
+            this.index = index;
+            this.shardId = shardId;
+            this.reader = reader;
+            this.readerKey = reader.getCoreCacheKey();
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            if (shardId != key.shardId) return false;
+            if (readerKey != key.readerKey) return false;
+            if (!index.equals(key.index)) return false;
+            if (!value.equals(key.value)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = index.hashCode();
+            result = 31 * result + shardId;
+            result = 31 * result + readerKey.hashCode();
+            result = 31 * result + value.hashCode();
+            return result;
+        }
+    }
+}
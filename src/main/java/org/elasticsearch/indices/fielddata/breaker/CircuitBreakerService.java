@@ -0,0 +1,149 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.Terms;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+import java.io.IOException;
+
+/**
+ * The node level circuit breaker for field data. Field data is estimated before it gets loaded and the loading is
+ * aborted with a {@link org.elasticsearch.common.breaker.CircuitBreakingException} if the estimate would take
+ * the loaded field data of the node over <tt>indices.fielddata.breaker.limit</tt> (defaults to <tt>80%</tt> of
+ * the heap).
+ */
+public class CircuitBreakerService extends AbstractComponent {
+
+    public static final String CIRCUIT_BREAKER_LIMIT_SETTING = "indices.fielddata.breaker.limit";
+    public static final String CIRCUIT_BREAKER_OVERHEAD_SETTING = "indices.fielddata.breaker.overhead";
+
+    public static final String DEFAULT_LIMIT = "80%";
+    public static final double DEFAULT_OVERHEAD_CONSTANT = 1.03;
+
+    static {
+        MetaData.addDynamicSettings(
+                CIRCUIT_BREAKER_LIMIT_SETTING,
+                CIRCUIT_BREAKER_OVERHEAD_SETTING
+        );
+    }
+
+    private volatile String limit;
+    private volatile double overhead;
+
+    private final MemoryCircuitBreaker breaker;
+
+    /**
+     * A breaker service with the default limit, for field data services that are not created on a node.
+     */
+    public CircuitBreakerService() {
+        this(ImmutableSettings.Builder.EMPTY_SETTINGS);
+    }
+
+    CircuitBreakerService(Settings settings) {
+        super(settings);
+        this.limit = componentSettings.get("limit", DEFAULT_LIMIT);
+        this.overhead = componentSettings.getAsDouble("overhead", DEFAULT_OVERHEAD_CONSTANT);
+        this.breaker = new MemoryCircuitBreaker(parseLimit(limit), overhead);
+    }
+
+    @Inject
+    public CircuitBreakerService(Settings settings, NodeSettingsService nodeSettingsService) {
+        this(settings);
+        logger.debug("field data breaker limit [{}] ({}), overhead [{}]", limit, breaker.getMaximum(), overhead);
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    public MemoryCircuitBreaker getBreaker() {
+        return this.breaker;
+    }
+
+    /**
+     * Estimates the memory the field data of the field will use once loaded for the segment, based on its number
+     * of terms (or postings, when unknown) and the number of docs.
+     */
+    public static long estimateSizeInBytes(AtomicReader reader, String fieldName, FieldDataType fieldDataType) throws IOException {
+        Terms terms = reader.terms(fieldName);
+        if (terms == null) {
+            return 0;
+        }
+        long numberOfTerms = terms.size();
+        if (numberOfTerms == -1) {
+            // not known, use the number of postings, this is an upper bound
+            numberOfTerms = terms.getSumDocFreq();
+        }
+        if (numberOfTerms == -1) {
+            numberOfTerms = reader.maxDoc();
+        }
+        // the values (or bytes) per term, plus the doc to ordinal (or value) mapping
+        return (numberOfTerms * bytesPerValue(fieldDataType)) + ((long) reader.maxDoc() * 4);
+    }
+
+    private static long bytesPerValue(FieldDataType fieldDataType) {
+        String type = fieldDataType.getType();
+        if ("byte".equals(type)) {
+            return 1;
+        } else if ("short".equals(type)) {
+            return 2;
+        } else if ("int".equals(type) || "float".equals(type)) {
+            return 4;
+        } else if ("long".equals(type) || "double".equals(type)) {
+            return 8;
+        } else if ("geo_point".equals(type)) {
+            return 16;
+        }
+        // strings, the term bytes, their offset and hash
+        return 32;
+    }
+
+    private static ByteSizeValue parseLimit(String limit) {
+        if (limit.endsWith("%")) {
+            double percent = Double.parseDouble(limit.substring(0, limit.length() - 1));
+            return new ByteSizeValue((long) (((double) JvmInfo.jvmInfo().mem().heapMax().bytes()) * (percent / 100)));
+        }
+        return ByteSizeValue.parseBytesSizeValue(limit);
+    }
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            String limit = settings.get(CIRCUIT_BREAKER_LIMIT_SETTING, CircuitBreakerService.this.limit);
+            double overhead = settings.getAsDouble(CIRCUIT_BREAKER_OVERHEAD_SETTING, CircuitBreakerService.this.overhead);
+            if (!limit.equals(CircuitBreakerService.this.limit) || overhead != CircuitBreakerService.this.overhead) {
+                logger.info("updating [{}] from [{}] to [{}], [{}] from [{}] to [{}]", CIRCUIT_BREAKER_LIMIT_SETTING, CircuitBreakerService.this.limit, limit,
+                        CIRCUIT_BREAKER_OVERHEAD_SETTING, CircuitBreakerService.this.overhead, overhead);
+                CircuitBreakerService.this.limit = limit;
+                CircuitBreakerService.this.overhead = overhead;
+                breaker.setLimit(parseLimit(limit), overhead);
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.google.common.base.Objects;
 
 import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -45,8 +46,11 @@ public class RecoverySettings extends AbstractComponent {
         MetaData.addDynamicSettings("indices.recovery.compress");
         MetaData.addDynamicSettings("indices.recovery.concurrent_streams");
         MetaData.addDynamicSettings("indices.recovery.max_size_per_sec");
+        MetaData.addDynamicSettings("indices.recovery.max_bytes_per_sec");
     }
 
+    public static final ByteSizeValue DEFAULT_MAX_BYTES_PER_SEC = new ByteSizeValue(20, ByteSizeUnit.MB);
+
     private volatile ByteSizeValue fileChunkSize;
 
     private volatile boolean compress;
@@ -56,7 +60,7 @@ public class RecoverySettings extends AbstractComponent {
     private volatile int concurrentStreams;
     private final ThreadPoolExecutor concurrentStreamPool;
 
-    private volatile ByteSizeValue maxSizePerSec;
+    private volatile ByteSizeValue maxBytesPerSec;
     private volatile RateLimiter.SimpleRateLimiter rateLimiter;
 
     @Inject
@@ -71,15 +75,15 @@ public class RecoverySettings extends AbstractComponent {
         this.concurrentStreams = componentSettings.getAsInt("concurrent_streams", settings.getAsInt("index.shard.recovery.concurrent_streams", 3));
         this.concurrentStreamPool = EsExecutors.newScalingExecutorService(0, concurrentStreams, 60, TimeUnit.SECONDS, EsExecutors.daemonThreadFactory(settings, "[recovery_stream]"));
 
-        this.maxSizePerSec = componentSettings.getAsBytesSize("max_size_per_sec", new ByteSizeValue(0));
-        if (maxSizePerSec.bytes() <= 0) {
+        this.maxBytesPerSec = componentSettings.getAsBytesSize("max_bytes_per_sec", componentSettings.getAsBytesSize("max_size_per_sec", DEFAULT_MAX_BYTES_PER_SEC));
+        if (maxBytesPerSec.bytes() <= 0) {
             rateLimiter = null;
         } else {
-            rateLimiter = new RateLimiter.SimpleRateLimiter(maxSizePerSec.mbFrac());
+            rateLimiter = new RateLimiter.SimpleRateLimiter(maxBytesPerSec.mbFrac());
         }
 
-        logger.debug("using max_size_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
-                maxSizePerSec, concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
+        logger.debug("using max_bytes_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
+                maxBytesPerSec, concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
 
         nodeSettingsService.addListener(new ApplySettings());
     }
@@ -118,17 +122,34 @@ public class RecoverySettings extends AbstractComponent {
         return concurrentStreamPool;
     }
 
+    public ByteSizeValue maxBytesPerSec() {
+        return maxBytesPerSec;
+    }
+
+    @Nullable
     public RateLimiter rateLimiter() {
         return rateLimiter;
     }
 
+    /**
+     * Pauses the calling thread, if throttling is enabled, so the node wide recovery rate does not
+     * exceed <tt>indices.recovery.max_bytes_per_sec</tt>. Returns the time paused in nanoseconds.
+     */
+    public long maybePause(long bytes) {
+        RateLimiter rateLimiter = this.rateLimiter;
+        if (rateLimiter == null) {
+            return 0;
+        }
+        return rateLimiter.pause(bytes);
+    }
+
     class ApplySettings implements NodeSettingsService.Listener {
         @Override
         public void onRefreshSettings(Settings settings) {
-            ByteSizeValue maxSizePerSec = settings.getAsBytesSize("indices.recovery.max_size_per_sec", RecoverySettings.this.maxSizePerSec);
-            if (!Objects.equal(maxSizePerSec, RecoverySettings.this.maxSizePerSec)) {
-                logger.info("updating [indices.recovery.max_size_per_sec] from [{}] to [{}]", RecoverySettings.this.maxSizePerSec, maxSizePerSec);
-                RecoverySettings.this.maxSizePerSec = maxSizePerSec;
+            ByteSizeValue maxSizePerSec = settings.getAsBytesSize("indices.recovery.max_bytes_per_sec", settings.getAsBytesSize("indices.recovery.max_size_per_sec", RecoverySettings.this.maxBytesPerSec));
+            if (!Objects.equal(maxSizePerSec, RecoverySettings.this.maxBytesPerSec)) {
+                logger.info("updating [indices.recovery.max_bytes_per_sec] from [{}] to [{}]", RecoverySettings.this.maxBytesPerSec, maxSizePerSec);
+                RecoverySettings.this.maxBytesPerSec = maxSizePerSec;
                 if (maxSizePerSec.bytes() <= 0) {
                     rateLimiter = null;
                 } else if (rateLimiter != null) {
@@ -39,6 +39,7 @@ import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShardClosedException;
+import org.elasticsearch.index.shard.IndexShardNotStartedException;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.index.store.StoreFileMetaData;
@@ -51,6 +52,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -61,6 +63,7 @@ public class RecoverySource extends AbstractComponent {
 
     public static class Actions {
         public static final String START_RECOVERY = "index/shard/recovery/startRecovery";
+        public static final String COPY_SEGMENTS = "index/shard/recovery/copySegments";
     }
 
     private final TransportService transportService;
@@ -84,6 +87,7 @@ public class RecoverySource extends AbstractComponent {
         this.recoverySettings = recoverySettings;
 
         transportService.registerHandler(Actions.START_RECOVERY, new StartRecoveryTransportRequestHandler());
+        transportService.registerHandler(Actions.COPY_SEGMENTS, new CopySegmentsTransportRequestHandler());
         this.internalActionTimeout = componentSettings.getAsTime("internal_action_timeout", TimeValue.timeValueMinutes(15));
         this.internalActionLongTimeout = new TimeValue(internalActionTimeout.millis() * 2);
     }
@@ -116,115 +120,7 @@ public class RecoverySource extends AbstractComponent {
         shard.recover(new Engine.RecoveryHandler() {
             @Override
             public void phase1(final SnapshotIndexCommit snapshot) throws ElasticSearchException {
-                long totalSize = 0;
-                long existingTotalSize = 0;
-                try {
-                    StopWatch stopWatch = new StopWatch().start();
-
-                    for (String name : snapshot.getFiles()) {
-                        StoreFileMetaData md = shard.store().metaData(name);
-                        boolean useExisting = false;
-                        if (request.existingFiles().containsKey(name)) {
-                            // we don't compute checksum for segments, so always recover them
-                            if (!name.startsWith("segments") && md.isSame(request.existingFiles().get(name))) {
-                                response.phase1ExistingFileNames.add(name);
-                                response.phase1ExistingFileSizes.add(md.length());
-                                existingTotalSize += md.length();
-                                useExisting = true;
-                                if (logger.isTraceEnabled()) {
-                                    logger.trace("[{}][{}] recovery [phase1] to {}: not recovering [{}], exists in local store and has checksum [{}], size [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, md.checksum(), md.length());
-                                }
-                            }
-                        }
-                        if (!useExisting) {
-                            if (request.existingFiles().containsKey(name)) {
-                                logger.trace("[{}][{}] recovery [phase1] to {}: recovering [{}], exists in local store, but is different: remote [{}], local [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, request.existingFiles().get(name), md);
-                            } else {
-                                logger.trace("[{}][{}] recovery [phase1] to {}: recovering [{}], does not exists in remote", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name);
-                            }
-                            response.phase1FileNames.add(name);
-                            response.phase1FileSizes.add(md.length());
-                        }
-                        totalSize += md.length();
-                    }
-                    response.phase1TotalSize = totalSize;
-                    response.phase1ExistingTotalSize = existingTotalSize;
-
-                    logger.trace("[{}][{}] recovery [phase1] to {}: recovering_files [{}] with total_size [{}], reusing_files [{}] with total_size [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), response.phase1FileNames.size(), new ByteSizeValue(totalSize), response.phase1ExistingFileNames.size(), new ByteSizeValue(existingTotalSize));
-
-                    RecoveryFilesInfoRequest recoveryInfoFilesRequest = new RecoveryFilesInfoRequest(request.recoveryId(), request.shardId(), response.phase1FileNames, response.phase1FileSizes,
-                            response.phase1ExistingFileNames, response.phase1ExistingFileSizes, response.phase1TotalSize, response.phase1ExistingTotalSize);
-                    transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILES_INFO, recoveryInfoFilesRequest, TransportRequestOptions.options().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
-
-                    final CountDownLatch latch = new CountDownLatch(response.phase1FileNames.size());
-                    final AtomicReference<Exception> lastException = new AtomicReference<Exception>();
-                    for (final String name : response.phase1FileNames) {
-                        recoverySettings.concurrentStreamPool().execute(new Runnable() {
-                            @Override
-                            public void run() {
-                                IndexInput indexInput = null;
-                                try {
-                                    final int BUFFER_SIZE = (int) recoverySettings.fileChunkSize().bytes();
-                                    byte[] buf = new byte[BUFFER_SIZE];
-                                    StoreFileMetaData md = shard.store().metaData(name);
-                                    // TODO: maybe use IOContext.READONCE?
-                                    indexInput = shard.store().openInputRaw(name, IOContext.READ);
-                                    boolean shouldCompressRequest = recoverySettings.compress();
-                                    if (CompressorFactory.isCompressed(indexInput)) {
-                                        shouldCompressRequest = false;
-                                    }
-
-                                    long len = indexInput.length();
-                                    long readCount = 0;
-                                    while (readCount < len) {
-                                        if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
-                                            throw new IndexShardClosedException(shard.shardId());
-                                        }
-                                        int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
-                                        long position = indexInput.getFilePointer();
-
-                                        if (recoverySettings.rateLimiter() != null) {
-                                            recoverySettings.rateLimiter().pause(toRead);
-                                        }
-
-                                        indexInput.readBytes(buf, 0, toRead, false);
-                                        BytesArray content = new BytesArray(buf, 0, toRead);
-                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content),
-                                                TransportRequestOptions.options().withCompress(shouldCompressRequest).withLowType().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
-                                        readCount += toRead;
-                                    }
-                                } catch (Exception e) {
-                                    lastException.set(e);
-                                } finally {
-                                    if (indexInput != null) {
-                                        try {
-                                            indexInput.close();
-                                        } catch (IOException e) {
-                                            // ignore
-                                        }
-                                    }
-                                    latch.countDown();
-                                }
-                            }
-                        });
-                    }
-
-                    latch.await();
-
-                    if (lastException.get() != null) {
-                        throw lastException.get();
-                    }
-
-                    // now, set the clean files request
-                    Set<String> snapshotFiles = Sets.newHashSet(snapshot.getFiles());
-                    transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.CLEAN_FILES, new RecoveryCleanFilesRequest(request.recoveryId(), shard.shardId(), snapshotFiles), TransportRequestOptions.options().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
-
-                    stopWatch.stop();
-                    logger.trace("[{}][{}] recovery [phase1] to {}: took [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), stopWatch.totalTime());
-                    response.phase1Time = stopWatch.totalTime().millis();
-                } catch (Throwable e) {
-                    throw new RecoverFilesRecoveryException(request.shardId(), response.phase1FileNames.size(), new ByteSizeValue(totalSize), e);
-                }
+                sendFiles(shard, request, response, snapshot);
             }
 
             @Override
@@ -289,9 +185,7 @@ public class RecoverySource extends AbstractComponent {
                     totalOperations++;
                     if (ops >= recoverySettings.translogOps() || size >= recoverySettings.translogSize().bytes()) {
 
-                        if (recoverySettings.rateLimiter() != null) {
-                            recoverySettings.rateLimiter().pause(size);
-                        }
+                        recoverySettings.maybePause(size);
 
                         RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), operations);
                         transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withLowType().withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
@@ -302,6 +196,8 @@ public class RecoverySource extends AbstractComponent {
                 }
                 // send the leftover
                 if (!operations.isEmpty()) {
+                    recoverySettings.maybePause(size);
+
                     RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), operations);
                     transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withLowType().withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
                 }
@@ -311,6 +207,145 @@ public class RecoverySource extends AbstractComponent {
         return response;
     }
 
+    /**
+     * Copies the segments of the latest commit point of this (primary) shard to a started replica of an index using
+     * segment based replication.
+     */
+    private RecoveryResponse copySegments(final StartRecoveryRequest request) {
+        final InternalIndexShard shard = (InternalIndexShard) indicesService.indexServiceSafe(request.shardId().index().name()).shardSafe(request.shardId().id());
+        if (shard.state() != IndexShardState.STARTED) {
+            throw new IndexShardNotStartedException(shard.shardId(), shard.state());
+        }
+        logger.trace("[{}][{}] copying segments to {}", request.shardId().index().name(), request.shardId().id(), request.targetNode());
+        final RecoveryResponse response = new RecoveryResponse();
+        // the replica suspended before asking, so committing now makes the commit point include every operation it
+        // got up to then, which it drops from its translog once the copy is done
+        shard.engine().flush(new Engine.Flush().type(Engine.Flush.Type.COMMIT).waitIfOngoing(true));
+        SnapshotIndexCommit snapshot = shard.engine().snapshotIndex();
+        try {
+            sendFiles(shard, request, response, snapshot);
+        } finally {
+            snapshot.release();
+        }
+        return response;
+    }
+
+    /**
+     * Sends the files of the commit point that do not exist (or differ) on the target, and cleans the files on the
+     * target that are not part of it.
+     */
+    private void sendFiles(final InternalIndexShard shard, final StartRecoveryRequest request, final RecoveryResponse response, final SnapshotIndexCommit snapshot) throws ElasticSearchException {
+        long totalSize = 0;
+        long existingTotalSize = 0;
+        try {
+            StopWatch stopWatch = new StopWatch().start();
+
+            for (String name : snapshot.getFiles()) {
+                StoreFileMetaData md = shard.store().metaData(name);
+                boolean useExisting = false;
+                if (request.existingFiles().containsKey(name)) {
+                    // we don't compute checksum for segments, so always recover them
+                    if (!name.startsWith("segments") && md.isSame(request.existingFiles().get(name))) {
+                        response.phase1ExistingFileNames.add(name);
+                        response.phase1ExistingFileSizes.add(md.length());
+                        existingTotalSize += md.length();
+                        useExisting = true;
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("[{}][{}] recovery [phase1] to {}: not recovering [{}], exists in local store and has checksum [{}], size [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, md.checksum(), md.length());
+                        }
+                    }
+                }
+                if (!useExisting) {
+                    if (request.existingFiles().containsKey(name)) {
+                        logger.trace("[{}][{}] recovery [phase1] to {}: recovering [{}], exists in local store, but is different: remote [{}], local [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, request.existingFiles().get(name), md);
+                    } else {
+                        logger.trace("[{}][{}] recovery [phase1] to {}: recovering [{}], does not exists in remote", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name);
+                    }
+                    response.phase1FileNames.add(name);
+                    response.phase1FileSizes.add(md.length());
+                }
+                totalSize += md.length();
+            }
+            response.phase1TotalSize = totalSize;
+            response.phase1ExistingTotalSize = existingTotalSize;
+
+            logger.trace("[{}][{}] recovery [phase1] to {}: recovering_files [{}] with total_size [{}], reusing_files [{}] with total_size [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), response.phase1FileNames.size(), new ByteSizeValue(totalSize), response.phase1ExistingFileNames.size(), new ByteSizeValue(existingTotalSize));
+
+            RecoveryFilesInfoRequest recoveryInfoFilesRequest = new RecoveryFilesInfoRequest(request.recoveryId(), request.shardId(), response.phase1FileNames, response.phase1FileSizes,
+                    response.phase1ExistingFileNames, response.phase1ExistingFileSizes, response.phase1TotalSize, response.phase1ExistingTotalSize);
+            transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILES_INFO, recoveryInfoFilesRequest, TransportRequestOptions.options().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+
+            final CountDownLatch latch = new CountDownLatch(response.phase1FileNames.size());
+            final AtomicReference<Exception> lastException = new AtomicReference<Exception>();
+            final AtomicLong throttlingWaitTime = new AtomicLong();
+            for (final String name : response.phase1FileNames) {
+                recoverySettings.concurrentStreamPool().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        IndexInput indexInput = null;
+                        try {
+                            final int BUFFER_SIZE = (int) recoverySettings.fileChunkSize().bytes();
+                            byte[] buf = new byte[BUFFER_SIZE];
+                            StoreFileMetaData md = shard.store().metaData(name);
+                            // TODO: maybe use IOContext.READONCE?
+                            indexInput = shard.store().openInputRaw(name, IOContext.READ);
+                            boolean shouldCompressRequest = recoverySettings.compress();
+                            if (CompressorFactory.isCompressed(indexInput)) {
+                                shouldCompressRequest = false;
+                            }
+
+                            long len = indexInput.length();
+                            long readCount = 0;
+                            while (readCount < len) {
+                                if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
+                                    throw new IndexShardClosedException(shard.shardId());
+                                }
+                                int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
+                                long position = indexInput.getFilePointer();
+
+                                throttlingWaitTime.addAndGet(recoverySettings.maybePause(toRead));
+
+                                indexInput.readBytes(buf, 0, toRead, false);
+                                BytesArray content = new BytesArray(buf, 0, toRead);
+                                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content),
+                                        TransportRequestOptions.options().withCompress(shouldCompressRequest).withLowType().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                                readCount += toRead;
+                            }
+                        } catch (Exception e) {
+                            lastException.set(e);
+                        } finally {
+                            if (indexInput != null) {
+                                try {
+                                    indexInput.close();
+                                } catch (IOException e) {
+                                    // ignore
+                                }
+                            }
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+
+            latch.await();
+            response.phase1ThrottlingWaitTime = TimeValue.timeValueNanos(throttlingWaitTime.get()).millis();
+
+            if (lastException.get() != null) {
+                throw lastException.get();
+            }
+
+            // now, set the clean files request
+            Set<String> snapshotFiles = Sets.newHashSet(snapshot.getFiles());
+            transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.CLEAN_FILES, new RecoveryCleanFilesRequest(request.recoveryId(), shard.shardId(), snapshotFiles), TransportRequestOptions.options().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+
+            stopWatch.stop();
+            logger.trace("[{}][{}] recovery [phase1] to {}: took [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), stopWatch.totalTime());
+            response.phase1Time = stopWatch.totalTime().millis();
+        } catch (Throwable e) {
+            throw new RecoverFilesRecoveryException(request.shardId(), response.phase1FileNames.size(), new ByteSizeValue(totalSize), e);
+        }
+    }
+
     class StartRecoveryTransportRequestHandler extends BaseTransportRequestHandler<StartRecoveryRequest> {
 
         @Override
@@ -329,5 +364,23 @@ public class RecoverySource extends AbstractComponent {
             channel.sendResponse(response);
         }
     }
-}
 
+    class CopySegmentsTransportRequestHandler extends BaseTransportRequestHandler<StartRecoveryRequest> {
+
+        @Override
+        public StartRecoveryRequest newInstance() {
+            return new StartRecoveryRequest();
+        }
+
+        @Override
+        public String executor() {
+            return ThreadPool.Names.GENERIC;
+        }
+
+        @Override
+        public void messageReceived(final StartRecoveryRequest request, final TransportChannel channel) throws Exception {
+            RecoveryResponse response = copySegments(request);
+            channel.sendResponse(response);
+        }
+    }
+}
@@ -70,6 +70,7 @@ public class RecoveryStatus {
     volatile Stage stage = Stage.INIT;
     volatile long currentTranslogOperations = 0;
     AtomicLong currentFilesSize = new AtomicLong();
+    AtomicLong throttleTimeInNanos = new AtomicLong();
 
     public long startTime() {
         return startTime;
@@ -98,4 +99,11 @@ public class RecoveryStatus {
     public long currentFilesSize() {
         return currentFilesSize.get();
     }
+
+    /**
+     * The time (in nanos) writing recovered files was paused because of recovery throttling.
+     */
+    public long throttleTimeInNanos() {
+        return throttleTimeInNanos.get();
+    }
 }
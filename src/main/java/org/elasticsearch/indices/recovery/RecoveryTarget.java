@@ -22,6 +22,7 @@ package org.elasticsearch.indices.recovery;
 import com.google.common.collect.Sets;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
@@ -174,6 +175,42 @@ public class RecoveryTarget extends AbstractComponent {
         });
     }
 
+    /**
+     * Copies the segments of the primary shard over to the (started) local replica shard of an index using segment
+     * based replication. The engine is suspended while the files are copied, and the operations that are now part
+     * of the copied segments are trimmed from its translog once done.
+     */
+    public void copySegments(final StartRecoveryRequest request, final InternalIndexShard indexShard) throws ElasticSearchException {
+        if (indexShard.state() != IndexShardState.STARTED) {
+            throw new IndexShardNotStartedException(indexShard.shardId(), indexShard.state());
+        }
+        RecoveryStatus recoveryStatus = new RecoveryStatus(request.recoveryId(), indexShard);
+        recoveryStatus.stage = RecoveryStatus.Stage.INDEX;
+        onGoingRecoveries.put(recoveryStatus.recoveryId, recoveryStatus);
+        boolean copied = false;
+        try {
+            indexShard.engine().suspendForSegmentCopy();
+            try {
+                StopWatch stopWatch = new StopWatch().start();
+                RecoveryResponse recoveryResponse = transportService.submitRequest(request.sourceNode(), RecoverySource.Actions.COPY_SEGMENTS, request, new FutureTransportResponseHandler<RecoveryResponse>() {
+                    @Override
+                    public RecoveryResponse newInstance() {
+                        return new RecoveryResponse();
+                    }
+                }).txGet();
+                stopWatch.stop();
+                copied = true;
+                logger.trace("[{}][{}] copied [{}] segment files with total_size of [{}] from {}, reused [{}], took [{}]", request.shardId().index().name(), request.shardId().id(),
+                        recoveryResponse.phase1FileNames.size(), new ByteSizeValue(recoveryResponse.phase1TotalSize - recoveryResponse.phase1ExistingTotalSize), request.sourceNode(),
+                        recoveryResponse.phase1ExistingFileNames.size(), stopWatch.totalTime());
+            } finally {
+                indexShard.engine().resumeAfterSegmentCopy(copied);
+            }
+        } finally {
+            removeAndCleanOnGoingRecovery(recoveryStatus);
+        }
+    }
+
     private void doRecovery(final StartRecoveryRequest request, final RecoveryStatus recoveryStatus, final RecoveryListener listener) {
         if (request.sourceNode() == null) {
             listener.onIgnoreRecovery(false, "No node to recover from, retry on next cluster state update");
@@ -621,9 +658,7 @@ public class RecoveryTarget extends AbstractComponent {
             }
             synchronized (indexOutput) {
                 try {
-                    if (recoverySettings.rateLimiter() != null) {
-                        recoverySettings.rateLimiter().pause(request.content().length());
-                    }
+                    onGoingRecovery.throttleTimeInNanos.addAndGet(recoverySettings.maybePause(request.content().length()));
                     BytesReference content = request.content();
                     if (!content.hasArray()) {
                         content = content.toBytesArray();
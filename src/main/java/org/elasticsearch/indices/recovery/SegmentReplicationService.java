@@ -0,0 +1,185 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+/**
+ * A node level service that periodically copies the segments of the primary shards to the started replica shards
+ * allocated on this node, for indices that use segment based replication (<tt>index.replication.mode</tt> set to
+ * <tt>segment</tt>). Replica shards of such indices only log replicated operations to the translog.
+ */
+public class SegmentReplicationService extends AbstractLifecycleComponent<SegmentReplicationService> {
+
+    static {
+        MetaData.addDynamicSettings(
+                "indices.recovery.segment_copy_interval"
+        );
+    }
+
+    private final ClusterService clusterService;
+    private final IndicesService indicesService;
+    private final RecoveryTarget recoveryTarget;
+
+    private volatile TimeValue interval;
+    private CopierThread copierThread;
+
+    @Inject
+    public SegmentReplicationService(Settings settings, ClusterService clusterService, IndicesService indicesService, RecoveryTarget recoveryTarget,
+                                     NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.clusterService = clusterService;
+        this.indicesService = indicesService;
+        this.recoveryTarget = recoveryTarget;
+        this.interval = componentSettings.getAsTime("segment_copy_interval", TimeValue.timeValueSeconds(1));
+
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    @Override
+    protected void doStart() throws ElasticSearchException {
+        this.copierThread = new CopierThread(EsExecutors.threadName(settings, "[segment_copy]"));
+        this.copierThread.start();
+    }
+
+    @Override
+    protected void doStop() throws ElasticSearchException {
+        this.copierThread.doStop();
+        this.copierThread.interrupt();
+    }
+
+    @Override
+    protected void doClose() throws ElasticSearchException {
+    }
+
+    private class CopierThread extends Thread {
+        volatile boolean running = true;
+
+        public CopierThread(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        public void doStop() {
+            running = false;
+        }
+
+        public void run() {
+            while (running) {
+                try {
+                    copySegments();
+                } catch (Throwable e) {
+                    if (running) {
+                        logger.warn("failed to copy segments", e);
+                    }
+                }
+                try {
+                    Thread.sleep(interval.millis());
+                } catch (InterruptedException e) {
+                    // ignore, if we are interrupted because we are shutting down, running will be false
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the segments to the local started replica shards of the indices using segment based replication.
+     */
+    private void copySegments() {
+        ClusterState state = clusterService.state();
+        for (IndexService indexService : indicesService) {
+            IndexMetaData indexMetaData = state.metaData().index(indexService.index().name());
+            if (indexMetaData == null) {
+                continue;
+            }
+            if (!"segment".equals(indexMetaData.settings().get(IndexMetaData.SETTING_REPLICATION_MODE, "document"))) {
+                continue;
+            }
+            IndexRoutingTable indexRoutingTable = state.routingTable().index(indexMetaData.index());
+            if (indexRoutingTable == null) {
+                continue;
+            }
+            for (IndexShard indexShard : indexService) {
+                if (!running()) {
+                    return;
+                }
+                if (indexShard.state() != IndexShardState.STARTED || indexShard.routingEntry().primary() || !indexShard.routingEntry().started()) {
+                    continue;
+                }
+                InternalIndexShard shard = (InternalIndexShard) indexShard;
+                if (!shard.engine().hasPendingSegmentCopyOperations()) {
+                    continue;
+                }
+                IndexShardRoutingTable shardRoutingTable = indexRoutingTable.shard(indexShard.shardId().id());
+                if (shardRoutingTable == null) {
+                    continue;
+                }
+                ShardRouting primary = shardRoutingTable.primaryShard();
+                if (primary == null || !primary.active()) {
+                    continue;
+                }
+                DiscoveryNode primaryNode = state.nodes().get(primary.currentNodeId());
+                if (primaryNode == null) {
+                    continue;
+                }
+                try {
+                    StartRecoveryRequest request = new StartRecoveryRequest(shard.shardId(), primaryNode, state.nodes().localNode(), false, shard.store().list());
+                    recoveryTarget.copySegments(request, shard);
+                } catch (Exception e) {
+                    logger.debug("[{}][{}] failed to copy segments from {}", e, shard.shardId().index().name(), shard.shardId().id(), primaryNode);
+                }
+            }
+        }
+    }
+
+    private boolean running() {
+        return copierThread != null && copierThread.running;
+    }
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            TimeValue interval = settings.getAsTime("indices.recovery.segment_copy_interval", SegmentReplicationService.this.interval);
+            if (!interval.equals(SegmentReplicationService.this.interval)) {
+                logger.info("updating indices.recovery.segment_copy_interval from [{}] to [{}]", SegmentReplicationService.this.interval, interval);
+                SegmentReplicationService.this.interval = interval;
+            }
+        }
+    }
+}
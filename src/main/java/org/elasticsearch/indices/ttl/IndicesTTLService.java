@@ -20,21 +20,33 @@
 package org.elasticsearch.indices.ttl;
 
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.deletebyquery.ShardDeleteByQueryRequest;
+import org.elasticsearch.action.deletebyquery.TransportShardDeleteByQueryAction;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.uid.UidField;
 import org.elasticsearch.common.settings.Settings;
@@ -57,16 +69,26 @@ import org.elasticsearch.node.settings.NodeSettingsService;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
 
 /**
  * A node level service that delete expired docs on node primary shards.
+ * <p/>
+ * The <tt>indices.ttl.purge_strategy</tt> setting controls how expired docs are deleted. The default <tt>bulk</tt>
+ * strategy loads the uid of every expired doc and deletes them using versioned bulk deletes. The <tt>range</tt>
+ * strategy deletes the expired docs of a shard with a delete by query request on a range of the <tt>_ttl</tt> field,
+ * without loading them, and segments where all docs expired get dropped as a whole by Lucene once the deletes
+ * are applied. Both strategies can be throttled using <tt>indices.ttl.max_docs_per_sec</tt>, the <tt>range</tt>
+ * strategy deleting at most a purge interval worth of docs per shard in each purge run.
  */
 public class IndicesTTLService extends AbstractLifecycleComponent<IndicesTTLService> {
 
     static {
         MetaData.addDynamicSettings(
-                "indices.ttl.interval"
+                "indices.ttl.interval",
+                "indices.ttl.max_docs_per_sec"
         );
 
         IndexMetaData.addDynamicSettings(
@@ -74,22 +96,45 @@ public class IndicesTTLService extends AbstractLifecycleComponent<IndicesTTLServ
         );
     }
 
+    public static enum PurgeStrategy {
+        BULK,
+        RANGE;
+
+        public static PurgeStrategy fromString(String purgeStrategy) {
+            if ("bulk".equals(purgeStrategy)) {
+                return BULK;
+            } else if ("range".equals(purgeStrategy)) {
+                return RANGE;
+            }
+            throw new ElasticSearchIllegalArgumentException("No ttl purge strategy match [" + purgeStrategy + "]");
+        }
+    }
+
     private final ClusterService clusterService;
     private final IndicesService indicesService;
     private final Client client;
+    private final TransportShardDeleteByQueryAction shardDeleteByQueryAction;
 
     private volatile TimeValue interval;
     private final int bulkSize;
+    private final PurgeStrategy purgeStrategy;
+    private volatile int maxDocsPerSec;
     private PurgerThread purgerThread;
 
     @Inject
-    public IndicesTTLService(Settings settings, ClusterService clusterService, IndicesService indicesService, NodeSettingsService nodeSettingsService, Client client) {
+    public IndicesTTLService(Settings settings, ClusterService clusterService, IndicesService indicesService, NodeSettingsService nodeSettingsService, Client client,
+                             TransportShardDeleteByQueryAction shardDeleteByQueryAction) {
         super(settings);
         this.clusterService = clusterService;
         this.indicesService = indicesService;
         this.client = client;
+        this.shardDeleteByQueryAction = shardDeleteByQueryAction;
         this.interval = componentSettings.getAsTime("interval", TimeValue.timeValueSeconds(60));
         this.bulkSize = componentSettings.getAsInt("bulk_size", 10000);
+        this.purgeStrategy = PurgeStrategy.fromString(componentSettings.get("purge_strategy", "bulk"));
+        this.maxDocsPerSec = componentSettings.getAsInt("max_docs_per_sec", 0);
+
+        logger.debug("using purge_strategy [{}], interval [{}], max_docs_per_sec [{}]", purgeStrategy, interval, maxDocsPerSec);
 
         nodeSettingsService.addListener(new ApplySettings());
     }
@@ -185,19 +230,25 @@ public class IndicesTTLService extends AbstractLifecycleComponent<IndicesTTLServ
 
     private void purgeShards(List<IndexShard> shardsToPurge) {
         for (IndexShard shardToPurge : shardsToPurge) {
-            Query query = NumericRangeQuery.newLongRange(TTLFieldMapper.NAME, null, System.currentTimeMillis(), false, true);
             Engine.Searcher searcher = shardToPurge.searcher();
             try {
                 logger.debug("[{}][{}] purging shard", shardToPurge.routingEntry().index(), shardToPurge.routingEntry().id());
-                ExpiredDocsCollector expiredDocsCollector = new ExpiredDocsCollector(shardToPurge.routingEntry().index());
-                searcher.searcher().search(query, expiredDocsCollector);
-                List<DocToPurge> docsToPurge = expiredDocsCollector.getDocsToPurge();
-                BulkRequestBuilder bulkRequest = client.prepareBulk();
-                for (DocToPurge docToPurge : docsToPurge) {
-                    bulkRequest.add(new DeleteRequest().index(shardToPurge.routingEntry().index()).type(docToPurge.type).id(docToPurge.id).version(docToPurge.version).routing(docToPurge.routing));
-                    bulkRequest = processBulkIfNeeded(bulkRequest, false);
+                long now = System.currentTimeMillis();
+                long minTtl = minLiveTtl(searcher.reader());
+                if (minTtl > now) {
+                    // nothing expired
+                    continue;
                 }
-                processBulkIfNeeded(bulkRequest, true);
+                long startTime = System.nanoTime();
+                long purged;
+                int fullyExpiredSegments = 0;
+                if (purgeStrategy == PurgeStrategy.RANGE) {
+                    fullyExpiredSegments = countFullyExpiredSegments(searcher, now);
+                    purged = purgeRanges(shardToPurge, searcher, minTtl, now);
+                } else {
+                    purged = purgeBulk(shardToPurge, searcher, now);
+                }
+                shardToPurge.indexingService().ttlPurge(purged, System.nanoTime() - startTime, fullyExpiredSegments, now - minTtl);
             } catch (Exception e) {
                 logger.warn("failed to purge", e);
             } finally {
@@ -206,6 +257,126 @@ public class IndicesTTLService extends AbstractLifecycleComponent<IndicesTTLServ
         }
     }
 
+    private long purgeBulk(IndexShard shardToPurge, Engine.Searcher searcher, long now) throws IOException {
+        Query query = NumericRangeQuery.newLongRange(TTLFieldMapper.NAME, null, now, false, true);
+        ExpiredDocsCollector expiredDocsCollector = new ExpiredDocsCollector(shardToPurge.routingEntry().index());
+        searcher.searcher().search(query, expiredDocsCollector);
+        List<DocToPurge> docsToPurge = expiredDocsCollector.getDocsToPurge();
+        BulkRequestBuilder bulkRequest = client.prepareBulk();
+        long bulkStartTime = System.nanoTime();
+        for (DocToPurge docToPurge : docsToPurge) {
+            bulkRequest.add(new DeleteRequest().index(shardToPurge.routingEntry().index()).type(docToPurge.type).id(docToPurge.id).version(docToPurge.version).routing(docToPurge.routing));
+            int numberOfActions = bulkRequest.numberOfActions();
+            bulkRequest = processBulkIfNeeded(bulkRequest, false);
+            if (bulkRequest.numberOfActions() == 0) {
+                throttle(numberOfActions, bulkStartTime);
+                bulkStartTime = System.nanoTime();
+            }
+        }
+        processBulkIfNeeded(bulkRequest, true);
+        return docsToPurge.size();
+    }
+
+    /**
+     * Deletes the docs of the shard that expired in <tt>[minTtl, now]</tt> with a single delete by query request on
+     * a range of the <tt>_ttl</tt> field, which is replicated like any other delete by query. Each delete by query
+     * refreshes the shard, so a purge run sends only one per shard. When throttled, the range is cut to about the
+     * docs allowed for one purge interval, the next runs picking up the rest, and the throttle pauses after it.
+     */
+    private long purgeRanges(IndexShard shardToPurge, Engine.Searcher searcher, long minTtl, long now) throws IOException {
+        long upper = now;
+        int maxDocsPerSec = this.maxDocsPerSec;
+        if (maxDocsPerSec > 0) {
+            long maxDocs = Math.max(1, maxDocsPerSec * interval.millis() / 1000);
+            long expired = countExpired(searcher, minTtl, now);
+            if (expired > maxDocs) {
+                // assumes the expired docs are spread evenly, the actual count of the range is what gets throttled
+                upper = minTtl + Math.max(1, (now - minTtl + 1) * maxDocs / expired) - 1;
+            }
+        }
+        long startTime = System.nanoTime();
+        long count = countExpired(searcher, minTtl, upper);
+        if (count == 0) {
+            return 0;
+        }
+        BytesReference querySource = rangeQuery(TTLFieldMapper.NAME).from(minTtl).to(upper).includeLower(true).includeUpper(true).buildAsBytes();
+        shardDeleteByQueryAction.execute(new ShardDeleteByQueryRequest(shardToPurge.routingEntry().index(), querySource, shardToPurge.routingEntry().id())).actionGet();
+        throttle(count, startTime);
+        return count;
+    }
+
+    private long countExpired(Engine.Searcher searcher, long from, long to) throws IOException {
+        TotalHitCountCollector collector = new TotalHitCountCollector();
+        searcher.searcher().search(NumericRangeQuery.newLongRange(TTLFieldMapper.NAME, from, to, true, true), collector);
+        return collector.getTotalHits();
+    }
+
+    private int countFullyExpiredSegments(Engine.Searcher searcher, long now) throws IOException {
+        List<AtomicReaderContext> leaves = searcher.reader().leaves();
+        SegmentExpiredDocsCollector collector = new SegmentExpiredDocsCollector(leaves.size());
+        searcher.searcher().search(NumericRangeQuery.newLongRange(TTLFieldMapper.NAME, null, now, false, true), collector);
+        int fullyExpiredSegments = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            int numDocs = leaf.reader().numDocs();
+            if (numDocs > 0 && collector.expiredDocs[leaf.ord] == numDocs) {
+                fullyExpiredSegments++;
+            }
+        }
+        return fullyExpiredSegments;
+    }
+
+    /**
+     * Returns the smallest <tt>_ttl</tt> of a live doc, or {@link Long#MAX_VALUE} if there is none. The full
+     * precision terms sort before the lower precision ones, so only the first terms of each segment are visited,
+     * skipping the ones only held by deleted docs.
+     */
+    private long minLiveTtl(IndexReader reader) throws IOException {
+        long minTtl = Long.MAX_VALUE;
+        DocsEnum docsEnum = null;
+        for (AtomicReaderContext context : reader.leaves()) {
+            Terms terms = context.reader().terms(TTLFieldMapper.NAME);
+            if (terms == null) {
+                continue;
+            }
+            Bits liveDocs = context.reader().getLiveDocs();
+            TermsEnum termsEnum = terms.iterator(null);
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                if (NumericUtils.getPrefixCodedLongShift(term) != 0) {
+                    break;
+                }
+                long ttl = NumericUtils.prefixCodedToLong(term);
+                if (ttl >= minTtl) {
+                    break;
+                }
+                docsEnum = termsEnum.docs(liveDocs, docsEnum, 0);
+                if (docsEnum.nextDoc() != DocsEnum.NO_MORE_DOCS) {
+                    minTtl = ttl;
+                    break;
+                }
+            }
+        }
+        return minTtl;
+    }
+
+    /**
+     * Pauses so that deleting <tt>docs</tt> since <tt>startTime</tt> does not go over <tt>indices.ttl.max_docs_per_sec</tt>.
+     */
+    private void throttle(long docs, long startTime) {
+        int maxDocsPerSec = this.maxDocsPerSec;
+        if (maxDocsPerSec <= 0) {
+            return;
+        }
+        long sleepMillis = docs * 1000 / maxDocsPerSec - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                // we are shutting down, stop throttling
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private static class DocToPurge {
         public final String type;
         public final String id;
@@ -257,6 +428,30 @@ public class IndicesTTLService extends AbstractLifecycleComponent<IndicesTTLServ
         }
     }
 
+    private static class SegmentExpiredDocsCollector extends Collector {
+        private final int[] expiredDocs;
+        private int ord;
+
+        public SegmentExpiredDocsCollector(int numSegments) {
+            this.expiredDocs = new int[numSegments];
+        }
+
+        public void setScorer(Scorer scorer) {
+        }
+
+        public boolean acceptsDocsOutOfOrder() {
+            return true;
+        }
+
+        public void collect(int doc) {
+            expiredDocs[ord]++;
+        }
+
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            this.ord = context.ord;
+        }
+    }
+
     private BulkRequestBuilder processBulkIfNeeded(BulkRequestBuilder bulkRequest, boolean force) {
         if ((force && bulkRequest.numberOfActions() > 0) || bulkRequest.numberOfActions() >= bulkSize) {
             try {
@@ -287,6 +482,11 @@ public class IndicesTTLService extends AbstractLifecycleComponent<IndicesTTLServ
                 logger.info("updating indices.ttl.interval from [{}] to [{}]", IndicesTTLService.this.interval, interval);
                 IndicesTTLService.this.interval = interval;
             }
+            int maxDocsPerSec = settings.getAsInt("indices.ttl.max_docs_per_sec", IndicesTTLService.this.maxDocsPerSec);
+            if (maxDocsPerSec != IndicesTTLService.this.maxDocsPerSec) {
+                logger.info("updating indices.ttl.max_docs_per_sec from [{}] to [{}]", IndicesTTLService.this.maxDocsPerSec, maxDocsPerSec);
+                IndicesTTLService.this.maxDocsPerSec = maxDocsPerSec;
+            }
         }
     }
 }
\ No newline at end of file
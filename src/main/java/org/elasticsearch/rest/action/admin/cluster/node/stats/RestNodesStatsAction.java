@@ -99,6 +99,12 @@ public class RestNodesStatsAction extends BaseRestHandler {
         controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/stats/http", httpHandler);
         controller.registerHandler(RestRequest.Method.GET, "/_nodes/http/stats", httpHandler);
         controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/http/stats", httpHandler);
+
+        RestAdaptiveSelectionHandler adaptiveSelectionHandler = new RestAdaptiveSelectionHandler();
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/stats/adaptive_selection", adaptiveSelectionHandler);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/stats/adaptive_selection", adaptiveSelectionHandler);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/adaptive_selection/stats", adaptiveSelectionHandler);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/adaptive_selection/stats", adaptiveSelectionHandler);
     }
 
     @Override
@@ -122,6 +128,7 @@ public class RestNodesStatsAction extends BaseRestHandler {
         nodesStatsRequest.fs(request.paramAsBoolean("fs", nodesStatsRequest.fs()));
         nodesStatsRequest.transport(request.paramAsBoolean("transport", nodesStatsRequest.transport()));
         nodesStatsRequest.http(request.paramAsBoolean("http", nodesStatsRequest.http()));
+        nodesStatsRequest.adaptiveSelection(request.paramAsBoolean("adaptive_selection", nodesStatsRequest.adaptiveSelection()));
         executeNodeStats(request, channel, nodesStatsRequest);
     }
 
@@ -232,4 +239,13 @@ public class RestNodesStatsAction extends BaseRestHandler {
             executeNodeStats(request, channel, nodesStatsRequest);
         }
     }
+
+    class RestAdaptiveSelectionHandler implements RestHandler {
+        @Override
+        public void handleRequest(final RestRequest request, final RestChannel channel) {
+            NodesStatsRequest nodesStatsRequest = new NodesStatsRequest(RestActions.splitNodes(request.param("nodeId")));
+            nodesStatsRequest.clear().adaptiveSelection(true);
+            executeNodeStats(request, channel, nodesStatsRequest);
+        }
+    }
 }
\ No newline at end of file
@@ -100,6 +100,8 @@ public class RestBulkAction extends BaseRestHandler {
                     XContentBuilder builder = restContentBuilder(request);
                     builder.startObject();
                     builder.field(Fields.TOOK, response.tookInMillis());
+                    builder.field(Fields.PRIMARY_TOOK, response.primaryTookInMillis());
+                    builder.field(Fields.REPLICATION_TOOK, response.replicationTookInMillis());
                     builder.startArray(Fields.ITEMS);
                     for (BulkItemResponse itemResponse : response) {
                         builder.startObject();
@@ -157,6 +159,8 @@ public class RestBulkAction extends BaseRestHandler {
         static final XContentBuilderString ERROR = new XContentBuilderString("error");
         static final XContentBuilderString OK = new XContentBuilderString("ok");
         static final XContentBuilderString TOOK = new XContentBuilderString("took");
+        static final XContentBuilderString PRIMARY_TOOK = new XContentBuilderString("primary_took");
+        static final XContentBuilderString REPLICATION_TOOK = new XContentBuilderString("replication_took");
         static final XContentBuilderString _VERSION = new XContentBuilderString("_version");
         static final XContentBuilderString MATCHES = new XContentBuilderString("matches");
     }
@@ -72,13 +72,10 @@ public class RestGetAction extends BaseRestHandler {
             public void onResponse(GetResponse response) {
 
                 try {
-                    XContentBuilder builder = restContentBuilder(request);
+                    RestStatus status = response.exists() ? OK : NOT_FOUND;
+                    XContentBuilder builder = restContentBuilder(request, channel, status);
                     response.toXContent(builder, request);
-                    if (!response.exists()) {
-                        channel.sendResponse(new XContentRestResponse(request, NOT_FOUND, builder));
-                    } else {
-                        channel.sendResponse(new XContentRestResponse(request, OK, builder));
-                    }
+                    channel.sendResponse(new XContentRestResponse(request, status, builder));
                 } catch (Exception e) {
                     onFailure(e);
                 }
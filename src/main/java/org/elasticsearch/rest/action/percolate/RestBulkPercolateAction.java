@@ -0,0 +1,127 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.percolate;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.percolate.BulkPercolateRequest;
+import org.elasticsearch.action.percolate.BulkPercolateResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.rest.*;
+
+import java.io.IOException;
+
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+import static org.elasticsearch.rest.RestRequest.Method.PUT;
+import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
+import static org.elasticsearch.rest.RestStatus.OK;
+import static org.elasticsearch.rest.action.support.RestXContentBuilder.restContentBuilder;
+
+/**
+ * <pre>
+ * { "percolate" : { "_type" : "type1" } }
+ * { "doc" : { "field1" : "value1" } }
+ * </pre>
+ */
+public class RestBulkPercolateAction extends BaseRestHandler {
+
+    @Inject
+    public RestBulkPercolateAction(Settings settings, Client client, RestController controller) {
+        super(settings, client);
+        controller.registerHandler(POST, "/{index}/_bulk_percolate", this);
+        controller.registerHandler(PUT, "/{index}/_bulk_percolate", this);
+        controller.registerHandler(POST, "/{index}/{type}/_bulk_percolate", this);
+        controller.registerHandler(PUT, "/{index}/{type}/_bulk_percolate", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel) {
+        BulkPercolateRequest bulkPercolateRequest = new BulkPercolateRequest(request.param("index"));
+        try {
+            bulkPercolateRequest.add(request.content(), request.contentUnsafe(), request.param("type"));
+        } catch (Exception e) {
+            try {
+                XContentBuilder builder = restContentBuilder(request);
+                channel.sendResponse(new XContentRestResponse(request, BAD_REQUEST, builder.startObject().field("error", e.getMessage()).endObject()));
+            } catch (IOException e1) {
+                logger.error("Failed to send failure response", e1);
+            }
+            return;
+        }
+
+        // we just send a response, no need to fork
+        bulkPercolateRequest.listenerThreaded(false);
+        // we don't spawn, then fork if local
+        bulkPercolateRequest.operationThreaded(true);
+
+        bulkPercolateRequest.preferLocal(request.paramAsBoolean("prefer_local", bulkPercolateRequest.preferLocalShard()));
+        client.bulkPercolate(bulkPercolateRequest, new ActionListener<BulkPercolateResponse>() {
+            @Override
+            public void onResponse(BulkPercolateResponse response) {
+                try {
+                    XContentBuilder builder = restContentBuilder(request);
+                    builder.startObject();
+
+                    builder.field(Fields.OK, true);
+                    builder.startArray(Fields.ITEMS);
+                    for (BulkPercolateResponse.Item item : response) {
+                        builder.startObject();
+                        if (item.failed()) {
+                            builder.field(Fields.ERROR, item.failureMessage());
+                        } else {
+                            builder.startArray(Fields.MATCHES);
+                            for (String match : item.matches()) {
+                                builder.value(match);
+                            }
+                            builder.endArray();
+                        }
+                        builder.endObject();
+                    }
+                    builder.endArray();
+
+                    builder.endObject();
+
+                    channel.sendResponse(new XContentRestResponse(request, OK, builder));
+                } catch (Exception e) {
+                    onFailure(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                try {
+                    channel.sendResponse(new XContentThrowableRestResponse(request, e));
+                } catch (IOException e1) {
+                    logger.error("Failed to send failure response", e1);
+                }
+            }
+        });
+    }
+
+    static final class Fields {
+        static final XContentBuilderString OK = new XContentBuilderString("ok");
+        static final XContentBuilderString ITEMS = new XContentBuilderString("items");
+        static final XContentBuilderString MATCHES = new XContentBuilderString("matches");
+        static final XContentBuilderString ERROR = new XContentBuilderString("error");
+    }
+}
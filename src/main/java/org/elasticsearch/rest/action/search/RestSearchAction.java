@@ -93,7 +93,7 @@ public class RestSearchAction extends BaseRestHandler {
             @Override
             public void onResponse(SearchResponse response) {
                 try {
-                    XContentBuilder builder = restContentBuilder(request);
+                    XContentBuilder builder = restContentBuilder(request, channel, response.status());
                     builder.startObject();
                     response.toXContent(builder, request);
                     builder.endObject();
@@ -208,6 +208,12 @@ public class RestSearchAction extends BaseRestHandler {
             }
             searchSourceBuilder.timeout(request.paramAsTime("timeout", null));
         }
+        if (request.hasParam("terminate_after")) {
+            if (searchSourceBuilder == null) {
+                searchSourceBuilder = new SearchSourceBuilder();
+            }
+            searchSourceBuilder.terminateAfter(request.paramAsInt("terminate_after", -1));
+        }
 
         String sField = request.param("fields");
         if (sField != null) {
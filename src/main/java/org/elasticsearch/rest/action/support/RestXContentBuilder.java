@@ -25,9 +25,13 @@ import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
 import org.elasticsearch.common.xcontent.*;
+import org.elasticsearch.http.HttpChannel;
+import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  *
@@ -35,6 +39,30 @@ import java.io.IOException;
 public class RestXContentBuilder {
 
     public static XContentBuilder restContentBuilder(RestRequest request) throws IOException {
+        XContentType contentType = contentType(request);
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+        return configure(request, new XContentBuilder(XContentFactory.xContent(contentType), cachedEntry.bytes(), cachedEntry));
+    }
+
+    /**
+     * Creates a builder for a response with the provided status, that streams the content to the channel as it is
+     * generated if the channel supports it, instead of building all of it in memory. The builder must be sent using
+     * an {@link org.elasticsearch.rest.XContentRestResponse} with the same status.
+     */
+    public static XContentBuilder restContentBuilder(RestRequest request, RestChannel channel, RestStatus status) throws IOException {
+        // jsonp responses are wrapped with the callback, keep building them in memory
+        if (!(channel instanceof HttpChannel) || request.hasParam("callback")) {
+            return restContentBuilder(request);
+        }
+        XContentType contentType = contentType(request);
+        OutputStream chunkedStream = ((HttpChannel) channel).chunkedContentStream(status, contentType.restContentType());
+        if (chunkedStream == null) {
+            return restContentBuilder(request);
+        }
+        return configure(request, new XContentBuilder(XContentFactory.xContent(contentType), chunkedStream, chunkedStream));
+    }
+
+    private static XContentType contentType(RestRequest request) {
         XContentType contentType = XContentType.fromRestContentType(request.param("format", request.header("Content-Type")));
         if (contentType == null) {
             // try and guess it from the body, if exists
@@ -46,8 +74,10 @@ public class RestXContentBuilder {
             // default to JSON
             contentType = XContentType.JSON;
         }
-        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
-        XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(contentType), cachedEntry.bytes(), cachedEntry);
+        return contentType;
+    }
+
+    private static XContentBuilder configure(RestRequest request, XContentBuilder builder) {
         if (request.paramAsBoolean("pretty", false)) {
             builder.prettyPrint();
         }
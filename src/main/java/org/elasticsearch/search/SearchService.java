@@ -44,6 +44,7 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.request.IndicesRequestCache;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.dfs.CachedDfSource;
@@ -86,6 +87,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final FetchPhase fetchPhase;
 
+    private final IndicesRequestCache indicesRequestCache;
 
     private final long defaultKeepAlive;
 
@@ -102,7 +104,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     @Inject
     public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, ThreadPool threadPool,
-                         ScriptService scriptService, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
+                         ScriptService scriptService, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase, IndicesRequestCache indicesRequestCache) {
         super(settings);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
@@ -112,6 +114,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         this.dfsPhase = dfsPhase;
         this.queryPhase = queryPhase;
         this.fetchPhase = fetchPhase;
+        this.indicesRequestCache = indicesRequestCache;
 
         TimeValue keepAliveInterval = componentSettings.getAsTime("keep_alive_interval", timeValueMinutes(1));
         // we can have 5 minutes here, since we make sure to clean with search requests and when shard/index closes
@@ -239,7 +242,16 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
             contextProcessing(context);
+            IndicesRequestCache.Key cacheKey = requestCacheKey(request, context);
+            QuerySearchResult cachedResult = requestCacheGet(cacheKey);
+            if (cachedResult != null) {
+                cachedResult.shardTarget(context.shardTarget());
+                freeContext(context.id());
+                context.indexShard().searchService().onQueryPhase(context, System.nanoTime() - time);
+                return cachedResult;
+            }
             queryPhase.execute(context);
+            requestCachePut(cacheKey, context.queryResult());
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
@@ -453,6 +465,15 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         }
     }
 
+    /**
+     * The index of the active search context with the provided id, <tt>null</tt> if there is no such context.
+     */
+    @Nullable
+    public String contextIndex(long id) {
+        SearchContext context = activeContexts.get(id);
+        return context == null ? null : context.shardTarget().index();
+    }
+
     private SearchContext findContext(long id) throws SearchContextMissingException {
         SearchContext context = activeContexts.get(id);
         if (context == null) {
@@ -508,6 +529,47 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         return context;
     }
 
+    /**
+     * Returns the request cache key of the request, <tt>null</tt> if its results can't be cached.
+     */
+    @Nullable
+    private IndicesRequestCache.Key requestCacheKey(ShardSearchRequest request, SearchContext context) {
+        IndexService indexService = indicesService.indexService(request.index());
+        if (indexService == null || !indicesRequestCache.canCache(request, indexService.settingsService().getSettings())) {
+            return null;
+        }
+        try {
+            return indicesRequestCache.key(request, context.searcher().getIndexReader());
+        } catch (IOException e) {
+            logger.debug("failed to create request cache key", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private QuerySearchResult requestCacheGet(@Nullable IndicesRequestCache.Key cacheKey) {
+        if (cacheKey == null) {
+            return null;
+        }
+        try {
+            return indicesRequestCache.get(cacheKey);
+        } catch (IOException e) {
+            logger.debug("failed to read cached request result", e);
+            return null;
+        }
+    }
+
+    private void requestCachePut(@Nullable IndicesRequestCache.Key cacheKey, QuerySearchResult result) {
+        if (cacheKey == null) {
+            return;
+        }
+        try {
+            indicesRequestCache.put(cacheKey, result);
+        } catch (IOException e) {
+            logger.debug("failed to cache request result", e);
+        }
+    }
+
     public void freeContext(long id) {
         SearchContext context = activeContexts.remove(id);
         if (context == null) {
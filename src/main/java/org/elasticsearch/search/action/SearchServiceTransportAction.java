@@ -22,6 +22,7 @@ package org.elasticsearch.search.action;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -43,6 +44,8 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * An encapsulation of {@link org.elasticsearch.search.SearchService} operations exposed through
@@ -50,6 +53,16 @@ import java.io.IOException;
  */
 public class SearchServiceTransportAction extends AbstractComponent {
 
+    /**
+     * The search queue size on the node executing a search phase, piggybacked on its response.
+     */
+    static final String QUEUE_SIZE_HEADER = "search_queue_size";
+
+    /**
+     * The time it took the node to execute a search phase (excluding the time spent in the queue), piggybacked on its response.
+     */
+    static final String SERVICE_TIME_HEADER = "search_service_time_nanos";
+
     static final class FreeContextResponseHandler extends EmptyTransportResponseHandler {
 
         private final ESLogger logger;
@@ -71,14 +84,21 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
     private final SearchService searchService;
 
+    private final ThreadPool threadPool;
+
+    private final ResponseCollectorService responseCollectorService;
+
     private final FreeContextResponseHandler freeContextResponseHandler = new FreeContextResponseHandler(logger);
 
     @Inject
-    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService) {
+    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService,
+                                        ThreadPool threadPool, ResponseCollectorService responseCollectorService) {
         super(settings);
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.searchService = searchService;
+        this.threadPool = threadPool;
+        this.responseCollectorService = responseCollectorService;
 
         transportService.registerHandler(SearchFreeContextTransportHandler.ACTION, new SearchFreeContextTransportHandler());
         transportService.registerHandler(SearchDfsTransportHandler.ACTION, new SearchDfsTransportHandler());
@@ -101,15 +121,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteDfs(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
+    public void sendExecuteDfs(final DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            DfsSearchResult result;
+            try {
+                result = searchService.executeDfsPhase(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                DfsSearchResult result = searchService.executeDfsPhase(request);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchDfsTransportHandler.ACTION, request, new BaseTransportResponseHandler<DfsSearchResult>() {
 
                 @Override
@@ -119,11 +149,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(DfsSearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -135,15 +167,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteQuery(final DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            QuerySearchResult result;
+            try {
+                result = searchService.executeQueryPhase(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                QuerySearchResult result = searchService.executeQueryPhase(request);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchQueryTransportHandler.ACTION, request, new BaseTransportResponseHandler<QuerySearchResult>() {
 
                 @Override
@@ -153,11 +195,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(QuerySearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -169,15 +213,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final QuerySearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteQuery(final DiscoveryNode node, final QuerySearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            QuerySearchResult result;
+            try {
+                result = searchService.executeQueryPhase(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                QuerySearchResult result = searchService.executeQueryPhase(request);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchQueryByIdTransportHandler.ACTION, request, new BaseTransportResponseHandler<QuerySearchResult>() {
 
                 @Override
@@ -187,11 +241,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(QuerySearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -203,15 +259,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final InternalScrollSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteQuery(final DiscoveryNode node, final InternalScrollSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            ScrollQuerySearchResult result;
+            try {
+                result = searchService.executeQueryPhase(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                ScrollQuerySearchResult result = searchService.executeQueryPhase(request);
                 listener.onResult(result.queryResult());
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchQueryScrollTransportHandler.ACTION, request, new BaseTransportResponseHandler<ScrollQuerySearchResult>() {
 
                 @Override
@@ -221,11 +287,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(ScrollQuerySearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response.queryResult());
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -237,15 +305,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteFetch(final DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            QueryFetchSearchResult result;
+            try {
+                result = searchService.executeFetchPhase(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                QueryFetchSearchResult result = searchService.executeFetchPhase(request);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchQueryFetchTransportHandler.ACTION, request, new BaseTransportResponseHandler<QueryFetchSearchResult>() {
 
                 @Override
@@ -255,11 +333,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(QueryFetchSearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -271,15 +351,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final QuerySearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteFetch(final DiscoveryNode node, final QuerySearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            QueryFetchSearchResult result;
+            try {
+                result = searchService.executeFetchPhase(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                QueryFetchSearchResult result = searchService.executeFetchPhase(request);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchQueryQueryFetchTransportHandler.ACTION, request, new BaseTransportResponseHandler<QueryFetchSearchResult>() {
 
                 @Override
@@ -289,11 +379,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(QueryFetchSearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -305,15 +397,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final InternalScrollSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteFetch(final DiscoveryNode node, final InternalScrollSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            ScrollQueryFetchSearchResult result;
+            try {
+                result = searchService.executeFetchPhase(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                ScrollQueryFetchSearchResult result = searchService.executeFetchPhase(request);
                 listener.onResult(result.result());
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchQueryFetchScrollTransportHandler.ACTION, request, new BaseTransportResponseHandler<ScrollQueryFetchSearchResult>() {
 
                 @Override
@@ -323,11 +425,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(ScrollQueryFetchSearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response.result());
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -339,15 +443,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final FetchSearchRequest request, final SearchServiceListener<FetchSearchResult> listener) {
+    public void sendExecuteFetch(final DiscoveryNode node, final FetchSearchRequest request, final SearchServiceListener<FetchSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            FetchSearchResult result;
+            try {
+                result = searchService.executeFetchPhase(request);
+            } catch (Throwable e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                FetchSearchResult result = searchService.executeFetchPhase(request);
                 listener.onResult(result);
             } catch (Throwable e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchFetchByIdTransportHandler.ACTION, request, new BaseTransportResponseHandler<FetchSearchResult>() {
 
                 @Override
@@ -357,11 +471,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(FetchSearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -373,15 +489,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteScan(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteScan(final DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            QuerySearchResult result;
+            try {
+                result = searchService.executeScan(request);
+            } catch (Throwable e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                QuerySearchResult result = searchService.executeScan(request);
                 listener.onResult(result);
             } catch (Throwable e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchScanTransportHandler.ACTION, request, new BaseTransportResponseHandler<QuerySearchResult>() {
 
                 @Override
@@ -391,11 +517,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(QuerySearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -407,15 +535,25 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteScan(DiscoveryNode node, final InternalScrollSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteScan(final DiscoveryNode node, final InternalScrollSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            long startNanos = startRequest(node);
+            ScrollQueryFetchSearchResult result;
+            try {
+                result = searchService.executeScan(request);
+            } catch (Exception e) {
+                responseCollectorService.removeOutstandingRequest(node.id());
+                listener.onFailure(e);
+                return;
+            }
+            collectLocalResponse(node, startNanos);
             try {
-                ScrollQueryFetchSearchResult result = searchService.executeScan(request);
                 listener.onResult(result.result());
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
+            final long startNanos = startRequest(node);
             transportService.sendRequest(node, SearchScanScrollTransportHandler.ACTION, request, new BaseTransportResponseHandler<ScrollQueryFetchSearchResult>() {
 
                 @Override
@@ -425,11 +563,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(ScrollQueryFetchSearchResult response) {
+                    collectResponse(node, startNanos, response);
                     listener.onResult(response.result());
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
+                    responseCollectorService.removeOutstandingRequest(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -441,6 +581,39 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    private long startRequest(DiscoveryNode node) {
+        responseCollectorService.addOutstandingRequest(node.id());
+        return System.nanoTime();
+    }
+
+    private void collectResponse(DiscoveryNode node, long startNanos, TransportResponse response) {
+        long responseTime = System.nanoTime() - startNanos;
+        // older nodes, or failures to compute them, might leave the service stats out
+        Number queueSize = response.getHeader(QUEUE_SIZE_HEADER);
+        Number serviceTime = response.getHeader(SERVICE_TIME_HEADER);
+        // also marks the request as no longer outstanding
+        responseCollectorService.addResponse(node.id(), queueSize == null ? -1 : queueSize.intValue(), responseTime, serviceTime == null ? -1 : serviceTime.longValue());
+    }
+
+    private void collectLocalResponse(DiscoveryNode node, long startNanos) {
+        long took = System.nanoTime() - startNanos;
+        responseCollectorService.addResponse(node.id(), searchQueueSize(), took, took);
+    }
+
+    private <T extends TransportResponse> T withServiceStats(T response, long startNanos) {
+        response.putHeader(SERVICE_TIME_HEADER, System.nanoTime() - startNanos);
+        response.putHeader(QUEUE_SIZE_HEADER, searchQueueSize());
+        return response;
+    }
+
+    private int searchQueueSize() {
+        Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return -1;
+    }
+
     class SearchFreeContextRequest extends TransportRequest {
 
         private long id;
@@ -494,7 +667,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
     }
 
 
-    private class SearchDfsTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> {
+    private class SearchDfsTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> implements KeyedTransportRequestHandler<ShardSearchRequest> {
 
         static final String ACTION = "search/phase/dfs";
 
@@ -505,8 +678,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(ShardSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             DfsSearchResult result = searchService.executeDfsPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(ShardSearchRequest request) {
+            return request.index();
         }
 
         @Override
@@ -515,7 +694,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchQueryTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> {
+    private class SearchQueryTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> implements KeyedTransportRequestHandler<ShardSearchRequest> {
 
         static final String ACTION = "search/phase/query";
 
@@ -526,8 +705,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(ShardSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             QuerySearchResult result = searchService.executeQueryPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(ShardSearchRequest request) {
+            return request.index();
         }
 
         @Override
@@ -536,7 +721,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchQueryByIdTransportHandler extends BaseTransportRequestHandler<QuerySearchRequest> {
+    private class SearchQueryByIdTransportHandler extends BaseTransportRequestHandler<QuerySearchRequest> implements KeyedTransportRequestHandler<QuerySearchRequest> {
 
         static final String ACTION = "search/phase/query/id";
 
@@ -547,8 +732,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(QuerySearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             QuerySearchResult result = searchService.executeQueryPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(QuerySearchRequest request) {
+            return searchService.contextIndex(request.id());
         }
 
         @Override
@@ -557,7 +748,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchQueryScrollTransportHandler extends BaseTransportRequestHandler<InternalScrollSearchRequest> {
+    private class SearchQueryScrollTransportHandler extends BaseTransportRequestHandler<InternalScrollSearchRequest> implements KeyedTransportRequestHandler<InternalScrollSearchRequest> {
 
         static final String ACTION = "search/phase/query/scroll";
 
@@ -568,8 +759,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             ScrollQuerySearchResult result = searchService.executeQueryPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(InternalScrollSearchRequest request) {
+            return searchService.contextIndex(request.id());
         }
 
         @Override
@@ -578,7 +775,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchQueryFetchTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> {
+    private class SearchQueryFetchTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> implements KeyedTransportRequestHandler<ShardSearchRequest> {
 
         static final String ACTION = "search/phase/query+fetch";
 
@@ -589,8 +786,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(ShardSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             QueryFetchSearchResult result = searchService.executeFetchPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(ShardSearchRequest request) {
+            return request.index();
         }
 
         @Override
@@ -599,7 +802,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchQueryQueryFetchTransportHandler extends BaseTransportRequestHandler<QuerySearchRequest> {
+    private class SearchQueryQueryFetchTransportHandler extends BaseTransportRequestHandler<QuerySearchRequest> implements KeyedTransportRequestHandler<QuerySearchRequest> {
 
         static final String ACTION = "search/phase/query/query+fetch";
 
@@ -610,8 +813,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(QuerySearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             QueryFetchSearchResult result = searchService.executeFetchPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(QuerySearchRequest request) {
+            return searchService.contextIndex(request.id());
         }
 
         @Override
@@ -620,7 +829,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchFetchByIdTransportHandler extends BaseTransportRequestHandler<FetchSearchRequest> {
+    private class SearchFetchByIdTransportHandler extends BaseTransportRequestHandler<FetchSearchRequest> implements KeyedTransportRequestHandler<FetchSearchRequest> {
 
         static final String ACTION = "search/phase/fetch/id";
 
@@ -631,8 +840,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(FetchSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             FetchSearchResult result = searchService.executeFetchPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(FetchSearchRequest request) {
+            return searchService.contextIndex(request.id());
         }
 
         @Override
@@ -641,7 +856,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchQueryFetchScrollTransportHandler extends BaseTransportRequestHandler<InternalScrollSearchRequest> {
+    private class SearchQueryFetchScrollTransportHandler extends BaseTransportRequestHandler<InternalScrollSearchRequest> implements KeyedTransportRequestHandler<InternalScrollSearchRequest> {
 
         static final String ACTION = "search/phase/query+fetch/scroll";
 
@@ -652,8 +867,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             ScrollQueryFetchSearchResult result = searchService.executeFetchPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(InternalScrollSearchRequest request) {
+            return searchService.contextIndex(request.id());
         }
 
         @Override
@@ -662,7 +883,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchScanTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> {
+    private class SearchScanTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> implements KeyedTransportRequestHandler<ShardSearchRequest> {
 
         static final String ACTION = "search/phase/scan";
 
@@ -673,8 +894,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(ShardSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             QuerySearchResult result = searchService.executeScan(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(ShardSearchRequest request) {
+            return request.index();
         }
 
         @Override
@@ -683,7 +910,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    private class SearchScanScrollTransportHandler extends BaseTransportRequestHandler<InternalScrollSearchRequest> {
+    private class SearchScanScrollTransportHandler extends BaseTransportRequestHandler<InternalScrollSearchRequest> implements KeyedTransportRequestHandler<InternalScrollSearchRequest> {
 
         static final String ACTION = "search/phase/scan/scroll";
 
@@ -694,8 +921,14 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
         @Override
         public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel) throws Exception {
+            long startNanos = System.nanoTime();
             ScrollQueryFetchSearchResult result = searchService.executeScan(request);
-            channel.sendResponse(result);
+            channel.sendResponse(withServiceStats(result, startNanos));
+        }
+
+        @Override
+        public String queueKey(InternalScrollSearchRequest request) {
+            return searchService.contextIndex(request.id());
         }
 
         @Override
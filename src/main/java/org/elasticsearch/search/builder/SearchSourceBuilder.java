@@ -94,6 +94,8 @@ public class SearchSourceBuilder implements ToXContent {
 
     private long timeoutInMillis = -1;
 
+    private int terminateAfter = -1;
+
     private List<String> fieldNames;
     private List<ScriptField> scriptFields;
     private List<PartialField> partialFields;
@@ -296,6 +298,15 @@ public class SearchSourceBuilder implements ToXContent {
         return this;
     }
 
+    /**
+     * An optional maximum number of docs to collect on each shard, after which the query phase
+     * terminates early and returns the results collected so far.
+     */
+    public SearchSourceBuilder terminateAfter(int terminateAfter) {
+        this.terminateAfter = terminateAfter;
+        return this;
+    }
+
     /**
      * Adds a sort against the given field name and the sort ordering.
      *
@@ -586,6 +597,10 @@ public class SearchSourceBuilder implements ToXContent {
             builder.field("timeout", timeoutInMillis);
         }
 
+        if (terminateAfter != -1) {
+            builder.field("terminate_after", terminateAfter);
+        }
+
         if (queryBuilder != null) {
             builder.field("query");
             queryBuilder.toXContent(builder, params);
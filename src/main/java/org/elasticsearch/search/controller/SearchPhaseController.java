@@ -327,10 +327,14 @@ public class SearchPhaseController extends AbstractComponent {
         long totalHits = 0;
         float maxScore = Float.NEGATIVE_INFINITY;
         boolean timedOut = false;
+        boolean terminatedEarly = false;
         for (QuerySearchResultProvider queryResultProvider : queryResults.values()) {
             if (queryResultProvider.queryResult().searchTimedOut()) {
                 timedOut = true;
             }
+            if (queryResultProvider.queryResult().terminatedEarly()) {
+                terminatedEarly = true;
+            }
             totalHits += queryResultProvider.queryResult().topDocs().totalHits;
             if (!Float.isNaN(queryResultProvider.queryResult().topDocs().getMaxScore())) {
                 maxScore = Math.max(maxScore, queryResultProvider.queryResult().topDocs().getMaxScore());
@@ -405,6 +409,6 @@ public class SearchPhaseController extends AbstractComponent {
         }
 
         InternalSearchHits searchHits = new InternalSearchHits(hits.toArray(new InternalSearchHit[hits.size()]), totalHits, maxScore);
-        return new InternalSearchResponse(searchHits, facets, suggest, timedOut);
+        return new InternalSearchResponse(searchHits, facets, suggest, timedOut, terminatedEarly);
     }
 }
@@ -23,28 +23,27 @@ import com.google.common.collect.ImmutableSet;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.CacheRecycler;
-import org.elasticsearch.common.collect.BoundedTreeSet;
-import org.elasticsearch.index.fielddata.BytesValues;
 import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 import org.elasticsearch.search.facet.AbstractFacetCollector;
 import org.elasticsearch.search.facet.Facet;
 import org.elasticsearch.search.facet.terms.TermsFacet;
-import org.elasticsearch.search.facet.terms.support.EntryPriorityQueue;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- *
+ * Counts the terms of each doc by their shard level {@link GlobalOrdinals} into a single array, and only
+ * resolves the terms of the top entries.
  */
-public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
+public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector implements Ordinals.Docs.OrdinalInDocProc {
 
     private final IndexFieldData.WithOrdinals indexFieldData;
 
@@ -56,13 +55,14 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
 
     private final int minCount;
 
-    private BytesValues.WithOrdinals values;
+    private final GlobalOrdinals globalOrdinals;
+
+    private final int[] counts;
 
-    private final List<ReaderAggregator> aggregators;
+    private Ordinals.Docs ordinals;
 
-    private ReaderAggregator current;
+    private PackedInts.Reader segmentToGlobal;
 
-    long missing;
     long total;
 
     private final ImmutableSet<BytesRef> excluded;
@@ -91,108 +91,40 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
             minCount = 0;
         }
 
-        this.aggregators = new ArrayList<ReaderAggregator>(context.searcher().getIndexReader().leaves().size());
+        this.globalOrdinals = indexFieldData.loadGlobal(context.searcher().getIndexReader());
+        this.counts = CacheRecycler.popIntArray(globalOrdinals.getNumOrds());
     }
 
     @Override
     protected void doSetNextReader(AtomicReaderContext context) throws IOException {
-        if (current != null) {
-            missing += current.counts[0];
-            total += current.total - current.counts[0];
-            if (current.values.ordinals().getNumOrds() > 1) {
-                aggregators.add(current);
-            }
-        }
-        values = indexFieldData.load(context).getBytesValues();
-        current = new ReaderAggregator(values);
+        ordinals = indexFieldData.load(context).getBytesValues().ordinals();
+        segmentToGlobal = globalOrdinals.segmentToGlobal(context.ord);
     }
 
     @Override
     protected void doCollect(int doc) throws IOException {
-        values.ordinals().forEachOrdinalInDoc(doc, current);
+        ordinals.forEachOrdinalInDoc(doc, this);
     }
 
     @Override
-    public Facet facet() {
-        if (current != null) {
-            missing += current.counts[0];
-            total += current.total - current.counts[0];
-            // if we have values for this one, add it
-            if (current.values.ordinals().getNumOrds() > 1) {
-                aggregators.add(current);
-            }
-        }
-
-        AggregatorPriorityQueue queue = new AggregatorPriorityQueue(aggregators.size());
-
-        for (ReaderAggregator aggregator : aggregators) {
-            if (aggregator.nextPosition()) {
-                queue.add(aggregator);
-            }
-        }
-
-        // YACK, we repeat the same logic, but once with an optimizer priority queue for smaller sizes
-        if (size < EntryPriorityQueue.LIMIT) {
-            // optimize to use priority size
-            EntryPriorityQueue ordered = new EntryPriorityQueue(size, comparatorType.comparator());
-
-            while (queue.size() > 0) {
-                ReaderAggregator agg = queue.top();
-                BytesRef value = agg.values.makeSafe(agg.current); // we need to makeSafe it, since we end up pushing it... (can we get around this?)
-                int count = 0;
-                do {
-                    count += agg.counts[agg.position];
-                    if (agg.nextPosition()) {
-                        agg = queue.updateTop();
-                    } else {
-                        // we are done with this reader
-                        queue.pop();
-                        agg = queue.top();
-                    }
-                } while (agg != null && value.equals(agg.current));
-
-                if (count > minCount) {
-                    if (excluded != null && excluded.contains(value)) {
-                        continue;
-                    }
-                    // LUCENE 4 UPGRADE: use Lucene's RegexCapabilities
-                    if (matcher != null && !matcher.reset(value.utf8ToString()).matches()) {
-                        continue;
-                    }
-                    InternalStringTermsFacet.TermEntry entry = new InternalStringTermsFacet.TermEntry(value, count);
-                    ordered.insertWithOverflow(entry);
-                }
-            }
-            InternalStringTermsFacet.TermEntry[] list = new InternalStringTermsFacet.TermEntry[ordered.size()];
-            for (int i = ordered.size() - 1; i >= 0; i--) {
-                list[i] = (InternalStringTermsFacet.TermEntry) ordered.pop();
-            }
+    public void onOrdinal(int docId, int ordinal) {
+        counts[(int) segmentToGlobal.get(ordinal)]++;
+        total++;
+    }
 
-            for (ReaderAggregator aggregator : aggregators) {
-                CacheRecycler.pushIntArray(aggregator.counts);
+    @Override
+    public Facet facet() {
+        long missing = counts[0];
+        int numOrds = globalOrdinals.getNumOrds();
+        OrdinalQueue ordered = new OrdinalQueue(Math.max(0, Math.min(size, numOrds - 1)), comparatorType);
+        OrdinalEntry spare = null;
+        for (int ord = 1; ord < numOrds; ord++) {
+            int count = counts[ord];
+            if (count <= minCount) {
+                continue;
             }
-
-            return new InternalStringTermsFacet(facetName, comparatorType, size, Arrays.asList(list), missing, total);
-        }
-
-        BoundedTreeSet<InternalStringTermsFacet.TermEntry> ordered = new BoundedTreeSet<InternalStringTermsFacet.TermEntry>(comparatorType.comparator(), size);
-
-        while (queue.size() > 0) {
-            ReaderAggregator agg = queue.top();
-            BytesRef value = agg.values.makeSafe(agg.current); // we need to makeSafe it, since we end up pushing it... (can we work around that?)
-            int count = 0;
-            do {
-                count += agg.counts[agg.position];
-                if (agg.nextPosition()) {
-                    agg = queue.updateTop();
-                } else {
-                    // we are done with this reader
-                    queue.pop();
-                    agg = queue.top();
-                }
-            } while (agg != null && value.equals(agg.current));
-
-            if (count > minCount) {
+            if (excluded != null || matcher != null) {
+                BytesRef value = globalOrdinals.getValueByOrd(ord);
                 if (excluded != null && excluded.contains(value)) {
                     continue;
                 }
@@ -200,57 +132,72 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
                 if (matcher != null && !matcher.reset(value.utf8ToString()).matches()) {
                     continue;
                 }
-                InternalStringTermsFacet.TermEntry entry = new InternalStringTermsFacet.TermEntry(value, count);
-                ordered.add(entry);
             }
+            if (spare == null) {
+                spare = new OrdinalEntry();
+            }
+            spare.ord = ord;
+            spare.count = count;
+            spare = ordered.insertWithOverflow(spare);
         }
 
-
-        for (ReaderAggregator aggregator : aggregators) {
-            CacheRecycler.pushIntArray(aggregator.counts);
+        // only now resolve the terms, for the top entries
+        InternalStringTermsFacet.TermEntry[] list = new InternalStringTermsFacet.TermEntry[ordered.size()];
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            OrdinalEntry entry = ordered.pop();
+            list[i] = new InternalStringTermsFacet.TermEntry(globalOrdinals.getValueByOrd(entry.ord), entry.count);
         }
 
-        return new InternalStringTermsFacet(facetName, comparatorType, size, ordered, missing, total);
+        CacheRecycler.pushIntArray(counts);
+
+        return new InternalStringTermsFacet(facetName, comparatorType, size, Arrays.asList(list), missing, total - missing);
     }
 
-    public static class ReaderAggregator implements Ordinals.Docs.OrdinalInDocProc {
+    static class OrdinalEntry {
+        int ord;
+        int count;
+    }
 
-        final BytesValues.WithOrdinals values;
-        final int[] counts;
+    /**
+     * Orders entries by their global ordinal and count the same way the comparator type orders term entries,
+     * global ordinals being sorted like terms.
+     */
+    static class OrdinalQueue extends PriorityQueue<OrdinalEntry> {
 
-        int position = 0;
-        BytesRef current;
-        int total;
+        private final TermsFacet.ComparatorType comparatorType;
 
-        public ReaderAggregator(BytesValues.WithOrdinals values) {
-            this.values = values;
-            this.counts = CacheRecycler.popIntArray(values.ordinals().getNumOrds());
+        OrdinalQueue(int size, TermsFacet.ComparatorType comparatorType) {
+            super(size);
+            this.comparatorType = comparatorType;
         }
 
         @Override
-        public void onOrdinal(int docId, int ordinal) {
-            counts[ordinal]++;
-            total++;
+        protected boolean lessThan(OrdinalEntry a, OrdinalEntry b) {
+            return compare(a, b) > 0; // reverse, since we reverse again when adding to a list
         }
 
-        public boolean nextPosition() {
-            if (++position >= values.ordinals().getNumOrds()) {
-                return false;
+        private int compare(OrdinalEntry a, OrdinalEntry b) {
+            switch (comparatorType) {
+                case COUNT:
+                    return compareCount(a, b);
+                case REVERSE_COUNT:
+                    return -compareCount(a, b);
+                case TERM:
+                    return a.ord - b.ord;
+                case REVERSE_TERM:
+                    return b.ord - a.ord;
+                default:
+                    throw new ElasticSearchIllegalStateException("unknown comparator type [" + comparatorType + "]");
             }
-            current = values.getValueByOrd(position);
-            return true;
-        }
-    }
-
-    public static class AggregatorPriorityQueue extends PriorityQueue<ReaderAggregator> {
-
-        public AggregatorPriorityQueue(int size) {
-            super(size);
         }
 
-        @Override
-        protected boolean lessThan(ReaderAggregator a, ReaderAggregator b) {
-            return a.current.compareTo(b.current) < 0;
+        private static int compareCount(OrdinalEntry a, OrdinalEntry b) {
+            int i = b.count - a.count;
+            if (i == 0) {
+                // same as terms entries, higher terms first on equal counts
+                i = b.ord - a.ord;
+            }
+            return i;
         }
     }
 }
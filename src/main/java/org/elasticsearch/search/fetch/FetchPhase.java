@@ -22,7 +22,6 @@ package org.elasticsearch.search.fetch;
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.ReaderUtil;
-import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.text.StringAndBytesText;
 import org.elasticsearch.common.text.Text;
@@ -137,6 +136,17 @@ public class FetchPhase implements SearchPhase {
             }
         }
 
+        // when only the uid and source are needed (typically, scan exports), skip setting up the lookup and the
+        // sub phases per hit, and keep the stored source as is (possibly compressed), without copying it
+        boolean hitExecutionNeeded = false;
+        for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
+            if (fetchSubPhase.hitExecutionNeeded(context)) {
+                hitExecutionNeeded = true;
+                break;
+            }
+        }
+        boolean lookupNeeded = hitExecutionNeeded || extractFieldNames != null;
+
         InternalSearchHit[] hits = new InternalSearchHit[context.docIdsToLoadSize()];
         for (int index = 0; index < context.docIdsToLoadSize(); index++) {
             int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
@@ -163,6 +173,10 @@ public class FetchPhase implements SearchPhase {
 
             hits[index] = searchHit;
 
+            if (!lookupNeeded) {
+                continue;
+            }
+
             int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
             AtomicReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
             int subDoc = docId - subReaderContext.docBase;
@@ -170,8 +184,9 @@ public class FetchPhase implements SearchPhase {
             // go over and extract fields that are not mapped / stored
             context.lookup().setNextReader(subReaderContext);
             context.lookup().setNextDocId(subDoc);
-            if (searchHit.source() != null) {
-                context.lookup().source().setNextSource(new BytesArray(searchHit.source()));
+            if (!searchHit.isSourceEmpty()) {
+                // the lookup parses compressed sources as is, keep the hit source compressed for the transport
+                context.lookup().source().setNextSource(searchHit.internalSourceRef());
             }
             if (extractFieldNames != null) {
                 for (String extractFieldName : extractFieldNames) {
@@ -25,17 +25,26 @@ import com.google.common.collect.Maps;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.*;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.MultiCollector;
 import org.elasticsearch.common.lucene.search.AndFilter;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.common.lucene.search.LimitingCollector;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.search.dfs.CachedDfSource;
+import org.elasticsearch.search.sort.EarlyTerminatingSortCollector;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -166,22 +175,35 @@ public class ContextIndexSearcher extends IndexSearcher {
 
     @Override
     public void search(List<AtomicReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        // wrap the top docs collector first, so it only counts the docs that end up collected
+        EarlyTerminatingSortCollector sortCollector = earlyTerminatingSortCollector(collector);
+        if (sortCollector != null) {
+            collector = sortCollector;
+        }
         if (searchContext.parsedFilter() != null && Scopes.MAIN.equals(processingScope)) {
             // this will only get applied to the actual search collector and not
             // to any scoped collectors, also, it will only be applied to the main collector
             // since that is where the filter should only work
             collector = new FilteredCollector(collector, searchContext.parsedFilter());
         }
-        if (searchContext.timeoutInMillis() != -1) {
-            // TODO: change to use our own counter that uses the scheduler in ThreadPool
-            collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), searchContext.timeoutInMillis());
-        }
         if (scopeCollectors != null) {
             List<Collector> collectors = scopeCollectors.get(processingScope);
             if (collectors != null && !collectors.isEmpty()) {
                 collector = new MultiCollector(collector, collectors.toArray(new Collector[collectors.size()]));
             }
         }
+        // limit the docs after the multi collector, so facets are computed on the same docs as the hits, and
+        // only count the docs that pass the minimum score
+        long deadlineNanos = -1;
+        if (searchContext.timeoutInMillis() != -1) {
+            long startNanos = searchContext.queryStartNanos() != -1 ? searchContext.queryStartNanos() : System.nanoTime();
+            deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(searchContext.timeoutInMillis());
+        }
+        int terminateAfter = Scopes.MAIN.equals(processingScope) ? searchContext.terminateAfter() : -1;
+        boolean limited = deadlineNanos != -1 || terminateAfter != -1;
+        if (limited) {
+            collector = new LimitingCollector(collector, deadlineNanos, terminateAfter);
+        }
         // apply the minimum score after multi collector so we filter facets as well
         if (searchContext.minimumScore() != null) {
             collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
@@ -189,15 +211,72 @@ public class ContextIndexSearcher extends IndexSearcher {
 
 
         // we only compute the doc id set once since within a context, we execute the same query always...
-        if (searchContext.timeoutInMillis() != -1) {
+        if (limited) {
             try {
-                super.search(leaves, weight, collector);
-            } catch (TimeLimitingCollector.TimeExceededException e) {
+                searchLeaves(leaves, weight, collector, sortCollector);
+            } catch (LimitingCollector.TimeExceededException e) {
                 searchContext.queryResult().searchTimedOut(true);
+            } catch (LimitingCollector.TerminatedEarlyException e) {
+                searchContext.queryResult().terminatedEarly(true);
             }
         } else {
+            searchLeaves(leaves, weight, collector, sortCollector);
+        }
+    }
+
+    private void searchLeaves(List<AtomicReaderContext> leaves, Weight weight, Collector collector, @Nullable EarlyTerminatingSortCollector sortCollector) throws IOException {
+        if (sortCollector == null) {
             super.search(leaves, weight, collector);
+            return;
+        }
+        try {
+            for (AtomicReaderContext leaf : sortCollector.orderLeaves(leaves)) {
+                if (!sortCollector.startLeaf(leaf)) {
+                    continue;
+                }
+                try {
+                    super.search(Collections.singletonList(leaf), weight, collector);
+                } catch (EarlyTerminatingSortCollector.SegmentTerminatedException e) {
+                    // enough hits from this segment, move on to the next one
+                }
+            }
+        } finally {
+            if (sortCollector.terminatedEarly()) {
+                searchContext.queryResult().terminatedEarly(true);
+            }
+        }
+    }
+
+    /**
+     * Returns a collector that terminates early when the main search is sorted by the field the index is sorted
+     * by (<tt>index.sort.field</tt>), and there are no other collectors (like facets) that need all the docs.
+     */
+    @Nullable
+    private EarlyTerminatingSortCollector earlyTerminatingSortCollector(Collector collector) {
+        if (!Scopes.MAIN.equals(processingScope) || hasCollectors(Scopes.MAIN) || searchContext.indexShard() == null) {
+            return null;
+        }
+        if (searchContext.searchType() == SearchType.COUNT || searchContext.searchType() == SearchType.SCAN) {
+            return null;
+        }
+        Sort sort = searchContext.sort();
+        if (sort == null || sort.getSort().length != 1 || sort.getSort()[0].getField() == null) {
+            return null;
+        }
+        String indexSortField = searchContext.indexShard().indexSettings().get("index.sort.field");
+        if (indexSortField == null) {
+            return null;
+        }
+        FieldMapper mapper = searchContext.smartNameFieldMapper(indexSortField);
+        if (mapper == null || !mapper.names().indexName().equals(sort.getSort()[0].getField())) {
+            return null;
+        }
+        IndexFieldData fieldData = searchContext.fieldData().getForField(mapper);
+        if (!(fieldData instanceof IndexNumericFieldData) || ((IndexNumericFieldData) fieldData).getNumericType().isFloatingPoint()) {
+            return null;
         }
+        int numHits = Math.max(1, searchContext.from() + searchContext.size());
+        return new EarlyTerminatingSortCollector(collector, (IndexNumericFieldData) fieldData, sort.getSort()[0].getReverse(), numHits);
     }
 
     @Override
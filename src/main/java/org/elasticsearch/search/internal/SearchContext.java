@@ -120,6 +120,12 @@ public class SearchContext implements Releasable {
     // timeout in millis
     private long timeoutInMillis = -1;
 
+    // the time the query phase started, the timeout applies to all the searches it executes
+    private long queryStartNanos = -1;
+
+    // the maximum number of docs to collect, -1 to collect all
+    private int terminateAfter = -1;
+
 
     private List<String> groupStats;
 
@@ -382,6 +388,22 @@ public class SearchContext implements Releasable {
         this.timeoutInMillis = timeoutInMillis;
     }
 
+    public long queryStartNanos() {
+        return queryStartNanos;
+    }
+
+    public void queryStartNanos(long queryStartNanos) {
+        this.queryStartNanos = queryStartNanos;
+    }
+
+    public int terminateAfter() {
+        return terminateAfter;
+    }
+
+    public void terminateAfter(int terminateAfter) {
+        this.terminateAfter = terminateAfter;
+    }
+
     public SearchContext minimumScore(float minimumScore) {
         this.minimumScore = minimumScore;
         return this;
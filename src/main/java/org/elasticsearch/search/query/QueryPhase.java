@@ -71,6 +71,8 @@ public class QueryPhase implements SearchPhase {
                 .put("min_score", new MinScoreParseElement())
                 .put("minScore", new MinScoreParseElement())
                 .put("timeout", new TimeoutParseElement())
+                .put("terminate_after", new TerminateAfterParseElement())
+                .put("terminateAfter", new TerminateAfterParseElement())
                 .putAll(facetPhase.parseElements())
                 .putAll(suggestPhase.parseElements());
         return parseElements.build();
@@ -84,6 +86,8 @@ public class QueryPhase implements SearchPhase {
 
     public void execute(SearchContext searchContext) throws QueryPhaseExecutionException {
         searchContext.queryResult().searchTimedOut(false);
+        searchContext.queryResult().terminatedEarly(false);
+        searchContext.queryStartNanos(System.nanoTime());
         // set the filter on the searcher
         if (searchContext.scopePhases() != null) {
             // we have scoped queries, refresh the id cache
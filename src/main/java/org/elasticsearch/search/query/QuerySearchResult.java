@@ -46,6 +46,7 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     private InternalFacets facets;
     private Suggest suggest;
     private boolean searchTimedOut;
+    private boolean terminatedEarly;
 
     public QuerySearchResult() {
 
@@ -87,6 +88,17 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
         return searchTimedOut;
     }
 
+    public void terminatedEarly(boolean terminatedEarly) {
+        this.terminatedEarly = terminatedEarly;
+    }
+
+    /**
+     * Did the search stop collecting docs because <tt>terminate_after</tt> docs were collected.
+     */
+    public boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+
     public TopDocs topDocs() {
         return topDocs;
     }
@@ -150,6 +162,7 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest = Suggest.readSuggest(in);
         }
         searchTimedOut = in.readBoolean();
+        terminatedEarly = in.readBoolean();
     }
 
     @Override
@@ -173,5 +186,6 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest.writeTo(out);
         }
         out.writeBoolean(searchTimedOut);
+        out.writeBoolean(terminatedEarly);
     }
 }
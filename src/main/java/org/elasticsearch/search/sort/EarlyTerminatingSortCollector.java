@@ -0,0 +1,181 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.sort;
+
+import com.google.common.collect.Lists;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Wraps the top docs collector of a search sorted by a single numeric field, and avoids collecting docs that
+ * can't make it to the top hits based on the {@link SegmentSortInfo} of each segment:
+ * <ul>
+ * <li>Segments are visited best first, and a segment is skipped once enough hits were collected with values
+ * better than any value in the segment.</li>
+ * <li>Collecting a segment that is sorted in the requested order stops (by throwing a
+ * {@link SegmentTerminatedException}) once enough hits were collected from it.</li>
+ * </ul>
+ * Skipped docs are not counted in the total hits, see {@link #terminatedEarly()}.
+ */
+public class EarlyTerminatingSortCollector extends Collector {
+
+    private final Collector collector;
+
+    private final IndexNumericFieldData fieldData;
+
+    private final boolean reverse;
+
+    private final int numHits;
+
+    private SegmentSortInfo current;
+
+    private int currentCollected;
+
+    // number of hits collected from segments with sort info, all better or equal to bound
+    private int collected;
+
+    private long bound;
+
+    private boolean terminatedEarly;
+
+    public EarlyTerminatingSortCollector(Collector collector, IndexNumericFieldData fieldData, boolean reverse, int numHits) {
+        this.collector = collector;
+        this.fieldData = fieldData;
+        this.reverse = reverse;
+        this.numHits = numHits;
+    }
+
+    /**
+     * Returns the leaves in the order they should be searched, segments without sort info last.
+     */
+    public List<AtomicReaderContext> orderLeaves(List<AtomicReaderContext> leaves) {
+        final List<SegmentSortInfo> infos = Lists.newArrayListWithCapacity(leaves.size());
+        List<Integer> order = Lists.newArrayListWithCapacity(leaves.size());
+        for (int i = 0; i < leaves.size(); i++) {
+            infos.add(sortInfo(leaves.get(i)));
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                SegmentSortInfo info1 = infos.get(o1);
+                SegmentSortInfo info2 = infos.get(o2);
+                if (info1 == null || info2 == null) {
+                    return info1 == null ? (info2 == null ? 0 : 1) : -1;
+                }
+                return compareValues(info1.first(reverse), info2.first(reverse));
+            }
+        });
+        List<AtomicReaderContext> ordered = Lists.newArrayListWithCapacity(leaves.size());
+        for (Integer i : order) {
+            ordered.add(leaves.get(i));
+        }
+        return ordered;
+    }
+
+    /**
+     * Prepares to search the given leaf, returns <tt>false</tt> if it should be skipped.
+     */
+    public boolean startLeaf(AtomicReaderContext context) {
+        current = sortInfo(context);
+        currentCollected = 0;
+        if (current != null && collected >= numHits && compareValues(current.first(reverse), bound) > 0) {
+            // all the docs in this segment sort after numHits already collected hits
+            terminatedEarly = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Were docs skipped, making the total hits a lower bound.
+     */
+    public boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        collector.setScorer(scorer);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        collector.collect(doc);
+        if (current == null) {
+            return;
+        }
+        if (currentCollected++ == 0) {
+            if (collected == 0 || compareValues(current.last(reverse), bound) > 0) {
+                bound = current.last(reverse);
+            }
+        }
+        collected++;
+        if (currentCollected >= numHits && current.sorted(reverse)) {
+            // docs are collected in order, the rest of the segment sorts after what we have
+            terminatedEarly = true;
+            throw new SegmentTerminatedException();
+        }
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        collector.setNextReader(context);
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        // early termination relies on docs being collected in doc id order
+        return false;
+    }
+
+    private int compareValues(long value1, long value2) {
+        int cmp = value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+        return reverse ? -cmp : cmp;
+    }
+
+    private SegmentSortInfo sortInfo(AtomicReaderContext context) {
+        try {
+            return SegmentSortInfo.load(context, fieldData);
+        } catch (Exception e) {
+            // no sort info, the segment will be fully collected
+            return null;
+        }
+    }
+
+    /**
+     * Thrown to stop collecting the current segment.
+     */
+    public static class SegmentTerminatedException extends RuntimeException {
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // used for flow control, no need for the (costly) stack trace
+            return this;
+        }
+    }
+}
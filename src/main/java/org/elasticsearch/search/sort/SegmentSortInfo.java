@@ -0,0 +1,140 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.sort;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.LongValues;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The range of values a numeric field has in a segment, and whether the segment docs are sorted by it. Only
+ * computed for segments where each doc has exactly one value, and cached per segment core.
+ */
+public class SegmentSortInfo {
+
+    private static final SegmentSortInfo NONE = new SegmentSortInfo(0, 0, false, false);
+
+    private static final Cache<Object, ConcurrentMap<String, SegmentSortInfo>> cache = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * Returns the sort info of the field in the segment, or <tt>null</tt> if some docs in the segment
+     * don't have exactly one value for it.
+     */
+    @Nullable
+    public static SegmentSortInfo load(AtomicReaderContext context, IndexNumericFieldData fieldData) throws ExecutionException {
+        ConcurrentMap<String, SegmentSortInfo> fieldsInfo = cache.get(context.reader().getCoreCacheKey(), new Callable<ConcurrentMap<String, SegmentSortInfo>>() {
+            @Override
+            public ConcurrentMap<String, SegmentSortInfo> call() throws Exception {
+                return ConcurrentCollections.newConcurrentMap();
+            }
+        });
+        String fieldName = fieldData.getFieldNames().indexName();
+        SegmentSortInfo info = fieldsInfo.get(fieldName);
+        if (info == null) {
+            info = compute(fieldData.load(context).getLongValues(), context.reader().maxDoc());
+            fieldsInfo.put(fieldName, info);
+        }
+        return info == NONE ? null : info;
+    }
+
+    static SegmentSortInfo compute(LongValues values, int maxDoc) {
+        if (maxDoc == 0 || values.isMultiValued()) {
+            return NONE;
+        }
+        boolean ascending = true;
+        boolean descending = true;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long previous = 0;
+        for (int docId = 0; docId < maxDoc; docId++) {
+            if (!values.hasValue(docId)) {
+                return NONE;
+            }
+            long value = values.getValue(docId);
+            if (docId > 0) {
+                if (value < previous) {
+                    ascending = false;
+                } else if (value > previous) {
+                    descending = false;
+                }
+            }
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            previous = value;
+        }
+        return new SegmentSortInfo(min, max, ascending, descending);
+    }
+
+    private final long min;
+
+    private final long max;
+
+    private final boolean ascending;
+
+    private final boolean descending;
+
+    public SegmentSortInfo(long min, long max, boolean ascending, boolean descending) {
+        this.min = min;
+        this.max = max;
+        this.ascending = ascending;
+        this.descending = descending;
+    }
+
+    public long min() {
+        return min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Are the segment docs sorted, in doc id order, by the field in the given order.
+     */
+    public boolean sorted(boolean reverse) {
+        return reverse ? descending : ascending;
+    }
+
+    /**
+     * The value that sorts first in the segment in the given order.
+     */
+    public long first(boolean reverse) {
+        return reverse ? max : min;
+    }
+
+    /**
+     * The value that sorts last in the segment in the given order.
+     */
+    public long last(boolean reverse) {
+        return reverse ? min : max;
+    }
+}
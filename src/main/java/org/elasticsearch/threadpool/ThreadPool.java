@@ -165,6 +165,7 @@ public class ThreadPool extends AbstractComponent {
             long rejected = -1;
             int largest = -1;
             long completed = -1;
+            List<ThreadPoolStats.QueueStats> queues = null;
             if (holder.executor instanceof ThreadPoolExecutor) {
                 ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) holder.executor;
                 threads = threadPoolExecutor.getPoolSize();
@@ -176,8 +177,14 @@ public class ThreadPool extends AbstractComponent {
                 if (rejectedExecutionHandler instanceof XRejectedExecutionHandler) {
                     rejected = ((XRejectedExecutionHandler) rejectedExecutionHandler).rejected();
                 }
+                if (threadPoolExecutor.getQueue() instanceof FairBlockingQueue) {
+                    queues = new ArrayList<ThreadPoolStats.QueueStats>();
+                    for (FairBlockingQueue.Stats queueStats : ((FairBlockingQueue) threadPoolExecutor.getQueue()).stats()) {
+                        queues.add(new ThreadPoolStats.QueueStats(queueStats.key(), queueStats.queue(), queueStats.rejected(), queueStats.dequeued(), queueStats.waitTimeInMillis()));
+                    }
+                }
             }
-            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed));
+            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed, queues));
         }
         return new ThreadPoolStats(stats);
     }
@@ -307,6 +314,13 @@ public class ThreadPool extends AbstractComponent {
                     SizeValue updatedCapacity = settings.getAsSize("capacity", settings.getAsSize("queue", settings.getAsSize("queue_size", previousInfo.capacity())));
                     String updatedQueueType = settings.get("queue_type", previousInfo.queueType());
                     if (Objects.equal(previousInfo.capacity(), updatedCapacity) && previousInfo.queueType().equals(updatedQueueType)) {
+                        Map<String, Integer> updatedWeights = queueWeights(settings);
+                        if ("fair".equals(updatedQueueType) && !updatedWeights.isEmpty()) {
+                            FairBlockingQueue queue = (FairBlockingQueue) ((EsThreadPoolExecutor) previousExecutorHolder.executor).getQueue();
+                            updatedWeights = mergeWeights(queue.weights(), updatedWeights);
+                            logger.debug("updating thread_pool [{}], type [{}], queue_type [{}], weights [{}]", name, type, updatedQueueType, updatedWeights);
+                            queue.weights(updatedWeights);
+                        }
                         int updatedSize = settings.getAsInt("size", previousInfo.max());
                         String updatedRejectSetting = settings.get("reject_policy", previousInfo.rejectSetting());
                         if (previousInfo.max() != updatedSize) {
@@ -340,7 +354,13 @@ public class ThreadPool extends AbstractComponent {
             String rejectSetting = settings.get("reject_policy", defaultRejectSetting);
             RejectedExecutionHandler rejectedExecutionHandler = newRejectedExecutionHandler(name, rejectSetting);
             String queueType = settings.get("queue_type", defaultQueueType);
-            BlockingQueue<Runnable> workQueue = newQueue(capacity, queueType);
+            Map<String, Integer> weights = queueWeights(settings);
+            if (previousExecutorHolder != null && previousExecutorHolder.executor instanceof EsThreadPoolExecutor
+                    && ((EsThreadPoolExecutor) previousExecutorHolder.executor).getQueue() instanceof FairBlockingQueue) {
+                // keep the weights of the previous queue that are not updated
+                weights = mergeWeights(((FairBlockingQueue) ((EsThreadPoolExecutor) previousExecutorHolder.executor).getQueue()).weights(), weights);
+            }
+            BlockingQueue<Runnable> workQueue = newQueue(capacity, queueType, weights);
             logger.debug("creating thread_pool [{}], type [{}], size [{}], queue_size [{}], reject_policy [{}], queue_type [{}]", name, type, size, capacity, rejectSetting, queueType);
             Executor executor = new EsThreadPoolExecutor(size, size,
                     0L, TimeUnit.MILLISECONDS,
@@ -478,7 +498,11 @@ public class ThreadPool extends AbstractComponent {
         }
     }
 
-    private BlockingQueue<Runnable> newQueue(SizeValue capacity, String queueType) {
+    private BlockingQueue<Runnable> newQueue(SizeValue capacity, String queueType, Map<String, Integer> weights) {
+        if ("fair".equals(queueType)) {
+            // the capacity applies to each of the sub queues
+            return new FairBlockingQueue(capacity == null ? -1 : (int) capacity.singles(), weights);
+        }
         if (capacity == null) {
             return ConcurrentCollections.newBlockingQueue();
         } else if ((int) capacity.singles() > 0) {
@@ -487,13 +511,43 @@ public class ThreadPool extends AbstractComponent {
             } else if ("array".equals(queueType)) {
                 return new ArrayBlockingQueue<Runnable>((int) capacity.singles());
             } else {
-                throw new ElasticSearchIllegalArgumentException("illegal queue_type set to [" + queueType + "], should be either linked or array");
+                throw new ElasticSearchIllegalArgumentException("illegal queue_type set to [" + queueType + "], should be either linked, array or fair");
             }
         } else {
             return new SynchronousQueue<Runnable>();
         }
     }
 
+    /**
+     * The weights of the sub queues of a fair queue, set as <tt>weights.[key]</tt>.
+     */
+    private Map<String, Integer> queueWeights(Settings settings) {
+        Map<String, Integer> weights = Maps.newHashMap();
+        for (Map.Entry<String, String> entry : settings.getByPrefix("weights.").getAsMap().entrySet()) {
+            try {
+                weights.put(entry.getKey(), Integer.parseInt(entry.getValue()));
+            } catch (NumberFormatException e) {
+                throw new ElasticSearchIllegalArgumentException("illegal weight [" + entry.getValue() + "] for queue [" + entry.getKey() + "]");
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Merges updated weights into the current ones, a weight of <tt>0</tt> or less resets the key to the default weight.
+     */
+    private static Map<String, Integer> mergeWeights(Map<String, Integer> current, Map<String, Integer> updated) {
+        Map<String, Integer> weights = Maps.newHashMap(current);
+        for (Map.Entry<String, Integer> entry : updated.entrySet()) {
+            if (entry.getValue() <= 0) {
+                weights.remove(entry.getKey());
+            } else {
+                weights.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return weights;
+    }
+
     private RejectedExecutionHandler newRejectedExecutionHandler(String name, String rejectSetting) {
         if ("abort".equals(rejectSetting)) {
             return new EsAbortPolicy();
@@ -19,9 +19,11 @@
 
 package org.elasticsearch.threadpool;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -44,12 +46,18 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
         private long rejected;
         private int largest;
         private long completed;
+        @Nullable
+        private List<QueueStats> queues;
 
         Stats() {
 
         }
 
         public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed) {
+            this(name, threads, queue, active, rejected, largest, completed, null);
+        }
+
+        public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed, @Nullable List<QueueStats> queues) {
             this.name = name;
             this.threads = threads;
             this.queue = queue;
@@ -57,6 +65,7 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             this.rejected = rejected;
             this.largest = largest;
             this.completed = completed;
+            this.queues = queues;
         }
 
         public String name() {
@@ -115,6 +124,19 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             return this.completed;
         }
 
+        /**
+         * The stats of the sub queues of a fair queue, <tt>null</tt> if the thread pool does not use one.
+         */
+        @Nullable
+        public List<QueueStats> queues() {
+            return this.queues;
+        }
+
+        @Nullable
+        public List<QueueStats> getQueues() {
+            return this.queues;
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             name = in.readString();
@@ -124,6 +146,15 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             rejected = in.readLong();
             largest = in.readInt();
             completed = in.readLong();
+            if (in.readBoolean()) {
+                int size = in.readVInt();
+                queues = new ArrayList<QueueStats>(size);
+                for (int i = 0; i < size; i++) {
+                    QueueStats queueStats = new QueueStats();
+                    queueStats.readFrom(in);
+                    queues.add(queueStats);
+                }
+            }
         }
 
         @Override
@@ -135,6 +166,15 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             out.writeLong(rejected);
             out.writeInt(largest);
             out.writeLong(completed);
+            if (queues == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeVInt(queues.size());
+                for (QueueStats queueStats : queues) {
+                    queueStats.writeTo(out);
+                }
+            }
         }
 
         @Override
@@ -158,6 +198,113 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             if (completed != -1) {
                 builder.field(Fields.COMPLETED, completed);
             }
+            if (queues != null) {
+                builder.startObject(Fields.QUEUES);
+                for (QueueStats queueStats : queues) {
+                    queueStats.toXContent(builder, params);
+                }
+                builder.endObject();
+            }
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    /**
+     * The stats of a sub queue of a thread pool using a fair queue.
+     */
+    public static class QueueStats implements Streamable, ToXContent {
+
+        private String key;
+        private int queue;
+        private long rejected;
+        private long dequeued;
+        private long waitTimeInMillis;
+
+        QueueStats() {
+
+        }
+
+        public QueueStats(String key, int queue, long rejected, long dequeued, long waitTimeInMillis) {
+            this.key = key;
+            this.queue = queue;
+            this.rejected = rejected;
+            this.dequeued = dequeued;
+            this.waitTimeInMillis = waitTimeInMillis;
+        }
+
+        public String key() {
+            return this.key;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public int queue() {
+            return this.queue;
+        }
+
+        public int getQueue() {
+            return this.queue;
+        }
+
+        public long rejected() {
+            return this.rejected;
+        }
+
+        public long getRejected() {
+            return this.rejected;
+        }
+
+        /**
+         * The number of tasks that were taken from the queue to be executed.
+         */
+        public long dequeued() {
+            return this.dequeued;
+        }
+
+        public long getDequeued() {
+            return this.dequeued;
+        }
+
+        /**
+         * The total time the executed tasks waited in the queue.
+         */
+        public TimeValue waitTime() {
+            return new TimeValue(waitTimeInMillis);
+        }
+
+        public TimeValue getWaitTime() {
+            return waitTime();
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            key = in.readString();
+            queue = in.readInt();
+            rejected = in.readLong();
+            dequeued = in.readLong();
+            waitTimeInMillis = in.readLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(key);
+            out.writeInt(queue);
+            out.writeLong(rejected);
+            out.writeLong(dequeued);
+            out.writeLong(waitTimeInMillis);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject(key, XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.QUEUE, queue);
+            builder.field(Fields.REJECTED, rejected);
+            builder.field(Fields.DEQUEUED, dequeued);
+            builder.field(Fields.WAIT_TIME, waitTime().toString());
+            builder.field(Fields.WAIT_TIME_IN_MILLIS, waitTimeInMillis);
             builder.endObject();
             return builder;
         }
@@ -211,6 +358,10 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
         static final XContentBuilderString REJECTED = new XContentBuilderString("rejected");
         static final XContentBuilderString LARGEST = new XContentBuilderString("largest");
         static final XContentBuilderString COMPLETED = new XContentBuilderString("completed");
+        static final XContentBuilderString QUEUES = new XContentBuilderString("queues");
+        static final XContentBuilderString DEQUEUED = new XContentBuilderString("dequeued");
+        static final XContentBuilderString WAIT_TIME = new XContentBuilderString("wait_time");
+        static final XContentBuilderString WAIT_TIME_IN_MILLIS = new XContentBuilderString("wait_time_in_millis");
     }
 
     @Override
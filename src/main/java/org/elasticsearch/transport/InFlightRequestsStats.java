@@ -0,0 +1,124 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Stats of the requests received by the transport that are still being handled.
+ */
+public class InFlightRequestsStats implements Streamable, ToXContent {
+
+    private long sizeInBytes;
+    private long pausedTimeInMillis;
+    private long rejected;
+
+    InFlightRequestsStats() {
+    }
+
+    public InFlightRequestsStats(long sizeInBytes, long pausedTimeInMillis, long rejected) {
+        this.sizeInBytes = sizeInBytes;
+        this.pausedTimeInMillis = pausedTimeInMillis;
+        this.rejected = rejected;
+    }
+
+    /**
+     * The size of the requests that are still being handled.
+     */
+    public ByteSizeValue size() {
+        return new ByteSizeValue(sizeInBytes);
+    }
+
+    public ByteSizeValue getSize() {
+        return size();
+    }
+
+    /**
+     * The total time reading from channels was paused because of too many in flight request bytes.
+     */
+    public TimeValue pausedTime() {
+        return new TimeValue(pausedTimeInMillis);
+    }
+
+    public TimeValue getPausedTime() {
+        return pausedTime();
+    }
+
+    /**
+     * The number of requests rejected because of too many in flight request bytes.
+     */
+    public long rejected() {
+        return rejected;
+    }
+
+    public long getRejected() {
+        return rejected();
+    }
+
+    public static InFlightRequestsStats readInFlightRequestsStats(StreamInput in) throws IOException {
+        InFlightRequestsStats stats = new InFlightRequestsStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        sizeInBytes = in.readVLong();
+        pausedTimeInMillis = in.readVLong();
+        rejected = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(sizeInBytes);
+        out.writeVLong(pausedTimeInMillis);
+        out.writeVLong(rejected);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.IN_FLIGHT_REQUESTS);
+        builder.field(Fields.SIZE, size().toString());
+        builder.field(Fields.SIZE_IN_BYTES, sizeInBytes);
+        builder.field(Fields.PAUSED_TIME, pausedTime().toString());
+        builder.field(Fields.PAUSED_TIME_IN_MILLIS, pausedTimeInMillis);
+        builder.field(Fields.REJECTED, rejected);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString IN_FLIGHT_REQUESTS = new XContentBuilderString("in_flight_requests");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString PAUSED_TIME = new XContentBuilderString("paused_time");
+        static final XContentBuilderString PAUSED_TIME_IN_MILLIS = new XContentBuilderString("paused_time_in_millis");
+        static final XContentBuilderString REJECTED = new XContentBuilderString("rejected");
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.LifecycleComponent;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.TransportAddress;
@@ -75,4 +76,11 @@ public interface Transport extends LifecycleComponent<Transport> {
     void sendRequest(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options) throws IOException, TransportException;
 
     long serverOpen();
+
+    /**
+     * Stats of the requests received that are still being handled, <tt>null</tt> if the transport does not
+     * track them.
+     */
+    @Nullable
+    InFlightRequestsStats inFlightRequestsStats();
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -36,17 +37,24 @@ public class TransportStats implements Streamable, ToXContent {
     private long rxSize;
     private long txCount;
     private long txSize;
+    @Nullable
+    private InFlightRequestsStats inFlightRequests;
 
     TransportStats() {
 
     }
 
     public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, null);
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, @Nullable InFlightRequestsStats inFlightRequests) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.inFlightRequests = inFlightRequests;
     }
 
     public long serverOpen() {
@@ -89,6 +97,19 @@ public class TransportStats implements Streamable, ToXContent {
         return txSize();
     }
 
+    /**
+     * Stats of the requests that are still being handled, <tt>null</tt> if the transport does not track them.
+     */
+    @Nullable
+    public InFlightRequestsStats inFlightRequests() {
+        return inFlightRequests;
+    }
+
+    @Nullable
+    public InFlightRequestsStats getInFlightRequests() {
+        return inFlightRequests();
+    }
+
     public static TransportStats readTransportStats(StreamInput in) throws IOException {
         TransportStats stats = new TransportStats();
         stats.readFrom(in);
@@ -102,6 +123,9 @@ public class TransportStats implements Streamable, ToXContent {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.readBoolean()) {
+            inFlightRequests = InFlightRequestsStats.readInFlightRequestsStats(in);
+        }
     }
 
     @Override
@@ -111,6 +135,12 @@ public class TransportStats implements Streamable, ToXContent {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (inFlightRequests == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            inFlightRequests.writeTo(out);
+        }
     }
 
     @Override
@@ -123,6 +153,9 @@ public class TransportStats implements Streamable, ToXContent {
         builder.field(Fields.TX_COUNT, txCount);
         builder.field(Fields.TX_SIZE, txSize().toString());
         builder.field(Fields.TX_SIZE_IN_BYTES, txSize);
+        if (inFlightRequests != null) {
+            inFlightRequests.toXContent(builder, params);
+        }
         builder.endObject();
         return builder;
     }
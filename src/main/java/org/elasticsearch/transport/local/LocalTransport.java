@@ -155,6 +155,11 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
         return 0;
     }
 
+    @Override
+    public InFlightRequestsStats inFlightRequestsStats() {
+        return null;
+    }
+
     @Override
     public void sendRequest(final DiscoveryNode node, final long requestId, final String action, final TransportRequest request, TransportRequestOptions options) throws IOException, TransportException {
         CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
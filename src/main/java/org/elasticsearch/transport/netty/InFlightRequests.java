@@ -0,0 +1,167 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.InFlightRequestsStats;
+import org.jboss.netty.channel.Channel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.newConcurrentMap;
+
+/**
+ * Accounts for the size of the requests received that are still being handled. Deserialized requests keep
+ * slices of the inbound buffers they were read from, so the bytes stay on the heap until the response is sent.
+ * <p/>
+ * Once the in flight bytes go above <tt>pause_at</tt>, reading from the channels that receive more requests is
+ * paused, until enough requests are done or <tt>max_pause</tt> passed. Requests received while the in flight bytes
+ * are above <tt>limit</tt> (for example, when they were already buffered) are rejected, unless they are small or
+ * no other request is in flight.
+ */
+public class InFlightRequests {
+
+    // small requests (like the fault detection pings) hardly hold memory, and are never rejected
+    static final long MIN_REJECTED_SIZE = 8 * 1024;
+
+    private final ESLogger logger;
+    private final ThreadPool threadPool;
+
+    private final long pauseAt;
+    private final long limit;
+    private final TimeValue maxPause;
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final CounterMetric pausedNanos = new CounterMetric();
+    private final CounterMetric rejected = new CounterMetric();
+
+    // the paused channels, with the time they were paused at
+    private final ConcurrentMap<Channel, Long> pausedChannels = newConcurrentMap();
+
+    public InFlightRequests(ESLogger logger, ThreadPool threadPool, ByteSizeValue pauseAt, ByteSizeValue limit, TimeValue maxPause) {
+        this.logger = logger;
+        this.threadPool = threadPool;
+        this.pauseAt = pauseAt.bytes();
+        this.limit = limit.bytes();
+        this.maxPause = maxPause;
+    }
+
+    /**
+     * Parses a size setting, either as an absolute size, or as a percentage of the heap.
+     */
+    static ByteSizeValue parseSize(String size) {
+        if (size.endsWith("%")) {
+            double percent = Double.parseDouble(size.substring(0, size.length() - 1));
+            return new ByteSizeValue((long) (((double) JvmInfo.jvmInfo().mem().heapMax().bytes()) * (percent / 100)));
+        }
+        return ByteSizeValue.parseBytesSizeValue(size);
+    }
+
+    /**
+     * Accounts for a received request, returns <tt>false</tt> if the request should be rejected, in which case
+     * nothing is accounted for it.
+     */
+    public boolean tryAdd(long bytes) {
+        long current = inFlightBytes.addAndGet(bytes);
+        if (limit > 0 && current > limit && current != bytes && bytes >= MIN_REJECTED_SIZE) {
+            inFlightBytes.addAndGet(-bytes);
+            rejected.inc();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the bytes of a request that is done, and resumes the paused channels if possible.
+     */
+    public void release(long bytes) {
+        long current = inFlightBytes.addAndGet(-bytes);
+        if (current <= pauseAt && !pausedChannels.isEmpty()) {
+            for (Channel channel : pausedChannels.keySet()) {
+                resume(channel);
+            }
+        }
+    }
+
+    /**
+     * Pauses reading from the channel that received a request, if the in flight bytes are above the pause
+     * threshold.
+     */
+    public void maybePause(final Channel channel) {
+        if (pauseAt <= 0 || inFlightBytes.get() <= pauseAt) {
+            return;
+        }
+        if (pausedChannels.putIfAbsent(channel, System.nanoTime()) != null) {
+            return;
+        }
+        channel.setReadable(false);
+        if (logger.isTraceEnabled()) {
+            logger.trace("paused reading from [{}], in flight requests [{}]", channel, new ByteSizeValue(inFlightBytes.get()));
+        }
+        // in case the requests got done while we paused, or the requests wait on more requests from the same channel
+        if (inFlightBytes.get() <= pauseAt) {
+            resume(channel);
+        } else {
+            threadPool.schedule(maxPause, ThreadPool.Names.SAME, new Runnable() {
+                @Override
+                public void run() {
+                    resume(channel);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops tracking a closed channel.
+     */
+    public void remove(Channel channel) {
+        Long pausedAt = pausedChannels.remove(channel);
+        if (pausedAt != null) {
+            pausedNanos.inc(System.nanoTime() - pausedAt);
+        }
+    }
+
+    private void resume(Channel channel) {
+        Long pausedAt = pausedChannels.remove(channel);
+        if (pausedAt == null) {
+            return;
+        }
+        pausedNanos.inc(System.nanoTime() - pausedAt);
+        if (channel.isOpen()) {
+            channel.setReadable(true);
+        }
+    }
+
+    public InFlightRequestsStats stats() {
+        long pausedNanos = this.pausedNanos.count();
+        for (Map.Entry<Channel, Long> entry : pausedChannels.entrySet()) {
+            pausedNanos += System.nanoTime() - entry.getValue();
+        }
+        return new InFlightRequestsStats(inFlightBytes.get(), TimeUnit.NANOSECONDS.toMillis(pausedNanos), rejected.count());
+    }
+}
@@ -28,6 +28,9 @@ import org.elasticsearch.common.io.ThrowableObjectInputStream;
 import org.elasticsearch.common.io.stream.CachedStreamInput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.KeyedRunnable;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 import org.elasticsearch.transport.support.TransportStatus;
@@ -107,8 +110,12 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         }
         wrappedStream.setVersion(version);
 
-        if (TransportStatus.isRequest(status)) {
-            String action = handleRequest(ctx.getChannel(), wrappedStream, requestId, version);
+        if (TransportStatus.isRequest(status) && !transport.inFlightRequests().tryAdd(size + 6)) {
+            // the request got buffered before reading from the channel was paused, reject it and skip its bytes
+            rejectRequest(ctx.getChannel(), wrappedStream, requestId, version, size + 6);
+            buffer.readerIndex(expectedIndexReader);
+        } else if (TransportStatus.isRequest(status)) {
+            String action = handleRequest(ctx.getChannel(), wrappedStream, requestId, version, size + 6);
             if (buffer.readerIndex() != expectedIndexReader) {
                 if (buffer.readerIndex() < expectedIndexReader) {
                     logger.warn("Message not fully read (request) for [{}] and action [{}], resetting", requestId, action);
@@ -194,10 +201,17 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
-    private String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
+    private void rejectRequest(Channel channel, StreamInput buffer, long requestId, Version version, long requestSize) throws IOException {
+        String action = buffer.readString();
+        NettyTransportChannel transportChannel = new NettyTransportChannel(transport, action, channel, requestId, version);
+        transportChannel.sendResponse(new EsRejectedExecutionException("rejected execution of [" + action + "] with size [" + new ByteSizeValue(requestSize) + "], too many in flight requests"));
+    }
+
+    private String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version, long requestSize) throws IOException {
         final String action = buffer.readString();
 
-        final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, action, channel, requestId, version);
+        final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, action, channel, requestId, version, requestSize);
+        transport.inFlightRequests().maybePause(channel);
         try {
             final TransportRequestHandler handler = transportServiceAdapter.handler(action);
             if (handler == null) {
@@ -222,6 +236,12 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         return action;
     }
 
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        transport.inFlightRequests().remove(ctx.getChannel());
+        super.channelClosed(ctx, e);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         transport.exceptionCaught(ctx, e);
@@ -248,7 +268,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
-    class RequestHandler implements Runnable {
+    class RequestHandler implements KeyedRunnable {
         private final TransportRequestHandler handler;
         private final TransportRequest request;
         private final NettyTransportChannel transportChannel;
@@ -261,6 +281,15 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
             this.action = action;
         }
 
+        @SuppressWarnings({"unchecked"})
+        @Override
+        public String queueKey() {
+            if (handler instanceof KeyedTransportRequestHandler) {
+                return ((KeyedTransportRequestHandler) handler).queueKey(request);
+            }
+            return null;
+        }
+
         @SuppressWarnings({"unchecked"})
         @Override
         public void run() {
@@ -130,6 +130,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
     private final ThreadPool threadPool;
 
+    private final InFlightRequests inFlightRequests;
+
     private volatile OpenChannelsHandler serverOpenChannels;
 
     private volatile ClientBootstrap clientBootstrap;
@@ -195,6 +197,11 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.maxCumulationBufferCapacity = componentSettings.getAsBytesSize("max_cumulation_buffer_capacity", null);
         this.maxCompositeBufferComponents = componentSettings.getAsInt("max_composite_buffer_components", -1);
 
+        ByteSizeValue inFlightPauseAt = InFlightRequests.parseSize(componentSettings.get("in_flight_requests.pause_at", "20%"));
+        ByteSizeValue inFlightLimit = InFlightRequests.parseSize(componentSettings.get("in_flight_requests.limit", "40%"));
+        TimeValue inFlightMaxPause = componentSettings.getAsTime("in_flight_requests.max_pause", TimeValue.timeValueSeconds(1));
+        this.inFlightRequests = new InFlightRequests(logger, threadPool, inFlightPauseAt, inFlightLimit, inFlightMaxPause);
+
         long defaultReceiverPredictor = 512 * 1024;
         if (JvmInfo.jvmInfo().mem().directMemoryMax().bytes() > 0) {
             // we can guess a better default...
@@ -211,8 +218,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             receiveBufferSizePredictorFactory = new AdaptiveReceiveBufferSizePredictorFactory((int) receivePredictorMin.bytes(), (int) receivePredictorMin.bytes(), (int) receivePredictorMax.bytes());
         }
 
-        logger.debug("using worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], connect_timeout[{}], connections_per_node[{}/{}/{}], receive_predictor[{}->{}]",
-                workerCount, port, bindHost, publishHost, compress, connectTimeout, connectionsPerNodeLow, connectionsPerNodeMed, connectionsPerNodeHigh, receivePredictorMin, receivePredictorMax);
+        logger.debug("using worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], connect_timeout[{}], connections_per_node[{}/{}/{}], receive_predictor[{}->{}], in_flight_requests[{}/{}]",
+                workerCount, port, bindHost, publishHost, compress, connectTimeout, connectionsPerNodeLow, connectionsPerNodeMed, connectionsPerNodeHigh, receivePredictorMin, receivePredictorMax, inFlightPauseAt, inFlightLimit);
     }
 
     public Settings settings() {
@@ -511,6 +518,15 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return channels == null ? 0 : channels.numberOfOpenChannels();
     }
 
+    @Override
+    public InFlightRequestsStats inFlightRequestsStats() {
+        return inFlightRequests.stats();
+    }
+
+    InFlightRequests inFlightRequests() {
+        return inFlightRequests;
+    }
+
     @Override
     public void sendRequest(final DiscoveryNode node, final long requestId, final String action, final TransportRequest request, TransportRequestOptions options) throws IOException, TransportException {
         Channel targetChannel = nodeChannel(node, options);
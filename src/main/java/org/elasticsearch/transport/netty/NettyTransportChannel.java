@@ -33,6 +33,7 @@ import org.jboss.netty.channel.ChannelFuture;
 
 import java.io.IOException;
 import java.io.NotSerializableException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *
@@ -49,12 +50,24 @@ public class NettyTransportChannel implements TransportChannel {
 
     private final long requestId;
 
+    private final long reservedBytes;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
     public NettyTransportChannel(NettyTransport transport, String action, Channel channel, long requestId, Version version) {
+        this(transport, action, channel, requestId, version, 0);
+    }
+
+    /**
+     * @param reservedBytes the in flight request bytes accounted for the request, released once the response is sent
+     */
+    public NettyTransportChannel(NettyTransport transport, String action, Channel channel, long requestId, Version version, long reservedBytes) {
         this.version = version;
         this.transport = transport;
         this.action = action;
         this.channel = channel;
         this.requestId = requestId;
+        this.reservedBytes = reservedBytes;
     }
 
     @Override
@@ -69,6 +82,7 @@ public class NettyTransportChannel implements TransportChannel {
 
     @Override
     public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
+        release();
         if (transport.compress) {
             options.withCompress(true);
         }
@@ -99,6 +113,7 @@ public class NettyTransportChannel implements TransportChannel {
 
     @Override
     public void sendResponse(Throwable error) throws IOException {
+        release();
         CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
         BytesStreamOutput stream;
         try {
@@ -127,4 +142,10 @@ public class NettyTransportChannel implements TransportChannel {
         ChannelFuture future = channel.write(buffer);
         future.addListener(new NettyTransport.CacheFutureListener(cachedEntry));
     }
+
+    private void release() {
+        if (reservedBytes > 0 && released.compareAndSet(false, true)) {
+            transport.inFlightRequests().release(reservedBytes);
+        }
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.lucene.uidscan;
+
+import jsr166y.ThreadLocalRandom;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene41.Lucene41Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.FSDirectory;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.uid.UidField;
+import org.elasticsearch.common.lucene.uid.UidLookup;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.index.codec.postingsformat.PostingFormats;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares the uid version lookups done by the engine for versioned writes, creating new enums per segment on each
+ * lookup ({@link UidField#loadVersion}) against reusing them per thread ({@link UidLookup#loadVersion}). The _uid
+ * field uses the <tt>bloom_default</tt> postings format, as it does in the engine.
+ * <p/>
+ * Half of the lookups are for uids that do not exist, as is the case when indexing new docs. The number of docs
+ * can be set with <tt>-Des.uid_lookup.docs</tt> (for example <tt>100m</tt>).
+ */
+public class UidLookupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int NUMBER_OF_THREADS = 2;
+        final long INDEX_COUNT = SizeValue.parseSizeValue(System.getProperty("es.uid_lookup.docs", "1m")).singles();
+        final long LOOKUP_COUNT = SizeValue.parseSizeValue("200k").singles();
+        final int DOCS_PER_SEGMENT = 100000;
+
+        File location = new File("work/test/uid_lookup");
+        FileSystemUtils.deleteRecursively(location);
+        FSDirectory dir = FSDirectory.open(location);
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        final PostingsFormat uidPostingsFormat = PostingFormats.getAsProvider("bloom_default").get();
+        config.setCodec(new Lucene41Codec() {
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                if (UidFieldMapper.NAME.equals(field)) {
+                    return uidPostingsFormat;
+                }
+                return super.getPostingsFormatForField(field);
+            }
+        });
+        config.setMaxBufferedDocs(DOCS_PER_SEGMENT);
+        config.setMergePolicy(NoMergePolicy.COMPOUND_FILES);
+        IndexWriter writer = new IndexWriter(dir, config);
+
+        StopWatch watch = new StopWatch().start();
+        System.out.println("Indexing " + INDEX_COUNT + " docs...");
+        for (long i = 0; i < INDEX_COUNT; i++) {
+            Document doc = new Document();
+            doc.add(new UidField(UidFieldMapper.NAME, "type#" + i, i + 1));
+            writer.addDocument(doc);
+        }
+        writer.commit();
+        System.out.println("Done indexing, took " + watch.stop().lastTaskTime());
+
+        final DirectoryReader reader = DirectoryReader.open(writer, true);
+        final List<AtomicReaderContext> leaves = reader.leaves();
+        System.out.println("Segments: " + leaves.size());
+
+        for (int run = 0; run < 2; run++) {
+            for (final boolean reuse : new boolean[]{false, true}) {
+                final CountDownLatch latch = new CountDownLatch(NUMBER_OF_THREADS);
+                Thread[] threads = new Thread[NUMBER_OF_THREADS];
+                for (int i = 0; i < threads.length; i++) {
+                    threads[i] = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                for (long i = 0; i < LOOKUP_COUNT; i++) {
+                                    // half of the lookups miss, like indexing new docs does
+                                    long id = ThreadLocalRandom.current().nextLong(INDEX_COUNT * 2);
+                                    Term uid = new Term(UidFieldMapper.NAME, "type#" + id);
+                                    long version = -1;
+                                    for (int j = 0; j < leaves.size() && version == -1; j++) {
+                                        if (reuse) {
+                                            version = UidLookup.loadVersion(leaves.get(j), uid);
+                                        } else {
+                                            version = UidField.loadVersion(leaves.get(j), uid);
+                                        }
+                                    }
+                                    if (version != (id < INDEX_COUNT ? id + 1 : -1)) {
+                                        System.err.println("wrong version for [" + id + "]: " + version);
+                                        break;
+                                    }
+                                }
+                            } catch (Exception e) {
+                                e.printStackTrace();
+                            } finally {
+                                latch.countDown();
+                            }
+                        }
+                    });
+                }
+
+                watch = new StopWatch().start();
+                for (int i = 0; i < threads.length; i++) {
+                    threads[i].start();
+                }
+                latch.await();
+                watch.stop();
+                System.out.println("[" + (reuse ? "reuse" : "no reuse") + "] looked up in " + watch.totalTime() + ", lookups/sec " + ((LOOKUP_COUNT * NUMBER_OF_THREADS) / watch.totalTime().secondsFrac()));
+            }
+        }
+
+        reader.close();
+        writer.close();
+        dir.close();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.percolator;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.inject.AbstractModule;
+import org.elasticsearch.common.inject.Injector;
+import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsModule;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexNameModule;
+import org.elasticsearch.index.analysis.AnalysisModule;
+import org.elasticsearch.index.cache.IndexCacheModule;
+import org.elasticsearch.index.engine.IndexEngineModule;
+import org.elasticsearch.index.mapper.MapperServiceModule;
+import org.elasticsearch.index.percolator.PercolatorExecutor;
+import org.elasticsearch.index.query.IndexQueryParserModule;
+import org.elasticsearch.index.settings.IndexSettingsModule;
+import org.elasticsearch.index.similarity.SimilarityModule;
+import org.elasticsearch.indices.query.IndicesQueriesModule;
+import org.elasticsearch.script.ScriptModule;
+import org.elasticsearch.threadpool.ThreadPoolModule;
+
+import java.util.Random;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Percolates docs against 10k, 100k and 1M registered queries, where only the queries that have one of their
+ * terms in the doc are executed.
+ */
+public class QueryTermsPercolatorBenchmark {
+
+    private static final int[] NUMBER_OF_QUERIES = {10000, 100000, 1000000};
+    private static final int NUMBER_OF_DOCS = 10000;
+    private static final int VOCABULARY_SIZE = 50000;
+    private static final int TERMS_PER_DOC = 20;
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = ImmutableSettings.settingsBuilder()
+                .put("index.cache.filter.type", "none")
+                .build();
+        Index index = new Index("test");
+        Injector injector = new ModulesBuilder().add(
+                new SettingsModule(settings),
+                new ThreadPoolModule(settings),
+                new IndicesQueriesModule(),
+                new ScriptModule(settings),
+                new MapperServiceModule(),
+                new IndexSettingsModule(index, settings),
+                new IndexCacheModule(settings),
+                new AnalysisModule(settings),
+                new IndexEngineModule(settings),
+                new SimilarityModule(settings),
+                new IndexQueryParserModule(settings),
+                new IndexNameModule(index),
+                new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(PercolatorExecutor.class).asEagerSingleton();
+                    }
+                }
+        ).createInjector();
+
+        PercolatorExecutor percolatorExecutor = injector.getInstance(PercolatorExecutor.class);
+
+        Random random = new Random(0);
+        byte[][] docs = new byte[NUMBER_OF_DOCS][];
+        for (int i = 0; i < docs.length; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < TERMS_PER_DOC; j++) {
+                text.append("term").append(random.nextInt(VOCABULARY_SIZE)).append(' ');
+            }
+            XContentBuilder doc = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                    .field("field1", random.nextInt(100))
+                    .field("field2", "value" + random.nextInt(100))
+                    .field("field3", text.toString())
+                    .endObject().endObject();
+            docs[i] = doc.bytes().toBytes();
+        }
+        // introduce the mapping
+        percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", new BytesArray(docs[0])));
+
+        int registered = 0;
+        for (int numberOfQueries : NUMBER_OF_QUERIES) {
+            System.out.println("Registering queries up to " + numberOfQueries);
+            for (; registered < numberOfQueries; registered++) {
+                String name = "query" + registered;
+                switch (registered % 4) {
+                    case 0:
+                        percolatorExecutor.addQuery(name, termQuery("field3", "term" + random.nextInt(VOCABULARY_SIZE)));
+                        break;
+                    case 1:
+                        percolatorExecutor.addQuery(name, boolQuery()
+                                .must(termQuery("field3", "term" + random.nextInt(VOCABULARY_SIZE)))
+                                .must(termQuery("field2", "value" + random.nextInt(100))));
+                        break;
+                    case 2:
+                        percolatorExecutor.addQuery(name, boolQuery()
+                                .should(termQuery("field3", "term" + random.nextInt(VOCABULARY_SIZE)))
+                                .should(termQuery("field3", "term" + random.nextInt(VOCABULARY_SIZE))));
+                        break;
+                    default:
+                        percolatorExecutor.addQuery(name, matchPhraseQuery("field3", "term" + random.nextInt(VOCABULARY_SIZE) + " term" + random.nextInt(VOCABULARY_SIZE)));
+                        break;
+                }
+            }
+
+            // warm up
+            for (int i = 0; i < 1000; i++) {
+                percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", new BytesArray(docs[i % docs.length])));
+            }
+
+            long candidatesBefore = percolatorExecutor.stats().candidates();
+            long matchesBefore = percolatorExecutor.stats().matches();
+            StopWatch stopWatch = new StopWatch().start();
+            for (byte[] doc : docs) {
+                percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", new BytesArray(doc)));
+            }
+            stopWatch.stop();
+            long candidates = percolatorExecutor.stats().candidates() - candidatesBefore;
+            long matches = percolatorExecutor.stats().matches() - matchesBefore;
+            System.out.println("[" + numberOfQueries + " queries] percolated " + docs.length + " docs in " + stopWatch.totalTime()
+                    + ", " + (docs.length / stopWatch.totalTime().secondsFrac()) + " docs/sec"
+                    + ", candidates per doc " + ((double) candidates / docs.length)
+                    + ", matches per doc " + ((double) matches / docs.length));
+        }
+        System.out.println("Stats: " + percolatorExecutor.stats());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.child;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.node.Node;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.elasticsearch.client.Requests.createIndexRequest;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.hasChildFilter;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Compares the uid and the ordinals execution types of has_child, with 1M parents and 50M children.
+ */
+public class ChildSearchOrdinalsBenchmark {
+
+    static final int QUERY_WARMUP = 10;
+    static final int QUERY_COUNT = 20;
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = settingsBuilder()
+                .put("index.engine.robin.refreshInterval", "-1")
+                .put("index.cache.id.type", "compact")
+                .put("gateway.type", "local")
+                .put(SETTING_NUMBER_OF_SHARDS, 1)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node1 = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node1")).node();
+        Client client = node1.client();
+
+        long COUNT = SizeValue.parseSizeValue("1m").singles();
+        int CHILD_COUNT = 50;
+        int BATCH = 20;
+
+        Thread.sleep(10000);
+        try {
+            client.admin().indices().create(createIndexRequest("test")).actionGet();
+            client.admin().indices().preparePutMapping("test").setType("child").setSource(XContentFactory.jsonBuilder().startObject().startObject("type")
+                    .startObject("_parent").field("type", "parent").endObject()
+                    .endObject().endObject()).execute().actionGet();
+            Thread.sleep(5000);
+
+            StopWatch stopWatch = new StopWatch().start();
+
+            System.out.println("--> Indexing [" + COUNT + "] parent document and [" + (COUNT * CHILD_COUNT) + " child documents");
+            long ITERS = COUNT / BATCH;
+            long i = 1;
+            int counter = 0;
+            for (; i <= ITERS; i++) {
+                BulkRequestBuilder request = client.prepareBulk();
+                for (int j = 0; j < BATCH; j++) {
+                    counter++;
+                    request.add(Requests.indexRequest("test").type("parent").id(Integer.toString(counter))
+                            .source(parentSource(Integer.toString(counter), "test" + counter)));
+                    for (int k = 0; k < CHILD_COUNT; k++) {
+                        request.add(Requests.indexRequest("test").type("child").id(Integer.toString(counter) + "_" + k)
+                                .parent(Integer.toString(counter))
+                                .source(childSource(Integer.toString(counter), "tag" + (k % 10))));
+                    }
+                }
+                BulkResponse response = request.execute().actionGet();
+                if (response.hasFailures()) {
+                    System.err.println("--> failures...");
+                }
+                if (((i * BATCH) % 10000) == 0) {
+                    System.out.println("--> Indexed " + (i * BATCH) * (1 + CHILD_COUNT) + " took " + stopWatch.stop().lastTaskTime());
+                    stopWatch.start();
+                }
+            }
+            System.out.println("--> Indexing took " + stopWatch.totalTime() + ", TPS " + (((double) (COUNT * (1 + CHILD_COUNT))) / stopWatch.totalTime().secondsFrac()));
+        } catch (Exception e) {
+            System.out.println("--> Index already exists, ignoring indexing phase, waiting for green");
+            ClusterHealthResponse clusterHealthResponse = client.admin().cluster().prepareHealth().setWaitForGreenStatus().setTimeout("10m").execute().actionGet();
+            if (clusterHealthResponse.timedOut()) {
+                System.err.println("--> Timed out waiting for cluster health");
+            }
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        System.out.println("--> Number of docs in index: " + client.prepareCount().setQuery(matchAllQuery()).execute().actionGet().count());
+
+        String[] executionTypes = new String[]{"uid", "ordinals"};
+        for (String executionType : executionTypes) {
+            run(client, "has_child[" + executionType + "] filter",
+                    filteredQuery(matchAllQuery(), hasChildFilter("child", termQuery("tag", "tag1")).executionType(executionType)), COUNT);
+            run(client, "has_child[" + executionType + "] filter with match_all child query",
+                    filteredQuery(matchAllQuery(), hasChildFilter("child", matchAllQuery()).executionType(executionType)), COUNT);
+            run(client, "has_child[" + executionType + "] query with score type max",
+                    hasChildQuery("child", termQuery("tag", "tag1")).scoreType("max").executionType(executionType), COUNT);
+            run(client, "has_child[" + executionType + "] query with score type avg and match_all child query",
+                    hasChildQuery("child", matchAllQuery()).scoreType("avg").executionType(executionType), COUNT);
+        }
+
+        NodesStatsResponse statsResponse = client.admin().cluster().prepareNodesStats()
+                .setJvm(true).setIndices(true).execute().actionGet();
+
+        System.out.println("--> Id cache size: " + statsResponse.nodes()[0].getIndices().getCache().getIdCacheSize());
+        System.out.println("--> Used heap size: " + statsResponse.nodes()[0].getJvm().getMem().getHeapUsed());
+
+        client.close();
+        node1.close();
+    }
+
+    private static void run(Client client, String name, QueryBuilder query, long expected) {
+        System.out.println("--> Running " + name);
+        long totalQueryTime = 0;
+        for (int j = 0; j < QUERY_WARMUP + QUERY_COUNT; j++) {
+            SearchResponse searchResponse = client.prepareSearch().setQuery(query).execute().actionGet();
+            if (searchResponse.failedShards() > 0) {
+                System.err.println("Search Failures " + Arrays.toString(searchResponse.shardFailures()));
+            }
+            if (searchResponse.hits().totalHits() != expected) {
+                System.err.println("--> mismatch on hits [" + j + "], got [" + searchResponse.hits().totalHits() + "], expected [" + expected + "]");
+            }
+            if (j >= QUERY_WARMUP) {
+                totalQueryTime += searchResponse.tookInMillis();
+            }
+        }
+        System.out.println("--> " + name + ", Query Avg: " + (totalQueryTime / QUERY_COUNT) + "ms");
+    }
+
+    private static XContentBuilder parentSource(String id, String nameValue) throws IOException {
+        return jsonBuilder().startObject().field("id", id).field("name", nameValue).endObject();
+    }
+
+    private static XContentBuilder childSource(String id, String tag) throws IOException {
+        return jsonBuilder().startObject().field("id", id).field("tag", tag).endObject();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.benchmark.search.scan;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.search.SearchHit;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.elasticsearch.client.Requests.createIndexRequest;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Exports all the docs of an index using scan, and reports the documents per second and the bytes
+ * allocated per document (by all the threads of the jvm, when supported).
+ */
+public class ScanExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = settingsBuilder()
+                .put("index.engine.robin.refreshInterval", "-1")
+                .put("gateway.type", "local")
+                .put(SETTING_NUMBER_OF_SHARDS, 2)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node1 = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node1")).node();
+        Client client = node1.client();
+
+        long COUNT = SizeValue.parseSizeValue("1m").singles();
+        int BATCH = 500;
+        int SCAN_SIZE = 500;
+        int EXPORTS = 3;
+
+        Thread.sleep(10000);
+        try {
+            client.admin().indices().create(createIndexRequest("test")).actionGet();
+
+            StopWatch stopWatch = new StopWatch().start();
+
+            System.out.println("--> Indexing [" + COUNT + "] ...");
+            long ITERS = COUNT / BATCH;
+            long i = 1;
+            int counter = 0;
+            for (; i <= ITERS; i++) {
+                BulkRequestBuilder request = client.prepareBulk();
+                for (int j = 0; j < BATCH; j++) {
+                    counter++;
+                    request.add(Requests.indexRequest("test").type("type1").id(Integer.toString(counter))
+                            .source(jsonBuilder().startObject()
+                                    .field("id", counter)
+                                    .field("title", "title " + counter)
+                                    .field("body", "the body of document number " + counter + ", with a few more words to make it look like a real document")
+                                    .field("tags", new String[]{"tag" + (counter % 10), "tag" + (counter % 100)})
+                                    .endObject()));
+                }
+                BulkResponse response = request.execute().actionGet();
+                if (response.hasFailures()) {
+                    System.err.println("--> failures...");
+                }
+                if (((i * BATCH) % 100000) == 0) {
+                    System.out.println("--> Indexed " + (i * BATCH) + " took " + stopWatch.stop().lastTaskTime());
+                    stopWatch.start();
+                }
+            }
+            System.out.println("--> Indexing took " + stopWatch.totalTime() + ", TPS " + (((double) COUNT) / stopWatch.totalTime().secondsFrac()));
+        } catch (Exception e) {
+            System.out.println("--> Index already exists, ignoring indexing phase, waiting for green");
+            ClusterHealthResponse clusterHealthResponse = client.admin().cluster().prepareHealth().setWaitForGreenStatus().setTimeout("10m").execute().actionGet();
+            if (clusterHealthResponse.timedOut()) {
+                System.err.println("--> Timed out waiting for cluster health");
+            }
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        System.out.println("--> Number of docs in index: " + client.prepareCount().setQuery(matchAllQuery()).execute().actionGet().count());
+
+        for (int j = 0; j < EXPORTS; j++) {
+            long allocatedBefore = allocatedBytes();
+            long sourceBytes = 0;
+            long docs = 0;
+            StopWatch stopWatch = new StopWatch().start();
+            SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.SCAN).setQuery(matchAllQuery())
+                    .setSize(SCAN_SIZE).setScroll(TimeValue.timeValueMinutes(1)).execute().actionGet();
+            while (true) {
+                searchResponse = client.prepareSearchScroll(searchResponse.scrollId()).setScroll(TimeValue.timeValueMinutes(1)).execute().actionGet();
+                if (searchResponse.hits().hits().length == 0) {
+                    break;
+                }
+                for (SearchHit hit : searchResponse.hits()) {
+                    sourceBytes += hit.sourceRef().length();
+                    docs++;
+                }
+            }
+            stopWatch.stop();
+            long allocated = allocatedBytes() - allocatedBefore;
+            System.out.println("--> Exported " + docs + " docs (" + sourceBytes + " source bytes) in " + stopWatch.totalTime()
+                    + ", " + ((long) (docs / stopWatch.totalTime().secondsFrac())) + " docs/sec"
+                    + (allocatedBefore < 0 ? "" : ", " + (allocated / Math.max(1, docs)) + " bytes allocated per doc"));
+        }
+
+        client.close();
+        node1.close();
+    }
+
+    /**
+     * The bytes allocated by all the live threads so far, <tt>-1</tt> if the jvm does not support it.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!sunThreadMXBean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        long[] allocated = sunThreadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds());
+        long total = 0;
+        for (long bytes : allocated) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
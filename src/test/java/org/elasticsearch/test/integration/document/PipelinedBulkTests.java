@@ -0,0 +1,133 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.document;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ *
+ */
+public class PipelinedBulkTests extends AbstractNodesTests {
+
+    @AfterMethod
+    public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test
+    public void testPipelinedBulkReplicatesAllItems() throws Exception {
+        Settings settings = ImmutableSettings.settingsBuilder()
+                .put("action.bulk.pipeline.batch_size", 10)
+                .put("action.bulk.pipeline.concurrency", 3)
+                .build();
+        startNode("server1", settings);
+        startNode("server2", settings);
+
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 1))
+                .execute().actionGet();
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+
+        BulkRequestBuilder bulk = client("server1").prepareBulk();
+        for (int i = 0; i < 100; i++) {
+            bulk.add(client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("field", "value" + i));
+        }
+        // operations on the same docs have to be executed in order
+        for (int i = 0; i < 10; i++) {
+            bulk.add(client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("field", "updated" + i));
+        }
+        for (int i = 90; i < 100; i++) {
+            bulk.add(client("server1").prepareDelete("test", "type1", Integer.toString(i)));
+        }
+        BulkResponse response = bulk.setRefresh(true).execute().actionGet();
+        assertThat(response.hasFailures(), equalTo(false));
+        assertThat(response.primaryTookInMillis(), greaterThanOrEqualTo(0l));
+        assertThat(response.replicationTookInMillis(), greaterThanOrEqualTo(0l));
+        for (int i = 0; i < 10; i++) {
+            assertThat(response.items()[100 + i].version(), equalTo(2l));
+        }
+
+        client("server1").admin().indices().prepareRefresh().execute().actionGet();
+        for (String preference : new String[]{"_primary", "_local"}) {
+            for (String node : new String[]{"server1", "server2"}) {
+                assertThat(client(node).prepareSearch("test").setQuery(matchAllQuery()).setPreference(preference).execute().actionGet().hits().totalHits(), equalTo(90l));
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            for (String node : new String[]{"server1", "server2"}) {
+                assertThat(client(node).prepareGet("test", "type1", Integer.toString(i)).setPreference("_local").execute().actionGet().sourceAsMap().get("field").toString(), equalTo("updated" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedBulkAppliesBatchesInOrderBeforeRefresh() throws Exception {
+        Settings settings = ImmutableSettings.settingsBuilder()
+                .put("action.bulk.pipeline.batch_size", 5)
+                .put("action.bulk.pipeline.concurrency", 2)
+                .build();
+        startNode("server1", settings);
+        startNode("server2", settings);
+
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 1))
+                .execute().actionGet();
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+
+        // every doc is updated over many batches of its group, the replicas have to apply them in order
+        BulkRequestBuilder bulk = client("server1").prepareBulk();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 4; i++) {
+                bulk.add(client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("field", "round" + round));
+            }
+        }
+        BulkResponse response = bulk.setRefresh(true).execute().actionGet();
+        assertThat(response.hasFailures(), equalTo(false));
+
+        // no explicit refresh, the refresh of the bulk has to come after all the batches on the replicas as well
+        for (String node : new String[]{"server1", "server2"}) {
+            assertThat(client(node).prepareSearch("test").setQuery(termQuery("field", "round19")).setPreference("_local").execute().actionGet().hits().totalHits(), equalTo(4l));
+            for (int i = 0; i < 4; i++) {
+                GetResponse get = client(node).prepareGet("test", "type1", Integer.toString(i)).setPreference("_local").execute().actionGet();
+                assertThat(get.version(), equalTo(20l));
+                assertThat(get.sourceAsMap().get("field").toString(), equalTo("round19"));
+            }
+        }
+    }
+}
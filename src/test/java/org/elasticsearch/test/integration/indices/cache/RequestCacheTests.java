@@ -0,0 +1,145 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.test.integration.indices.cache;
+
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.facet.FacetBuilders.termsFacet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ */
+public class RequestCacheTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass
+    public void createNodes() throws Exception {
+        startNode("node1");
+        client = client("node1");
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test
+    public void testCountRequestsAreCachedUntilRefresh() throws Exception {
+        client.admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        .put("index.cache.request.enable", true))
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        for (int i = 0; i < 10; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource("tag", i % 2 == 0 ? "even" : "odd").execute().actionGet();
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        long hits = requestCacheHits();
+        for (int i = 0; i < 3; i++) {
+            SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.COUNT).setQuery(matchAllQuery())
+                    .addFacet(termsFacet("tags").field("tag"))
+                    .execute().actionGet();
+            assertThat(searchResponse.hits().totalHits(), equalTo(10l));
+            TermsFacet facet = searchResponse.facets().facet("tags");
+            assertThat(facet.getEntries().size(), equalTo(2));
+            assertThat(facet.getEntries().get(0).getCount(), equalTo(5));
+        }
+        // the first one got executed, the others came from the cache
+        assertThat(requestCacheHits(), equalTo(hits + 2));
+
+        client.prepareIndex("test", "type1", "10").setSource("tag", "even").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.COUNT).setQuery(matchAllQuery())
+                .addFacet(termsFacet("tags").field("tag"))
+                .execute().actionGet();
+        assertThat(searchResponse.hits().totalHits(), equalTo(11l));
+        TermsFacet facet = searchResponse.facets().facet("tags");
+        assertThat(facet.getEntries().get(0).getTerm().string(), equalTo("even"));
+        assertThat(facet.getEntries().get(0).getCount(), equalTo(6));
+        assertThat(requestCacheHits(), equalTo(hits + 2));
+    }
+
+    @Test
+    public void testNowQueriesAreNotCached() throws Exception {
+        client.admin().indices().prepareCreate("test_now")
+                .setSettings(ImmutableSettings.settingsBuilder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        .put("index.cache.request.enable", true))
+                .addMapping("type1", jsonBuilder().startObject().startObject("type1").startObject("properties")
+                        .startObject("date").field("type", "date").endObject()
+                        .endObject().endObject().endObject())
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            client.prepareIndex("test_now", "type1", Integer.toString(i)).setSource("date", now - TimeValue.timeValueMinutes(i * 10).millis()).execute().actionGet();
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        long hits = requestCacheHits();
+        for (int i = 0; i < 3; i++) {
+            SearchResponse searchResponse = client.prepareSearch("test_now").setSearchType(SearchType.COUNT)
+                    .setQuery(rangeQuery("date").gte("now-1h"))
+                    .execute().actionGet();
+            assertThat(searchResponse.hits().totalHits(), greaterThanOrEqualTo(5l));
+        }
+        // the results of now relative queries change over time, they are never served from the cache
+        assertThat(requestCacheHits(), equalTo(hits));
+
+        // the same query with a fixed date is cached
+        for (int i = 0; i < 3; i++) {
+            SearchResponse searchResponse = client.prepareSearch("test_now").setSearchType(SearchType.COUNT)
+                    .setQuery(rangeQuery("date").gte(now - TimeValue.timeValueHours(1).millis()))
+                    .execute().actionGet();
+            assertThat(searchResponse.hits().totalHits(), equalTo(7l));
+        }
+        assertThat(requestCacheHits(), equalTo(hits + 2));
+    }
+
+    private long requestCacheHits() {
+        NodesStatsResponse nodesStats = client.admin().cluster().prepareNodesStats().setIndices(true).execute().actionGet();
+        return nodesStats.nodes()[0].indices().getCache().requestCacheHits();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.recovery;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ *
+ */
+public class SegmentReplicationTests extends AbstractNodesTests {
+
+    @AfterMethod
+    public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test
+    public void testSegmentsCopiedToReplica() throws Exception {
+        ImmutableSettings.Builder settings = ImmutableSettings.settingsBuilder().put("indices.recovery.segment_copy_interval", "100ms");
+        startNode("server1", settings);
+        startNode("server2", settings);
+
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 1).put("index.replication.mode", "segment"))
+                .execute().actionGet();
+
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+
+        for (int i = 0; i < 100; i++) {
+            client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("field", "value" + i).execute().actionGet();
+        }
+        client("server1").prepareDelete("test", "type1", "0").execute().actionGet();
+        client("server1").admin().indices().prepareRefresh().execute().actionGet();
+
+        // the replica only sees the documents once the segments got copied over from the primary
+        for (String node : new String[]{"server1", "server2"}) {
+            long totalHits = 0;
+            for (int i = 0; i < 100 && totalHits != 99; i++) {
+                SearchResponse searchResponse = client(node).prepareSearch("test").setQuery(matchAllQuery()).setPreference("_local").execute().actionGet();
+                totalHits = searchResponse.hits().totalHits();
+                if (totalHits != 99) {
+                    Thread.sleep(100);
+                }
+            }
+            assertThat("total hits on " + node, totalHits, equalTo(99l));
+        }
+
+        // realtime get works on the replica before the copy as well, from the translog
+        for (int i = 1; i < 100; i++) {
+            assertThat(client("server2").prepareGet("test", "type1", Integer.toString(i)).setPreference("_local").execute().actionGet().exists(), equalTo(true));
+        }
+    }
+
+    @Test
+    public void testDeleteByQueryBetweenSegmentCopies() throws Exception {
+        ImmutableSettings.Builder settings = ImmutableSettings.settingsBuilder().put("indices.recovery.segment_copy_interval", "100ms");
+        startNode("server1", settings);
+        startNode("server2", settings);
+
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 1).put("index.replication.mode", "segment"))
+                .execute().actionGet();
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+
+        for (int i = 0; i < 100; i++) {
+            client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("field", i % 2 == 0 ? "even" : "odd").execute().actionGet();
+        }
+        // let a copy happen, so the replica writer is closed in between copies
+        Thread.sleep(500);
+        client("server1").prepareDeleteByQuery("test").setQuery(termQuery("field", "odd")).execute().actionGet();
+        client("server1").admin().indices().prepareRefresh().execute().actionGet();
+
+        for (String node : new String[]{"server1", "server2"}) {
+            long totalHits = 0;
+            for (int i = 0; i < 100 && totalHits != 50; i++) {
+                totalHits = client(node).prepareSearch("test").setQuery(matchAllQuery()).setPreference("_local").execute().actionGet().hits().totalHits();
+                if (totalHits != 50) {
+                    Thread.sleep(100);
+                }
+            }
+            assertThat("total hits on " + node, totalHits, equalTo(50l));
+        }
+
+        // the replica did not fail on the delete by query
+        clusterHealth = client("server1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+    }
+
+    @Test
+    public void testNoOperationsLostOnPromotion() throws Exception {
+        ImmutableSettings.Builder settings = ImmutableSettings.settingsBuilder().put("indices.recovery.segment_copy_interval", "100ms");
+        startNode("server1", settings);
+        startNode("server2", settings);
+
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 1).put("index.replication.mode", "segment"))
+                .execute().actionGet();
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+
+        // keep indexing across several copy cycles, so operations land both before and while segments get copied
+        for (int i = 0; i < 500; i++) {
+            client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("field", "value" + i).execute().actionGet();
+            if (i % 50 == 0) {
+                Thread.sleep(150);
+            }
+        }
+
+        // find the node holding the primary, and stop it so the replica gets promoted
+        ClusterState state = client("server1").admin().cluster().prepareState().execute().actionGet().state();
+        String primaryNode = state.nodes().get(state.routingTable().index("test").shard(0).primaryShard().currentNodeId()).name();
+        String replicaNode = primaryNode.equals("server1") ? "server2" : "server1";
+        closeNode(primaryNode);
+
+        clusterHealth = client(replicaNode).admin().cluster().prepareHealth().setWaitForYellowStatus().execute().actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+
+        // the promoted replica indexes again, and holds every acknowledged operation
+        client(replicaNode).prepareIndex("test", "type1", "500").setSource("field", "value500").execute().actionGet();
+        long totalHits = 0;
+        for (int i = 0; i < 100 && totalHits != 501; i++) {
+            client(replicaNode).admin().indices().prepareRefresh().execute().actionGet();
+            totalHits = client(replicaNode).prepareCount("test").setQuery(matchAllQuery()).execute().actionGet().count();
+            if (totalHits != 501) {
+                Thread.sleep(100);
+            }
+        }
+        assertThat(totalHits, equalTo(501l));
+
+        // operations replayed on promotion never override writes done as primary
+        client(replicaNode).prepareIndex("test", "type1", "1").setSource("field", "updated").execute().actionGet();
+        client(replicaNode).admin().indices().prepareRefresh().execute().actionGet();
+        assertThat(client(replicaNode).prepareGet("test", "type1", "1").execute().actionGet().sourceAsMap().get("field").toString(), equalTo("updated"));
+        assertThat(client(replicaNode).prepareCount("test").setQuery(termQuery("field", "updated")).execute().actionGet().count(), equalTo(1l));
+    }
+}
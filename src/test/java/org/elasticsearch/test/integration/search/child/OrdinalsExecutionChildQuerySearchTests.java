@@ -0,0 +1,176 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.search.child;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.hasChildFilter;
+import static org.elasticsearch.index.query.FilterBuilders.hasParentFilter;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Checks that the <tt>ordinals</tt> execution type, which joins parents and children on the parent ordinals of the
+ * compact id cache, returns the same results as the default execution type.
+ */
+public class OrdinalsExecutionChildQuerySearchTests extends AbstractNodesTests {
+
+    private static final String[] COLORS = new String[]{"red", "blue", "yellow"};
+
+    private Client client;
+
+    @BeforeClass
+    public void createNodes() throws Exception {
+        startNode("node1");
+        startNode("node2");
+        client = client("node1");
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test
+    public void testOrdinalsMatchDefaultExecution() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+        client.admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder()
+                        .put("index.number_of_shards", 2)
+                        .put("index.number_of_replicas", 0)
+                        .put("index.refresh_interval", -1)
+                        .put("index.cache.id.type", "compact"))
+                .addMapping("child", jsonBuilder().startObject().startObject("child")
+                        .startObject("_parent").field("type", "parent").endObject()
+                        .endObject().endObject())
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        // several segments, each with new parents and children of both new and existing parents
+        int numberOfParents = 0;
+        for (int segment = 0; segment < 4; segment++) {
+            numberOfParents = indexParents(numberOfParents, 20);
+            client.admin().indices().prepareRefresh().execute().actionGet();
+        }
+        assertSameResults();
+
+        // new parents (with their children) after the ordinals of the previous reader were built
+        indexParents(numberOfParents, 20);
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        assertSameResults();
+    }
+
+    /**
+     * Indexes the given number of new parents, and children for them and for some of the existing parents,
+     * returns the number of parents indexed so far.
+     */
+    private int indexParents(int from, int count) throws Exception {
+        for (int i = from; i < from + count; i++) {
+            client.prepareIndex("test", "parent", "p" + i).setSource("p_field", COLORS[i % COLORS.length]).execute().actionGet();
+            // no children for some parents
+            for (int j = 0; j < i % 4; j++) {
+                indexChild(i, j);
+            }
+            if (from > 0) {
+                // a child of an existing parent, from another segment
+                indexChild(i - from, 10 + from + i);
+            }
+        }
+        return from + count;
+    }
+
+    private void indexChild(int parent, int child) throws Exception {
+        StringBuilder text = new StringBuilder();
+        // different term frequencies, so that the scores differ
+        for (int k = 0; k <= (parent + child) % 5; k++) {
+            text.append(COLORS[(parent + child) % COLORS.length]).append(' ');
+        }
+        client.prepareIndex("test", "child", "c" + parent + "_" + child).setParent("p" + parent)
+                .setSource(jsonBuilder().startObject().field("c_field", text.toString()).endObject())
+                .execute().actionGet();
+    }
+
+    private void assertSameResults() {
+        for (String color : COLORS) {
+            // has_child query, without and with scores
+            assertSameHits(hasChildQuery("child", termQuery("c_field", color)).executionType("ordinals"),
+                    hasChildQuery("child", termQuery("c_field", color)), false);
+            for (String scoreType : new String[]{"max", "sum", "avg"}) {
+                assertSameHits(hasChildQuery("child", termQuery("c_field", color)).scoreType(scoreType).executionType("ordinals"),
+                        hasChildQuery("child", termQuery("c_field", color)).scoreType(scoreType), true);
+            }
+
+            // has_child filter
+            assertSameHits(constantScoreQuery(hasChildFilter("child", termQuery("c_field", color)).executionType("ordinals")),
+                    constantScoreQuery(hasChildFilter("child", termQuery("c_field", color))), false);
+            assertSameHits(filteredQuery(matchAllQuery(), hasChildFilter("child", termQuery("c_field", color)).executionType("ordinals")),
+                    filteredQuery(matchAllQuery(), hasChildFilter("child", termQuery("c_field", color))), false);
+
+            // has_parent query and filter
+            assertSameHits(hasParentQuery("parent", termQuery("p_field", color)).executionType("ordinals"),
+                    hasParentQuery("parent", termQuery("p_field", color)), false);
+            assertSameHits(constantScoreQuery(hasParentFilter("parent", termQuery("p_field", color)).executionType("ordinals")),
+                    constantScoreQuery(hasParentFilter("parent", termQuery("p_field", color))), false);
+            assertSameHits(filteredQuery(matchAllQuery(), hasParentFilter("parent", termQuery("p_field", color)).executionType("ordinals")),
+                    filteredQuery(matchAllQuery(), hasParentFilter("parent", termQuery("p_field", color))), false);
+
+            // top_children has no execution type, it has to find the same parents as has_child
+            assertSameHits(hasChildQuery("child", termQuery("c_field", color)).scoreType("max").executionType("ordinals"),
+                    topChildrenQuery("child", termQuery("c_field", color)).score("max"), false);
+        }
+    }
+
+    private void assertSameHits(QueryBuilder ordinalsQuery, QueryBuilder expectedQuery, boolean compareScores) {
+        Map<String, Float> expected = hits(expectedQuery);
+        Map<String, Float> actual = hits(ordinalsQuery);
+        assertThat(actual.keySet(), equalTo(expected.keySet()));
+        if (compareScores) {
+            for (Map.Entry<String, Float> entry : expected.entrySet()) {
+                assertThat((double) actual.get(entry.getKey()), closeTo(entry.getValue(), 0.0001));
+            }
+        }
+    }
+
+    private Map<String, Float> hits(QueryBuilder query) {
+        SearchResponse searchResponse = client.prepareSearch("test").setQuery(query).setSize(1000).execute().actionGet();
+        assertThat(Arrays.toString(searchResponse.shardFailures()), searchResponse.failedShards(), equalTo(0));
+        assertThat(searchResponse.hits().totalHits(), equalTo((long) searchResponse.hits().hits().length));
+        Map<String, Float> hits = newHashMap();
+        for (SearchHit hit : searchResponse.hits()) {
+            hits.put(hit.id(), hit.score());
+        }
+        return hits;
+    }
+}
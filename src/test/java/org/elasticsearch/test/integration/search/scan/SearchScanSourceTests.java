@@ -0,0 +1,158 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.search.scan;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that the hits returned when only fetching the source (which skips the per hit lookup, and keeps the
+ * stored source as is) are the same as the ones returned when the lookup is needed.
+ */
+public class SearchScanSourceTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass
+    public void createNodes() throws Exception {
+        startNode("node1");
+        startNode("node2");
+        client = client("node1");
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test
+    public void testScanSourceCompressed() throws Exception {
+        verifyScanSource(true);
+    }
+
+    @Test
+    public void testScanSourceNotCompressed() throws Exception {
+        verifyScanSource(false);
+    }
+
+    private void verifyScanSource(boolean compress) throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        client.admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 3))
+                .addMapping("type1", XContentFactory.jsonBuilder().startObject().startObject("type1")
+                        .startObject("_source").field("compress", compress).endObject()
+                        .endObject().endObject())
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        int numberOfDocs = 150;
+        for (int i = 0; i < numberOfDocs; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource(buildSource(i)).execute().actionGet();
+            // make some segments
+            if (i % 20 == 0) {
+                client.admin().indices().prepareFlush().execute().actionGet();
+            }
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        // only the source, no lookup needed
+        Set<String> ids = new HashSet<String>();
+        for (SearchHit hit : scan(client.prepareSearch("test"))) {
+            assertThat(ids.add(hit.id()), equalTo(true));
+            int i = Integer.parseInt(hit.id());
+            assertThat(hit.type(), equalTo("type1"));
+            assertThat(hit.source(), equalTo(buildSource(i).bytes().toBytes()));
+            assertThat(hit.sourceAsString(), equalTo(buildSource(i).string()));
+            assertThat(hit.sourceAsMap().get("field").toString(), equalTo(fieldValue(i)));
+        }
+        assertThat(ids.size(), equalTo(numberOfDocs));
+
+        // extracting a field from the source needs the lookup
+        ids.clear();
+        for (SearchHit hit : scan(client.prepareSearch("test").addField("_source").addField("field"))) {
+            assertThat(ids.add(hit.id()), equalTo(true));
+            int i = Integer.parseInt(hit.id());
+            assertThat(hit.source(), equalTo(buildSource(i).bytes().toBytes()));
+            assertThat(hit.field("field").value().toString(), equalTo(fieldValue(i)));
+        }
+        assertThat(ids.size(), equalTo(numberOfDocs));
+    }
+
+    private List<SearchHit> scan(SearchRequestBuilder request) {
+        List<SearchHit> hits = new ArrayList<SearchHit>();
+        SearchResponse searchResponse = request.setSearchType(SearchType.SCAN)
+                .setQuery(matchAllQuery())
+                .setSize(17)
+                .setScroll(TimeValue.timeValueMinutes(2))
+                .execute().actionGet();
+        while (true) {
+            searchResponse = client.prepareSearchScroll(searchResponse.scrollId()).setScroll(TimeValue.timeValueMinutes(2)).execute().actionGet();
+            assertThat(searchResponse.failedShards(), equalTo(0));
+            if (searchResponse.hits().hits().length == 0) {
+                break;
+            }
+            for (SearchHit hit : searchResponse.hits()) {
+                hits.add(hit);
+            }
+        }
+        return hits;
+    }
+
+    private XContentBuilder buildSource(int i) throws IOException {
+        return XContentFactory.jsonBuilder().startObject()
+                .field("field", fieldValue(i))
+                .field("number", i)
+                .endObject();
+    }
+
+    private String fieldValue(int i) {
+        // large enough for some of the sources to get compressed
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < i * 5; j++) {
+            sb.append("value").append(j).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.ttl;
+
+import org.elasticsearch.action.admin.indices.stats.IndicesStats;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RangePurgeTTLTests extends AbstractNodesTests {
+
+    static private final long purgeInterval = 200;
+    private Client client;
+
+    @BeforeClass
+    public void createNodes() throws Exception {
+        Settings settings = settingsBuilder()
+                .put("indices.ttl.interval", purgeInterval)
+                .put("indices.ttl.purge_strategy", "range")
+                .put("indices.ttl.max_docs_per_sec", 50)
+                .put("index.number_of_shards", 2)
+                .build();
+        startNode("node1", settings);
+        startNode("node2", settings);
+        client = client("node1");
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test
+    public void testRangePurge() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+
+        client.admin().indices().prepareCreate("test")
+                .addMapping("type1", XContentFactory.jsonBuilder()
+                        .startObject()
+                        .startObject("type1")
+                        .startObject("_ttl").field("enabled", true).endObject()
+                        .endObject()
+                        .endObject())
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        long providedTTLValue = 1000;
+        int numberOfExpiringDocs = 100;
+        for (int i = 0; i < numberOfExpiringDocs; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource("field1", "value1").setTTL(providedTTLValue + i * 10).execute().actionGet();
+        }
+        client.prepareIndex("test", "type1", "no_ttl").setSource("field1", "value1").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        long now = System.currentTimeMillis();
+
+        logger.info("--> checking purger");
+        // 100 docs throttled to 50 docs per sec take about 2 seconds to purge
+        long shouldBeExpiredDate = now + providedTTLValue + numberOfExpiringDocs * 10 + purgeInterval + 4000;
+        long now1 = System.currentTimeMillis();
+        if (shouldBeExpiredDate - now1 > 0) {
+            Thread.sleep(shouldBeExpiredDate - now1);
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        for (int i = 0; i < 5; i++) {
+            assertThat(client.prepareCount("test").setQuery(QueryBuilders.matchAllQuery()).execute().actionGet().count(), equalTo(1l));
+        }
+        assertThat(client.prepareGet("test", "type1", "no_ttl").execute().actionGet().exists(), equalTo(true));
+
+        IndicesStats stats = client.admin().indices().prepareStats("test").setIndexing(true).execute().actionGet();
+        // the purge runs on the primaries only
+        assertThat(stats.getPrimaries().getIndexing().getTtlPurgeCount(), greaterThanOrEqualTo((long) numberOfExpiringDocs));
+        assertThat(stats.getPrimaries().getIndexing().getTtlPurgeTimeInMillis(), greaterThan(0l));
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.test.unit.cluster.serialization;
 
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -36,6 +37,8 @@ import static org.elasticsearch.cluster.metadata.MetaData.newMetaDataBuilder;
 import static org.elasticsearch.cluster.routing.RoutingBuilders.routingTable;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.testng.Assert.fail;
 
 /**
  *
@@ -90,6 +93,69 @@ public class ClusterSerializationTests {
         assertThat(target.prettyPrint(), equalTo(source.prettyPrint()));
     }
 
+    @Test
+    public void testClusterStateDiffSerialization() throws Exception {
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test1").numberOfShards(5).numberOfReplicas(1))
+                .put(newIndexMetaDataBuilder("test2").numberOfShards(5).numberOfReplicas(1))
+                .build();
+
+        RoutingTable routingTable = routingTable()
+                .addAsNew(metaData.index("test1"))
+                .addAsNew(metaData.index("test2"))
+                .build();
+
+        DiscoveryNodes nodes = DiscoveryNodes.newNodesBuilder().put(newNode("node1")).put(newNode("node2")).put(newNode("node3")).localNodeId("node1").masterNodeId("node2").build();
+
+        AllocationService strategy = new AllocationService();
+        ClusterState previousState = newClusterStateBuilder().nodes(nodes).metaData(metaData).routingTable(routingTable).version(1).build();
+        previousState = newClusterStateBuilder().state(previousState).routingTable(strategy.reroute(previousState).routingTable()).build();
+
+        metaData = newMetaDataBuilder().metaData(previousState.metaData())
+                .put(newIndexMetaDataBuilder("test3").numberOfShards(5).numberOfReplicas(1))
+                .build();
+        routingTable = routingTable().routingTable(previousState.routingTable()).addAsNew(metaData.index("test3")).build();
+        ClusterState clusterState = newClusterStateBuilder().state(previousState).metaData(metaData).routingTable(routingTable).version(2).build();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(strategy.reroute(clusterState).routingTable()).build();
+
+        ClusterState receivedPreviousState = ClusterState.Builder.fromBytes(ClusterState.Builder.toBytes(previousState), newNode("node1"));
+
+        BytesStreamOutput outStream = new BytesStreamOutput();
+        ClusterState.Builder.writeDiffTo(previousState, clusterState, outStream);
+        BytesStreamInput inStream = new BytesStreamInput(outStream.bytes().toBytes(), false);
+        ClusterState serializedClusterState = ClusterState.Builder.readDiffFrom(inStream, receivedPreviousState, newNode("node1"));
+
+        assertThat(serializedClusterState.version(), equalTo(clusterState.version()));
+        assertThat(serializedClusterState.routingTable().prettyPrint(), equalTo(clusterState.routingTable().prettyPrint()));
+        assertThat(serializedClusterState.metaData().indices().size(), equalTo(3));
+        // unchanged index meta data is reused from the previous state, not serialized again
+        assertThat(serializedClusterState.metaData().index("test1"), sameInstance(receivedPreviousState.metaData().index("test1")));
+        assertThat(serializedClusterState.metaData().index("test3"), equalTo(clusterState.metaData().index("test3")));
+    }
+
+    @Test
+    public void testClusterStateDiffOnWrongVersion() throws Exception {
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test").numberOfShards(5).numberOfReplicas(1))
+                .build();
+        DiscoveryNodes nodes = DiscoveryNodes.newNodesBuilder().put(newNode("node1")).put(newNode("node2")).localNodeId("node1").masterNodeId("node2").build();
+
+        ClusterState previousState = newClusterStateBuilder().nodes(nodes).metaData(metaData).version(1).build();
+        ClusterState clusterState = newClusterStateBuilder().state(previousState).version(2).build();
+        ClusterState otherState = newClusterStateBuilder().state(previousState).version(3).build();
+
+        BytesStreamOutput outStream = new BytesStreamOutput();
+        ClusterState.Builder.writeDiffTo(previousState, clusterState, outStream);
+        BytesStreamInput inStream = new BytesStreamInput(outStream.bytes().toBytes(), false);
+        try {
+            ClusterState.Builder.readDiffFrom(inStream, otherState, newNode("node1"));
+            fail("should have failed, the diff is for another cluster state version");
+        } catch (IncompatibleClusterStateVersionException e) {
+            // the version we hold is the one expected, the version the diff was computed against is the one received
+            assertThat(e.getMessage(), equalTo("expected diff for cluster state version [3] from master [node2], got diff for version [1] from master [node2]"));
+        }
+    }
+
     private DiscoveryNode newNode(String nodeId) {
         return new DiscoveryNode(nodeId, DummyTransportAddress.INSTANCE);
     }
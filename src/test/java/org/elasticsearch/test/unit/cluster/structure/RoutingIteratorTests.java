@@ -26,10 +26,12 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.*;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.settings.NodeSettingsService;
 import org.elasticsearch.test.unit.cluster.routing.allocation.RoutingAllocationTests;
 import org.testng.annotations.Test;
 
@@ -362,4 +364,85 @@ public class RoutingIteratorTests {
         assertThat(shardIterators.iterator().next().shardId().id(), equalTo(0));
         assertThat(shardIterators.iterator().next().nextOrNull().currentNodeId(), equalTo("node1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAdaptiveReplicaSelection() {
+        AllocationService strategy = new AllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .build());
+
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test").numberOfShards(5).numberOfReplicas(1))
+                .build();
+
+        RoutingTable routingTable = routingTable()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTable).build();
+
+        clusterState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder()
+                .put(RoutingAllocationTests.newNode("node1"))
+                .put(RoutingAllocationTests.newNode("node2"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        ResponseCollectorService responseCollectorService = new ResponseCollectorService(ImmutableSettings.Builder.EMPTY_SETTINGS);
+        PlainOperationRouting operationRouting = new PlainOperationRouting(settingsBuilder().put("cluster.routing.use_adaptive_replica_selection", true).build(),
+                new DjbHashFunction(), new AwarenessAllocationDecider(), responseCollectorService, new NodeSettingsService(ImmutableSettings.Builder.EMPTY_SETTINGS));
+
+        // no stats yet, round robin between the copies
+        GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_shards:0");
+        String firstRoundNodeId = shardIterators.iterator().next().nextOrNull().currentNodeId();
+        shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_shards:0");
+        assertThat(shardIterators.iterator().next().nextOrNull().currentNodeId(), not(equalTo(firstRoundNodeId)));
+
+        // node2 is slow and has a long search queue
+        responseCollectorService.addResponse("node1", 0, 1000000, 1000000);
+        responseCollectorService.addResponse("node2", 10, 10000000, 10000000);
+        assertThat(responseCollectorService.rank("node1"), lessThan(responseCollectorService.rank("node2")));
+
+        shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null);
+        assertThat(shardIterators.size(), equalTo(5));
+        for (ShardIterator shardIterator : shardIterators) {
+            assertThat(shardIterator.size(), equalTo(2));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+        }
+
+        // node2 was not selected, so its stats moved towards the ones of node1
+        assertThat(responseCollectorService.stats().nodeStats().get("node2").getAvgQueueSize(), lessThan(10d));
+
+        // copies on nodes ranking the same were not skipped by the selection, their stats are left alone
+        responseCollectorService = new ResponseCollectorService(ImmutableSettings.Builder.EMPTY_SETTINGS);
+        operationRouting = new PlainOperationRouting(settingsBuilder().put("cluster.routing.use_adaptive_replica_selection", true).build(),
+                new DjbHashFunction(), new AwarenessAllocationDecider(), responseCollectorService, new NodeSettingsService(ImmutableSettings.Builder.EMPTY_SETTINGS));
+        responseCollectorService.addResponse("node1", 2, 1000000, 1000000);
+        responseCollectorService.addResponse("node2", 2, 1000000, 1000000);
+        assertThat(responseCollectorService.rank("node1"), equalTo(responseCollectorService.rank("node2")));
+        operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null);
+        assertThat(responseCollectorService.stats().nodeStats().get("node1").getAvgQueueSize(), equalTo(2d));
+        assertThat(responseCollectorService.stats().nodeStats().get("node2").getAvgQueueSize(), equalTo(2d));
+    }
+
+    @Test
+    public void testOutstandingRequests() {
+        ResponseCollectorService responseCollectorService = new ResponseCollectorService(ImmutableSettings.Builder.EMPTY_SETTINGS);
+        responseCollectorService.addOutstandingRequest("node1");
+        responseCollectorService.addOutstandingRequest("node1");
+        assertThat(responseCollectorService.stats().nodeStats().get("node1").getOutgoingSearches(), equalTo(2l));
+        // a response marks its request as done
+        responseCollectorService.addResponse("node1", 0, 1000000, 1000000);
+        assertThat(responseCollectorService.stats().nodeStats().get("node1").getOutgoingSearches(), equalTo(1l));
+        responseCollectorService.removeOutstandingRequest("node1");
+        assertThat(responseCollectorService.stats().nodeStats().get("node1").getOutgoingSearches(), equalTo(0l));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.test.unit.common.breaker;
+
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.testng.Assert.fail;
+
+/**
+ *
+ */
+public class MemoryCircuitBreakerTests {
+
+    @Test
+    public void testBreaking() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 1.0);
+        breaker.addEstimateBytesAndMaybeBreak(60, "field");
+        assertThat(breaker.getUsed(), equalTo(60l));
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(50, "field");
+            fail("should have tripped the breaker");
+        } catch (CircuitBreakingException e) {
+            // all is well
+        }
+        assertThat(breaker.getUsed(), equalTo(60l));
+        assertThat(breaker.getTrippedCount(), equalTo(1l));
+
+        breaker.addWithoutBreaking(-60);
+        breaker.addEstimateBytesAndMaybeBreak(100, "field");
+        assertThat(breaker.getUsed(), equalTo(100l));
+    }
+
+    @Test
+    public void testOverhead() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 2.0);
+        breaker.addEstimateBytesAndMaybeBreak(50, "field");
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(1, "field");
+            fail("should have tripped the breaker");
+        } catch (CircuitBreakingException e) {
+            // all is well
+        }
+        breaker.setLimit(new ByteSizeValue(200), 2.0);
+        breaker.addEstimateBytesAndMaybeBreak(1, "field");
+        assertThat(breaker.getUsed(), equalTo(51l));
+    }
+
+    @Test
+    public void testNoLimit() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(0), 1.0);
+        breaker.addEstimateBytesAndMaybeBreak(Integer.MAX_VALUE, "field");
+        assertThat(breaker.getTrippedCount(), equalTo(0l));
+    }
+}
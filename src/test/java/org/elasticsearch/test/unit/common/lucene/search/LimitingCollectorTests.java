@@ -0,0 +1,100 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.lucene.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.LimitingCollector;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.testng.Assert.fail;
+
+/**
+ *
+ */
+public class LimitingCollectorTests {
+
+    private IndexWriter indexWriter;
+
+    private IndexReader reader;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        Directory dir = new RAMDirectory();
+        indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < 100; i++) {
+            Document document = new Document();
+            document.add(new StringField("_id", Integer.toString(i), Field.Store.YES));
+            indexWriter.addDocument(document);
+        }
+        reader = IndexReader.open(indexWriter, true);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        reader.close();
+        indexWriter.close();
+    }
+
+    @Test
+    public void testNoLimits() throws Exception {
+        TotalHitCountCollector collector = new TotalHitCountCollector();
+        new IndexSearcher(reader).search(new MatchAllDocsQuery(), new LimitingCollector(collector, -1, -1));
+        assertThat(collector.getTotalHits(), equalTo(100));
+    }
+
+    @Test
+    public void testTerminateAfter() throws Exception {
+        TotalHitCountCollector collector = new TotalHitCountCollector();
+        try {
+            new IndexSearcher(reader).search(new MatchAllDocsQuery(), new LimitingCollector(collector, -1, 10));
+            fail("expected to terminate early");
+        } catch (LimitingCollector.TerminatedEarlyException e) {
+            // all good
+        }
+        assertThat(collector.getTotalHits(), equalTo(10));
+    }
+
+    @Test
+    public void testDeadlinePassed() throws Exception {
+        TotalHitCountCollector collector = new TotalHitCountCollector();
+        try {
+            new IndexSearcher(reader).search(new MatchAllDocsQuery(), new LimitingCollector(collector, System.nanoTime() - 1, -1));
+            fail("expected to time out");
+        } catch (LimitingCollector.TimeExceededException e) {
+            // all good
+        }
+        assertThat(collector.getTotalHits(), equalTo(0));
+    }
+}
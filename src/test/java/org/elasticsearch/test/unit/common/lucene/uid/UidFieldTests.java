@@ -25,6 +25,7 @@ import org.apache.lucene.index.*;
 import org.apache.lucene.store.RAMDirectory;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.uid.UidField;
+import org.elasticsearch.common.lucene.uid.UidLookup;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.hamcrest.MatcherAssert;
 import org.testng.annotations.Test;
@@ -87,4 +88,53 @@ public class UidFieldTests {
         assertThat(UidField.loadVersion(atomicReader.getContext(), new Term("_uid", "1")), equalTo(-1l));
         assertThat(UidField.loadDocIdAndVersion(atomicReader.getContext(), new Term("_uid", "1")), nullValue());
     }
+
+    @Test
+    public void testUidLookup() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < 10; i++) {
+            Document doc = new Document();
+            doc.add(new UidField("_uid", Integer.toString(i), i + 1));
+            writer.addDocument(doc);
+        }
+        writer.commit();
+
+        DirectoryReader directoryReader = DirectoryReader.open(writer, true);
+        assertThat(lookupVersion(directoryReader, "1"), equalTo(2l));
+        assertThat(lookupVersion(directoryReader, "9"), equalTo(10l));
+        assertThat(lookupVersion(directoryReader, "10"), equalTo(-1l));
+
+        // the segment stays the same, but the cached lookup needs to take the new deletes into account
+        writer.deleteDocuments(new Term("_uid", "1"));
+        directoryReader = DirectoryReader.openIfChanged(directoryReader);
+        assertThat(lookupVersion(directoryReader, "1"), equalTo(-1l));
+        assertThat(lookupVersion(directoryReader, "2"), equalTo(3l));
+
+        Document doc = new Document();
+        doc.add(new UidField("_uid", "2", 5));
+        writer.updateDocument(new Term("_uid", "2"), doc);
+        directoryReader = DirectoryReader.openIfChanged(directoryReader);
+        assertThat(lookupVersion(directoryReader, "2"), equalTo(5l));
+
+        doc = new Document();
+        doc.add(new Field("_uid", "20", UidFieldMapper.Defaults.FIELD_TYPE));
+        writer.addDocument(doc);
+        directoryReader = DirectoryReader.openIfChanged(directoryReader);
+        assertThat(lookupVersion(directoryReader, "20"), equalTo(-2l));
+
+        directoryReader.close();
+        writer.close();
+    }
+
+    private long lookupVersion(DirectoryReader reader, String id) {
+        Term term = new Term("_uid", id);
+        for (AtomicReaderContext context : reader.leaves()) {
+            long version = UidLookup.loadVersion(context, term);
+            assertThat(version, equalTo(UidField.loadVersion(context, term)));
+            if (version != -1) {
+                return version;
+            }
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.util.concurrent;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.FairBlockingQueue;
+import org.elasticsearch.common.util.concurrent.KeyedRunnable;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ */
+@Test
+public class FairBlockingQueueTests {
+
+    @Test
+    public void testFairOrder() throws Exception {
+        FairBlockingQueue queue = new FairBlockingQueue(-1, ImmutableMap.<String, Integer>of());
+        for (int i = 0; i < 10; i++) {
+            assertThat(queue.offer(new Task("a")), equalTo(true));
+        }
+        assertThat(queue.offer(new Task("b")), equalTo(true));
+        assertThat(queue.offer(new Task("b")), equalTo(true));
+        assertThat(queue.size(), equalTo(12));
+
+        // b does not wait for all the tasks of a
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            keys.add(((Task) queue.take()).key);
+        }
+        assertThat(keys.toString(), equalTo("[a, b, a, b]"));
+        assertThat(queue.size(), equalTo(8));
+    }
+
+    @Test
+    public void testWeights() throws Exception {
+        FairBlockingQueue queue = new FairBlockingQueue(-1, ImmutableMap.of("a", 3));
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new Task("a"));
+            queue.offer(new Task("b"));
+        }
+        int a = 0;
+        for (int i = 0; i < 8; i++) {
+            if (((Task) queue.poll()).key.equals("a")) {
+                a++;
+            }
+        }
+        assertThat(a, equalTo(6));
+    }
+
+    @Test
+    public void testCapacityPerKey() throws Exception {
+        FairBlockingQueue queue = new FairBlockingQueue(2, ImmutableMap.<String, Integer>of());
+        assertThat(queue.offer(new Task("a")), equalTo(true));
+        assertThat(queue.offer(new Task("a")), equalTo(true));
+        assertThat(queue.offer(new Task("a")), equalTo(false));
+        assertThat(queue.offer(new Task("b")), equalTo(true));
+        assertThat(queue.offer(new Task(null)), equalTo(true));
+
+        for (FairBlockingQueue.Stats stats : queue.stats()) {
+            if (stats.key().equals("a")) {
+                assertThat(stats.queue(), equalTo(2));
+                assertThat(stats.rejected(), equalTo(1l));
+            } else {
+                assertThat(stats.queue(), equalTo(1));
+                assertThat(stats.rejected(), equalTo(0l));
+            }
+        }
+        assertThat(queue.stats().size(), equalTo(3));
+
+        List<Runnable> drained = new ArrayList<Runnable>();
+        assertThat(queue.drainTo(drained), equalTo(4));
+        assertThat(queue.poll(), nullValue());
+        for (FairBlockingQueue.Stats stats : queue.stats()) {
+            assertThat(stats.queue(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void testIdleQueuesRemoved() throws Exception {
+        FairBlockingQueue queue = new FairBlockingQueue(-1, ImmutableMap.<String, Integer>of(), TimeValue.timeValueMillis(50));
+        queue.offer(new Task("a"));
+        queue.offer(new Task("b"));
+        queue.offer(new Task("b"));
+        assertThat(((Task) queue.take()).key, equalTo("a"));
+        assertThat(queue.stats().size(), equalTo(2));
+
+        Thread.sleep(100);
+        // a is empty for longer than the idle timeout, b still has a task
+        assertThat(queue.stats().size(), equalTo(1));
+        assertThat(queue.stats().get(0).key(), equalTo("b"));
+
+        queue.take();
+        queue.take();
+        Thread.sleep(100);
+        queue.offer(new Task("c"));
+        assertThat(queue.stats().size(), equalTo(1));
+        assertThat(queue.stats().get(0).key(), equalTo("c"));
+
+        // a queue created again for a removed key starts with the others
+        queue.offer(new Task("a"));
+        queue.offer(new Task("c"));
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            keys.add(((Task) queue.take()).key);
+        }
+        assertThat(keys.toString(), equalTo("[c, a, c]"));
+    }
+
+    static class Task implements KeyedRunnable {
+
+        final String key;
+
+        Task(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String queueKey() {
+            return key;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+}
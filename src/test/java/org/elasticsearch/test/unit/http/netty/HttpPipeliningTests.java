@@ -0,0 +1,276 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.http.netty;
+
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.http.netty.HttpPipeliningHandler;
+import org.elasticsearch.http.netty.NettyHttpChannel;
+import org.elasticsearch.http.netty.NettyHttpRequest;
+import org.elasticsearch.http.netty.NettyHttpServerTransport;
+import org.elasticsearch.http.netty.OrderedUpstreamMessageEvent;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.StringRestResponse;
+import org.elasticsearch.rest.XContentRestResponse;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ *
+ */
+@Test
+public class HttpPipeliningTests {
+
+    private NettyHttpServerTransport transport;
+    private ServerBootstrap serverBootstrap;
+    private Channel serverChannel;
+    private ExecutorService executor;
+
+    private final BlockingQueue<PendingRequest> requests = new LinkedBlockingQueue<PendingRequest>();
+
+    @BeforeMethod
+    public void startServer() {
+        transport = new NettyHttpServerTransport(ImmutableSettings.settingsBuilder().put("http.response_chunk_size", "1kb").build(),
+                new NetworkService(ImmutableSettings.Builder.EMPTY_SETTINGS));
+        executor = Executors.newCachedThreadPool();
+        serverBootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool()));
+        serverBootstrap.setOption("child.sendBufferSize", 4096);
+        serverBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+            @Override
+            public ChannelPipeline getPipeline() throws Exception {
+                return Channels.pipeline(
+                        new HttpRequestDecoder(),
+                        new HttpResponseEncoder(),
+                        new HttpPipeliningHandler(Loggers.getLogger(HttpPipeliningTests.class), 10000),
+                        new SimpleChannelUpstreamHandler() {
+                            @Override
+                            public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+                                // the responses are sent by the test, never from the I/O thread
+                                HttpRequest request = (HttpRequest) e.getMessage();
+                                int sequence = ((OrderedUpstreamMessageEvent) e).sequence();
+                                requests.add(new PendingRequest(request, new NettyHttpChannel(transport, e.getChannel(), request, sequence)));
+                            }
+                        });
+            }
+        });
+        serverChannel = serverBootstrap.bind(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @AfterMethod
+    public void stopServer() {
+        serverChannel.close().awaitUninterruptibly();
+        serverBootstrap.releaseExternalResources();
+        executor.shutdownNow();
+        requests.clear();
+    }
+
+    @Test
+    public void testResponsesWrittenInRequestOrder() throws Exception {
+        Socket socket = connect();
+        try {
+            sendRequests(socket, 4);
+            PendingRequest[] pending = new PendingRequest[4];
+            for (int i = 0; i < pending.length; i++) {
+                pending[i] = requests.poll(10, TimeUnit.SECONDS);
+            }
+            // complete the requests in reverse order
+            for (int i = pending.length - 1; i >= 0; i--) {
+                pending[i].channel.sendResponse(new StringRestResponse(RestStatus.OK, "response" + i));
+            }
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int i = 0; i < pending.length; i++) {
+                assertThat(readResponse(in), equalTo("response" + i));
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testChunkedResponseWaitsForNonWritableChannel() throws Exception {
+        Socket socket = connect();
+        try {
+            sendRequests(socket, 1);
+            PendingRequest pending = requests.poll(10, TimeUnit.SECONDS);
+            char[] data = new char[4 * 1024 * 1024];
+            Arrays.fill(data, 'a');
+            Future<?> write = writeChunked(pending, new String(data));
+
+            // the client does not read, so the writer has to wait for the channel once its buffers are full
+            assertThat(isDone(write, 1000), equalTo(false));
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readResponse(in), equalTo("{\"data\":\"" + new String(data) + "\"}"));
+            write.get(10, TimeUnit.SECONDS);
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testChunkedResponseHeldBehindEarlierResponseWaits() throws Exception {
+        Socket socket = connect();
+        try {
+            sendRequests(socket, 2);
+            PendingRequest first = requests.poll(10, TimeUnit.SECONDS);
+            PendingRequest second = requests.poll(10, TimeUnit.SECONDS);
+            char[] data = new char[1024 * 1024];
+            Arrays.fill(data, 'b');
+            Future<?> write = writeChunked(second, new String(data));
+
+            // the chunks of the second response are held until the first response is written, the writer has
+            // to wait for them even though the channel itself is writable
+            assertThat(isDone(write, 1000), equalTo(false));
+
+            first.channel.sendResponse(new StringRestResponse(RestStatus.OK, "first"));
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readResponse(in), equalTo("first"));
+            assertThat(readResponse(in), equalTo("{\"data\":\"" + new String(data) + "\"}"));
+            write.get(10, TimeUnit.SECONDS);
+        } finally {
+            socket.close();
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(serverChannel.getLocalAddress());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    private void sendRequests(Socket socket, int count) throws IOException {
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            requests.append("GET /").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        }
+        OutputStream out = socket.getOutputStream();
+        out.write(requests.toString().getBytes("UTF-8"));
+        out.flush();
+    }
+
+    private Future<?> writeChunked(final PendingRequest pending, final String data) {
+        return executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                OutputStream stream = pending.channel.chunkedContentStream(RestStatus.OK, XContentType.JSON.restContentType());
+                XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(XContentType.JSON), stream, stream);
+                builder.startObject().field("data", data).endObject();
+                pending.channel.sendResponse(new XContentRestResponse(new NettyHttpRequest(pending.request), RestStatus.OK, builder));
+                return null;
+            }
+        });
+    }
+
+    private static boolean isDone(Future<?> future, long waitMillis) throws Exception {
+        try {
+            future.get(waitMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a response, with either a content length or a chunked body, and returns its body.
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        assertThat(statusLine, equalTo("HTTP/1.1 200 OK"));
+        int contentLength = -1;
+        boolean chunked = false;
+        for (String header = readLine(in); header.length() > 0; header = readLine(in)) {
+            String name = header.substring(0, header.indexOf(':')).trim();
+            String value = header.substring(header.indexOf(':') + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = Integer.parseInt(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.equalsIgnoreCase("chunked");
+            }
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (chunked) {
+            for (int size = Integer.parseInt(readLine(in), 16); size > 0; size = Integer.parseInt(readLine(in), 16)) {
+                readFully(in, body, size);
+                readLine(in);
+            }
+            readLine(in);
+        } else {
+            readFully(in, body, contentLength);
+        }
+        return new String(body.toByteArray(), "UTF-8");
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c == -1) {
+                throw new EOFException();
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void readFully(InputStream in, OutputStream out, int length) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (length > 0) {
+            int read = in.read(buffer, 0, Math.min(buffer.length, length));
+            if (read == -1) {
+                throw new EOFException();
+            }
+            out.write(buffer, 0, read);
+            length -= read;
+        }
+    }
+
+    static class PendingRequest {
+        final HttpRequest request;
+        final NettyHttpChannel channel;
+
+        PendingRequest(HttpRequest request, NettyHttpChannel channel) {
+            this.request = request;
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.cache.id;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.id.IdReaderCache;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.ParentOrdinals;
+import org.elasticsearch.index.cache.id.compact.CompactIdCache;
+import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class CompactIdCacheTests {
+
+    @Test
+    public void testOnHeap() throws Exception {
+        verifyCache(new CompactIdCache(new Index("test"), EMPTY_SETTINGS));
+    }
+
+    @Test
+    public void testOffHeap() throws Exception {
+        verifyCache(new CompactIdCache(new Index("test"), ImmutableSettings.settingsBuilder().put("index.cache.id.compact.off_heap", true).build()));
+    }
+
+    private void verifyCache(IdCache idCache) throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+
+        indexWriter.addDocument(doc("parent", "1", null));
+        indexWriter.addDocument(doc("parent", "2", null));
+        indexWriter.addDocument(doc("child", "1", "1"));
+        indexWriter.addDocument(doc("child", "2", "1"));
+        indexWriter.addDocument(doc("child", "3", "2"));
+        indexWriter.addDocument(doc("child", "4", null));
+        indexWriter.commit();
+
+        DirectoryReader reader = DirectoryReader.open(indexWriter, true);
+        idCache.refresh(reader.leaves());
+        assertThat(reader.leaves().size(), equalTo(1));
+        AtomicReader segment = reader.leaves().get(0).reader();
+        IdReaderCache readerCache = idCache.reader(segment);
+
+        IdReaderTypeCache parentCache = readerCache.type("parent");
+        assertThat(parentCache.docById(new HashedBytesArray("1")), equalTo(0));
+        assertThat(parentCache.docById(new HashedBytesArray("2")), equalTo(1));
+        assertThat(parentCache.docById(new HashedBytesArray("3")), equalTo(-1));
+        assertThat(parentCache.idByDoc(1).toUtf8(), equalTo("2"));
+        assertThat(parentCache.parentIdByDoc(2).toUtf8(), equalTo("1"));
+        assertThat(parentCache.parentIdByDoc(3).toUtf8(), equalTo("1"));
+        assertThat(parentCache.parentIdByDoc(4).toUtf8(), equalTo("2"));
+        assertThat(parentCache.parentIdByDoc(5), nullValue());
+        assertThat(parentCache.parentIdByDoc(0), nullValue());
+
+        IdReaderTypeCache childCache = readerCache.type("child");
+        assertThat(childCache.docById(new HashedBytesArray("3")), equalTo(4));
+        assertThat(childCache.idByDoc(0), nullValue());
+        assertThat(childCache.idByDoc(5).toUtf8(), equalTo("4"));
+        assertThat(readerCache.docById("child", new HashedBytesArray("1")), equalTo(2));
+        assertThat(readerCache.docById("other", new HashedBytesArray("1")), equalTo(-1));
+
+        long sizeInBytes = idCache.sizeInBytes();
+        assertThat(sizeInBytes, greaterThan(0l));
+
+        // a new segment is loaded, the existing one is reused
+        indexWriter.addDocument(doc("child", "5", "2"));
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader, indexWriter, true);
+        assertThat(newReader.leaves().size(), equalTo(2));
+        idCache.refresh(newReader.leaves());
+        assertThat(idCache.reader(segment), sameInstance(readerCache));
+        assertThat(idCache.reader(newReader.leaves().get(1).reader()).parentIdByDoc("parent", 0).toUtf8(), equalTo("2"));
+        assertThat(idCache.sizeInBytes(), greaterThan(sizeInBytes));
+
+        int segments = 0;
+        for (IdReaderCache ignored : idCache) {
+            segments++;
+        }
+        assertThat(segments, equalTo(2));
+
+        idCache.clear();
+        assertThat(idCache.sizeInBytes(), equalTo(0l));
+
+        reader.close();
+        newReader.close();
+        indexWriter.close();
+    }
+
+    @Test
+    public void testParentOrdinals() throws Exception {
+        IdCache idCache = new CompactIdCache(new Index("test"), EMPTY_SETTINGS);
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+
+        // first segment
+        indexWriter.addDocument(doc("parent", "2", null));
+        indexWriter.addDocument(doc("child", "1", "3"));
+        indexWriter.commit();
+        // second segment
+        indexWriter.addDocument(doc("parent", "1", null));
+        indexWriter.addDocument(doc("parent", "3", null));
+        indexWriter.addDocument(doc("child", "2", "2"));
+        indexWriter.addDocument(doc("child", "3", "1"));
+        indexWriter.addDocument(doc("child", "4", null));
+        indexWriter.commit();
+
+        DirectoryReader reader = DirectoryReader.open(indexWriter, true);
+        assertThat(reader.leaves().size(), equalTo(2));
+        ParentOrdinals parentOrdinals = idCache.parentOrdinals(reader, "parent");
+        assertThat(parentOrdinals, sameInstance(idCache.parentOrdinals(reader, "parent")));
+        assertThat(parentOrdinals.numOrds(), equalTo(3));
+
+        ParentOrdinals.Segment first = parentOrdinals.segment(reader.leaves().get(0).reader());
+        ParentOrdinals.Segment second = parentOrdinals.segment(reader.leaves().get(1).reader());
+        // ordinals follow the order of the ids
+        assertThat(second.ordByParentDoc(0), equalTo(1));
+        assertThat(first.ordByParentDoc(0), equalTo(2));
+        assertThat(second.ordByParentDoc(1), equalTo(3));
+        assertThat(first.ordByParentDoc(1), equalTo(0));
+        // children have the ordinal of their parent, across segments
+        assertThat(first.ordByChildDoc(1), equalTo(3));
+        assertThat(second.ordByChildDoc(2), equalTo(2));
+        assertThat(second.ordByChildDoc(3), equalTo(1));
+        assertThat(second.ordByChildDoc(4), equalTo(0));
+        assertThat(second.ordByChildDoc(0), equalTo(0));
+
+        idCache.clear();
+        reader.close();
+        indexWriter.close();
+    }
+
+    private Document doc(String type, String id, String parentId) {
+        Document document = new Document();
+        document.add(new StringField(UidFieldMapper.NAME, type + "#" + id, Field.Store.NO));
+        if (parentId != null) {
+            document.add(new StringField(ParentFieldMapper.NAME, "parent#" + parentId, Field.Store.NO));
+        }
+        return document;
+    }
+}
@@ -715,6 +715,78 @@ public abstract class AbstractSimpleEngineTests {
         }
     }
 
+    @Test
+    public void testVersionMapClearedOnRefresh() {
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, -1, -1, testDocument("1"), Lucene.STANDARD_ANALYZER, B_1, false);
+        Engine.Index index = new Engine.Index(null, newUid("1"), doc);
+        engine.index(index);
+        assertThat(index.version(), equalTo(1l));
+        assertThat(engine.versionMapMemorySizeInBytes(), greaterThan(0l));
+
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(engine.versionMapMemorySizeInBytes(), equalTo(0l));
+
+        // the version is now loaded from the index
+        index = new Engine.Index(null, newUid("1"), doc).version(1l);
+        engine.index(index);
+        assertThat(index.version(), equalTo(2l));
+
+        index = new Engine.Index(null, newUid("1"), doc).version(1l);
+        try {
+            engine.index(index);
+            assert false;
+        } catch (VersionConflictEngineException e) {
+            // all is well
+        }
+
+        // deletes are kept after a refresh, since they can't be found in the index
+        Engine.Delete delete = new Engine.Delete("test", "1", newUid("1")).version(2l);
+        engine.delete(delete);
+        assertThat(delete.version(), equalTo(3l));
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(engine.versionMapMemorySizeInBytes(), greaterThan(0l));
+
+        index = new Engine.Index(null, newUid("1"), doc).version(2l);
+        try {
+            engine.index(index);
+            assert false;
+        } catch (VersionConflictEngineException e) {
+            // all is well
+        }
+    }
+
+    @Test
+    public void testAppendOnlyCreateWithAutoGeneratedId() {
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, -1, -1, testDocument("1"), Lucene.STANDARD_ANALYZER, B_1, false);
+        Engine.Create create = new Engine.Create(null, newUid("1"), doc).autoGeneratedId(true);
+        engine.create(create);
+        assertThat(create.version(), equalTo(1l));
+
+        // still available for realtime get
+        Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        getResult.release();
+
+        // a retried request is checked against the existing doc
+        create = new Engine.Create(null, newUid("1"), doc).autoGeneratedId(true).canHaveDuplicates(true);
+        try {
+            engine.create(create);
+            assert false;
+        } catch (DocumentAlreadyExistsException e) {
+            // all is well
+        }
+
+        engine.refresh(new Engine.Refresh(true));
+        Engine.Searcher searchResult = engine.searcher();
+        MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(1));
+        searchResult.release();
+
+        // replicas append with the version of the primary
+        create = new Engine.Create(null, newUid("2"), doc).autoGeneratedId(true).version(1l).origin(REPLICA);
+        replicaEngine.create(create);
+        assertThat(create.version(), equalTo(1l));
+    }
+
     @Test
     public void testExternalVersioningIndexConflictWithFlush() {
         ParsedDocument doc = new ParsedDocument("1", "1", "test", null, -1, -1, testDocument("1"), Lucene.STANDARD_ANALYZER, B_1, false);
@@ -0,0 +1,235 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.LongValues;
+import org.elasticsearch.index.fielddata.plain.MMapLongAtomicFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@Test
+public class MMapLongFieldDataTests {
+
+    private static final File DATA_LOCATION = new File("data/mmap-fielddata");
+
+    private IndexFieldDataService ifdService;
+    private Directory directory;
+    private IndexWriter writer;
+    private DirectoryReader reader;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        FileSystemUtils.deleteRecursively(DATA_LOCATION, true);
+        ifdService = new IndexFieldDataService(new Index("test"));
+        directory = new SimpleFSDirectory(new File(DATA_LOCATION, "index"));
+        writer = new IndexWriter(directory, new IndexWriterConfig(Lucene.VERSION, new StandardAnalyzer(Lucene.VERSION)));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        if (reader != null) {
+            reader.close();
+        }
+        writer.close();
+        directory.close();
+        ifdService.clear();
+        FileSystemUtils.deleteRecursively(DATA_LOCATION, true);
+    }
+
+    @Test
+    public void testSingleValueAllSet() throws Exception {
+        addDoc(2l);
+        addDoc(1l);
+        addDoc(3l);
+        AtomicReaderContext context = openReader();
+
+        for (int i = 0; i < 2; i++) {
+            // the second load maps the file built by the first one
+            AtomicNumericFieldData fieldData = fieldData().loadDirect(context);
+            assertThat(fieldData, instanceOf(MMapLongAtomicFieldData.class));
+            LongValues values = fieldData.getLongValues();
+            assertThat(values.isMultiValued(), equalTo(false));
+            assertThat(values.getValue(0), equalTo(2l));
+            assertThat(values.getValue(1), equalTo(1l));
+            assertThat(values.getValue(2), equalTo(3l));
+            assertThat(fieldDataFile(context).exists(), equalTo(true));
+            assertThat(tmpFile(context).exists(), equalTo(false));
+        }
+    }
+
+    @Test
+    public void testSingleValueWithMissing() throws Exception {
+        addDoc(2l);
+        addDoc();
+        addDoc(3l);
+        AtomicReaderContext context = openReader();
+
+        for (int i = 0; i < 2; i++) {
+            AtomicNumericFieldData fieldData = fieldData().loadDirect(context);
+            assertThat(fieldData, instanceOf(MMapLongAtomicFieldData.class));
+            LongValues values = fieldData.getLongValues();
+            assertThat(values.hasValue(0), equalTo(true));
+            assertThat(values.getValue(0), equalTo(2l));
+            assertThat(values.hasValue(1), equalTo(false));
+            assertThat(values.getValueMissing(1, -1), equalTo(-1l));
+            assertThat(values.hasValue(2), equalTo(true));
+            assertThat(values.getValue(2), equalTo(3l));
+        }
+    }
+
+    @Test
+    public void testMultiValueLoadedOnHeap() throws Exception {
+        addDoc(2l, 4l);
+        addDoc(1l);
+        addDoc(3l);
+        AtomicReaderContext context = openReader();
+
+        for (int i = 0; i < 2; i++) {
+            // the first load marks the segment as multi valued, the second one goes to the heap directly
+            AtomicNumericFieldData fieldData = fieldData().loadDirect(context);
+            assertThat(fieldData, not(instanceOf(MMapLongAtomicFieldData.class)));
+            LongValues values = fieldData.getLongValues();
+            assertThat(values.isMultiValued(), equalTo(true));
+            assertThat(values.getValue(1), equalTo(1l));
+            assertThat(values.getValue(2), equalTo(3l));
+            // only the header is written for multi valued segments
+            File file = fieldDataFile(context);
+            assertThat(file.exists(), equalTo(true));
+            assertThat(file.length(), lessThan((long) context.reader().maxDoc() * 8));
+            assertThat(tmpFile(context).exists(), equalTo(false));
+        }
+    }
+
+    @Test
+    public void testStaleFileRebuilt() throws Exception {
+        addDoc(2l);
+        addDoc(1l);
+        addDoc(3l);
+        AtomicReaderContext context = openReader();
+        assertThat(fieldData().loadDirect(context), instanceOf(MMapLongAtomicFieldData.class));
+
+        // a file built for another segment with the same name, by size and then by timestamp
+        for (int offset : new int[]{8, 16}) {
+            RandomAccessFile raf = new RandomAccessFile(fieldDataFile(context), "rw");
+            try {
+                raf.seek(offset);
+                long value = raf.readLong();
+                raf.seek(offset);
+                raf.writeLong(value + 1);
+                // garbage values, to make sure they are not used
+                raf.seek(32);
+                raf.writeLong(42l);
+            } finally {
+                raf.close();
+            }
+
+            AtomicNumericFieldData fieldData = fieldData().loadDirect(context);
+            assertThat(fieldData, instanceOf(MMapLongAtomicFieldData.class));
+            LongValues values = fieldData.getLongValues();
+            assertThat(values.getValue(0), equalTo(2l));
+            assertThat(values.getValue(1), equalTo(1l));
+            assertThat(values.getValue(2), equalTo(3l));
+        }
+    }
+
+    @Test
+    public void testLeftoverTmpFileIgnored() throws Exception {
+        addDoc(2l);
+        addDoc(1l);
+        addDoc(3l);
+        AtomicReaderContext context = openReader();
+
+        // an incomplete file left by a build that did not finish
+        File tmpFile = tmpFile(context);
+        FileSystemUtils.mkdirs(tmpFile.getParentFile());
+        RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+        try {
+            raf.writeLong(42l);
+            raf.writeLong(42l);
+        } finally {
+            raf.close();
+        }
+
+        AtomicNumericFieldData fieldData = fieldData().loadDirect(context);
+        assertThat(fieldData, instanceOf(MMapLongAtomicFieldData.class));
+        LongValues values = fieldData.getLongValues();
+        assertThat(values.getValue(0), equalTo(2l));
+        assertThat(values.getValue(1), equalTo(1l));
+        assertThat(values.getValue(2), equalTo(3l));
+        assertThat(fieldDataFile(context).exists(), equalTo(true));
+        assertThat(tmpFile.exists(), equalTo(false));
+    }
+
+    private void addDoc(long... values) throws Exception {
+        Document d = new Document();
+        d.add(new StringField("_id", Integer.toString(writer.maxDoc()), Field.Store.NO));
+        for (long value : values) {
+            d.add(new LongField("value", value, Field.Store.NO));
+        }
+        writer.addDocument(d);
+    }
+
+    private AtomicReaderContext openReader() throws Exception {
+        writer.commit();
+        reader = DirectoryReader.open(directory);
+        assertThat(reader.leaves().size(), equalTo(1));
+        return reader.leaves().get(0);
+    }
+
+    private IndexNumericFieldData<AtomicNumericFieldData> fieldData() {
+        return ifdService.getForField(new FieldMapper.Names("value"), new FieldDataType("long", ImmutableSettings.builder().put("format", "mmap")));
+    }
+
+    private File fieldDataFile(AtomicReaderContext context) {
+        String segmentName = ((SegmentReader) context.reader()).getSegmentName();
+        return new File(new File(DATA_LOCATION, "fielddata"), segmentName + ".value.fdl");
+    }
+
+    private File tmpFile(AtomicReaderContext context) {
+        File file = fieldDataFile(context);
+        return new File(file.getParentFile(), file.getName() + ".tmp");
+    }
+}
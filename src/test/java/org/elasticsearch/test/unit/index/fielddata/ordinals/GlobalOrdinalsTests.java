@@ -0,0 +1,197 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.testng.Assert.fail;
+
+/**
+ */
+public class GlobalOrdinalsTests {
+
+    private CircuitBreakerService breakerService;
+
+    private IndexFieldDataService ifdService;
+
+    private IndexWriter writer;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        breakerService = new CircuitBreakerService();
+        ifdService = new IndexFieldDataService(new Index("test"), ImmutableSettings.Builder.EMPTY_SETTINGS, breakerService);
+        writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER).setMergePolicy(NoMergePolicy.COMPOUND_FILES));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        writer.close();
+        ifdService.clear();
+    }
+
+    @Test
+    public void testMergedAcrossSegments() throws Exception {
+        // segment 0: a, c
+        addDoc("c");
+        addDoc("a");
+        writer.commit();
+        // segment 1: b, c, d
+        addDoc("b");
+        addDoc("d");
+        addDoc("c");
+        writer.commit();
+        // segment 2: no values
+        addDoc(null);
+        writer.commit();
+
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(3));
+        IndexFieldData.WithOrdinals fieldData = ifdService.getForField(new FieldMapper.Names("value"), new FieldDataType("string", ImmutableSettings.builder().put("format", "paged_bytes")));
+
+        GlobalOrdinals globalOrdinals = fieldData.loadGlobal(reader);
+        assertThat(globalOrdinals.getNumOrds(), equalTo(5));
+        assertThat(globalOrdinals.getValueByOrd(1).utf8ToString(), equalTo("a"));
+        assertThat(globalOrdinals.getValueByOrd(2).utf8ToString(), equalTo("b"));
+        assertThat(globalOrdinals.getValueByOrd(3).utf8ToString(), equalTo("c"));
+        assertThat(globalOrdinals.getValueByOrd(4).utf8ToString(), equalTo("d"));
+
+        // segment ordinals are sorted by value too
+        assertThat(globalOrdinals.segmentToGlobal(0).get(0), equalTo(0l));
+        assertThat(globalOrdinals.segmentToGlobal(0).get(1), equalTo(1l));
+        assertThat(globalOrdinals.segmentToGlobal(0).get(2), equalTo(3l));
+        assertThat(globalOrdinals.segmentToGlobal(1).get(1), equalTo(2l));
+        assertThat(globalOrdinals.segmentToGlobal(1).get(2), equalTo(3l));
+        assertThat(globalOrdinals.segmentToGlobal(1).get(3), equalTo(4l));
+        assertThat(globalOrdinals.segmentToGlobal(2).get(0), equalTo(0l));
+
+        // cached per reader
+        assertThat(fieldData.loadGlobal(reader), sameInstance(globalOrdinals));
+
+        reader.close();
+    }
+
+    @Test
+    public void testAccountedInBreakerAndStats() throws Exception {
+        addDoc("c");
+        addDoc("a");
+        writer.commit();
+        addDoc("b");
+        addDoc("d");
+        writer.commit();
+
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        IndexFieldData.WithOrdinals fieldData = fieldData();
+        // load the segments first, so only the global ordinals are accounted below
+        for (AtomicReaderContext context : reader.leaves()) {
+            fieldData.load(context);
+        }
+        MemoryCircuitBreaker breaker = breakerService.getBreaker();
+        long breakerUsed = breaker.getUsed();
+        long memorySize = ifdService.stats().getMemorySizeInBytes();
+
+        GlobalOrdinals globalOrdinals = fieldData.loadGlobal(reader);
+        assertThat(globalOrdinals.getMemorySizeInBytes(), greaterThan(0l));
+        assertThat(breaker.getUsed(), equalTo(breakerUsed + globalOrdinals.getMemorySizeInBytes()));
+        assertThat(ifdService.stats().getMemorySizeInBytes(), equalTo(memorySize + globalOrdinals.getMemorySizeInBytes()));
+
+        // released when the reader is closed
+        reader.close();
+        assertThat(breaker.getUsed(), equalTo(breakerUsed));
+        assertThat(ifdService.stats().getMemorySizeInBytes(), equalTo(memorySize));
+    }
+
+    @Test
+    public void testBreakerTripped() throws Exception {
+        addDoc("c");
+        addDoc("a");
+        writer.commit();
+        addDoc("b");
+        addDoc("d");
+        writer.commit();
+
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        IndexFieldData.WithOrdinals fieldData = fieldData();
+        for (AtomicReaderContext context : reader.leaves()) {
+            fieldData.load(context);
+        }
+        MemoryCircuitBreaker breaker = breakerService.getBreaker();
+        long breakerUsed = breaker.getUsed();
+        long memorySize = ifdService.stats().getMemorySizeInBytes();
+
+        // no room left for the global ordinals
+        breaker.setLimit(new ByteSizeValue(breakerUsed + 1), 1.0);
+        try {
+            fieldData.loadGlobal(reader);
+            fail("should have tripped the breaker");
+        } catch (CircuitBreakingException e) {
+            // all is well
+        }
+        assertThat(breaker.getUsed(), equalTo(breakerUsed));
+        assertThat(breaker.getTrippedCount(), equalTo(1l));
+        assertThat(ifdService.stats().getMemorySizeInBytes(), equalTo(memorySize));
+
+        // not cached, built once there is room again
+        breaker.setLimit(new ByteSizeValue(0), 1.0);
+        GlobalOrdinals globalOrdinals = fieldData.loadGlobal(reader);
+        assertThat(globalOrdinals.getNumOrds(), equalTo(5));
+        assertThat(breaker.getUsed(), equalTo(breakerUsed + globalOrdinals.getMemorySizeInBytes()));
+
+        reader.close();
+        assertThat(breaker.getUsed(), equalTo(breakerUsed));
+    }
+
+    private IndexFieldData.WithOrdinals fieldData() {
+        return ifdService.getForField(new FieldMapper.Names("value"), new FieldDataType("string", ImmutableSettings.builder().put("format", "paged_bytes")));
+    }
+
+    private void addDoc(String value) throws Exception {
+        Document document = new Document();
+        if (value != null) {
+            document.add(new StringField("value", value, Field.Store.NO));
+        }
+        document.add(new StringField("other", "x", Field.Store.NO));
+        writer.addDocument(document);
+    }
+}
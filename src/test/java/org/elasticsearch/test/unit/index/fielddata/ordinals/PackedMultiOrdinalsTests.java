@@ -0,0 +1,75 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata.ordinals;
+
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.index.fielddata.ordinals.MultiPackedOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.util.IntArrayRef;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class PackedMultiOrdinalsTests extends MultiOrdinalsTests {
+
+    @Override
+    protected Ordinals creationMultiOrdinals(int[][] ordinals, int maxOrds) {
+        return new MultiPackedOrdinals(ordinals, maxOrds, (int) MultiPackedOrdinals.totalOrds(ordinals), PackedInts.COMPACT);
+    }
+
+    @Test
+    public void testMultiValuesAcrossBlocks() throws Exception {
+        int maxDoc = 5000;
+        int maxOrds = 16;
+        int[][] ords = new int[maxOrds][maxDoc];
+        Random random = new Random(0);
+        for (int doc = 0; doc < maxDoc; doc++) {
+            int numValues = random.nextInt(maxOrds);
+            for (int i = 0; i < numValues; i++) {
+                ords[i][doc] = i + 1;
+            }
+        }
+
+        Ordinals.Docs docs = creationMultiOrdinals(ords, maxOrds).ordinals();
+        assertThat(docs.getNumDocs(), equalTo(maxDoc));
+        for (int doc = 0; doc < maxDoc; doc++) {
+            int numValues = 0;
+            while (numValues < maxOrds && ords[numValues][doc] != 0) {
+                numValues++;
+            }
+            assertThat(docs.getOrd(doc), equalTo(ords[0][doc]));
+            IntArrayRef ref = docs.getOrds(doc);
+            assertThat(ref.size(), equalTo(numValues));
+            for (int i = 0; i < numValues; i++) {
+                assertThat(ref.values[ref.start + i], equalTo(i + 1));
+            }
+            Ordinals.Docs.Iter iter = docs.getIter(doc);
+            for (int i = 0; i < numValues; i++) {
+                assertThat(iter.next(), equalTo(i + 1));
+            }
+            assertThat(iter.next(), equalTo(0));
+        }
+    }
+}
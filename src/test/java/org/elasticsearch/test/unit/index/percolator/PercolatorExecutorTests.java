@@ -20,11 +20,18 @@
 package org.elasticsearch.test.unit.index.percolator;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.AbstractModule;
@@ -44,6 +51,7 @@ import org.elasticsearch.index.cache.IndexCacheModule;
 import org.elasticsearch.index.codec.CodecModule;
 import org.elasticsearch.index.engine.IndexEngineModule;
 import org.elasticsearch.index.mapper.MapperServiceModule;
+import org.elasticsearch.index.percolator.PercolatorException;
 import org.elasticsearch.index.percolator.PercolatorExecutor;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.IndexQueryParserModule;
@@ -162,6 +170,73 @@ public class PercolatorExecutorTests {
         assertThat(percolate.matches(), hasItem("test1"));
     }
     
+    @Test
+    public void testBulkPercolator() throws Exception {
+        percolatorExecutor.clearQueries(); // remove all previously added queries
+        // enough queries to be split into several slices
+        for (int i = 0; i < 250; i++) {
+            percolatorExecutor.addQuery("test" + i, termQuery("field2", "value" + i));
+        }
+        percolatorExecutor.addQuery("all", termQuery("field3", "all"));
+
+        List<PercolatorExecutor.SourceRequest> requests = new ArrayList<PercolatorExecutor.SourceRequest>();
+        for (int i = 0; i < 10; i++) {
+            XContentBuilder doc = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                    .field("field2", "value" + (i * 20))
+                    .field("field3", "all")
+                    .endObject().endObject();
+            requests.add(new PercolatorExecutor.SourceRequest("type1", doc.bytes()));
+        }
+        // no doc
+        requests.add(new PercolatorExecutor.SourceRequest("type1", XContentFactory.jsonBuilder().startObject().endObject().bytes()));
+
+        PercolatorExecutor.BulkResponse response = percolatorExecutor.percolate(requests);
+        assertThat(response.size(), equalTo(11));
+        for (int i = 0; i < 10; i++) {
+            assertThat(response.failure(i), nullValue());
+            assertThat(response.response(i).matches(), hasSize(2));
+            assertThat(response.response(i).matches(), hasItems("test" + (i * 20), "all"));
+        }
+        assertThat(response.response(10), nullValue());
+        assertThat(response.failure(10), notNullValue());
+    }
+
+    @Test
+    public void testBulkPercolatorFailingSlice() throws Exception {
+        percolatorExecutor.clearQueries(); // remove all previously added queries
+        for (int i = 0; i < 250; i++) {
+            percolatorExecutor.addQuery("test" + i, termQuery("field2", "value" + i));
+        }
+        // no terms can be extracted from it, so it is a candidate for every doc, and fails its slice
+        percolatorExecutor.addQueries(ImmutableMap.<String, Query>of("failing", new Query() {
+            @Override
+            public Weight createWeight(IndexSearcher searcher) throws IOException {
+                throw new ElasticSearchIllegalStateException("failing query");
+            }
+
+            @Override
+            public String toString(String field) {
+                return "failing";
+            }
+        }));
+
+        List<PercolatorExecutor.SourceRequest> requests = new ArrayList<PercolatorExecutor.SourceRequest>();
+        for (int i = 0; i < 5; i++) {
+            XContentBuilder doc = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                    .field("field2", "value" + i)
+                    .endObject().endObject();
+            requests.add(new PercolatorExecutor.SourceRequest("type1", doc.bytes()));
+        }
+
+        PercolatorExecutor.BulkResponse response = percolatorExecutor.percolate(requests);
+        assertThat(response.size(), equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(response.response(i), nullValue());
+            assertThat(response.failure(i), instanceOf(PercolatorException.class));
+        }
+        percolatorExecutor.clearQueries();
+    }
+
     @Test
     public void testConcurrentPerculator() throws InterruptedException, IOException {
         // introduce the doc
@@ -0,0 +1,105 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.percolator;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.TermQuery;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.percolator.QueryTermsIndex;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class QueryTermsIndexTests {
+
+    @Test
+    public void testExtractTerms() {
+        assertThat(QueryTermsIndex.extractTerms(new TermQuery(new Term("field", "value"))), contains(new Term("field", "value")));
+        assertThat(QueryTermsIndex.extractTerms(new MatchAllDocsQuery()), nullValue());
+
+        // required clauses, the one with the fewest terms
+        BooleanQuery should = new BooleanQuery();
+        should.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.SHOULD);
+        should.add(new TermQuery(new Term("field", "b")), BooleanClause.Occur.SHOULD);
+        BooleanQuery must = new BooleanQuery();
+        must.add(should, BooleanClause.Occur.MUST);
+        must.add(new TermQuery(new Term("field", "c")), BooleanClause.Occur.MUST);
+        assertThat(QueryTermsIndex.extractTerms(must), contains(new Term("field", "c")));
+
+        // optional clauses, any of them
+        Set<Term> terms = QueryTermsIndex.extractTerms(should);
+        assertThat(terms, hasSize(2));
+        assertThat(terms, hasItems(new Term("field", "a"), new Term("field", "b")));
+
+        // optional clause we can't extract from
+        should.add(new MatchAllDocsQuery(), BooleanClause.Occur.SHOULD);
+        assertThat(QueryTermsIndex.extractTerms(should), nullValue());
+
+        // only prohibited clauses
+        BooleanQuery mustNot = new BooleanQuery();
+        mustNot.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.MUST_NOT);
+        assertThat(QueryTermsIndex.extractTerms(mustNot), nullValue());
+
+        PhraseQuery phrase = new PhraseQuery();
+        phrase.add(new Term("field", "a"));
+        phrase.add(new Term("field", "longest"));
+        assertThat(QueryTermsIndex.extractTerms(phrase), contains(new Term("field", "longest")));
+    }
+
+    @Test
+    public void testCandidates() throws Exception {
+        QueryTermsIndex index = new QueryTermsIndex();
+        index.add("1", new TermQuery(new Term("field", "quick")));
+        index.add("2", new TermQuery(new Term("field", "slow")));
+        index.add("3", new MatchAllDocsQuery());
+        index.add("4", new TermQuery(new Term("other", "quick")));
+        assertThat(index.alwaysCandidatesCount(), equalTo(1));
+
+        MemoryIndex memoryIndex = new MemoryIndex();
+        memoryIndex.addField("field", "the quick brown fox", new WhitespaceAnalyzer(Lucene.VERSION));
+        Set<String> candidates = index.candidates(memoryIndex.createSearcher().getIndexReader());
+        assertThat(candidates, hasSize(2));
+        assertThat(candidates, hasItems("1", "3"));
+
+        index.remove("1");
+        candidates = index.candidates(memoryIndex.createSearcher().getIndexReader());
+        assertThat(candidates, hasSize(1));
+        assertThat(candidates, hasItems("3"));
+
+        // re-registering replaces the previous terms
+        index.add("3", new TermQuery(new Term("field", "fox")));
+        index.add("2", new TermQuery(new Term("field", "brown")));
+        assertThat(index.alwaysCandidatesCount(), equalTo(0));
+        candidates = index.candidates(memoryIndex.createSearcher().getIndexReader());
+        assertThat(candidates, hasSize(2));
+        assertThat(candidates, hasItems("2", "3"));
+    }
+}
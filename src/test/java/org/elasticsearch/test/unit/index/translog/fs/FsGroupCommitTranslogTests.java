@@ -0,0 +1,105 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.translog.fs;
+
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStats;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+import org.elasticsearch.index.translog.fs.FsTranslogFile;
+import org.elasticsearch.test.unit.index.translog.AbstractSimpleTranslogTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class FsGroupCommitTranslogTests extends AbstractSimpleTranslogTests {
+
+    @Override
+    protected Translog create() {
+        return new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder()
+                        .put("index.translog.fs.type", FsTranslogFile.Type.SIMPLE.name())
+                        .put("index.translog.fs.group_commit", true)
+                        .put("index.translog.fs.group_commit_max_operations", 16)
+                        .put("index.translog.fs.group_commit_max_latency", "5ms")
+                        .build(),
+                new File("data/fs-group-commit-translog"));
+    }
+
+    @AfterClass
+    public void cleanup() {
+        FileSystemUtils.deleteRecursively(new File("data/fs-group-commit-translog"), true);
+    }
+
+    @Test
+    public void testConcurrentAddsAreSyncedInGroups() throws Exception {
+        final int numberOfThreads = 8;
+        final int numberOfOperations = 100;
+        final CountDownLatch latch = new CountDownLatch(numberOfThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            final int threadId = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < numberOfOperations; j++) {
+                            translog.add(new Translog.Create("test", threadId + "_" + j, new byte[]{1}));
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+        latch.await();
+        assertThat(failure.get(), nullValue());
+
+        TranslogStats stats = translog.stats();
+        assertThat(stats.operations(), equalTo((long) numberOfThreads * numberOfOperations));
+        assertThat(stats.groupCommitOperations(), equalTo((long) numberOfThreads * numberOfOperations));
+        assertThat(stats.groupCommits(), greaterThan(0l));
+        assertThat(stats.groupCommits(), lessThanOrEqualTo((long) numberOfThreads * numberOfOperations));
+        assertThat(translog.syncNeeded(), equalTo(false));
+
+        long commits = 0;
+        for (long count : stats.batchSizeHistogram()) {
+            commits += count;
+        }
+        assertThat(commits, equalTo(stats.groupCommits()));
+        commits = 0;
+        for (long count : stats.syncLatencyHistogram()) {
+            commits += count;
+        }
+        assertThat(commits, equalTo(stats.groupCommits()));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.search.sort;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.search.sort.EarlyTerminatingSortCollector;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class EarlyTerminatingSortCollectorTests {
+
+    private IndexFieldDataService ifdService;
+
+    private IndexWriter writer;
+
+    private DirectoryReader reader;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        ifdService = new IndexFieldDataService(new Index("test"));
+        writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER).setMergePolicy(NoMergePolicy.COMPOUND_FILES));
+        // 3 segments of 10 docs each, indexed in timestamp order
+        for (int segment = 0; segment < 3; segment++) {
+            for (int i = 0; i < 10; i++) {
+                Document document = new Document();
+                document.add(new LongField("timestamp", segment * 10 + i, Field.Store.NO));
+                writer.addDocument(document);
+            }
+            writer.commit();
+        }
+        reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(3));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        reader.close();
+        writer.close();
+        ifdService.clear();
+    }
+
+    @Test
+    public void testAscendingTerminatesSortedSegment() throws Exception {
+        SearchResult result = search(false, 5);
+        assertThat(result.terminatedEarly, equalTo(true));
+        // the first segment is sorted, collecting stops after 5 docs, the others are skipped
+        assertThat(result.topDocs.totalHits, equalTo(5));
+        assertThat(result.topDocs.scoreDocs.length, equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(((FieldDoc) result.topDocs.scoreDocs[i]).fields[0], equalTo((Object) (long) i));
+        }
+    }
+
+    @Test
+    public void testDescendingSkipsSegments() throws Exception {
+        SearchResult result = search(true, 5);
+        assertThat(result.terminatedEarly, equalTo(true));
+        // the last segment is collected fully, the older ones can't compete
+        assertThat(result.topDocs.totalHits, equalTo(10));
+        assertThat(result.topDocs.scoreDocs.length, equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(((FieldDoc) result.topDocs.scoreDocs[i]).fields[0], equalTo((Object) (long) (29 - i)));
+        }
+    }
+
+    @Test
+    public void testAllSegmentsNeeded() throws Exception {
+        SearchResult result = search(true, 25);
+        assertThat(result.terminatedEarly, equalTo(false));
+        assertThat(result.topDocs.totalHits, equalTo(30));
+        assertThat(result.topDocs.scoreDocs.length, equalTo(25));
+        for (int i = 0; i < 25; i++) {
+            assertThat(((FieldDoc) result.topDocs.scoreDocs[i]).fields[0], equalTo((Object) (long) (29 - i)));
+        }
+    }
+
+    private SearchResult search(boolean reverse, int numHits) throws IOException {
+        IndexNumericFieldData fieldData = ifdService.getForField(new FieldMapper.Names("timestamp"), new FieldDataType("long"));
+        Sort sort = new Sort(new SortField("timestamp", fieldData.comparatorSource(null), reverse));
+        TopFieldCollector topCollector = TopFieldCollector.create(sort, numHits, true, false, false, false);
+        EarlyTerminatingSortCollector collector = new EarlyTerminatingSortCollector(topCollector, fieldData, reverse, numHits);
+        LeafSearcher searcher = new LeafSearcher(reader);
+        Weight weight = searcher.createNormalizedWeight(new MatchAllDocsQuery());
+        for (AtomicReaderContext leaf : collector.orderLeaves(reader.leaves())) {
+            if (!collector.startLeaf(leaf)) {
+                continue;
+            }
+            try {
+                searcher.searchLeaf(leaf, weight, collector);
+            } catch (EarlyTerminatingSortCollector.SegmentTerminatedException e) {
+                // next segment
+            }
+        }
+        return new SearchResult(topCollector.topDocs(), collector.terminatedEarly());
+    }
+
+    static class SearchResult {
+        final TopDocs topDocs;
+        final boolean terminatedEarly;
+
+        SearchResult(TopDocs topDocs, boolean terminatedEarly) {
+            this.topDocs = topDocs;
+            this.terminatedEarly = terminatedEarly;
+        }
+    }
+
+    static class LeafSearcher extends IndexSearcher {
+
+        LeafSearcher(DirectoryReader reader) {
+            super(reader);
+        }
+
+        void searchLeaf(AtomicReaderContext leaf, Weight weight, Collector collector) throws IOException {
+            search(Collections.singletonList(leaf), weight, collector);
+        }
+    }
+}
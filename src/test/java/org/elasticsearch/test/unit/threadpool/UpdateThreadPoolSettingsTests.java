@@ -23,6 +23,7 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.util.concurrent.EsAbortPolicy;
 import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+import org.elasticsearch.common.util.concurrent.FairBlockingQueue;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.threadpool.ThreadPool.Names;
 import org.testng.annotations.Test;
@@ -282,6 +283,45 @@ public class UpdateThreadPoolSettingsTests {
         threadPool.shutdown();
     }
 
+    @Test
+    public void testFairQueueWeightsMerged() {
+        ThreadPool threadPool = new ThreadPool(settingsBuilder()
+                .put("threadpool.search.type", "fixed")
+                .put("threadpool.search.queue_type", "fair")
+                .put("threadpool.search.weights.a", 3)
+                .put("threadpool.search.weights.b", 2)
+                .build(), null);
+        Executor executor = threadPool.executor(Names.SEARCH);
+        FairBlockingQueue queue = (FairBlockingQueue) ((EsThreadPoolExecutor) executor).getQueue();
+        assertThat(queue.weights().get("a"), equalTo(3));
+        assertThat(queue.weights().get("b"), equalTo(2));
+
+        // updating one key keeps the weights of the others
+        threadPool.updateSettings(settingsBuilder().put("threadpool.search.weights.a", 5).build());
+        assertThat(threadPool.executor(Names.SEARCH), sameInstance(executor));
+        assertThat(queue.weights().get("a"), equalTo(5));
+        assertThat(queue.weights().get("b"), equalTo(2));
+
+        // an update without weights keeps them all
+        threadPool.updateSettings(settingsBuilder().put("threadpool.search.size", 7).build());
+        assertThat(queue.weights().get("a"), equalTo(5));
+        assertThat(queue.weights().get("b"), equalTo(2));
+
+        // a weight of 0 resets the key to the default weight
+        threadPool.updateSettings(settingsBuilder().put("threadpool.search.weights.b", 0).build());
+        assertThat(queue.weights().get("a"), equalTo(5));
+        assertThat(queue.weights().containsKey("b"), equalTo(false));
+
+        // a new queue (the capacity changed) keeps the weights as well
+        threadPool.updateSettings(settingsBuilder().put("threadpool.search.queue_size", 100).build());
+        assertThat(threadPool.executor(Names.SEARCH), not(sameInstance(executor)));
+        queue = (FairBlockingQueue) ((EsThreadPoolExecutor) threadPool.executor(Names.SEARCH)).getQueue();
+        assertThat(queue.weights().get("a"), equalTo(5));
+        assertThat(queue.weights().containsKey("b"), equalTo(false));
+
+        threadPool.shutdown();
+    }
+
     @Test(timeOut = 10000)
     public void testShutdownDownNowDoesntBlock() throws Exception {
         ThreadPool threadPool = new ThreadPool(ImmutableSettings.Builder.EMPTY_SETTINGS, null);
@@ -0,0 +1,79 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.transport.netty;
+
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.netty.InFlightRequests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@Test
+public class InFlightRequestsTests {
+
+    private ThreadPool threadPool;
+
+    @BeforeClass
+    public void createThreadPool() {
+        threadPool = new ThreadPool();
+    }
+
+    @AfterClass
+    public void shutdownThreadPool() {
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testRejectOverLimit() {
+        InFlightRequests inFlightRequests = new InFlightRequests(Loggers.getLogger(InFlightRequestsTests.class), threadPool,
+                new ByteSizeValue(50 * 1024), new ByteSizeValue(100 * 1024), TimeValue.timeValueSeconds(1));
+
+        // a single request is always accepted, even if it is above the limit
+        assertThat(inFlightRequests.tryAdd(200 * 1024), equalTo(true));
+        assertThat(inFlightRequests.stats().size().bytes(), equalTo(200l * 1024));
+
+        // other requests are rejected, unless they are small
+        assertThat(inFlightRequests.tryAdd(10 * 1024), equalTo(false));
+        assertThat(inFlightRequests.tryAdd(100), equalTo(true));
+        assertThat(inFlightRequests.stats().size().bytes(), equalTo(200l * 1024 + 100));
+        assertThat(inFlightRequests.stats().rejected(), equalTo(1l));
+
+        inFlightRequests.release(200 * 1024);
+        assertThat(inFlightRequests.tryAdd(10 * 1024), equalTo(true));
+        inFlightRequests.release(10 * 1024);
+        inFlightRequests.release(100);
+        assertThat(inFlightRequests.stats().size().bytes(), equalTo(0l));
+    }
+
+    @Test
+    public void testDisabledLimit() {
+        InFlightRequests inFlightRequests = new InFlightRequests(Loggers.getLogger(InFlightRequestsTests.class), threadPool,
+                new ByteSizeValue(-1), new ByteSizeValue(-1), TimeValue.timeValueSeconds(1));
+        assertThat(inFlightRequests.tryAdd(200 * 1024), equalTo(true));
+        assertThat(inFlightRequests.tryAdd(200 * 1024), equalTo(true));
+        assertThat(inFlightRequests.stats().rejected(), equalTo(0l));
+    }
+}